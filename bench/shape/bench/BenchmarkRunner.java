@@ -0,0 +1,25 @@
+package shape.bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks and writes the results as JSON, so runs of different releases can be compared.
+ * Arguments: [result file, default bench-result.json] [benchmark regex, default all in this package]
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException {
+        String result = args.length > 0 ? args[0] : "bench-result.json";
+        String include = args.length > 1 ? args[1] : BenchmarkRunner.class.getPackageName() + ".*Benchmark";
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result)
+                .build();
+        new Runner(options).run();
+    }
+}
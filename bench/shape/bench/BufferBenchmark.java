@@ -0,0 +1,67 @@
+package shape.bench;
+
+import org.openjdk.jmh.annotations.*;
+import shape.utils.DoubleRingBuffer;
+import shape.utils.Histogram;
+import shape.utils.LongRingBuffer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-sample cost of the metric ring buffers, with and without a percentile histogram.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BufferBenchmark {
+    @Param({"60", "1000"})
+    public int capacity;
+
+    private DoubleRingBuffer buffer;
+    private LongRingBuffer timings;
+    private double value;
+    private long nanos;
+
+    @Setup
+    public void setup() {
+        buffer = new DoubleRingBuffer(capacity);
+        timings = new LongRingBuffer(capacity, new Histogram(0, 50e6, 1000));
+        for (int i = 0; i < capacity; i++) {
+            buffer.add(i);
+            timings.add(16_000_000 + i);
+        }
+    }
+
+    @Benchmark
+    public void add() {
+        value += 0.25;
+        buffer.add(value);
+    }
+
+    @Benchmark
+    public double getAverage() {
+        return buffer.getMean();
+    }
+
+    @Benchmark
+    public double addAndAverage() {
+        value += 0.25;
+        buffer.add(value);
+        return buffer.getMean();
+    }
+
+    @Benchmark
+    public double addWithStatistics() {
+        nanos = (nanos + 7919) % 1_000_000;
+        timings.add(16_000_000 + nanos);
+        return timings.getMax() + timings.getVariance();
+    }
+
+    @Benchmark
+    public double percentile() {
+        return timings.getPercentile(0.99);
+    }
+}
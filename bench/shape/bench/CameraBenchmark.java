@@ -0,0 +1,53 @@
+package shape.bench;
+
+import org.openjdk.jmh.annotations.*;
+import shape.global.GLCamera;
+import shape.global.ViewProjection;
+import shape.utils.Mat4f;
+import transforms.Camera;
+import transforms.Mat4;
+import transforms.Mat4PerspRH;
+import transforms.Vec3D;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Camera matrix computation: the legacy GLCamera, the immutable transforms camera
+ * and the cached ViewProjection used by the scenes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CameraBenchmark {
+    private final GLCamera glCamera = new GLCamera();
+    private final Mat4 proj = new Mat4PerspRH(Math.PI / 4, 720.0 / 1280.0, 0.01, 1000.0);
+    private final ViewProjection viewProjection = new ViewProjection();
+    private Camera camera = new Camera().withPosition(new Vec3D(-0.7, 0.5, 0.5)).withZenith(-0.4);
+
+    @Benchmark
+    public Vec3D glCameraCompute() {
+        // any setter invalidates the camera, reading the eye recomputes it
+        glCamera.addAzimuth(0.001);
+        return glCamera.getEye();
+    }
+
+    @Benchmark
+    public Mat4 cameraViewProjection() {
+        camera = camera.addAzimuth(0.001);
+        return camera.getViewMatrix().mul(proj);
+    }
+
+    @Benchmark
+    public Mat4f cachedViewProjection() {
+        camera = camera.addAzimuth(0.001);
+        return viewProjection.update(camera, proj);
+    }
+
+    @Benchmark
+    public Mat4f unchangedViewProjection() {
+        return viewProjection.update(camera, proj);
+    }
+}
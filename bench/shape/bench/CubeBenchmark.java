@@ -0,0 +1,40 @@
+package shape.bench;
+
+import org.openjdk.jmh.annotations.*;
+import shape.global.Device;
+import shape.global.RecordingRenderDevice;
+import shape.model.Cube;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cube factories including the buffer setup, issued against the recording device.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CubeBenchmark {
+    @Setup
+    public void setup() {
+        Device.use(new RecordingRenderDevice());
+    }
+
+    @Benchmark
+    public long createCube() {
+        Cube cube = Cube.createCube();
+        long bytes = cube.bytes();
+        cube.delete();
+        return bytes;
+    }
+
+    @Benchmark
+    public long createTextureCube() {
+        Cube cube = Cube.createTextureCube();
+        long bytes = cube.bytes();
+        cube.delete();
+        return bytes;
+    }
+}
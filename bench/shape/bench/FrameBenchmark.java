@@ -0,0 +1,57 @@
+package shape.bench;
+
+import org.openjdk.jmh.annotations.*;
+import shape.app.GridScene;
+import shape.app.InstancesScene;
+import shape.app.LightsScene;
+import shape.global.AbstractRenderer;
+import shape.global.Device;
+import shape.global.RecordingRenderDevice;
+import shape.global.StateCachingRenderDevice;
+import shape.model.GeometryCache;
+import shape.utils.SceneEnum;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One display() call of a whole scene against the recording device behind the state cache,
+ * set up like {@link shape.Headless}, so the number covers everything on the CPU side of a
+ * frame except the driver and the swap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class FrameBenchmark {
+    @Param({"Grid", "Lights", "Instances"})
+    public SceneEnum scene;
+
+    private RecordingRenderDevice device;
+    private AbstractRenderer renderer;
+
+    @Setup
+    public void setup() {
+        device = new RecordingRenderDevice();
+        Device.use(StateCachingRenderDevice.wrap(device));
+        renderer = switch (scene) {
+            case Grid -> new GridScene(1280, 720, true);
+            case Lights -> new LightsScene(1280, 720, true);
+            case Instances -> new InstancesScene(1280, 720, true);
+        };
+        renderer.init();
+    }
+
+    @Benchmark
+    public long display() {
+        renderer.display();
+        return device.getDrawCalls();
+    }
+
+    @TearDown
+    public void tearDown() {
+        renderer.dispose();
+        GeometryCache.clear();
+    }
+}
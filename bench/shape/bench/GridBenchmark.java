@@ -0,0 +1,67 @@
+package shape.bench;
+
+import org.openjdk.jmh.annotations.*;
+import shape.model.GridGenerator;
+import shape.model.MeshCache;
+import shape.model.MeshData;
+import shape.model.SurfaceFunction;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU side of grid generation: vertex fill (or surface baking) and index build, no upload.
+ * gridStripMapped is the warm start of gridStrip, mapping the MeshCache file written in setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class GridBenchmark {
+    @Param({"100", "256", "1024", "2048", "4096"})
+    public int boxesPerSide;
+
+    private final GridGenerator generator = new GridGenerator();
+
+    @Setup
+    public void setup() {
+        consume(cachedStrip());
+    }
+
+    @Benchmark
+    public long gridList() {
+        return consume(generator.list(boxesPerSide));
+    }
+
+    @Benchmark
+    public long gridStrip() {
+        return consume(generator.strip(boxesPerSide));
+    }
+
+    @Benchmark
+    public long gridRows() {
+        return consume(generator.stripRestart(boxesPerSide, 32));
+    }
+
+    @Benchmark
+    public long gridStripBaked() {
+        return consume(generator.strip(boxesPerSide, SurfaceFunction.Normal));
+    }
+
+    @Benchmark
+    public long gridStripMapped() {
+        return consume(cachedStrip());
+    }
+
+    private MeshData cachedStrip() {
+        String key = "grid/strip/" + boxesPerSide;
+        return MeshCache.get(key, MeshCache.checksum(key, GridGenerator.class), () -> generator.strip(boxesPerSide));
+    }
+
+    private static long consume(MeshData mesh) {
+        long bytes = mesh.bytes();
+        mesh.free();
+        return bytes;
+    }
+}
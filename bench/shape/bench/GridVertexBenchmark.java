@@ -0,0 +1,80 @@
+package shape.bench;
+
+import org.lwjgl.opengl.GL;
+import org.openjdk.jmh.annotations.*;
+import shape.global.ShaderProgram;
+import shape.model.Grid;
+import shape.model.SurfaceFunction;
+import shape.utils.Mat4f;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.lwjgl.glfw.GLFW.*;
+import static org.lwjgl.opengl.GL11.glFinish;
+import static org.lwjgl.system.MemoryUtil.NULL;
+import static shape.global.Device.gl;
+
+/**
+ * GPU vertex throughput of the Normal surface: normals.vert evaluating the ripple three times per
+ * vertex against baked.vert fetching position and normal. Needs a GL context (hidden window); the
+ * viewport is tiny so rasterization stays out of the way. The score is the time of one draw of
+ * (boxesPerSide + 1)^2 vertices, GPU work included through glFinish.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class GridVertexBenchmark {
+    private static final int DRAWS = 16;
+
+    @Param({"256", "1024"})
+    public int boxesPerSide;
+
+    @Param({"false", "true"})
+    public boolean baked;
+
+    private long window;
+    private Grid grid;
+    private ShaderProgram program;
+
+    @Setup
+    public void setup() {
+        if (!glfwInit()) {
+            throw new IllegalStateException("Unable to initialize GLFW");
+        }
+        glfwDefaultWindowHints();
+        glfwWindowHint(GLFW_VISIBLE, GLFW_FALSE);
+        window = glfwCreateWindow(64, 64, "GridVertexBenchmark", NULL, NULL);
+        if (window == NULL) {
+            throw new IllegalStateException("Failed to create the GLFW window");
+        }
+        glfwMakeContextCurrent(window);
+        GL.createCapabilities();
+
+        grid = baked ? Grid.gridStrip(boxesPerSide, SurfaceFunction.Normal) : Grid.gridStrip(boxesPerSide);
+        program = ShaderProgram.load(baked ? "/grid/baked" : "/grid/normals");
+        program.use();
+        program.setMat4("mat", new Mat4f());
+        program.setVec3("chunk", 0, 0, 1);
+        gl().viewport(0, 0, 8, 8);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DRAWS)
+    public void draw() {
+        for (int i = 0; i < DRAWS; i++) {
+            grid.draw(program);
+        }
+        glFinish();
+    }
+
+    @TearDown
+    public void tearDown() {
+        program.delete();
+        grid.delete();
+        glfwDestroyWindow(window);
+        glfwTerminate();
+    }
+}
@@ -0,0 +1,43 @@
+package shape.bench;
+
+import org.openjdk.jmh.annotations.*;
+import shape.model.CubeSwarm;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Animating and packing instanced cube transforms into a native buffer, the CPU half of the
+ * Instances scene; needs no GL device at all.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstanceBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int count;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private CubeSwarm swarm;
+    private ByteBuffer target;
+    private double time;
+
+    @Setup
+    public void setup() {
+        swarm = new CubeSwarm(count, 42);
+        target = ByteBuffer.allocateDirect(swarm.bytes()).order(ByteOrder.nativeOrder());
+    }
+
+    @Benchmark
+    public ByteBuffer pack() {
+        time += 0.016;
+        swarm.pack(time, target, parallel);
+        return target;
+    }
+}
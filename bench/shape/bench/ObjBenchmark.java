@@ -0,0 +1,45 @@
+package shape.bench;
+
+import org.openjdk.jmh.annotations.*;
+import shape.model.MeshData;
+import shape.model.ObjLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ObjLoader on ducky.obj (about 24k lines) already in memory, so only parsing, joining chunks and
+ * deduplicating corners are measured. Needs res/ on the classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjBenchmark {
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private ByteBuffer source;
+
+    @Setup
+    public void setup() throws IOException {
+        try (InputStream in = ObjBenchmark.class.getResourceAsStream("/obj/ducky.obj")) {
+            if (in == null) {
+                throw new IllegalStateException("res/obj/ducky.obj is not on the classpath");
+            }
+            source = ByteBuffer.wrap(in.readAllBytes());
+        }
+    }
+
+    @Benchmark
+    public int parse() {
+        MeshData mesh = ObjLoader.parse(source, parallel);
+        int vertices = mesh.getVertexCount();
+        mesh.free();
+        return vertices;
+    }
+}
@@ -0,0 +1,44 @@
+package shape.bench;
+
+import org.openjdk.jmh.annotations.*;
+import shape.model.SurfaceEvaluator;
+import shape.model.SurfaceFunction;
+import shape.model.SurfaceSamples;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU evaluation of the grid shader surfaces with normals over a 1000x1000 box grid (1M vertices),
+ * scalar against jdk.incubator.vector lanes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class SurfaceBenchmark {
+    @Param({"Sea", "Torus", "Cylinder", "Cartesian", "Normal"})
+    public SurfaceFunction surface;
+
+    @Param({"false", "true"})
+    public boolean vector;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private SurfaceEvaluator evaluator;
+    private final SurfaceSamples samples = new SurfaceSamples(true);
+    private float time;
+
+    @Setup
+    public void setup() {
+        evaluator = new SurfaceEvaluator(vector);
+    }
+
+    @Benchmark
+    public SurfaceSamples evaluate() {
+        time += 0.016f;
+        return evaluator.evaluate(surface, 999, time, samples, parallel);
+    }
+}
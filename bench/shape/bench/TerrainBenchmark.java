@@ -0,0 +1,34 @@
+package shape.bench;
+
+import org.openjdk.jmh.annotations.*;
+import shape.model.TerrainLod;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame quadtree chunk selection of the terrain grid mode, camera circling just above the grid.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TerrainBenchmark {
+    @Param({"4", "7", "10"})
+    public int depth;
+
+    private TerrainLod lod;
+    private double angle;
+
+    @Setup
+    public void setup() {
+        lod = new TerrainLod(depth, 2.5);
+    }
+
+    @Benchmark
+    public int select() {
+        angle += 0.01;
+        return lod.select(0.5 + 0.3 * Math.cos(angle), 0.5 + 0.3 * Math.sin(angle), 0.05, -0.1, 0.1, null);
+    }
+}
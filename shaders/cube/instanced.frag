@@ -0,0 +1,27 @@
+#version 330
+#define lightColor vec3(1.0, 1.0, 1.0)
+#define lightDir vec3(0.3, 0.5, 0.8)
+#define ambientStrength 0.3
+#define specularStrength 0.3
+
+in vec3 FragPos;
+in vec3 normal;
+in vec3 color;
+
+out vec4 outColor;
+
+uniform vec3 viewPos;
+
+void main() {
+    vec3 ambient = ambientStrength * lightColor;
+
+    vec3 norm = normalize(normal);
+    vec3 toLight = normalize(lightDir);
+    vec3 diffuse = max(dot(norm, toLight), 0.0) * lightColor;
+
+    vec3 viewDir = normalize(viewPos - FragPos);
+    vec3 reflectDir = reflect(-toLight, norm);
+    vec3 specular = specularStrength * pow(max(dot(viewDir, reflectDir), 0.0), 64) * lightColor;
+
+    outColor = vec4((ambient + diffuse + specular) * color, 1.0);
+}
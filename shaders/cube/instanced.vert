@@ -0,0 +1,19 @@
+#version 330
+in vec3 inPosition;
+in vec3 inNormal;
+in mat4 inModel;
+in vec4 inColor;
+
+out vec3 FragPos;
+out vec3 normal;
+out vec3 color;
+
+uniform mat4 mat;
+
+void main() {
+	FragPos = vec3(inModel * vec4(inPosition, 1.0));
+	// rotation and uniform scale only, the normal matrix is the model matrix itself
+	normal = mat3(inModel) * inNormal;
+	color = inColor.rgb;
+	gl_Position = mat * vec4(FragPos, 1.0);
+}
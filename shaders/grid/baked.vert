@@ -0,0 +1,14 @@
+#version 330
+in vec3 inPosition; // surface position baked on the CPU, see Grid.gridStrip(int, SurfaceFunction)
+in vec3 inNormal; // baked unit normal
+
+out vec3 FragPos;
+out vec3 normal;
+
+uniform mat4 mat;
+
+void main() {
+    normal = inNormal;
+	FragPos = inPosition;
+	gl_Position = mat * vec4(inPosition, 1.0);
+}
@@ -3,7 +3,8 @@
 #define scale 1.2
 in vec3 inPosition; // input from the vertex buffer
 out vec3 normal;
-uniform mat4 matMVP; // matrix
+uniform mat4 mat; // matrix
+uniform vec3 chunk; // part of the [0;1] grid drawn: offset xy, size z
 
 float explicitFunction(in vec2 pos){
     float distance = sqrt(pos.x*pos.x+pos.y*pos.y);
@@ -20,11 +21,12 @@ vec3 normalCalculation(in vec2 pos){
 }
 
 void main() {
+    vec3 gridPosition = vec3(chunk.xy + inPosition.xy * chunk.z, inPosition.z);
     // [0;1] to [-1;1]
-    vec2 position = 2.0 * (inPosition.xy - vec2(0.5));
+    vec2 position = 2.0 * (gridPosition.xy - vec2(0.5));
     normal = normalCalculation(position.xy);
     // z = f(x,y)
     float resultZ = explicitFunction(position.xy);
     // transformation MVP
-    gl_Position = matMVP * vec4(inPosition.xy, resultZ, 1.0);
+    gl_Position = mat * vec4(gridPosition.xy, resultZ, 1.0);
 }
\ No newline at end of file
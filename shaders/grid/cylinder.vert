@@ -3,7 +3,8 @@
 
 in vec3 inPosition; // input from the vertex buffer
 out vec3 color;
-uniform mat4 matMVP; // matrix
+uniform mat4 mat; // matrix
+uniform vec3 chunk; // part of the [0;1] grid drawn: offset xy, size z
 
 vec2 rsValue(in vec2 pos){
     return vec2(sqrt(pos.x*pos.x+pos.y*pos.y), atan(pos.y, pos.x));
@@ -14,9 +15,10 @@ vec2 posValue(in vec2 rs){
 }
 
 void main() {
-    vec2 cyl = inPosition.xy*2.0*PI;
+    vec3 gridPosition = vec3(chunk.xy + inPosition.xy * chunk.z, inPosition.z);
+    vec2 cyl = gridPosition.xy*2.0*PI;
     vec2 pos = posValue(cyl);
     color = vec3(pos.xy, cyl.x);
     // transformation MVP
-    gl_Position = matMVP * vec4(pos.xy*0.1, cyl.x*cyl.y*0.1 ,1.0);
+    gl_Position = mat * vec4(pos.xy*0.1, cyl.x*cyl.y*0.1 ,1.0);
 }
\ No newline at end of file
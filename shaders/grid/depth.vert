@@ -1,7 +1,9 @@
 #version 330
 in vec3 inPosition; // input from the vertex buffer
 uniform mat4 mat; // variable constant for all vertices in a single draw
+uniform vec3 chunk; // part of the [0;1] grid drawn: offset xy, size z
 
 void main() {
-	gl_Position = mat * vec4(inPosition, 1.0);
+    vec3 gridPosition = vec3(chunk.xy + inPosition.xy * chunk.z, inPosition.z);
+	gl_Position = mat * vec4(gridPosition, 1.0);
 }
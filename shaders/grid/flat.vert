@@ -2,8 +2,10 @@
 in vec3 inPosition; // input from the vertex buffer
 out vec3 color; // output from this shader to the next pipeline stage
 uniform mat4 mat; // variable constant for all vertices in a single draw
+uniform vec3 chunk; // part of the [0;1] grid drawn: offset xy, size z
 
 void main() {
+    vec3 gridPosition = vec3(chunk.xy + inPosition.xy * chunk.z, inPosition.z);
     color.xyz = vec3(0.8);
-	gl_Position = mat * vec4(inPosition, 1.0);
+	gl_Position = mat * vec4(gridPosition, 1.0);
 }
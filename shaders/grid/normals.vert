@@ -8,6 +8,7 @@ out vec3 n1o;
 out vec3 n2o;
 
 uniform mat4 mat;
+uniform vec3 chunk; // part of the [0;1] grid drawn: offset xy, size z
 
 float generate(in vec3 pos) {
     float kx = 2 * PI / 0.05;
@@ -16,12 +17,13 @@ float generate(in vec3 pos) {
 }
 
 void main() {
-    vec3 out_arr = inPosition;
+    vec3 gridPosition = vec3(chunk.xy + inPosition.xy * chunk.z, inPosition.z);
+    vec3 out_arr = gridPosition;
     out_arr.z = generate(out_arr);
 
-    vec3 n1 = inPosition+vec3(0.005,0.0,0.0);
+    vec3 n1 = gridPosition+vec3(0.005,0.0,0.0);
     n1.z = generate(n1);
-    vec3 n2 = inPosition+vec3(0.0,0.005,0.0);
+    vec3 n2 = gridPosition+vec3(0.0,0.005,0.0);
     n2.z = generate(n2);
     n1o = n1;
     n2o = n2;
@@ -7,6 +7,7 @@
 in vec3 inPosition; // input from the vertex buffer
 out float norm;
 uniform mat4 mat; // matrix
+uniform vec3 chunk; // part of the [0;1] grid drawn: offset xy, size z
 uniform float time;
 
 float generate(in vec3 pos) {
@@ -16,8 +17,9 @@ float generate(in vec3 pos) {
 }
 
 void main() {
-    vec3 out_arr = inPosition;
-    out_arr.z = generate(inPosition);
+    vec3 gridPosition = vec3(chunk.xy + inPosition.xy * chunk.z, inPosition.z);
+    vec3 out_arr = gridPosition;
+    out_arr.z = generate(gridPosition);
     norm = (out_arr.z+1.0)/2.0;
 	gl_Position = mat * vec4(out_arr, 1.0);
 }
\ No newline at end of file
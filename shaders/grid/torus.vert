@@ -5,11 +5,13 @@
 in vec3 inPosition; // input from the vertex buffer
 out vec3 color; // output from this shader to the next pipeline stage
 uniform mat4 mat; // variable constant for all vertices in a single draw
+uniform vec3 chunk; // part of the [0;1] grid drawn: offset xy, size z
 
 void main() {
-    float x = inPosition.x*2.0*PI;
-    float y = inPosition.y*2.0*PI;
-    vec3 out_arr = inPosition;
+    vec3 gridPosition = vec3(chunk.xy + inPosition.xy * chunk.z, inPosition.z);
+    float x = gridPosition.x*2.0*PI;
+    float y = gridPosition.y*2.0*PI;
+    vec3 out_arr = gridPosition;
     out_arr.x = cos(x)*(a + b*cos(y));
     out_arr.y = sin(x)*(a + b*cos(y));
     out_arr.z = b*sin(y);
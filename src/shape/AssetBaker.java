@@ -0,0 +1,172 @@
+package shape;
+
+import shape.global.AssetPack;
+import shape.global.RgbaImage;
+import shape.model.MeshCache;
+import shape.model.MeshData;
+import shape.model.ObjLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Bakes the loose assets into an {@link AssetPack} the runtime maps instead: every image is decoded to
+ * RGBA8 with its mip chain, every OBJ model parsed into an indexed interleaved mesh and every shader
+ * stage preprocessed. Preprocessing resolves {@code #include "file"} relative to the including file
+ * and drops comments, blank lines and indentation, so compiler messages count lines of the baked source.
+ * Entries are named by their path under the resource or shader directory, as the loaders ask for them.
+ * Arguments: [resource directory, default res] [shader directory, default shaders] [pack, default assets.pack]
+ * The runtime reads the pack only when started with -Dshape.pack=path.
+ */
+public class AssetBaker {
+    private static final Pattern INCLUDE = Pattern.compile("#\\s*include\\s+\"([^\"]+)\"");
+
+    public static void main(String[] args) throws IOException {
+        Path resources = Path.of(args.length > 0 ? args[0] : "res");
+        Path shaders = Path.of(args.length > 1 ? args[1] : "shaders");
+        Path pack = Path.of(args.length > 2 ? args[2] : "assets.pack");
+
+        long start = System.nanoTime();
+        int images = 0, levels = 0, meshes = 0, stages = 0;
+        long size;
+        try (AssetPack.Writer writer = new AssetPack.Writer(pack)) {
+            for (Path file : files(resources)) {
+                String name = name(resources, file);
+                switch (extension(file)) {
+                    case "jpg", "jpeg", "png", "bmp", "gif" -> {
+                        levels += bakeImage(writer, name, file);
+                        images++;
+                    }
+                    case "obj" -> {
+                        MeshData data = ObjLoader.load(file);
+                        // pack entries are not validated against their sources, the checksum stays 0
+                        writer.addMesh(name, MeshCache.encode(data, 0));
+                        data.free();
+                        meshes++;
+                    }
+                    default -> {
+                    }
+                }
+            }
+            for (Path file : files(shaders)) {
+                switch (extension(file)) {
+                    case "vert", "frag", "geom", "tesc", "tese", "comp" -> {
+                        writer.addShader(name(shaders, file), preprocess(file, new ArrayDeque<>()));
+                        stages++;
+                    }
+                    default -> {
+                    }
+                }
+            }
+            size = writer.finish();
+        }
+        System.out.printf(Locale.ROOT, "Baked %d images (%d levels), %d meshes, %d shader stages into %s, %.2f MB in %.1f ms%n",
+                images, levels, meshes, stages, pack, size / 1048576.0, (System.nanoTime() - start) / 1e6);
+    }
+
+    private static int bakeImage(AssetPack.Writer writer, String name, Path file) throws IOException {
+        List<RgbaImage> chain = new ArrayList<>();
+        try {
+            try (InputStream in = Files.newInputStream(file)) {
+                chain.add(RgbaImage.read(in, name));
+            }
+            int count = chain.get(0).levels();
+            for (int level = 1; level < count; level++) {
+                chain.add(chain.get(level - 1).halve());
+            }
+            ByteBuffer[] pixels = new ByteBuffer[count];
+            for (int level = 0; level < count; level++) {
+                pixels[level] = chain.get(level).getPixels();
+            }
+            writer.addImage(name, chain.get(0).getWidth(), chain.get(0).getHeight(), pixels);
+            return count;
+        } finally {
+            chain.forEach(RgbaImage::free);
+        }
+    }
+
+    /**
+     * The source of file with its includes resolved and comments, blank lines and indentation dropped.
+     */
+    private static String preprocess(Path file, Deque<Path> including) throws IOException {
+        Path normalized = file.toAbsolutePath().normalize();
+        if (including.contains(normalized)) {
+            throw new IOException("Include cycle through " + file);
+        }
+        including.push(normalized);
+        StringBuilder out = new StringBuilder();
+        for (String line : stripComments(Files.readString(file)).split("\r\n|\r|\n")) {
+            String trimmed = line.strip();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            Matcher include = INCLUDE.matcher(trimmed);
+            if (include.matches()) {
+                out.append(preprocess(file.resolveSibling(include.group(1)), including));
+            } else {
+                out.append(trimmed).append('\n');
+            }
+        }
+        including.pop();
+        return out.toString();
+    }
+
+    /**
+     * Replaces comments with a space, keeping the line breaks of block comments.
+     */
+    private static String stripComments(String source) {
+        StringBuilder out = new StringBuilder(source.length());
+        int n = source.length();
+        for (int i = 0; i < n; i++) {
+            char c = source.charAt(i);
+            if (c == '/' && i + 1 < n && source.charAt(i + 1) == '/') {
+                while (i + 1 < n && source.charAt(i + 1) != '\n' && source.charAt(i + 1) != '\r') {
+                    i++;
+                }
+                out.append(' ');
+            } else if (c == '/' && i + 1 < n && source.charAt(i + 1) == '*') {
+                i += 2;
+                while (i < n && !(source.charAt(i) == '*' && i + 1 < n && source.charAt(i + 1) == '/')) {
+                    if (source.charAt(i) == '\n') {
+                        out.append('\n');
+                    }
+                    i++;
+                }
+                i++;
+                out.append(' ');
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private static List<Path> files(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            throw new IOException("No directory " + directory);
+        }
+        try (Stream<Path> walk = Files.walk(directory)) {
+            return walk.filter(Files::isRegularFile).sorted().toList();
+        }
+    }
+
+    private static String name(Path root, Path file) {
+        return root.relativize(file).toString().replace('\\', '/');
+    }
+
+    private static String extension(Path file) {
+        String name = file.getFileName().toString();
+        return name.substring(name.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+    }
+}
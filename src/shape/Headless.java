@@ -0,0 +1,95 @@
+package shape;
+
+import shape.app.GridScene;
+import shape.app.InstancesScene;
+import shape.app.LightsScene;
+import shape.global.AbstractRenderer;
+import shape.global.AssetPack;
+import shape.global.Device;
+import shape.global.ProgramRegistry;
+import shape.global.RecordingRenderDevice;
+import shape.global.RenderDevice;
+import shape.global.StateCachingRenderDevice;
+import shape.global.TextureCache;
+import shape.global.TextureStreamer;
+import shape.model.GeometryCache;
+import shape.utils.AllocationCounter;
+import shape.utils.FrameProfiler;
+import shape.utils.FramePhase;
+import shape.utils.SceneEnum;
+
+import java.util.Locale;
+
+import static org.lwjgl.glfw.GLFW.GLFW_KEY_R;
+import static org.lwjgl.glfw.GLFW.GLFW_PRESS;
+
+/**
+ * Runs a scene's display() without a window or GL context and reports its CPU cost,
+ * heap allocation and GL call counts per frame.
+ * Arguments: [Grid|Lights|Instances] [frames] [frames per shader, 0 keeps the first one]
+ */
+public class Headless {
+    public static void main(String[] args) {
+        SceneEnum scene = args.length > 0 ? SceneEnum.valueOf(args[0]) : SceneEnum.Grid;
+        long frames = args.length > 1 ? Long.parseLong(args[1]) : 1_000_000;
+        long cycle = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+
+        RecordingRenderDevice device = new RecordingRenderDevice();
+        RenderDevice cache = StateCachingRenderDevice.wrap(device);
+        Device.use(cache);
+        AbstractRenderer renderer = switch (scene) {
+            case Grid -> new GridScene(1280, 720, true);
+            case Lights -> new LightsScene(1280, 720, true);
+            case Instances -> new InstancesScene(1280, 720, true);
+        };
+        long sceneStart = System.nanoTime();
+        renderer.init();
+        long initNanos = System.nanoTime() - sceneStart;
+        run(renderer, 1, 0);
+        System.out.printf(Locale.ROOT, "Time to first frame: %.1f ms (init %.1f ms), %d textures pending%n",
+                (System.nanoTime() - sceneStart) / 1e6, initNanos / 1e6, TextureStreamer.get().pending());
+
+        run(renderer, Math.min(frames, 10_000), cycle);
+        device.reset();
+        if (cache instanceof StateCachingRenderDevice c) {
+            c.reset();
+        }
+        FrameProfiler.get().reset();
+        AllocationCounter allocation = new AllocationCounter();
+        long start = System.nanoTime();
+        run(renderer, frames, cycle);
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocation.sample();
+
+        System.out.printf(Locale.ROOT, "%s: %d frames, %.1f ns/frame, %.1f B/frame%n",
+                scene, frames, (double) elapsed / frames, (double) allocated / frames);
+        System.out.println(device.report(frames));
+        if (cache instanceof StateCachingRenderDevice c) {
+            System.out.println(c.report());
+        }
+        System.out.println(FrameProfiler.get().report());
+        System.out.println("Textures: " + TextureStreamer.get().report());
+        System.out.println("Asset pack: " + AssetPack.get().report());
+        System.out.println("Programs: " + ProgramRegistry.report());
+        FrameProfiler.get().stopCsv();
+
+        renderer.dispose();
+        GeometryCache.clear();
+        TextureCache.clear();
+        ProgramRegistry.clear();
+    }
+
+    private static void run(AbstractRenderer renderer, long frames, long cycle) {
+        for (long i = 0; i < frames; i++) {
+            if (cycle > 0 && i % cycle == cycle - 1) {
+                renderer.getGlfwKeyCallback().invoke(0, GLFW_KEY_R, 0, GLFW_PRESS, 0);
+            }
+            FrameProfiler.get().begin(FramePhase.Upload);
+            TextureStreamer.get().upload();
+            FrameProfiler.get().end(FramePhase.Upload);
+            renderer.display();
+            FrameProfiler.get().endFrame();
+            Device.gl().endFrame();
+        }
+    }
+}
@@ -1,8 +1,15 @@
 package shape;
 
 import shape.app.GridScene;
+import shape.app.InstancesScene;
 import shape.app.LightsScene;
+import shape.global.Device;
 import shape.global.LwjglWindow;
+import shape.global.ProgramRegistry;
+import shape.global.StateCachingRenderDevice;
+import shape.global.TextureCache;
+import shape.model.GeometryCache;
+import shape.utils.FrameProfiler;
 import shape.utils.SceneEnum;
 
 public class Main {
@@ -13,6 +20,7 @@ public class Main {
         SceneEnum scene = SceneEnum.Grid;
         GridScene grid = new GridScene(w, h, debufg);
         LightsScene lights = new LightsScene(w, h, debufg);
+        InstancesScene instances = new InstancesScene(w, h, debufg);
         LwjglWindow win = new LwjglWindow(w, h, false);
         boolean run = true;
         while (run) {
@@ -36,8 +44,26 @@ public class Main {
                     }
                     break;
                 }
+                case Instances -> {
+                    win.setRenderer(instances);
+                    if (instances.nextScene()) {
+                        scene = scene.next();
+                    } else {
+                        run = false;
+                    }
+                    break;
+                }
             }
         }
+        System.out.println("Frame profile: " + FrameProfiler.get().report());
+        FrameProfiler.get().stopCsv();
+        if (Device.gl() instanceof StateCachingRenderDevice cache) {
+            System.out.println(cache.report());
+        }
+        System.out.println("Programs: " + ProgramRegistry.report());
+        GeometryCache.clear();
+        TextureCache.clear();
+        ProgramRegistry.clear();
         win.exit();
 
         System.exit(0);
@@ -1,18 +1,33 @@
 package shape.app;
 
-import lwjglutils.OGLModelOBJ;
-import lwjglutils.ShaderUtils;
-import lwjglutils.ToFloatArray;
 import org.lwjgl.BufferUtils;
 import org.lwjgl.glfw.GLFWCursorPosCallback;
 import org.lwjgl.glfw.GLFWKeyCallback;
 import org.lwjgl.glfw.GLFWMouseButtonCallback;
 import org.lwjgl.glfw.GLFWScrollCallback;
-import org.lwjgl.opengl.GL;
 import shape.global.AbstractRenderer;
+import shape.global.Bounds;
+import shape.global.Drawable;
+import shape.global.Frustum;
+import shape.global.RenderQueue;
+import shape.global.ShaderProgram;
+import shape.global.Techniques;
+import shape.global.UpdateLoop;
+import shape.global.ViewProjection;
 import shape.model.Axis;
+import shape.model.GeometryCache;
 import shape.model.Grid;
-import shape.utils.FpsLimiter;
+import shape.model.MeshCache;
+import shape.model.ObjModel;
+import shape.model.SurfaceFunction;
+import shape.model.Terrain;
+import shape.model.TerrainLod;
+import shape.utils.AllocationCounter;
+import shape.utils.FramePacer;
+import shape.utils.FramePhase;
+import shape.utils.FrameProfiler;
+import shape.utils.Mat4f;
+import shape.utils.GridType;
 import transforms.*;
 
 import java.nio.DoubleBuffer;
@@ -20,12 +35,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Set;
 
 import static org.lwjgl.glfw.GLFW.*;
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL20.*;
-import static shape.model.Grid.gridList;
-import static shape.model.Grid.gridStrip;
+import static shape.global.Device.gl;
 
 enum Mode {
     Fill, Lines, Dots;
@@ -37,22 +52,58 @@ enum Mode {
     }
 }
 
+/**
+ * Input callbacks post commands to the update thread, which owns the camera, projection,
+ * animation time and info lines and publishes a {@link Frame} for display() to submit.
+ */
 public class GridScene extends AbstractRenderer {
+    private static final int ROWS_TILE = 32;
+    // -Dshape.indexReport=true prints the index memory of every grid layout at startup
+    private static final boolean INDEX_REPORT = Boolean.getBoolean("shape.indexReport");
+    // terrain mode: 32x32 box patches down to depth 7 reach 4096 boxes per side up close
+    private static final int TERRAIN_PATCH = 32;
+    private static final int TERRAIN_DEPTH = 7;
+    private static final double TERRAIN_SPLIT = 2.5;
+    // shaders that move x and y, so a chunk's grid square says nothing about where it ends up
+    private static final Set<String> REMAPPING = Set.of("Torus", "Cylinder");
     double ox, oy;
     Camera cam = new Camera().withPosition(new Vec3D(-0.7, 0.5, 0.5)).withZenith(-0.4);
     Mat4 proj = new Mat4PerspRH(Math.PI / 4, (double) height / width, 0.01, 1000.0);
-    int shaderProgram, objShader;
     private boolean renderDocDebug;
     private boolean changeScene = false;
-    private HashMap<String, Integer> gridShaders;
-    private FpsLimiter limiter;
+    private final Techniques gridShaders;
+    // where each grid shader moves the unit square to, for culling
+    private final HashMap<String, Bounds> gridBounds = new HashMap<>();
+    private Bounds duckBounds;
+    private FramePacer pacer;
+    private final FrameProfiler profiler = FrameProfiler.get();
+    private final RenderQueue queue = new RenderQueue();
     private Grid gridList;
     private Grid gridStrip;
-    private Grid grid;
+    private Grid gridRows;
+    private Terrain terrain;
+    // the Normal surface baked into the vertices, drawn with the fetch-only shader
+    private Grid bakedStrip;
+    private Grid bakedRows;
+    private boolean baked = false;
+    private final TerrainLod terrainLod = new TerrainLod(TERRAIN_DEPTH, TERRAIN_SPLIT);
     private boolean manual = false;
     private Axis axis;
     private HashMap<String, ArrayList<String>> info;
-    private boolean list = true;
+    private String[] infoLines;
+    private String fpsText;
+    private String queueText;
+    private String terrainText;
+    private long shownTerrain;
+    private long shownSwitches;
+    private int shownCulled;
+    private int shownFps;
+    private long shownP99;
+    private long shownAllocation;
+    private final AllocationCounter allocation = new AllocationCounter();
+    private final ViewProjection viewProjection = new ViewProjection();
+    private final Mat4f modelMatrix = new Mat4f();
+    private GridType gridType = GridType.List;
     private boolean persp = true;
     private double speed = 0.01;
     private double zoom = 32;
@@ -60,14 +111,44 @@ public class GridScene extends AbstractRenderer {
     private Mode mode = Mode.Fill;
     private String aciveShaderName = "Flat";
     private float time = 0;
-    private OGLModelOBJ model;
+    private ObjModel model;
     private Mat4 modelTransf;
+    private UpdateLoop<Frame> updater;
+
+    /**
+     * What the render thread needs from one update, written only by the update thread.
+     */
+    private static final class Frame {
+        final Mat4f viewProj = new Mat4f();
+        final Mat4f modelViewProj = new Mat4f();
+        final Frustum frustum = new Frustum();
+        float[] chunks = new float[0];
+        int chunkCount;
+        int chunkDepth;
+        float time;
+        Mode mode;
+        GridType gridType;
+        String shader;
+        boolean baked;
+        String[] infoLines;
+    }
 
     public GridScene(int width, int height, boolean debug) {
         super(width, height);
         renderDocDebug = debug;
         callbacks();
-        gridShaders = new HashMap<>();
+        gridShaders = new Techniques()
+                .add("Flat", "/grid/flat")
+                .add("Torus", "/grid/torus")
+                .add("Cartesian", "/grid/cartesian")
+                .add("Sea", "/grid/sea")
+                .add("Depth", "/grid/depth")
+                .add("Cylinder", "/grid/cylinder")
+                .add("Normal", "/grid/normals")
+                .addHidden("Baked", "/grid/baked")
+                .addHidden("Duck", "/ducky");
+        // terrain moves the grid shaders' chunk while drawing, every other command places its grid itself
+        queue.requirePerCommand("chunk");
 
         info = new HashMap<>();
         info.put("scene", new ArrayList<>(List.of("[TAB] Scene: Grid", "")));
@@ -77,11 +158,18 @@ public class GridScene extends AbstractRenderer {
         info.put("shader", new ArrayList<>(List.of("[R] Grid shader:", "Flat")));
         info.put("speed", new ArrayList<>(List.of("Speed:", "0.01", " Zoom:", "32")));
         info.put("manual", new ArrayList<>(List.of("[O +/-]Manual control:", "")));
-
-        info.get("mode").set(1, mode.toString());
-        info.get("manual").set(1, String.valueOf(manual));
-        info.get("grid").set(1, list ? "List" : "Strip");
-        info.get("projection").set(1, persp ? "Persp" : "Ortho");
+        info.put("queue", new ArrayList<>(List.of("[Q] Sort draws:", "")));
+        info.put("baked", new ArrayList<>(List.of("[B] Baked Normal surface:", "")));
+
+        setInfo("mode", 1, mode.toString());
+        setInfo("manual", 1, String.valueOf(manual));
+        setInfo("grid", 1, gridType.toString());
+        setInfo("projection", 1, persp ? "Persp" : "Ortho");
+        setInfo("queue", 1, String.valueOf(queue.isSorting()));
+        setInfo("baked", 1, String.valueOf(baked));
+        if (INDEX_REPORT) {
+            System.out.print(Grid.indexReport(100, ROWS_TILE));
+        }
     }
 
     private void callbacks() {
@@ -91,57 +179,16 @@ public class GridScene extends AbstractRenderer {
                 if (key == GLFW_KEY_ESCAPE && action == GLFW_RELEASE)
                     glfwSetWindowShouldClose(window, true);
                 if (action == GLFW_PRESS || action == GLFW_REPEAT) {
-                    switch (key) {
-                        case GLFW_KEY_M -> {
-                            mode = mode.next();
-                            info.get("mode").set(1, mode.toString());
-                        }
-                        case GLFW_KEY_KP_ADD -> {
-                            time = (time + 0.01F) % (float) Math.PI;
-                        }
-                        case GLFW_KEY_KP_SUBTRACT -> {
-                            time = (time - 0.01F) % (float) Math.PI;
-                        }
-                        case GLFW_KEY_O -> {
-                            manual = !manual;
-                            info.get("manual").set(1, String.valueOf(manual));
-                        }
-                        case GLFW_KEY_TAB -> {
-                            changeScene = true;
-                            glfwSetWindowShouldClose(window, true);
-                        }
-                        case GLFW_KEY_G -> {
-                            if (list) {
-                                grid = gridStrip;
-                                list = false;
-                            } else {
-                                grid = gridList;
-                                list = true;
-                            }
-                            info.get("grid").set(1, list ? "List" : "Strip");
-                        }
-                        case GLFW_KEY_P -> {
-                            if (persp) {
-                                proj = new Mat4OrthoRH(width / zoom, height / zoom, 0.01, 1000.0);
-                                persp = false;
-                            } else {
-                                proj = new Mat4PerspRH(Math.PI / 4, (double) height / width, 0.01, 1000.0);
-                                persp = true;
-                            }
-                            info.get("projection").set(1, persp ? "Persp" : "Ortho");
-                        }
-                        case GLFW_KEY_R -> {
-                            List<String> l = new ArrayList<>(gridShaders.keySet());
-                            aciveShaderName = l.get(((l.indexOf(aciveShaderName) + 1) % l.size()));
-                            shaderProgram = gridShaders.get(aciveShaderName);
-                            info.get("shader").set(1, aciveShaderName);
-                        }
-                        case GLFW_KEY_W -> cam = cam.forward(speed);
-                        case GLFW_KEY_D -> cam = cam.right(speed);
-                        case GLFW_KEY_S -> cam = cam.backward(speed);
-                        case GLFW_KEY_A -> cam = cam.left(speed);
-                        case GLFW_KEY_LEFT_CONTROL -> cam = cam.down(speed);
-                        case GLFW_KEY_LEFT_SHIFT -> cam = cam.up(speed);
+                    if (key == GLFW_KEY_TAB) {
+                        changeScene = true;
+                        glfwSetWindowShouldClose(window, true);
+                    } else if (key == GLFW_KEY_Q) {
+                        queue.setSorting(!queue.isSorting());
+                        String sorting = String.valueOf(queue.isSorting());
+                        updater.post(() -> setInfo("queue", 1, sorting));
+                    } else {
+                        int w = width, h = height;
+                        updater.post(() -> keyPressed(key, w, h));
                     }
                 }
             }
@@ -150,14 +197,17 @@ public class GridScene extends AbstractRenderer {
         glfwScrollCallback = new GLFWScrollCallback() {
             @Override
             public void invoke(long window, double dx, double dy) {
-                if (persp) {
-                    speed = Math.max(Math.min(speed + dy * 0.02, 1.0), 0.01);
-                    info.get("speed").set(1, String.format("%.2f", speed));
-                } else {
-                    zoom += zoom * dy * 0.1;
-                    info.get("speed").set(3, String.format("%.0f", zoom));
-                    proj = new Mat4OrthoRH(width / zoom, height / zoom, 0.01, 1000.0);
-                }
+                int w = width, h = height;
+                updater.post(() -> {
+                    if (persp) {
+                        speed = Math.max(Math.min(speed + dy * 0.02, 1.0), 0.01);
+                        setInfo("speed", 1, String.format("%.2f", speed));
+                    } else {
+                        zoom += zoom * dy * 0.1;
+                        setInfo("speed", 3, String.format("%.0f", zoom));
+                        proj = new Mat4OrthoRH(w / zoom, h / zoom, 0.01, 1000.0);
+                    }
+                });
             }
         };
 
@@ -165,9 +215,7 @@ public class GridScene extends AbstractRenderer {
             @Override
             public void invoke(long window, double x, double y) {
                 if (mouseButton1) {
-                    cam = cam.addAzimuth((double) Math.PI * (ox - x) / width).addZenith((double) Math.PI * (oy - y) / width);
-                    ox = x;
-                    oy = y;
+                    rotate(x, y);
                 }
             }
         };
@@ -191,105 +239,269 @@ public class GridScene extends AbstractRenderer {
                     DoubleBuffer xBuffer = BufferUtils.createDoubleBuffer(1);
                     DoubleBuffer yBuffer = BufferUtils.createDoubleBuffer(1);
                     glfwGetCursorPos(window, xBuffer, yBuffer);
-                    double x = xBuffer.get(0);
-                    double y = yBuffer.get(0);
-                    cam = cam.addAzimuth((double) Math.PI * (ox - x) / width).addZenith((double) Math.PI * (oy - y) / width);
-                    ox = x;
-                    oy = y;
+                    rotate(xBuffer.get(0), yBuffer.get(0));
                 }
             }
 
         };
     }
 
+    private void rotate(double x, double y) {
+        double azimuth = Math.PI * (ox - x) / width;
+        double zenith = Math.PI * (oy - y) / width;
+        ox = x;
+        oy = y;
+        updater.post(() -> cam = cam.addAzimuth(azimuth).addZenith(zenith));
+    }
+
+    /**
+     * Runs on the update thread.
+     */
+    private void keyPressed(int key, int w, int h) {
+        switch (key) {
+            case GLFW_KEY_M -> {
+                mode = mode.next();
+                setInfo("mode", 1, mode.toString());
+            }
+            case GLFW_KEY_KP_ADD -> {
+                time = (time + 0.01F) % (float) Math.PI;
+            }
+            case GLFW_KEY_KP_SUBTRACT -> {
+                time = (time - 0.01F) % (float) Math.PI;
+            }
+            case GLFW_KEY_B -> {
+                baked = !baked;
+                setInfo("baked", 1, String.valueOf(baked));
+            }
+            case GLFW_KEY_O -> {
+                manual = !manual;
+                setInfo("manual", 1, String.valueOf(manual));
+            }
+            case GLFW_KEY_G -> {
+                gridType = gridType.next();
+                setInfo("grid", 1, gridType.toString());
+            }
+            case GLFW_KEY_P -> {
+                if (persp) {
+                    proj = new Mat4OrthoRH(w / zoom, h / zoom, 0.01, 1000.0);
+                    persp = false;
+                } else {
+                    proj = new Mat4PerspRH(Math.PI / 4, (double) h / w, 0.01, 1000.0);
+                    persp = true;
+                }
+                setInfo("projection", 1, persp ? "Persp" : "Ortho");
+            }
+            case GLFW_KEY_R -> {
+                aciveShaderName = gridShaders.next(aciveShaderName);
+                setInfo("shader", 1, aciveShaderName);
+            }
+            case GLFW_KEY_W -> cam = cam.forward(speed);
+            case GLFW_KEY_D -> cam = cam.right(speed);
+            case GLFW_KEY_S -> cam = cam.backward(speed);
+            case GLFW_KEY_A -> cam = cam.left(speed);
+            case GLFW_KEY_LEFT_CONTROL -> cam = cam.down(speed);
+            case GLFW_KEY_LEFT_SHIFT -> cam = cam.up(speed);
+        }
+    }
+
     @Override
     public void init() {
         super.init();
         changeScene = false;
-        GL.createCapabilities();
-        limiter = new FpsLimiter();
-        glClearColor(0.4f, 0.4f, 0.5f, 1.0f);
-
-        gridShaders.put("Flat", ShaderUtils.loadProgram("/grid/flat"));
-        gridShaders.put("Torus", ShaderUtils.loadProgram("/grid/torus"));
-        gridShaders.put("Cartesian", ShaderUtils.loadProgram("/grid/cartesian"));
-        gridShaders.put("Sea", ShaderUtils.loadProgram("/grid/sea"));
-        gridShaders.put("Depth", ShaderUtils.loadProgram("/grid/depth"));
-        gridShaders.put("Cylinder", ShaderUtils.loadProgram("/grid/cylinder"));
-        gridShaders.put("Normal", ShaderUtils.loadProgram("/grid/normals"));
-        objShader = ShaderUtils.loadProgram("/ducky");
-        shaderProgram = gridShaders.get("Flat");
-
-        model = new OGLModelOBJ("/obj/ducky.obj");
+        pacer = new FramePacer();
+        gl().clearColor(0.4f, 0.4f, 0.5f, 1.0f);
+
+        // the rest link on first selection or in time left over after the first frame
+        gridShaders.prepare(aciveShaderName);
+        gridBounds.put("Torus", Bounds.box(-1.5, -1.5, -0.5, 1.5, 1.5, 0.5));
+        gridBounds.put("Cartesian", Bounds.box(0, 0, -1, 1, 1, 1));
+        gridBounds.put("Sea", Bounds.box(0, 0, -0.1, 1, 1, 0.1));
+        gridBounds.put("Cylinder", Bounds.box(-0.2 * Math.PI, -0.2 * Math.PI, 0, 0.2 * Math.PI, 0.2 * Math.PI, 0.4 * Math.PI * Math.PI));
+        gridBounds.put("Normal", Bounds.box(0, 0, -0.02, 1, 1, 0.02));
+
+        model = GeometryCache.obj("/obj/ducky.obj");
+        // ducky.vert shrinks the model and bobs it along y by up to 2 around 0.25
+        duckBounds = model.getBounds() == null ? null : model.getBounds().scale(0.005).expand(0, 1.75, 0, 0, 2.25, 0);
         modelTransf = new Mat4Scale(0.05).mul(new Mat4RotX(1.5)).mul(new Mat4Transl(new Vec3D(0.5, 0.5, 0)));
+        modelMatrix.set(modelTransf);
         axis = new Axis();
 
-        gridList = gridList(100);
-        gridStrip = gridStrip(100);
-        grid = gridList;
-        glEnable(GL_DEPTH_TEST);
+        gridList = GeometryCache.gridList(100);
+        gridStrip = GeometryCache.gridStrip(100);
+        gridRows = GeometryCache.gridRows(100, ROWS_TILE);
+        terrain = GeometryCache.terrain(TERRAIN_PATCH);
+        bakedStrip = GeometryCache.gridStrip(100, SurfaceFunction.Normal);
+        bakedRows = GeometryCache.gridRows(100, ROWS_TILE, SurfaceFunction.Normal);
+        System.out.println("Grid list: " + gridList.report());
+        System.out.println("Grid strip: " + gridStrip.report());
+        System.out.println("Grid rows: " + gridRows.report());
+        System.out.println("Grid strip baked: " + bakedStrip.report());
+        System.out.printf("Terrain: %d vertex patches, up to %d vertices at depth %d%n",
+                terrain.patchVertices(), terrain.effectiveVertices(TERRAIN_DEPTH), TERRAIN_DEPTH);
+        System.out.println("Duck model: " + model.report());
+        System.out.println("Geometry cache: " + GeometryCache.report());
+        System.out.println("Mesh cache: " + MeshCache.report());
+        gridType = GridType.List;
+        setInfo("grid", 1, gridType.toString());
+        gl().enable(GL_DEPTH_TEST);
+
+        updater = new UpdateLoop<>("Grid", Frame::new, this::update);
+        updater.start();
     }
 
-    @Override
-    public void display() {
-        //shared across scenes
-        glViewport(0, 0, width, height);
-        glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+    /**
+     * Runs on the update thread once per frame, after the posted input commands.
+     */
+    private void update(Frame frame) {
         if (!manual) {
             time = (time + 0.01F) % (float) Math.PI;
         }
-
-        glUseProgram(shaderProgram);
-
-        glUniformMatrix4fv(0, false, ToFloatArray.convert(cam.getViewMatrix().mul(proj)));
-
-        if (aciveShaderName.equals("Sea")) {
-            glUniform1f(1, time);
+        if (aciveShaderName.equals("Normal") && gridType == GridType.List) {
+            gridType = GridType.Strip;
+            setInfo("grid", 1, gridType.toString());
+        }
+        if (infoLines == null) {
+            infoLines = new String[info.size()];
+            int i = 0;
+            for (ArrayList<String> entry : info.values()) {
+                infoLines[i++] = String.join(" ", entry);
+            }
         }
 
-        if (aciveShaderName.equals("Normal")) {
-            grid = gridStrip;
-            list = false;
-            info.get("grid").set(1, list ? "List" : "Strip");
+        frame.viewProj.set(viewProjection.update(cam, proj));
+        frame.modelViewProj.set(modelMatrix).mul(frame.viewProj);
+        frame.frustum.set(frame.viewProj);
+        if (gridType == GridType.Terrain) {
+            selectChunks(frame);
         }
+        frame.time = time;
+        frame.mode = mode;
+        frame.gridType = gridType;
+        frame.shader = aciveShaderName;
+        frame.baked = baked;
+        frame.infoLines = infoLines;
+    }
 
-        switch (mode) {
-            case Fill -> {
-                glPolygonMode(GL_FRONT, GL_FILL);
-                glPolygonMode(GL_BACK, GL_FILL);
-                grid.draw(shaderProgram);
-            }
-            case Lines -> {
-                glPolygonMode(GL_FRONT, GL_LINE);
-                glPolygonMode(GL_BACK, GL_LINE);
-                grid.draw(shaderProgram);
-            }
-            case Dots -> grid.draw(shaderProgram, GL_POINTS);
+    /**
+     * Runs on the update thread, picks the terrain chunks for the current camera.
+     */
+    private void selectChunks(Frame frame) {
+        Bounds displaced = gridBounds.get(aciveShaderName);
+        double zMin = displaced == null ? 0 : displaced.getMinZ();
+        double zMax = displaced == null ? 0 : displaced.getMaxZ();
+        Vec3D eye = cam.getPosition();
+        int count = terrainLod.select(eye.getX(), eye.getY(), eye.getZ(), zMin, zMax,
+                REMAPPING.contains(aciveShaderName) ? null : frame.frustum);
+        int floats = count * TerrainLod.FLOATS_PER_CHUNK;
+        if (frame.chunks.length < floats) {
+            frame.chunks = new float[terrainLod.getChunks().length];
         }
+        System.arraycopy(terrainLod.getChunks(), 0, frame.chunks, 0, floats);
+        frame.chunkCount = count;
+        frame.chunkDepth = terrainLod.getDeepest();
+    }
 
-        if (aciveShaderName.equals("Sea")) {
-            glUseProgram(objShader);
-            glUniformMatrix4fv(0, false, ToFloatArray.convert(modelTransf.mul(cam.getViewMatrix().mul(proj))));
-            glUniform1f(1, time);
-            model.getBuffers().draw(model.getTopology(), objShader);
+    @Override
+    public void display() {
+        long frameStart = System.nanoTime();
+        //shared across scenes
+        profiler.begin(FramePhase.Clear);
+        gl().viewport(0, 0, width, height);
+        gl().clear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+        profiler.end(FramePhase.Clear);
+
+        Frame frame = updater.acquire();
+        Mat4f viewProj = frame.viewProj;
+        boolean sea = frame.shader.equals("Sea");
+        ShaderProgram shaderProgram = gridShaders.get(frame.shader);
+        Drawable grid = switch (frame.gridType) {
+            case List -> gridList;
+            case Strip -> gridStrip;
+            case Rows -> gridRows;
+            case Terrain -> terrain;
+        };
+
+        Bounds bounds = gridBounds.getOrDefault(frame.shader, grid.getBounds());
+        if (frame.baked && frame.shader.equals("Normal") && grid != terrain) {
+            // positions and normals come from the vertices, the bounds are the real ones
+            grid = frame.gridType == GridType.Rows ? bakedRows : bakedStrip;
+            shaderProgram = gridShaders.get("Baked");
+            bounds = grid.getBounds();
         }
 
-        axis.draw(cam.getViewMatrix().mul(proj));
+        queue.setFrustum(frame.frustum);
+        // the whole grid, terrain sets each of its chunks while drawing
+        queue.add(shaderProgram, grid).mat4("mat", viewProj).vec3("chunk", 0, 0, 1).phase(FramePhase.Grid).bounds(bounds);
+        if (grid == terrain) {
+            terrain.setChunks(frame.chunks, frame.chunkCount);
+        }
+        switch (frame.mode) {
+            case Fill -> queue.polygonMode(GL_FILL);
+            case Lines -> queue.polygonMode(GL_LINE);
+            case Dots -> queue.topology(GL_POINTS);
+        }
+        if (sea) {
+            queue.setFloat("time", frame.time);
+            queue.add(gridShaders.get("Duck"), model).mat4("mat", frame.modelViewProj).setFloat("time", frame.time).phase(FramePhase.Obj)
+                    .bounds(duckBounds).transform(modelMatrix);
+        }
+        axis.queue(queue, viewProj);
+        queue.submit();
 
-        if (!renderDocDebug) {
-            text();
+        if (!renderDocDebug && textRenderer != null) {
+            profiler.begin(FramePhase.Text);
+            text(frame);
             textRenderer.addStr2D(width - 120, height - 3, " (c) Matěj Kolář UHK");
-            textRenderer.addStr2D(width - 50, 15, "FPS: " + limiter.getCurrentFps());
+            // lwjglutils draws the text with raw GL calls
+            gl().invalidate();
+            profiler.end(FramePhase.Text);
         }
-        limiter.limit();
+        gridShaders.warmUp(frameStart);
+        pacer.pace();
+    }
+
+    private void setInfo(String key, int index, String value) {
+        info.get(key).set(index, value);
+        infoLines = null;
     }
 
-    private void text() {
+    private void text(Frame frame) {
         int y = 15;
-        for (ArrayList<String> entry : info.values()) {
-            textRenderer.addStr2D(5, y, String.join(" ", entry));
+        for (String line : frame.infoLines) {
+            textRenderer.addStr2D(5, y, line);
             y += 15;
         }
+        long allocated = allocation.sample();
+        long p99 = Math.round(pacer.getPercentile(0.99) * 10);
+        if (fpsText == null || pacer.getCurrentFps() != shownFps || p99 != shownP99 || allocated != shownAllocation) {
+            shownFps = pacer.getCurrentFps();
+            shownP99 = p99;
+            shownAllocation = allocated;
+            fpsText = "FPS: " + shownFps + "  p99 " + shownP99 / 10 + "." + shownP99 % 10 + " ms  " + shownAllocation + " B/frame";
+        }
+        textRenderer.addStr2D(width - 230, 15, fpsText);
+
+        RenderQueue.Counts before = queue.getRecorded();
+        RenderQueue.Counts after = queue.getSorted();
+        long switches = (long) before.getPrograms() << 48 | (long) after.getPrograms() << 32
+                | (long) after.getTextures() << 16 | after.getMeshes();
+        if (queueText == null || switches != shownSwitches || queue.getCulled() != shownCulled) {
+            shownSwitches = switches;
+            shownCulled = queue.getCulled();
+            queueText = "Switches: " + queue.report().substring("switches ".length());
+        }
+        textRenderer.addStr2D(width - 330, height - 20, queueText);
+
+        if (frame.gridType == GridType.Terrain) {
+            long shown = (long) frame.chunkCount << 8 | frame.chunkDepth;
+            if (terrainText == null || shown != shownTerrain) {
+                shownTerrain = shown;
+                terrainText = "Terrain: " + frame.chunkCount + " chunks, depth " + frame.chunkDepth + ", "
+                        + (long) frame.chunkCount * terrain.patchVertices() + " of "
+                        + terrain.effectiveVertices(frame.chunkDepth) + " vertices";
+            }
+            textRenderer.addStr2D(width - 330, height - 35, terrainText);
+        }
     }
 
     public boolean nextScene(){
@@ -298,12 +510,19 @@ public class GridScene extends AbstractRenderer {
 
     @Override
     public void dispose(){
-        for (int s: gridShaders.values()) {
-            glDeleteProgram(s);
-        }
-        gridList.unbind();
-        gridStrip.unbind();
-        model.getBuffers().unbind();
+        updater.stop();
+        System.out.println("Render queue: " + queue.report());
+        System.out.printf("Frame pacing: %s, waited for update %.2f ms%n", pacer.report(), updater.getWaitNanos() / 1e6);
+        System.out.println("Techniques: " + gridShaders.report());
+        gridShaders.release();
+        axis.delete();
+        GeometryCache.release(gridList);
+        GeometryCache.release(gridStrip);
+        GeometryCache.release(gridRows);
+        GeometryCache.release(terrain);
+        GeometryCache.release(bakedStrip);
+        GeometryCache.release(bakedRows);
+        GeometryCache.release(model);
     }
 
 }
\ No newline at end of file
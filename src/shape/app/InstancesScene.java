@@ -0,0 +1,333 @@
+package shape.app;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.glfw.GLFWCursorPosCallback;
+import org.lwjgl.glfw.GLFWKeyCallback;
+import org.lwjgl.glfw.GLFWMouseButtonCallback;
+import org.lwjgl.glfw.GLFWScrollCallback;
+import shape.global.AbstractRenderer;
+import shape.global.Bounds;
+import shape.global.Frustum;
+import shape.global.ProgramRegistry;
+import shape.global.RenderQueue;
+import shape.global.ShaderProgram;
+import shape.global.UpdateLoop;
+import shape.global.ViewProjection;
+import shape.model.Axis;
+import shape.model.CubeSwarm;
+import shape.model.InstancedCube;
+import shape.utils.AllocationCounter;
+import shape.utils.FramePacer;
+import shape.utils.FramePhase;
+import shape.utils.FrameProfiler;
+import shape.utils.Mat4f;
+import transforms.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.lwjgl.glfw.GLFW.*;
+import static org.lwjgl.opengl.GL11.*;
+import static shape.global.Device.gl;
+
+/**
+ * Stress scene: a {@link CubeSwarm} of -Dshape.instances cubes (100k by default) animated on the
+ * update thread, culled against the view frustum, packed in parallel into the frame snapshot
+ * and drawn with one instanced call.
+ */
+public class InstancesScene extends AbstractRenderer {
+    private static final int MAX_INSTANCES = 1 << 22;
+    double ox, oy;
+    Camera cam = new Camera().withPosition(new Vec3D(-90, 0, 20)).withZenith(-0.2);
+    Mat4 proj = new Mat4PerspRH(Math.PI / 4, (double) height / width, 0.1, 1000.0);
+    private boolean changeScene = false;
+    private boolean renderDocDebug;
+    private ShaderProgram shader;
+    private FramePacer pacer;
+    private final FrameProfiler profiler = FrameProfiler.get();
+    private final RenderQueue queue = new RenderQueue();
+    private InstancedCube cubes;
+    private Axis axis;
+    private LinkedHashMap<String, ArrayList<String>> info;
+    private String[] infoLines;
+    private String fpsText;
+    private String packText;
+    private int shownFps;
+    private long shownP99;
+    private long shownAllocation;
+    private long shownPack;
+    private int shownVisible;
+    private final AllocationCounter allocation = new AllocationCounter();
+    private final ViewProjection viewProjection = new ViewProjection();
+    private double speed = 0.5;
+    private boolean mouseButton1 = false;
+    private int instances = Integer.getInteger("shape.instances", 100_000);
+    private boolean parallel = true;
+    private boolean culling = true;
+    private CubeSwarm swarm;
+    private double time = 0;
+    private double packNanos;
+    private UpdateLoop<Frame> updater;
+
+    /**
+     * What the render thread needs from one update, written only by the update thread.
+     */
+    private static final class Frame {
+        final Mat4f viewProj = new Mat4f();
+        ByteBuffer instances = ByteBuffer.allocateDirect(0);
+        final Frustum frustum = new Frustum();
+        int count;
+        int total;
+        Bounds bounds;
+        long packNanos;
+        // camera position, see ViewProjection
+        double viewX, viewY, viewZ;
+        String[] infoLines;
+    }
+
+    public InstancesScene(int width, int height, boolean debug) {
+        super(width, height);
+        renderDocDebug = debug;
+        callbacks();
+
+        info = new LinkedHashMap<>();
+        info.put("scene", new ArrayList<>(List.of("[TAB] Scene: Instances", "")));
+        info.put("instances", new ArrayList<>(List.of("[+/-] Instances:", "")));
+        info.put("parallel", new ArrayList<>(List.of("[I] Parallel update:", "")));
+        info.put("culling", new ArrayList<>(List.of("[C] Frustum culling:", "")));
+        info.put("speed", new ArrayList<>(List.of("Speed:", "0.50")));
+
+        setInfo("instances", 1, String.valueOf(instances));
+        setInfo("parallel", 1, String.valueOf(parallel));
+        setInfo("culling", 1, String.valueOf(culling));
+    }
+
+    private void callbacks() {
+        glfwKeyCallback = new GLFWKeyCallback() {
+            @Override
+            public void invoke(long window, int key, int scancode, int action, int mods) {
+                if (key == GLFW_KEY_ESCAPE && action == GLFW_RELEASE)
+                    glfwSetWindowShouldClose(window, true);
+                if (action == GLFW_PRESS || action == GLFW_REPEAT) {
+                    if (key == GLFW_KEY_TAB) {
+                        changeScene = true;
+                        glfwSetWindowShouldClose(window, true);
+                    } else {
+                        updater.post(() -> keyPressed(key));
+                    }
+                }
+            }
+        };
+
+        glfwScrollCallback = new GLFWScrollCallback() {
+            @Override
+            public void invoke(long window, double dx, double dy) {
+                updater.post(() -> {
+                    speed = Math.max(Math.min(speed + dy * 0.1, 5.0), 0.1);
+                    setInfo("speed", 1, String.format("%.2f", speed));
+                });
+            }
+        };
+
+        glfwCursorPosCallback = new GLFWCursorPosCallback() {
+            @Override
+            public void invoke(long window, double x, double y) {
+                if (mouseButton1) {
+                    rotate(x, y);
+                }
+            }
+        };
+
+        glfwMouseButtonCallback = new GLFWMouseButtonCallback() {
+            @Override
+            public void invoke(long window, int button, int action, int mods) {
+                mouseButton1 = glfwGetMouseButton(window, GLFW_MOUSE_BUTTON_1) == GLFW_PRESS;
+
+                if (button == GLFW_MOUSE_BUTTON_1 && action == GLFW_PRESS) {
+                    mouseButton1 = true;
+                    DoubleBuffer xBuffer = BufferUtils.createDoubleBuffer(1);
+                    DoubleBuffer yBuffer = BufferUtils.createDoubleBuffer(1);
+                    glfwGetCursorPos(window, xBuffer, yBuffer);
+                    ox = xBuffer.get(0);
+                    oy = yBuffer.get(0);
+                }
+
+                if (button == GLFW_MOUSE_BUTTON_1 && action == GLFW_RELEASE) {
+                    mouseButton1 = false;
+                    DoubleBuffer xBuffer = BufferUtils.createDoubleBuffer(1);
+                    DoubleBuffer yBuffer = BufferUtils.createDoubleBuffer(1);
+                    glfwGetCursorPos(window, xBuffer, yBuffer);
+                    rotate(xBuffer.get(0), yBuffer.get(0));
+                }
+            }
+        };
+    }
+
+    private void rotate(double x, double y) {
+        double azimuth = Math.PI * (ox - x) / width;
+        double zenith = Math.PI * (oy - y) / width;
+        ox = x;
+        oy = y;
+        updater.post(() -> cam = cam.addAzimuth(azimuth).addZenith(zenith));
+    }
+
+    /**
+     * Runs on the update thread.
+     */
+    private void keyPressed(int key) {
+        switch (key) {
+            case GLFW_KEY_KP_ADD -> resize(Math.min(instances * 2, MAX_INSTANCES));
+            case GLFW_KEY_KP_SUBTRACT -> resize(Math.max(instances / 2, 1));
+            case GLFW_KEY_I -> {
+                parallel = !parallel;
+                setInfo("parallel", 1, String.valueOf(parallel));
+            }
+            case GLFW_KEY_C -> {
+                culling = !culling;
+                setInfo("culling", 1, String.valueOf(culling));
+            }
+            case GLFW_KEY_W -> cam = cam.forward(speed);
+            case GLFW_KEY_D -> cam = cam.right(speed);
+            case GLFW_KEY_S -> cam = cam.backward(speed);
+            case GLFW_KEY_A -> cam = cam.left(speed);
+            case GLFW_KEY_LEFT_CONTROL -> cam = cam.down(speed);
+            case GLFW_KEY_LEFT_SHIFT -> cam = cam.up(speed);
+        }
+    }
+
+    private void resize(int count) {
+        instances = count;
+        swarm = new CubeSwarm(count, 42);
+        setInfo("instances", 1, String.valueOf(count));
+    }
+
+    @Override
+    public void init() {
+        super.init();
+        changeScene = false;
+        pacer = new FramePacer();
+        gl().clearColor(0.2f, 0.2f, 0.25f, 1.0f);
+
+        shader = ProgramRegistry.acquire("/cube/instanced");
+        axis = new Axis();
+        cubes = new InstancedCube();
+        swarm = new CubeSwarm(instances, 42);
+        gl().enable(GL_DEPTH_TEST);
+
+        updater = new UpdateLoop<>("Instances", Frame::new, this::update);
+        updater.start();
+    }
+
+    /**
+     * Runs on the update thread once per frame, after the posted input commands.
+     */
+    private void update(Frame frame) {
+        time += 0.016;
+        if (infoLines == null) {
+            infoLines = new String[info.size()];
+            int i = 0;
+            for (ArrayList<String> entry : info.values()) {
+                infoLines[i++] = String.join(" ", entry);
+            }
+        }
+
+        if (frame.instances.capacity() < swarm.bytes()) {
+            // only written while the render thread cannot see this frame, so it can be replaced
+            frame.instances = ByteBuffer.allocateDirect(swarm.bytes()).order(ByteOrder.nativeOrder());
+        }
+        frame.viewProj.set(viewProjection.update(cam, proj));
+        frame.frustum.set(frame.viewProj);
+        long start = System.nanoTime();
+        frame.count = swarm.pack(time, frame.instances, parallel, culling ? frame.frustum : null);
+        long elapsed = System.nanoTime() - start;
+        packNanos += (elapsed - packNanos) / 16;
+
+        frame.total = swarm.getCount();
+        frame.bounds = swarm.getBounds();
+        frame.packNanos = (long) packNanos;
+        frame.viewX = viewProjection.getX();
+        frame.viewY = viewProjection.getY();
+        frame.viewZ = viewProjection.getZ();
+        frame.infoLines = infoLines;
+    }
+
+    @Override
+    public void display() {
+        //shared across scenes
+        profiler.begin(FramePhase.Clear);
+        gl().viewport(0, 0, width, height);
+        gl().clear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+        profiler.end(FramePhase.Clear);
+
+        Frame frame = updater.acquire();
+        profiler.begin(FramePhase.Obj);
+        cubes.upload(frame.instances, frame.count);
+        cubes.setBounds(frame.bounds);
+        profiler.end(FramePhase.Obj);
+        queue.setFrustum(frame.frustum);
+        queue.add(shader, cubes).phase(FramePhase.Obj)
+                .mat4("mat", frame.viewProj)
+                .vec3("viewPos", frame.viewX, frame.viewY, frame.viewZ);
+        axis.queue(queue, frame.viewProj);
+        queue.submit();
+
+        if (!renderDocDebug && textRenderer != null) {
+            profiler.begin(FramePhase.Text);
+            text(frame);
+            textRenderer.addStr2D(width - 120, height - 3, " (c) Matěj Kolář UHK");
+            // lwjglutils draws the text with raw GL calls
+            gl().invalidate();
+            profiler.end(FramePhase.Text);
+        }
+        pacer.pace();
+    }
+
+    private void setInfo(String key, int index, String value) {
+        info.get(key).set(index, value);
+        infoLines = null;
+    }
+
+    private void text(Frame frame) {
+        int y = 15;
+        for (String line : frame.infoLines) {
+            textRenderer.addStr2D(5, y, line);
+            y += 15;
+        }
+        long allocated = allocation.sample();
+        long p99 = Math.round(pacer.getPercentile(0.99) * 10);
+        if (fpsText == null || pacer.getCurrentFps() != shownFps || p99 != shownP99 || allocated != shownAllocation) {
+            shownFps = pacer.getCurrentFps();
+            shownP99 = p99;
+            shownAllocation = allocated;
+            fpsText = "FPS: " + shownFps + "  p99 " + shownP99 / 10 + "." + shownP99 % 10 + " ms  " + shownAllocation + " B/frame";
+        }
+        textRenderer.addStr2D(width - 230, 15, fpsText);
+
+        long pack = frame.packNanos / 10_000;
+        if (packText == null || pack != shownPack || frame.count != shownVisible) {
+            shownPack = pack;
+            shownVisible = frame.count;
+            packText = "Update+pack: " + pack / 100 + "." + pack / 10 % 10 + pack % 10 + " ms, visible "
+                    + frame.count + " of " + frame.total;
+        }
+        textRenderer.addStr2D(width - 230, 30, packText);
+    }
+
+    public boolean nextScene() {
+        return changeScene;
+    }
+
+    @Override
+    public void dispose() {
+        updater.stop();
+        System.out.printf("Frame pacing: %s, waited for update %.2f ms%n", pacer.report(), updater.getWaitNanos() / 1e6);
+        System.out.printf("Instances: %d, update+pack %.3f ms%n", instances, packNanos / 1e6);
+        ProgramRegistry.release(shader);
+        axis.delete();
+        cubes.delete();
+    }
+}
@@ -1,18 +1,28 @@
 package shape.app;
 
-import lwjglutils.OGLTexture2D;
-import lwjglutils.ShaderUtils;
-import lwjglutils.ToFloatArray;
 import org.lwjgl.BufferUtils;
 import org.lwjgl.glfw.GLFWCursorPosCallback;
 import org.lwjgl.glfw.GLFWKeyCallback;
 import org.lwjgl.glfw.GLFWMouseButtonCallback;
 import org.lwjgl.glfw.GLFWScrollCallback;
-import org.lwjgl.opengl.GL;
 import shape.global.AbstractRenderer;
+import shape.global.Frustum;
+import shape.global.RenderQueue;
+import shape.global.ShaderProgram;
+import shape.global.Techniques;
+import shape.global.Texture;
+import shape.global.TextureCache;
+import shape.global.UpdateLoop;
+import shape.global.ViewProjection;
 import shape.model.Axis;
 import shape.model.Cube;
-import shape.utils.FpsLimiter;
+import shape.model.GeometryCache;
+import shape.model.MeshCache;
+import shape.utils.AllocationCounter;
+import shape.utils.FramePacer;
+import shape.utils.FramePhase;
+import shape.utils.FrameProfiler;
+import shape.utils.Mat4f;
 import transforms.*;
 
 import java.io.IOException;
@@ -24,24 +34,42 @@ import java.util.List;
 import static org.lwjgl.glfw.GLFW.*;
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL20.*;
-import static shape.model.Cube.createCube;
-import static shape.model.Cube.createTextureCube;
+import static shape.global.Device.gl;
 
+/**
+ * Input callbacks post commands to the update thread, which owns the camera, projection,
+ * animation time, light placement and info lines and publishes a {@link Frame} for display() to submit.
+ */
 public class LightsScene extends AbstractRenderer {
+    private static final Vec3D SOURCE_POS = new Vec3D(-0.2, 1.2, 1.2);
     double ox, oy;
     Camera cam = new Camera().withPosition(new Vec3D(-1.5, 0.5, 0.5));
     Mat4 proj = new Mat4PerspRH(Math.PI / 4, (double) height / width, 0.01, 1000.0);
-    int shaderProgram;
     private boolean changeScene = false;
     private boolean renderDocDebug;
-    private HashMap<String, Integer> gridShaders;
-    private FpsLimiter limiter;
+    private final Techniques gridShaders;
+    private FramePacer pacer;
+    private final FrameProfiler profiler = FrameProfiler.get();
+    private final RenderQueue queue = new RenderQueue();
     private Cube cube;
     private Cube lightSourceCube;
     private Cube texture_cube;
     private Axis axis;
-    private OGLTexture2D texture, texture2;
+    private Texture texture, texture2;
     private HashMap<String, ArrayList<String>> info;
+    private String[] infoLines;
+    private String fpsText;
+    private String queueText;
+    private long shownSwitches;
+    private int shownCulled;
+    private int shownFps;
+    private long shownP99;
+    private long shownAllocation;
+    private String uniformText;
+    private long lastIssued, lastSkipped, shownIssued, shownSkipped;
+    private final AllocationCounter allocation = new AllocationCounter();
+    private final ViewProjection viewProjection = new ViewProjection();
+    private final Mat4f modelMatrix = new Mat4f();
     private boolean persp = true;
     private double speed = 0.01;
     private double zoom = 32;
@@ -51,20 +79,52 @@ public class LightsScene extends AbstractRenderer {
     private Mat4 modelTransf;
     private Vec3D lightPos = cam.getPosition();
     private Vec3D lightDir = cam.getPosition().add(cam.getViewVector().mul(-1));
+    private UpdateLoop<Frame> updater;
+
+    /**
+     * What the render thread needs from one update, written only by the update thread.
+     */
+    private static final class Frame {
+        final Mat4f viewProj = new Mat4f();
+        final Mat4f moving = new Mat4f();
+        final Mat4f marker = new Mat4f();
+        final Mat4f markerModel = new Mat4f();
+        final Frustum frustum = new Frustum();
+        float time;
+        double offset;
+        String shader;
+        // camera position, see ViewProjection
+        double viewX, viewY, viewZ;
+        Vec3D lightPos;
+        Vec3D lightDir;
+        String[] infoLines;
+    }
 
     public LightsScene(int width, int height, boolean debug) {
         super(width, height);
         renderDocDebug = debug;
         callbacks();
-        gridShaders = new HashMap<>();
+        gridShaders = new Techniques()
+                .add("Flat", "/grid/flat")
+                .add("Light Phong", "/cube/light_basic")
+                .add("Textured Phong", "/cube/light_texture")
+                .add("Source at camera Phong", "/cube/light_moving")
+                .add("Light attached to moving object", "/cube/light_moving")
+                .add("[L]Placeable reflector", "/cube/light_reflector")
+                .add("Texture blending", "/cube/texture_blending")
+                .add("UV coordinates", "/cube/uv");
+        // the flat grid shader is shared with the Grid scene, whose terrain leaves its last chunk in it
+        queue.requirePerCommand("chunk");
 
         info = new HashMap<>();
         info.put("scene", new ArrayList<>(List.of("[TAB] Scene: Lights", "")));
         info.put("projection", new ArrayList<>(List.of("[P] Projection:", "")));
         info.put("shader", new ArrayList<>(List.of("[R] Shader:", "Flat")));
         info.put("speed", new ArrayList<>(List.of("Speed:", "0.01", " Zoom:", "32")));
+        info.put("queue", new ArrayList<>(List.of("[Q] Sort draws:", "")));
 
-        info.get("projection").set(1, persp ? "Persp" : "Ortho");
+        setInfo("projection", 1, persp ? "Persp" : "Ortho");
+        setInfo("queue", 1, String.valueOf(queue.isSorting()));
     }
 
     private void callbacks() {
@@ -74,39 +134,16 @@ public class LightsScene extends AbstractRenderer {
                 if (key == GLFW_KEY_ESCAPE && action == GLFW_RELEASE)
                     glfwSetWindowShouldClose(window, true); // We will detect this in the rendering loop
                 if (action == GLFW_PRESS || action == GLFW_REPEAT) {
-                    switch (key) {
-                        case GLFW_KEY_TAB -> {
-                            changeScene = true;
-                            glfwSetWindowShouldClose(window, true);
-                        }
-                        case GLFW_KEY_P -> {
-                            if (persp) {
-                                proj = new Mat4OrthoRH(width / zoom, height / zoom, 0.01, 1000.0);
-                                persp = false;
-                            } else {
-                                proj = new Mat4PerspRH(Math.PI / 4, (double) height / width, 0.01, 1000.0);
-                                persp = true;
-                            }
-                            info.get("projection").set(1, persp ? "Persp" : "Ortho");
-                        }
-                        case GLFW_KEY_L -> {
-                            if (aciveShaderName.equals("[L]Placeable reflector")) {
-                                lightPos = cam.getPosition();
-                                lightDir = cam.getPosition().add(cam.getViewVector().mul(-1));
-                            }
-                        }
-                        case GLFW_KEY_R -> {
-                            List<String> l = new ArrayList<>(gridShaders.keySet());
-                            aciveShaderName = l.get(((l.indexOf(aciveShaderName) + 1) % l.size()));
-                            shaderProgram = gridShaders.get(aciveShaderName);
-                            info.get("shader").set(1, aciveShaderName);
-                        }
-                        case GLFW_KEY_W -> cam = cam.forward(speed);
-                        case GLFW_KEY_D -> cam = cam.right(speed);
-                        case GLFW_KEY_S -> cam = cam.backward(speed);
-                        case GLFW_KEY_A -> cam = cam.left(speed);
-                        case GLFW_KEY_LEFT_CONTROL -> cam = cam.down(speed);
-                        case GLFW_KEY_LEFT_SHIFT -> cam = cam.up(speed);
+                    if (key == GLFW_KEY_TAB) {
+                        changeScene = true;
+                        glfwSetWindowShouldClose(window, true);
+                    } else if (key == GLFW_KEY_Q) {
+                        queue.setSorting(!queue.isSorting());
+                        String sorting = String.valueOf(queue.isSorting());
+                        updater.post(() -> setInfo("queue", 1, sorting));
+                    } else {
+                        int w = width, h = height;
+                        updater.post(() -> keyPressed(key, w, h));
                     }
                 }
             }
@@ -115,14 +152,17 @@ public class LightsScene extends AbstractRenderer {
         glfwScrollCallback = new GLFWScrollCallback() {
             @Override
             public void invoke(long window, double dx, double dy) {
-                if (persp) {
-                    speed = Math.max(Math.min(speed + dy * 0.02, 1.0), 0.01);
-                    info.get("speed").set(1, String.format("%.2f", speed));
-                } else {
-                    zoom += zoom * dy * 0.1;
-                    info.get("speed").set(3, String.format("%.0f", zoom));
-                    proj = new Mat4OrthoRH(width / zoom, height / zoom, 0.01, 1000.0);
-                }
+                int w = width, h = height;
+                updater.post(() -> {
+                    if (persp) {
+                        speed = Math.max(Math.min(speed + dy * 0.02, 1.0), 0.01);
+                        setInfo("speed", 1, String.format("%.2f", speed));
+                    } else {
+                        zoom += zoom * dy * 0.1;
+                        setInfo("speed", 3, String.format("%.0f", zoom));
+                        proj = new Mat4OrthoRH(w / zoom, h / zoom, 0.01, 1000.0);
+                    }
+                });
             }
         };
 
@@ -130,9 +170,7 @@ public class LightsScene extends AbstractRenderer {
             @Override
             public void invoke(long window, double x, double y) {
                 if (mouseButton1) {
-                    cam = cam.addAzimuth((double) Math.PI * (ox - x) / width).addZenith((double) Math.PI * (oy - y) / width);
-                    ox = x;
-                    oy = y;
+                    rotate(x, y);
                 }
             }
         };
@@ -156,127 +194,233 @@ public class LightsScene extends AbstractRenderer {
                     DoubleBuffer xBuffer = BufferUtils.createDoubleBuffer(1);
                     DoubleBuffer yBuffer = BufferUtils.createDoubleBuffer(1);
                     glfwGetCursorPos(window, xBuffer, yBuffer);
-                    double x = xBuffer.get(0);
-                    double y = yBuffer.get(0);
-                    cam = cam.addAzimuth((double) Math.PI * (ox - x) / width).addZenith((double) Math.PI * (oy - y) / width);
-                    ox = x;
-                    oy = y;
+                    rotate(xBuffer.get(0), yBuffer.get(0));
                 }
             }
 
         };
     }
 
+    private void rotate(double x, double y) {
+        double azimuth = Math.PI * (ox - x) / width;
+        double zenith = Math.PI * (oy - y) / width;
+        ox = x;
+        oy = y;
+        updater.post(() -> cam = cam.addAzimuth(azimuth).addZenith(zenith));
+    }
+
+    /**
+     * Runs on the update thread.
+     */
+    private void keyPressed(int key, int w, int h) {
+        switch (key) {
+            case GLFW_KEY_P -> {
+                if (persp) {
+                    proj = new Mat4OrthoRH(w / zoom, h / zoom, 0.01, 1000.0);
+                    persp = false;
+                } else {
+                    proj = new Mat4PerspRH(Math.PI / 4, (double) h / w, 0.01, 1000.0);
+                    persp = true;
+                }
+                setInfo("projection", 1, persp ? "Persp" : "Ortho");
+            }
+            case GLFW_KEY_L -> {
+                if (aciveShaderName.equals("[L]Placeable reflector")) {
+                    lightPos = cam.getPosition();
+                    lightDir = cam.getPosition().add(cam.getViewVector().mul(-1));
+                }
+            }
+            case GLFW_KEY_R -> {
+                aciveShaderName = gridShaders.next(aciveShaderName);
+                setInfo("shader", 1, aciveShaderName);
+            }
+            case GLFW_KEY_W -> cam = cam.forward(speed);
+            case GLFW_KEY_D -> cam = cam.right(speed);
+            case GLFW_KEY_S -> cam = cam.backward(speed);
+            case GLFW_KEY_A -> cam = cam.left(speed);
+            case GLFW_KEY_LEFT_CONTROL -> cam = cam.down(speed);
+            case GLFW_KEY_LEFT_SHIFT -> cam = cam.up(speed);
+        }
+    }
+
     @Override
     public void init() {
         super.init();
         changeScene = false;
-        GL.createCapabilities();
-        limiter = new FpsLimiter();
-        glClearColor(0.4f, 0.4f, 0.5f, 1.0f);
-
-        gridShaders.put("Flat", ShaderUtils.loadProgram("/grid/flat"));
-        gridShaders.put("Light Phong", ShaderUtils.loadProgram("/cube/light_basic"));
-        gridShaders.put("Textured Phong", ShaderUtils.loadProgram("/cube/light_texture"));
-        gridShaders.put("Source at camera Phong", ShaderUtils.loadProgram("/cube/light_moving"));
-        gridShaders.put("Light attached to moving object", ShaderUtils.loadProgram("/cube/light_moving"));
-        gridShaders.put("[L]Placeable reflector", ShaderUtils.loadProgram("/cube/light_reflector"));
-        gridShaders.put("Texture blending", ShaderUtils.loadProgram("/cube/texture_blending"));
-        gridShaders.put("UV coordinates", ShaderUtils.loadProgram("/cube/uv"));
-        shaderProgram = gridShaders.get("Flat");
+        pacer = new FramePacer();
+        gl().clearColor(0.4f, 0.4f, 0.5f, 1.0f);
+
+        // the light source cube is always drawn flat, the rest link on first selection or in time
+        // left over after the first frame
+        gridShaders.prepare("Flat", aciveShaderName);
 
         try {
-            texture = new OGLTexture2D("textures/bricks.jpg");
-            texture2 = new OGLTexture2D("textures/mosaic.jpg");
+            texture = TextureCache.acquire("textures/bricks.jpg");
+            texture2 = TextureCache.acquire("textures/mosaic.jpg");
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
 
         axis = new Axis();
-        cube = createCube();
-        lightSourceCube = createCube();
-        texture_cube = createTextureCube();
+        cube = GeometryCache.cube();
+        lightSourceCube = GeometryCache.cube();
+        texture_cube = GeometryCache.textureCube();
+        System.out.println("Geometry cache: " + GeometryCache.report());
+        System.out.println("Mesh cache: " + MeshCache.report());
+        System.out.println("Texture cache: " + TextureCache.report());
         modelTransf = new Mat4Identity();
-        glEnable(GL_DEPTH_TEST);
+        modelMatrix.set(modelTransf);
+        gl().enable(GL_DEPTH_TEST);
+
+        updater = new UpdateLoop<>("Lights", Frame::new, this::update);
+        updater.start();
+    }
+
+    /**
+     * Runs on the update thread once per frame, after the posted input commands.
+     */
+    private void update(Frame frame) {
+        time = (time + 0.01F) % (float) Math.PI;
+        if (infoLines == null) {
+            infoLines = new String[info.size()];
+            int i = 0;
+            for (ArrayList<String> entry : info.values()) {
+                infoLines[i++] = String.join(" ", entry);
+            }
+        }
+
+        Mat4f viewProj = frame.viewProj.set(viewProjection.update(cam, proj));
+        frame.time = time;
+        frame.offset = Math.sin(time);
+        frame.shader = aciveShaderName;
+        frame.viewX = viewProjection.getX();
+        frame.viewY = viewProjection.getY();
+        frame.viewZ = viewProjection.getZ();
+        frame.lightPos = lightPos;
+        frame.lightDir = lightDir;
+        frame.infoLines = infoLines;
+        frame.moving.translation(0, 0, frame.offset);
+        if (aciveShaderName.equals("[L]Placeable reflector")) {
+            frame.markerModel.scaling(0.05).translate(lightPos.getX(), lightPos.getY(), lightPos.getZ());
+        } else {
+            frame.markerModel.scaling(0.05).translate(SOURCE_POS.getX(), SOURCE_POS.getY(), SOURCE_POS.getZ())
+                    .translate(0, 0, frame.offset);
+        }
+        frame.marker.set(frame.markerModel).mul(viewProj);
+        frame.frustum.set(viewProj);
     }
 
     @Override
     public void display() {
+        long frameStart = System.nanoTime();
         //shared across scenes
-        glViewport(0, 0, width, height);
-        glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
-        time = (time + 0.01F) % (float) Math.PI;
-
-        glUseProgram(shaderProgram);
+        profiler.begin(FramePhase.Clear);
+        gl().viewport(0, 0, width, height);
+        gl().clear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+        profiler.end(FramePhase.Clear);
 
-        glPolygonMode(GL_FRONT, GL_FILL);
-        glPolygonMode(GL_BACK, GL_FILL);
+        Frame frame = updater.acquire();
+        Mat4f viewProj = frame.viewProj;
+        ShaderProgram shaderProgram = gridShaders.get(frame.shader);
+        ShaderProgram flat = gridShaders.get("Flat");
 
-        glUniformMatrix4fv(0, false, ToFloatArray.convert(cam.getViewMatrix().mul(proj)));
-        switch (aciveShaderName) {
-            case "Flat" -> cube.draw(shaderProgram);
-            case "Light Phong", "Source at camera Phong" -> {
-                glUniformMatrix4fv(1, false, ToFloatArray.convert(modelTransf));
-                glUniform3fv(glGetUniformLocation(shaderProgram, "viewPos"), ToFloatArray.convert(cam.getPosition()));
-                cube.draw(shaderProgram);
-            }
+        // the lit cubes are this scene's models
+        queue.setFrustum(frame.frustum);
+        switch (frame.shader) {
+            case "Flat" -> queue.add(shaderProgram, cube).phase(FramePhase.Obj).mat4("mat", viewProj)
+                    .vec3("chunk", 0, 0, 1);
+            case "Light Phong", "Source at camera Phong" -> queue.add(shaderProgram, cube).phase(FramePhase.Obj)
+                    .mat4("mat", viewProj)
+                    .mat4("model", modelMatrix).transform(modelMatrix)
+                    .vec3("viewPos", frame.viewX, frame.viewY, frame.viewZ);
             case "Light attached to moving object" -> {
-                Vec3D sourcePos = new Vec3D(-0.2, 1.2, 1.2);
-                Mat4 modelTransf = new Mat4Transl(0, 0, Math.sin(time));
-                glUniformMatrix4fv(1, false, ToFloatArray.convert(modelTransf));
-                glUniform3fv(glGetUniformLocation(shaderProgram, "viewPos"), ToFloatArray.convert(sourcePos.add(new Vec3D(0, 0, Math.sin(time)))));
-                cube.draw(shaderProgram);
-
-                glUseProgram(gridShaders.get("Flat"));
-                glUniformMatrix4fv(0, false, ToFloatArray.convert(new Mat4Scale(0.05).mul(new Mat4Transl(sourcePos)).mul(modelTransf).mul(cam.getViewMatrix().mul(proj))));
-                lightSourceCube.draw(gridShaders.get("Flat"));
+                queue.add(shaderProgram, cube).phase(FramePhase.Obj).mat4("mat", viewProj)
+                        .mat4("model", frame.moving).transform(frame.moving)
+                        .vec3("viewPos", SOURCE_POS.getX(), SOURCE_POS.getY(), SOURCE_POS.getZ() + frame.offset);
+                queue.add(flat, lightSourceCube).phase(FramePhase.Obj).mat4("mat", frame.marker)
+                        .vec3("chunk", 0, 0, 1).transform(frame.markerModel);
             }
             case "[L]Placeable reflector" -> {
-                glUniformMatrix4fv(1, false, ToFloatArray.convert(modelTransf));
-                glUniform3fv(glGetUniformLocation(shaderProgram, "viewPos"), ToFloatArray.convert(cam.getPosition()));
-                glUniform3fv(glGetUniformLocation(shaderProgram, "lightPos"), ToFloatArray.convert(lightPos));
-                glUniform3fv(glGetUniformLocation(shaderProgram, "lightDir"), ToFloatArray.convert(lightDir));
-                cube.draw(shaderProgram);
-
-                glUseProgram(gridShaders.get("Flat"));
-                glUniformMatrix4fv(0, false, ToFloatArray.convert(new Mat4Scale(0.05).mul(new Mat4Transl(lightPos)).mul(cam.getViewMatrix().mul(proj))));
-                lightSourceCube.draw(gridShaders.get("Flat"));
-            }
-            case "Textured Phong" -> {
-                texture.bind(shaderProgram, "textureID", 0);
-                glUniformMatrix4fv(1, false, ToFloatArray.convert(modelTransf));
-                glUniform3fv(glGetUniformLocation(shaderProgram, "viewPos"), ToFloatArray.convert(cam.getPosition()));
-                texture_cube.draw(shaderProgram);
-            }
-            case "Texture blending" -> {
-                texture.bind(shaderProgram, "textureID", 0);
-                texture2.bind(shaderProgram, "textureID2", 1);
-                glUniformMatrix4fv(1, false, ToFloatArray.convert(modelTransf));
-                glUniform1f(glGetUniformLocation(shaderProgram, "time"), (float) Math.sin(time));
-                texture_cube.draw(shaderProgram);
-            }
-            case "UV coordinates" -> {
-                glUniformMatrix4fv(1, false, ToFloatArray.convert(modelTransf));
-                texture_cube.draw(shaderProgram);
+                queue.add(shaderProgram, cube).phase(FramePhase.Obj).mat4("mat", viewProj)
+                        .mat4("model", modelMatrix).transform(modelMatrix)
+                        .vec3("viewPos", frame.viewX, frame.viewY, frame.viewZ)
+                        .vec3("lightPos", frame.lightPos)
+                        .vec3("lightDir", frame.lightDir);
+                queue.add(flat, lightSourceCube).phase(FramePhase.Obj).mat4("mat", frame.marker)
+                        .vec3("chunk", 0, 0, 1).transform(frame.markerModel);
             }
+            case "Textured Phong" -> queue.add(shaderProgram, texture_cube).phase(FramePhase.Obj)
+                    .mat4("mat", viewProj)
+                    .texture(0, texture.getId(), "textureID")
+                    .mat4("model", modelMatrix).transform(modelMatrix)
+                    .vec3("viewPos", frame.viewX, frame.viewY, frame.viewZ);
+            case "Texture blending" -> queue.add(shaderProgram, texture_cube).phase(FramePhase.Obj)
+                    .mat4("mat", viewProj)
+                    .texture(0, texture.getId(), "textureID")
+                    .texture(1, texture2.getId(), "textureID2")
+                    .mat4("model", modelMatrix).transform(modelMatrix)
+                    .setFloat("time", (float) frame.offset);
+            case "UV coordinates" -> queue.add(shaderProgram, texture_cube).phase(FramePhase.Obj)
+                    .mat4("mat", viewProj)
+                    .mat4("model", modelMatrix).transform(modelMatrix);
         }
+        axis.queue(queue, viewProj);
+        queue.submit();
 
-        axis.draw(cam.getViewMatrix().mul(proj));
-
-        if (!renderDocDebug) {
-            text();
+        if (!renderDocDebug && textRenderer != null) {
+            profiler.begin(FramePhase.Text);
+            text(frame.infoLines);
             textRenderer.addStr2D(width - 120, height - 3, " (c) Matěj Kolář UHK");
-            textRenderer.addStr2D(width - 50, 15, "FPS: " + limiter.getCurrentFps());
+            // lwjglutils draws the text with raw GL calls
+            gl().invalidate();
+            profiler.end(FramePhase.Text);
         }
-        limiter.limit();
+        gridShaders.warmUp(frameStart);
+        pacer.pace();
     }
 
-    private void text() {
+    private void setInfo(String key, int index, String value) {
+        info.get(key).set(index, value);
+        infoLines = null;
+    }
+
+    private void text(String[] infoLines) {
         int y = 15;
-        for (ArrayList<String> entry : info.values()) {
-            textRenderer.addStr2D(5, y, String.join(" ", entry));
+        for (String line : infoLines) {
+            textRenderer.addStr2D(5, y, line);
             y += 15;
         }
+        long allocated = allocation.sample();
+        long p99 = Math.round(pacer.getPercentile(0.99) * 10);
+        if (fpsText == null || pacer.getCurrentFps() != shownFps || p99 != shownP99 || allocated != shownAllocation) {
+            shownFps = pacer.getCurrentFps();
+            shownP99 = p99;
+            shownAllocation = allocated;
+            fpsText = "FPS: " + shownFps + "  p99 " + shownP99 / 10 + "." + shownP99 % 10 + " ms  " + shownAllocation + " B/frame";
+        }
+        textRenderer.addStr2D(width - 230, 15, fpsText);
+
+        RenderQueue.Counts before = queue.getRecorded();
+        RenderQueue.Counts after = queue.getSorted();
+        long switches = (long) before.getPrograms() << 48 | (long) after.getPrograms() << 32
+                | (long) after.getTextures() << 16 | after.getMeshes();
+        if (queueText == null || switches != shownSwitches || queue.getCulled() != shownCulled) {
+            shownSwitches = switches;
+            shownCulled = queue.getCulled();
+            queueText = "Switches: " + queue.report().substring("switches ".length());
+        }
+        textRenderer.addStr2D(width - 330, height - 20, queueText);
+
+        long issued = ShaderProgram.getIssued() - lastIssued;
+        long skipped = ShaderProgram.getSkipped() - lastSkipped;
+        lastIssued = ShaderProgram.getIssued();
+        lastSkipped = ShaderProgram.getSkipped();
+        if (uniformText == null || issued != shownIssued || skipped != shownSkipped) {
+            shownIssued = issued;
+            shownSkipped = skipped;
+            uniformText = "Uniforms: " + issued + " issued, " + skipped + " skipped";
+        }
+        textRenderer.addStr2D(width - 210, 30, uniformText);
     }
 
     public boolean nextScene(){
@@ -285,10 +429,17 @@ public class LightsScene extends AbstractRenderer {
 
     @Override
     public void dispose(){
-        for (int s: gridShaders.values()) {
-            glDeleteProgram(s);
-        }
-        cube.unbind();
+        updater.stop();
+        System.out.println("Render queue: " + queue.report());
+        System.out.printf("Frame pacing: %s, waited for update %.2f ms%n", pacer.report(), updater.getWaitNanos() / 1e6);
+        System.out.println("Techniques: " + gridShaders.report());
+        gridShaders.release();
+        axis.delete();
+        GeometryCache.release(cube);
+        GeometryCache.release(lightSourceCube);
+        GeometryCache.release(texture_cube);
+        TextureCache.release(texture);
+        TextureCache.release(texture2);
     }
 
 }
\ No newline at end of file
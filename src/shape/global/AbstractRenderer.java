@@ -9,6 +9,7 @@ import java.nio.DoubleBuffer;
 
 import static org.lwjgl.glfw.GLFW.*;
 import static org.lwjgl.opengl.GL11.*;
+import static shape.global.Device.gl;
 
 /**
  * @author PGRF FIM UHK
@@ -33,36 +34,43 @@ public abstract class AbstractRenderer {
     }
 
     public void init() {
+        // Set the clear color
+        gl().clearColor(0.0f, 0.0f, 0.0f, 1.0f);
+        if (gl().isHeadless()) {
+            return;
+        }
         OGLUtils.printOGLparameters();
         OGLUtils.printLWJLparameters();
         OGLUtils.printJAVAparameters();
         OGLUtils.shaderCheck();
-        // Set the clear color
-        glClearColor(0.0f, 0.0f, 0.0f, 1.0f);
         textRenderer = new OGLTextRenderer(width, height);
     }
 
     public void display() {
-        glViewport(0, 0, width, height);
+        gl().viewport(0, 0, width, height);
         String text = this.getClass().getName() + ": look at console and try keys, mouse, wheel and window interaction ";
 
         pass++;
         // Set the clear color
-        glClearColor(
+        gl().clearColor(
                 (float) (Math.sin(pass / 100.) / 2 + 0.5),
                 (float) (Math.cos(pass / 200.) / 2 + 0.5),
                 (float) (Math.sin(pass / 300.) / 2 + 0.5),
                 0.0f
         );
         // clear the framebuffer
-        glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+        gl().clear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
 
         //create and draw text
+        if (textRenderer == null) {
+            return;
+        }
         textRenderer.clear();
         textRenderer.addStr2D(3, 20, text);
         textRenderer.addStr2D(3, 50, "pass " + pass);
         textRenderer.addStr2D(width - 90, height - 3, " (c) PGRF UHK");
         textRenderer.draw();
+        gl().invalidate();
     }
 
     protected GLFWKeyCallback glfwKeyCallback = new GLFWKeyCallback() {
@@ -0,0 +1,330 @@
+package shape.global;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Assets baked ahead of time by {@code shape.AssetBaker} into one file that is mapped once and
+ * sliced without copying: images as RGBA8 with their whole mip chain, meshes in the
+ * {@code shape.model.MeshCache} file format and preprocessed shader sources. The file is a fixed
+ * header, the payloads on 16 byte boundaries and a table of contents at the end. Loaders ask the
+ * pack first and fall back to the loose files for anything it does not hold, or when there is no
+ * pack. Entries are not checked against their sources, so a pack is only read when named with
+ * -Dshape.pack=...; bake again after editing assets.
+ */
+public class AssetPack {
+    public static final int MESH = 1;
+    public static final int IMAGE = 2;
+    public static final int SHADER = 3;
+
+    private static final int MAGIC = 0x4B43_4150; // "PACK" read little endian
+    private static final int VERSION = 1;
+    private static final int FLAG_LITTLE_ENDIAN = 1;
+    // magic, version, flags, entry count, table of contents offset
+    private static final int HEADER = 24;
+    private static final int ALIGN = 16;
+
+    private static AssetPack instance;
+
+    private final Path path;
+    private final MappedByteBuffer map;
+    private final HashMap<String, Entry> entries;
+    private final long openNanos;
+    private final String problem;
+    private int hits;
+
+    private static final class Entry {
+        final int type;
+        final long offset;
+        final long length;
+        final int width;
+        final int height;
+        final int levels;
+
+        Entry(int type, long offset, long length, int width, int height, int levels) {
+            this.type = type;
+            this.offset = offset;
+            this.length = length;
+            this.width = width;
+            this.height = height;
+            this.levels = levels;
+        }
+    }
+
+    /**
+     * A baked image: level 0 and its mip chain down to 1x1, each level tightly packed RGBA8.
+     */
+    public static final class Image {
+        private final int width;
+        private final int height;
+        private final ByteBuffer[] levels;
+
+        Image(int width, int height, ByteBuffer[] levels) {
+            this.width = width;
+            this.height = height;
+            this.levels = levels;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public int levels() {
+            return levels.length;
+        }
+
+        public ByteBuffer level(int level) {
+            return levels[level];
+        }
+
+        public int levelWidth(int level) {
+            return Math.max(1, width >> level);
+        }
+
+        public int levelHeight(int level) {
+            return Math.max(1, height >> level);
+        }
+    }
+
+    /**
+     * Writes a pack entry by entry next to its final name and moves it into place on finish().
+     * Payloads go straight to disk, so callers may free their buffers after add().
+     */
+    public static final class Writer implements Closeable {
+        private final Path file;
+        private final Path temporary;
+        private final FileChannel channel;
+        private final HashMap<String, Entry> written = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+        private boolean finished;
+
+        public Writer(Path file) throws IOException {
+            this.file = file.toAbsolutePath();
+            temporary = this.file.resolveSibling(this.file.getFileName() + "." + ProcessHandle.current().pid() + ".tmp");
+            channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            channel.position(HEADER);
+        }
+
+        public void addImage(String name, int width, int height, ByteBuffer... levels) throws IOException {
+            add(name, IMAGE, width, height, levels.length, levels);
+        }
+
+        public void addMesh(String name, ByteBuffer... parts) throws IOException {
+            add(name, MESH, 0, 0, 0, parts);
+        }
+
+        public void addShader(String name, String source) throws IOException {
+            add(name, SHADER, 0, 0, 0, ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        private void add(String name, int type, int width, int height, int levels, ByteBuffer... parts) throws IOException {
+            String key = normalize(name);
+            if (written.containsKey(key)) {
+                throw new IllegalArgumentException("Duplicate pack entry " + key);
+            }
+            long offset = (channel.position() + ALIGN - 1) & -ALIGN;
+            channel.position(offset);
+            for (ByteBuffer part : parts) {
+                ByteBuffer bytes = part.duplicate();
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            }
+            written.put(key, new Entry(type, offset, channel.position() - offset, width, height, levels));
+            names.add(key);
+        }
+
+        public long finish() throws IOException {
+            long toc = channel.position();
+            for (String name : names) {
+                Entry e = written.get(name);
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                ByteBuffer record = ByteBuffer.allocate(5 * Integer.BYTES + 2 * Long.BYTES + bytes.length)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                record.putInt(e.type).putLong(e.offset).putLong(e.length)
+                        .putInt(e.width).putInt(e.height).putInt(e.levels)
+                        .putInt(bytes.length).put(bytes).flip();
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+            }
+            int flags = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? FLAG_LITTLE_ENDIAN : 0;
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(flags).putInt(names.size()).putLong(toc).flip();
+            channel.write(header, 0);
+            long size = channel.size();
+            channel.close();
+            try {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            finished = true;
+            return size;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                channel.close();
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    private AssetPack(Path path, MappedByteBuffer map, HashMap<String, Entry> entries, long openNanos, String problem) {
+        this.path = path;
+        this.map = map;
+        this.entries = entries;
+        this.openNanos = openNanos;
+        this.problem = problem;
+    }
+
+    /**
+     * The pack named by -Dshape.pack, mapped on first use. Without the property or a usable pack
+     * every lookup misses.
+     */
+    public static synchronized AssetPack get() {
+        if (instance == null) {
+            String pack = System.getProperty("shape.pack");
+            instance = pack == null ? new AssetPack(null, null, new HashMap<>(), 0, "not set")
+                    : open(Path.of(pack));
+        }
+        return instance;
+    }
+
+    /**
+     * Maps the pack at path. A missing, foreign or truncated file gives an empty pack whose report
+     * says why.
+     */
+    public static AssetPack open(Path path) {
+        long start = System.nanoTime();
+        if (!Files.isRegularFile(path)) {
+            return new AssetPack(path, null, new HashMap<>(), 0, "not found");
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER || size > Integer.MAX_VALUE) {
+                return new AssetPack(path, null, new HashMap<>(), 0, "bad size");
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            boolean littleEndian = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+            if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION
+                    || ((map.getInt(8) & FLAG_LITTLE_ENDIAN) != 0) != littleEndian) {
+                return new AssetPack(path, null, new HashMap<>(), 0, "wrong format, version or byte order");
+            }
+            HashMap<String, Entry> entries = new HashMap<>();
+            int count = map.getInt(12);
+            int o = Math.toIntExact(map.getLong(16));
+            for (int i = 0; i < count; i++) {
+                Entry e = new Entry(map.getInt(o), map.getLong(o + 4), map.getLong(o + 12),
+                        map.getInt(o + 20), map.getInt(o + 24), map.getInt(o + 28));
+                byte[] name = new byte[map.getInt(o + 32)];
+                map.get(o + 36, name);
+                o += 36 + name.length;
+                if (e.offset < HEADER || e.offset + e.length > size) {
+                    return new AssetPack(path, null, new HashMap<>(), 0, "entry out of bounds");
+                }
+                entries.put(new String(name, StandardCharsets.UTF_8), e);
+            }
+            return new AssetPack(path, map, entries, System.nanoTime() - start, null);
+        } catch (IOException | RuntimeException e) {
+            return new AssetPack(path, null, new HashMap<>(), 0, e.toString());
+        }
+    }
+
+    public boolean isOpen() {
+        return map != null;
+    }
+
+    public boolean contains(String name) {
+        return entries.containsKey(normalize(name));
+    }
+
+    /**
+     * The mesh baked for name, in the MeshCache file format, or null.
+     */
+    public ByteBuffer mesh(String name) {
+        Entry e = entry(name, MESH);
+        return e == null ? null : slice(e);
+    }
+
+    /**
+     * The image baked for name with its mip chain, or null.
+     */
+    public Image image(String name) {
+        Entry e = entry(name, IMAGE);
+        if (e == null) {
+            return null;
+        }
+        ByteBuffer[] levels = new ByteBuffer[e.levels];
+        long offset = e.offset;
+        for (int level = 0; level < levels.length; level++) {
+            int bytes = Math.max(1, e.width >> level) * Math.max(1, e.height >> level) * 4;
+            levels[level] = map.slice(Math.toIntExact(offset), bytes).order(ByteOrder.nativeOrder());
+            offset += bytes;
+        }
+        return new Image(e.width, e.height, levels);
+    }
+
+    /**
+     * The preprocessed source baked for a shader file such as "grid/flat.vert", or null.
+     */
+    public String shader(String name) {
+        Entry e = entry(name, SHADER);
+        if (e == null) {
+            return null;
+        }
+        byte[] bytes = new byte[Math.toIntExact(e.length)];
+        map.get(Math.toIntExact(e.offset), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public synchronized String report() {
+        if (path == null) {
+            return "-Dshape.pack not set, loading loose files";
+        }
+        if (map == null) {
+            return String.format(Locale.ROOT, "%s %s, loading loose files", path, problem);
+        }
+        return String.format(Locale.ROOT, "%s, %d entries, %.2f MB mapped in %.2f ms, %d served",
+                path, entries.size(), map.capacity() / 1048576.0, openNanos / 1e6, hits);
+    }
+
+    private synchronized Entry entry(String name, int type) {
+        Entry e = entries.get(normalize(name));
+        if (e == null || e.type != type) {
+            return null;
+        }
+        hits++;
+        return e;
+    }
+
+    private ByteBuffer slice(Entry e) {
+        return map.slice(Math.toIntExact(e.offset), Math.toIntExact(e.length)).order(ByteOrder.nativeOrder());
+    }
+
+    private static String normalize(String name) {
+        return name.startsWith("/") ? name.substring(1) : name;
+    }
+}
@@ -0,0 +1,111 @@
+package shape.global;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Bounding spheres of many objects as parallel arrays (x, y, z, radius), culled against a
+ * {@link Frustum} in one pass. The inner loop is straight-line float math over contiguous arrays
+ * with a branch-free write of the visible indices, the shape the JIT can unroll and vectorize.
+ * Large sets are culled in fork-join chunks whose results are compacted afterwards.
+ */
+public class BoundingSpheres {
+    // spheres per chunk of the parallel path
+    private static final int GRAIN = 8192;
+    private static final boolean FORK = Runtime.getRuntime().availableProcessors() > 1;
+
+    private final float[] x;
+    private final float[] y;
+    private final float[] z;
+    private final float[] radius;
+    private final int count;
+    private int[] chunkCounts = new int[0];
+
+    public BoundingSpheres(float[] x, float[] y, float[] z, float[] radius) {
+        if (y.length != x.length || z.length != x.length || radius.length != x.length) {
+            throw new IllegalArgumentException("Sphere arrays differ in length");
+        }
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.radius = radius;
+        count = x.length;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Writes the indices of the visible spheres to the start of visible, in ascending order,
+     * and returns how many there are. visible must hold getCount() entries.
+     */
+    public int cull(Frustum frustum, int[] visible, boolean parallel) {
+        if (visible.length < count) {
+            throw new IllegalArgumentException("Index array holds fewer than " + count + " entries");
+        }
+        if (!parallel || !FORK || count <= GRAIN) {
+            return cull(frustum, 0, count, visible, 0);
+        }
+        int chunks = (count + GRAIN - 1) / GRAIN;
+        if (chunkCounts.length < chunks) {
+            chunkCounts = new int[chunks];
+        }
+        // every chunk writes its survivors to the start of its own range, then the runs are joined
+        ForkJoinPool.commonPool().invoke(new CullTask(frustum, visible, 0, chunks));
+        int n = chunkCounts[0];
+        for (int chunk = 1; chunk < chunks; chunk++) {
+            System.arraycopy(visible, chunk * GRAIN, visible, n, chunkCounts[chunk]);
+            n += chunkCounts[chunk];
+        }
+        return n;
+    }
+
+    /**
+     * Culls spheres [from, to), writing visible indices from visible[offset] on.
+     */
+    public int cull(Frustum frustum, int from, int to, int[] visible, int offset) {
+        float a0 = frustum.get(0, 0), b0 = frustum.get(0, 1), c0 = frustum.get(0, 2), d0 = frustum.get(0, 3);
+        float a1 = frustum.get(1, 0), b1 = frustum.get(1, 1), c1 = frustum.get(1, 2), d1 = frustum.get(1, 3);
+        float a2 = frustum.get(2, 0), b2 = frustum.get(2, 1), c2 = frustum.get(2, 2), d2 = frustum.get(2, 3);
+        float a3 = frustum.get(3, 0), b3 = frustum.get(3, 1), c3 = frustum.get(3, 2), d3 = frustum.get(3, 3);
+        float a4 = frustum.get(4, 0), b4 = frustum.get(4, 1), c4 = frustum.get(4, 2), d4 = frustum.get(4, 3);
+        float a5 = frustum.get(5, 0), b5 = frustum.get(5, 1), c5 = frustum.get(5, 2), d5 = frustum.get(5, 3);
+        int n = offset;
+        for (int i = from; i < to; i++) {
+            float px = x[i], py = y[i], pz = z[i];
+            float distance = Math.min(Math.min(
+                            Math.min(a0 * px + b0 * py + c0 * pz + d0, a1 * px + b1 * py + c1 * pz + d1),
+                            Math.min(a2 * px + b2 * py + c2 * pz + d2, a3 * px + b3 * py + c3 * pz + d3)),
+                    Math.min(a4 * px + b4 * py + c4 * pz + d4, a5 * px + b5 * py + c5 * pz + d5));
+            visible[n] = i;
+            n += distance >= -radius[i] ? 1 : 0;
+        }
+        return n - offset;
+    }
+
+    private final class CullTask extends RecursiveAction {
+        private final Frustum frustum;
+        private final int[] visible;
+        private final int from;
+        private final int to;
+
+        CullTask(Frustum frustum, int[] visible, int from, int to) {
+            this.frustum = frustum;
+            this.visible = visible;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                int start = from * GRAIN;
+                chunkCounts[from] = cull(frustum, start, Math.min(start + GRAIN, count), visible, start);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new CullTask(frustum, visible, from, mid), new CullTask(frustum, visible, mid, to));
+        }
+    }
+}
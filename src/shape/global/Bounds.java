@@ -0,0 +1,116 @@
+package shape.global;
+
+import java.util.Locale;
+
+/**
+ * Immutable axis-aligned box with its bounding sphere, in the space the drawable's vertices are in.
+ * Shaders that displace vertices need their own bounds, see {@link RenderQueue#bounds(Bounds)}.
+ */
+public final class Bounds {
+    private final float minX, minY, minZ;
+    private final float maxX, maxY, maxZ;
+    private final float radius;
+
+    private Bounds(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        if (minX > maxX || minY > maxY || minZ > maxZ) {
+            throw new IllegalArgumentException("Minimum corner must not exceed the maximum one");
+        }
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+        float ex = (maxX - minX) / 2, ey = (maxY - minY) / 2, ez = (maxZ - minZ) / 2;
+        radius = (float) Math.sqrt(ex * ex + ey * ey + ez * ez);
+    }
+
+    public static Bounds box(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        return new Bounds((float) minX, (float) minY, (float) minZ, (float) maxX, (float) maxY, (float) maxZ);
+    }
+
+    /**
+     * Bounds of points stored as consecutive (x, y, z) triples every stride floats, starting at offset.
+     */
+    public static Bounds of(float[] data, int offset, int stride, int count) {
+        if (count == 0) {
+            return box(0, 0, 0, 0, 0, 0);
+        }
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+        for (int i = 0, o = offset; i < count; i++, o += stride) {
+            minX = Math.min(minX, data[o]);
+            minY = Math.min(minY, data[o + 1]);
+            minZ = Math.min(minZ, data[o + 2]);
+            maxX = Math.max(maxX, data[o]);
+            maxY = Math.max(maxY, data[o + 1]);
+            maxZ = Math.max(maxZ, data[o + 2]);
+        }
+        return new Bounds(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    public Bounds union(Bounds other) {
+        return new Bounds(Math.min(minX, other.minX), Math.min(minY, other.minY), Math.min(minZ, other.minZ),
+                Math.max(maxX, other.maxX), Math.max(maxY, other.maxY), Math.max(maxZ, other.maxZ));
+    }
+
+    public Bounds scale(double s) {
+        return box(minX * s, minY * s, minZ * s, maxX * s, maxY * s, maxZ * s);
+    }
+
+    public Bounds translate(double x, double y, double z) {
+        return box(minX + x, minY + y, minZ + z, maxX + x, maxY + y, maxZ + z);
+    }
+
+    /**
+     * Grows the box by the given amounts below and above along each axis.
+     */
+    public Bounds expand(double belowX, double belowY, double belowZ, double aboveX, double aboveY, double aboveZ) {
+        return box(minX - belowX, minY - belowY, minZ - belowZ, maxX + aboveX, maxY + aboveY, maxZ + aboveZ);
+    }
+
+    public float getMinX() {
+        return minX;
+    }
+
+    public float getMinY() {
+        return minY;
+    }
+
+    public float getMinZ() {
+        return minZ;
+    }
+
+    public float getMaxX() {
+        return maxX;
+    }
+
+    public float getMaxY() {
+        return maxY;
+    }
+
+    public float getMaxZ() {
+        return maxZ;
+    }
+
+    public float getCenterX() {
+        return (minX + maxX) / 2;
+    }
+
+    public float getCenterY() {
+        return (minY + maxY) / 2;
+    }
+
+    public float getCenterZ() {
+        return (minZ + maxZ) / 2;
+    }
+
+    public float getRadius() {
+        return radius;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "[%.3f, %.3f, %.3f]-[%.3f, %.3f, %.3f]", minX, minY, minZ, maxX, maxY, maxZ);
+    }
+}
@@ -0,0 +1,20 @@
+package shape.global;
+
+/**
+ * The render device every GL call goes through, LWJGL unless a headless one is installed
+ * before the scenes are initialized. Either way it sits behind a {@link StateCachingRenderDevice}.
+ */
+public class Device {
+    private static RenderDevice current = StateCachingRenderDevice.wrap(new LwjglRenderDevice());
+
+    private Device() {
+    }
+
+    public static RenderDevice gl() {
+        return current;
+    }
+
+    public static void use(RenderDevice device) {
+        current = device;
+    }
+}
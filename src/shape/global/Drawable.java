@@ -0,0 +1,20 @@
+package shape.global;
+
+/**
+ * Anything a {@link RenderQueue} command can draw.
+ */
+public interface Drawable {
+    /**
+     * Sort id of the vertex array behind this drawable, see {@link RenderQueue#nextMeshId()}.
+     */
+    int getMeshId();
+
+    int getTopology();
+
+    /**
+     * Bounds of the vertices as stored, before any model transform; null is never culled.
+     */
+    Bounds getBounds();
+
+    void draw(ShaderProgram program, int topology);
+}
@@ -0,0 +1,98 @@
+package shape.global;
+
+import shape.utils.Mat4f;
+
+/**
+ * The six planes of a view volume, extracted from a view * projection matrix in the row-vector
+ * convention (clip = v * M, so each plane is a sum or difference of two columns) and normalized
+ * so plane distances are in world units. A point p is inside when n.p + d >= 0 for every plane.
+ */
+public class Frustum {
+    public static final int PLANES = 6;
+
+    // a, b, c, d of each plane: left, right, bottom, top, near, far
+    private final float[] planes = new float[PLANES * 4];
+
+    public Frustum set(Mat4f viewProj) {
+        for (int p = 0; p < PLANES; p++) {
+            int column = p / 2;
+            float sign = p % 2 == 0 ? 1 : -1;
+            float a = viewProj.get(0, 3) + sign * viewProj.get(0, column);
+            float b = viewProj.get(1, 3) + sign * viewProj.get(1, column);
+            float c = viewProj.get(2, 3) + sign * viewProj.get(2, column);
+            float d = viewProj.get(3, 3) + sign * viewProj.get(3, column);
+            float length = (float) Math.sqrt(a * a + b * b + c * c);
+            if (length == 0) {
+                length = 1;
+            }
+            planes[p * 4] = a / length;
+            planes[p * 4 + 1] = b / length;
+            planes[p * 4 + 2] = c / length;
+            planes[p * 4 + 3] = d / length;
+        }
+        return this;
+    }
+
+    /**
+     * Component 0-3 (a, b, c, d) of a plane.
+     */
+    public float get(int plane, int component) {
+        return planes[plane * 4 + component];
+    }
+
+    public boolean isVisible(float x, float y, float z, float radius) {
+        for (int p = 0; p < PLANES * 4; p += 4) {
+            if (planes[p] * x + planes[p + 1] * y + planes[p + 2] * z + planes[p + 3] < -radius) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Bounds already in world space.
+     */
+    public boolean isVisible(Bounds bounds) {
+        float cx = bounds.getCenterX(), cy = bounds.getCenterY(), cz = bounds.getCenterZ();
+        if (!isVisible(cx, cy, cz, bounds.getRadius())) {
+            return false;
+        }
+        return boxVisible(cx, cy, cz, bounds.getMaxX() - cx, bounds.getMaxY() - cy, bounds.getMaxZ() - cz);
+    }
+
+    /**
+     * World space box given by its corners, without building a {@link Bounds}.
+     */
+    public boolean isBoxVisible(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        return boxVisible((minX + maxX) / 2, (minY + maxY) / 2, (minZ + maxZ) / 2,
+                (maxX - minX) / 2, (maxY - minY) / 2, (maxZ - minZ) / 2);
+    }
+
+    /**
+     * Bounds in the space of a model matrix (row-vector, translation in the last row). The box is
+     * transformed as a centre and half extents, which keeps it conservative under rotation.
+     */
+    public boolean isVisible(Bounds bounds, Mat4f model) {
+        float lx = bounds.getCenterX(), ly = bounds.getCenterY(), lz = bounds.getCenterZ();
+        float hx = bounds.getMaxX() - lx, hy = bounds.getMaxY() - ly, hz = bounds.getMaxZ() - lz;
+        float cx = lx * model.get(0, 0) + ly * model.get(1, 0) + lz * model.get(2, 0) + model.get(3, 0);
+        float cy = lx * model.get(0, 1) + ly * model.get(1, 1) + lz * model.get(2, 1) + model.get(3, 1);
+        float cz = lx * model.get(0, 2) + ly * model.get(1, 2) + lz * model.get(2, 2) + model.get(3, 2);
+        float ex = hx * Math.abs(model.get(0, 0)) + hy * Math.abs(model.get(1, 0)) + hz * Math.abs(model.get(2, 0));
+        float ey = hx * Math.abs(model.get(0, 1)) + hy * Math.abs(model.get(1, 1)) + hz * Math.abs(model.get(2, 1));
+        float ez = hx * Math.abs(model.get(0, 2)) + hy * Math.abs(model.get(1, 2)) + hz * Math.abs(model.get(2, 2));
+        return boxVisible(cx, cy, cz, ex, ey, ez);
+    }
+
+    private boolean boxVisible(float cx, float cy, float cz, float ex, float ey, float ez) {
+        for (int p = 0; p < PLANES * 4; p += 4) {
+            float a = planes[p], b = planes[p + 1], c = planes[p + 2];
+            float distance = a * cx + b * cy + c * cz + planes[p + 3];
+            float reach = Math.abs(a) * ex + Math.abs(b) * ey + Math.abs(c) * ez;
+            if (distance < -reach) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
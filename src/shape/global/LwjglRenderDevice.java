@@ -0,0 +1,300 @@
+package shape.global;
+
+import lwjglutils.OGLTexture2D;
+import lwjglutils.ShaderUtils;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL31.glDrawElementsInstanced;
+import static org.lwjgl.opengl.GL31.glPrimitiveRestartIndex;
+import static org.lwjgl.opengl.GL33.glVertexAttribDivisor;
+import static org.lwjgl.opengl.GL41.GL_PROGRAM_BINARY_RETRIEVABLE_HINT;
+import static org.lwjgl.opengl.GL41.glGetProgramBinary;
+import static org.lwjgl.opengl.GL41.glProgramBinary;
+import static org.lwjgl.opengl.GL41.glProgramParameteri;
+
+public class LwjglRenderDevice implements RenderDevice {
+    private Boolean programBinary;
+
+    @Override
+    public boolean isHeadless() {
+        return false;
+    }
+
+    @Override
+    public String getString(int name) {
+        return glGetString(name);
+    }
+
+    @Override
+    public void viewport(int x, int y, int width, int height) {
+        glViewport(x, y, width, height);
+    }
+
+    @Override
+    public void clearColor(float r, float g, float b, float a) {
+        glClearColor(r, g, b, a);
+    }
+
+    @Override
+    public void clear(int mask) {
+        glClear(mask);
+    }
+
+    @Override
+    public void enable(int capability) {
+        glEnable(capability);
+    }
+
+    @Override
+    public void disable(int capability) {
+        glDisable(capability);
+    }
+
+    @Override
+    public void polygonMode(int face, int mode) {
+        glPolygonMode(face, mode);
+    }
+
+    @Override
+    public void primitiveRestartIndex(int index) {
+        glPrimitiveRestartIndex(index);
+    }
+
+    @Override
+    public int loadProgram(String name) {
+        return ShaderUtils.loadProgram(name);
+    }
+
+    @Override
+    public int createProgram(String vertexSource, String fragmentSource) {
+        int vertex = compileShader(GL_VERTEX_SHADER, vertexSource);
+        int fragment = compileShader(GL_FRAGMENT_SHADER, fragmentSource);
+        int program = glCreateProgram();
+        if (supportsProgramBinary()) {
+            glProgramParameteri(program, GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL_TRUE);
+        }
+        glAttachShader(program, vertex);
+        glAttachShader(program, fragment);
+        glLinkProgram(program);
+        glDetachShader(program, vertex);
+        glDetachShader(program, fragment);
+        glDeleteShader(vertex);
+        glDeleteShader(fragment);
+        if (glGetProgrami(program, GL_LINK_STATUS) == GL_FALSE) {
+            String log = glGetProgramInfoLog(program);
+            glDeleteProgram(program);
+            throw new IllegalStateException("Program link failed: " + log);
+        }
+        return program;
+    }
+
+    @Override
+    public boolean supportsProgramBinary() {
+        if (programBinary == null) {
+            GLCapabilities caps = GL.getCapabilities();
+            programBinary = caps.OpenGL41 || caps.GL_ARB_get_program_binary;
+        }
+        return programBinary;
+    }
+
+    @Override
+    public void getProgramBinary(int program, IntBuffer format, ByteBuffer binary) {
+        glGetProgramBinary(program, null, format, binary);
+    }
+
+    @Override
+    public int programBinary(int format, ByteBuffer binary) {
+        int program = glCreateProgram();
+        glProgramBinary(program, format, binary);
+        if (glGetProgrami(program, GL_LINK_STATUS) == GL_FALSE) {
+            glDeleteProgram(program);
+            return 0;
+        }
+        return program;
+    }
+
+    private static int compileShader(int type, String source) {
+        int shader = glCreateShader(type);
+        glShaderSource(shader, source);
+        glCompileShader(shader);
+        if (glGetShaderi(shader, GL_COMPILE_STATUS) == GL_FALSE) {
+            String log = glGetShaderInfoLog(shader);
+            glDeleteShader(shader);
+            throw new IllegalStateException("Shader compile failed: " + log);
+        }
+        return shader;
+    }
+
+    @Override
+    public void useProgram(int program) {
+        glUseProgram(program);
+    }
+
+    @Override
+    public void deleteProgram(int program) {
+        glDeleteProgram(program);
+    }
+
+    @Override
+    public int getProgrami(int program, int name) {
+        return glGetProgrami(program, name);
+    }
+
+    @Override
+    public String getActiveUniform(int program, int index, IntBuffer size, IntBuffer type) {
+        return glGetActiveUniform(program, index, size, type);
+    }
+
+    @Override
+    public String getActiveAttrib(int program, int index, IntBuffer size, IntBuffer type) {
+        return glGetActiveAttrib(program, index, size, type);
+    }
+
+    @Override
+    public int getUniformLocation(int program, String name) {
+        return glGetUniformLocation(program, name);
+    }
+
+    @Override
+    public int getAttribLocation(int program, String name) {
+        return glGetAttribLocation(program, name);
+    }
+
+    @Override
+    public void uniformMatrix4fv(int location, FloatBuffer value) {
+        glUniformMatrix4fv(location, false, value);
+    }
+
+    @Override
+    public void uniform1f(int location, float value) {
+        glUniform1f(location, value);
+    }
+
+    @Override
+    public void uniform1i(int location, int value) {
+        glUniform1i(location, value);
+    }
+
+    @Override
+    public void uniform3f(int location, float x, float y, float z) {
+        glUniform3f(location, x, y, z);
+    }
+
+    @Override
+    public int genVertexArray() {
+        return glGenVertexArrays();
+    }
+
+    @Override
+    public void bindVertexArray(int vao) {
+        glBindVertexArray(vao);
+    }
+
+    @Override
+    public void deleteVertexArray(int vao) {
+        glDeleteVertexArrays(vao);
+    }
+
+    @Override
+    public int genBuffer() {
+        return glGenBuffers();
+    }
+
+    @Override
+    public void bindBuffer(int target, int buffer) {
+        glBindBuffer(target, buffer);
+    }
+
+    @Override
+    public void bufferData(int target, ByteBuffer data, int usage) {
+        glBufferData(target, data, usage);
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, ByteBuffer data) {
+        glBufferSubData(target, offset, data);
+    }
+
+    @Override
+    public void deleteBuffer(int buffer) {
+        glDeleteBuffers(buffer);
+    }
+
+    @Override
+    public void enableVertexAttribArray(int index) {
+        glEnableVertexAttribArray(index);
+    }
+
+    @Override
+    public void vertexAttribPointer(int index, int size, int type, boolean normalized, int stride, long offset) {
+        glVertexAttribPointer(index, size, type, normalized, stride, offset);
+    }
+
+    @Override
+    public void vertexAttribDivisor(int index, int divisor) {
+        glVertexAttribDivisor(index, divisor);
+    }
+
+    @Override
+    public void drawElements(int mode, int count, int type, long offset) {
+        glDrawElements(mode, count, type, offset);
+    }
+
+    @Override
+    public void drawElementsInstanced(int mode, int count, int type, long offset, int instances) {
+        glDrawElementsInstanced(mode, count, type, offset, instances);
+    }
+
+    @Override
+    public int loadTexture(String path) throws IOException {
+        return new OGLTexture2D(path).getTextureId();
+    }
+
+    @Override
+    public int genTexture() {
+        return glGenTextures();
+    }
+
+    @Override
+    public void textureImage(int texture, int width, int height, ByteBuffer rgba) {
+        glBindTexture(GL_TEXTURE_2D, texture);
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+        glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA8, width, height, 0, GL_RGBA, GL_UNSIGNED_BYTE, rgba);
+        glGenerateMipmap(GL_TEXTURE_2D);
+    }
+
+    @Override
+    public void textureLevel(int texture, int level, int width, int height, ByteBuffer rgba) {
+        glBindTexture(GL_TEXTURE_2D, texture);
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+        glTexImage2D(GL_TEXTURE_2D, level, GL_RGBA8, width, height, 0, GL_RGBA, GL_UNSIGNED_BYTE, rgba);
+    }
+
+    @Override
+    public void texParameter(int target, int name, int value) {
+        glTexParameteri(target, name, value);
+    }
+
+    @Override
+    public void activeTexture(int unit) {
+        glActiveTexture(unit);
+    }
+
+    @Override
+    public void bindTexture(int target, int texture) {
+        glBindTexture(target, texture);
+    }
+
+    @Override
+    public void deleteTexture(int texture) {
+        glDeleteTextures(texture);
+    }
+}
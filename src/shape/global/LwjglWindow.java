@@ -6,13 +6,17 @@ import org.lwjgl.opengl.GL;
 import org.lwjgl.opengl.GLUtil;
 import org.lwjgl.system.Configuration;
 import org.lwjgl.system.MemoryStack;
+import shape.utils.FrameProfiler;
+import shape.utils.FramePhase;
 
 import java.nio.IntBuffer;
+import java.util.Locale;
 
 import static org.lwjgl.glfw.Callbacks.glfwFreeCallbacks;
 import static org.lwjgl.glfw.GLFW.*;
 import static org.lwjgl.system.MemoryStack.stackPush;
 import static org.lwjgl.system.MemoryUtil.NULL;
+import static shape.global.Device.gl;
 
 public class LwjglWindow {
 
@@ -316,19 +320,40 @@ public class LwjglWindow {
 			GLUtil.setupDebugMessageCallback();
 
 		glfwSetWindowShouldClose(window, false);
+		long sceneStart = System.nanoTime();
 		renderer.init();
+		long initNanos = System.nanoTime() - sceneStart;
+		gl().invalidate();
+		FrameProfiler profiler = FrameProfiler.get();
+		TextureStreamer textures = TextureStreamer.get();
+		boolean firstFrame = true;
 
 		// Run the rendering loop until the user has attempted to close
 		// the window or has pressed the ESCAPE key.
 		while (!glfwWindowShouldClose(window)) {
+			profiler.begin(FramePhase.Upload);
+			textures.upload();
+			profiler.end(FramePhase.Upload);
 
 			renderer.display();
 
+			profiler.begin(FramePhase.Swap);
 			glfwSwapBuffers(window); // swap the color buffers
+			profiler.end(FramePhase.Swap);
+			if (firstFrame) {
+				firstFrame = false;
+				System.out.printf(Locale.ROOT, "Time to first frame: %.1f ms (init %.1f ms), %d textures pending%n",
+						(System.nanoTime() - sceneStart) / 1e6, initNanos / 1e6, textures.pending());
+				System.out.println("Asset pack: " + AssetPack.get().report());
+			}
 
 			// Poll for window events. The key callback above will only be
 			// invoked during this call.
+			profiler.begin(FramePhase.Poll);
 			glfwPollEvents();
+			profiler.end(FramePhase.Poll);
+			profiler.endFrame();
+			gl().endFrame();
 		}
 	}
 
@@ -0,0 +1,261 @@
+package shape.global;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+
+import static org.lwjgl.system.MemoryUtil.memAlloc;
+import static org.lwjgl.system.MemoryUtil.memFree;
+
+/**
+ * Linked program binaries kept on disk between runs, keyed by the hash of the program's sources and
+ * the driver that linked them. Nothing here touches GL: callers hand in the driver string and the
+ * binaries, so hashing, keying and invalidation work without a context. A file records its driver
+ * string in full and is a miss for any other driver, format version or a truncated payload; such
+ * files and binaries the driver rejects are deleted, so the next link writes them again. Files are
+ * read rather than mapped, so deleting one never waits for a mapping to be collected.
+ */
+public class ProgramBinaryCache {
+    private static final int MAGIC = 0x4E49_4250; // "PBIN" read little endian
+    private static final int VERSION = 1;
+    // magic, version, binary format, driver length, binary length
+    private static final int HEADER = 5 * Integer.BYTES;
+
+    private final Path directory;
+    private final String driver;
+    private final String driverHash;
+
+    private int hits;
+    private int misses;
+    private int stale;
+    private int rejected;
+    private int written;
+    private int writeFailures;
+
+    /**
+     * A binary as the driver returned it and the format it named. The data is native memory owned by
+     * this object and released by {@link #free()}.
+     */
+    public static final class Binary {
+        private final int format;
+        private ByteBuffer data;
+
+        Binary(int format, ByteBuffer data) {
+            this.format = format;
+            this.data = data;
+        }
+
+        public int getFormat() {
+            return format;
+        }
+
+        public ByteBuffer getData() {
+            return data;
+        }
+
+        public void free() {
+            if (data != null) {
+                memFree(data);
+                data = null;
+            }
+        }
+    }
+
+    public ProgramBinaryCache(Path directory, String driver) {
+        this.directory = directory;
+        this.driver = driver;
+        driverHash = hash(driver).substring(0, 16);
+    }
+
+    /**
+     * SHA-256 of the stage sources in order, each prefixed by its length so stages cannot run together.
+     */
+    public static String sourceHash(String... sources) {
+        MessageDigest digest = sha256();
+        for (String source : sources) {
+            byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+            digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+            digest.update(bytes);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * The file a binary of the program with sourceHash is kept in for this driver.
+     */
+    public Path file(String sourceHash) {
+        return directory.resolve(sourceHash + "-" + driverHash + ".bin");
+    }
+
+    /**
+     * The binary stored for sourceHash by this driver, or null. The caller frees it.
+     */
+    public Binary read(String sourceHash) {
+        Path file = file(sourceHash);
+        if (!Files.isRegularFile(file)) {
+            record(false);
+            return null;
+        }
+        Binary binary;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            binary = read(channel);
+        } catch (IOException | RuntimeException e) {
+            binary = null;
+        }
+        // the channel is closed before a stale file is deleted
+        if (binary == null) {
+            return invalid(file);
+        }
+        record(true);
+        return binary;
+    }
+
+    /**
+     * The binary in channel after checking the header and driver string, or null when they do not match.
+     */
+    private Binary read(FileChannel channel) throws IOException {
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        if (size < HEADER || size > Integer.MAX_VALUE || !readFully(channel, header, 0)) {
+            return null;
+        }
+        int driverBytes = header.getInt(12);
+        int binaryBytes = header.getInt(16);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || driverBytes < 0 || binaryBytes <= 0
+                || HEADER + (long) driverBytes + binaryBytes != size) {
+            return null;
+        }
+        ByteBuffer name = ByteBuffer.allocate(driverBytes);
+        if (!readFully(channel, name, HEADER)
+                || !driver.equals(new String(name.array(), StandardCharsets.UTF_8))) {
+            return null;
+        }
+        ByteBuffer data = memAlloc(binaryBytes);
+        try {
+            if (!readFully(channel, data, HEADER + driverBytes)) {
+                memFree(data);
+                return null;
+            }
+        } catch (IOException | RuntimeException e) {
+            memFree(data);
+            throw e;
+        }
+        return new Binary(header.getInt(8), data.flip());
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer target, long position) throws IOException {
+        while (target.hasRemaining()) {
+            if (channel.read(target, position + target.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stores binary for sourceHash next to its final name and moves it into place; failures only count.
+     */
+    public boolean write(String sourceHash, int format, ByteBuffer binary) {
+        Path file = file(sourceHash);
+        byte[] name = driver.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer data = binary.duplicate();
+        ByteBuffer header = ByteBuffer.allocate(HEADER + name.length).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(format).putInt(name.length).putInt(data.remaining())
+                .put(name).flip();
+        Path temporary = file.resolveSibling(file.getFileName() + "." + ProcessHandle.current().pid() + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                for (ByteBuffer part : new ByteBuffer[]{header, data}) {
+                    while (part.hasRemaining()) {
+                        channel.write(part);
+                    }
+                }
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            synchronized (this) {
+                written++;
+            }
+            return true;
+        } catch (IOException e) {
+            delete(temporary);
+            synchronized (this) {
+                writeFailures++;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Drops the binary for sourceHash after the driver refused to load it.
+     */
+    public void rejected(String sourceHash) {
+        delete(file(sourceHash));
+        synchronized (this) {
+            rejected++;
+        }
+    }
+
+    public String getDriver() {
+        return driver;
+    }
+
+    public synchronized String report() {
+        return String.format(Locale.ROOT, "%d hits, %d misses (%d stale), %d rejected, %d written%s, %s",
+                hits, misses, stale, rejected, written, writeFailures > 0 ? ", " + writeFailures + " writes failed" : "",
+                directory);
+    }
+
+    private Binary invalid(Path file) {
+        delete(file);
+        synchronized (this) {
+            stale++;
+        }
+        record(false);
+        return null;
+    }
+
+    private synchronized void record(boolean hit) {
+        if (hit) {
+            hits++;
+        } else {
+            misses++;
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // the next write replaces it anyway
+        }
+    }
+
+    private static String hash(String text) {
+        return HexFormat.of().formatHex(sha256().digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package shape.global;
+
+import shape.utils.ResourceCache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import static org.lwjgl.opengl.GL11.GL_RENDERER;
+import static org.lwjgl.opengl.GL11.GL_VENDOR;
+import static org.lwjgl.opengl.GL11.GL_VERSION;
+import static org.lwjgl.opengl.GL41.GL_PROGRAM_BINARY_LENGTH;
+import static org.lwjgl.system.MemoryUtil.memAlloc;
+import static org.lwjgl.system.MemoryUtil.memAllocInt;
+import static org.lwjgl.system.MemoryUtil.memFree;
+import static shape.global.Device.gl;
+
+/**
+ * Linked programs shared by the hash of their sources, so a program several techniques or scenes ask
+ * for is linked once and re-entering a scene links nothing. Scenes acquire programs in init() and
+ * release them in dispose(); unreferenced programs stay linked until more than
+ * -Dshape.programBudget=..., default 64, are resident. A miss first tries the binary an earlier run
+ * saved in the {@link ProgramBinaryCache}; a binary the driver rejects is dropped and the program is
+ * compiled from source. Sources come from the {@link AssetPack} or the classpath.
+ * Disable the binary cache with -Dshape.programCache=false; files go to -Dshape.programCacheDir=...,
+ * default {@code <java.io.tmpdir>/shape-program}.
+ */
+public class ProgramRegistry {
+    private static final boolean BINARIES = Boolean.parseBoolean(System.getProperty("shape.programCache", "true"));
+    private static final Path DIRECTORY = Path.of(System.getProperty("shape.programCacheDir",
+            Path.of(System.getProperty("java.io.tmpdir"), "shape-program").toString()));
+    private static final ResourceCache<String, ShaderProgram> CACHE = new ResourceCache<>(
+            Long.getLong("shape.programBudget", 64), program -> 1, ShaderProgram::delete);
+
+    private static ProgramBinaryCache binaries;
+    private static int compiled;
+    private static long compileNanos;
+    private static int loaded;
+    private static long loadNanos;
+
+    private ProgramRegistry() {
+    }
+
+    /**
+     * The program linked from name.vert and name.frag, shared with every other holder of the same sources.
+     */
+    public static ShaderProgram acquire(String name) {
+        String vertex = source(name + ".vert");
+        String fragment = source(name + ".frag");
+        String hash = ProgramBinaryCache.sourceHash(vertex, fragment);
+        return CACHE.acquire(hash, () -> link(name, hash, vertex, fragment));
+    }
+
+    public static void release(ShaderProgram program) {
+        CACHE.release(program);
+    }
+
+    public static void clear() {
+        CACHE.clear();
+    }
+
+    public static ResourceCache<String, ShaderProgram> stats() {
+        return CACHE;
+    }
+
+    public static String report() {
+        return String.format(Locale.ROOT, "%d resident, hits %d, misses %d, evictions %d, %d compiled in %.2f ms, %d from binaries in %.2f ms, binaries: %s",
+                CACHE.size(), CACHE.getHits(), CACHE.getMisses(), CACHE.getEvictions(), compiled, compileNanos / 1e6,
+                loaded, loadNanos / 1e6, binaries == null ? "disabled" : binaries.report());
+    }
+
+    private static ShaderProgram link(String name, String hash, String vertex, String fragment) {
+        RenderDevice gl = gl();
+        ProgramBinaryCache cache = binaries(gl);
+        long start = System.nanoTime();
+        if (cache != null) {
+            ProgramBinaryCache.Binary binary = cache.read(hash);
+            if (binary != null) {
+                int program = gl.programBinary(binary.getFormat(), binary.getData());
+                binary.free();
+                if (program != 0) {
+                    loaded++;
+                    loadNanos += System.nanoTime() - start;
+                    return new ShaderProgram(name, program);
+                }
+                cache.rejected(hash);
+            }
+        }
+        int program = gl.createProgram(vertex, fragment);
+        if (cache != null) {
+            save(gl, cache, hash, program);
+        }
+        compiled++;
+        compileNanos += System.nanoTime() - start;
+        return new ShaderProgram(name, program);
+    }
+
+    private static void save(RenderDevice gl, ProgramBinaryCache cache, String hash, int program) {
+        int length = gl.getProgrami(program, GL_PROGRAM_BINARY_LENGTH);
+        if (length <= 0) {
+            return;
+        }
+        ByteBuffer binary = memAlloc(length);
+        IntBuffer format = memAllocInt(1);
+        try {
+            gl.getProgramBinary(program, format, binary);
+            cache.write(hash, format.get(0), binary);
+        } finally {
+            memFree(binary);
+            memFree(format);
+        }
+    }
+
+    private static ProgramBinaryCache binaries(RenderDevice gl) {
+        if (binaries == null && BINARIES && gl.supportsProgramBinary()) {
+            binaries = new ProgramBinaryCache(DIRECTORY,
+                    gl.getString(GL_VENDOR) + " | " + gl.getString(GL_RENDERER) + " | " + gl.getString(GL_VERSION));
+        }
+        return binaries;
+    }
+
+    private static String source(String file) {
+        String packed = AssetPack.get().shader(file);
+        if (packed != null) {
+            return packed;
+        }
+        try (InputStream in = ProgramRegistry.class.getResourceAsStream(file)) {
+            if (in == null) {
+                throw new IllegalArgumentException("No shader " + file);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
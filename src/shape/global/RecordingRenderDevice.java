@@ -0,0 +1,424 @@
+package shape.global;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL41.GL_PROGRAM_BINARY_LENGTH;
+
+/**
+ * Device without a GL context. Calls only bump counters, so scenes can run headless and their
+ * CPU cost, allocation rate and call counts can be profiled.
+ * Programs are "linked" by reading the uniform and attribute declarations from the shader sources,
+ * which keeps {@link ShaderProgram} reflection and the uniform setters on their real code path.
+ */
+public class RecordingRenderDevice implements RenderDevice {
+    private static final int BINARY_FORMAT = 0x5245_4344;
+    private static final Pattern DECLARATION = Pattern.compile("^\\s*(uniform|in)\\s+(\\w+)\\s+(\\w+)\\s*;", Pattern.MULTILINE);
+
+    private final HashMap<Integer, List<String[]>> uniforms = new HashMap<>();
+    private final HashMap<Integer, List<String[]>> attributes = new HashMap<>();
+    private final HashMap<Integer, byte[]> binaries = new HashMap<>();
+    private int nextId = 1;
+
+    private long calls;
+    private long drawCalls;
+    private long drawnIndices;
+    private long programBinds;
+    private long uniformUploads;
+    private long stateChanges;
+    private long bufferBinds;
+    private long textureBinds;
+
+    @Override
+    public boolean isHeadless() {
+        return true;
+    }
+
+    @Override
+    public String getString(int name) {
+        return "RecordingRenderDevice";
+    }
+
+    @Override
+    public void viewport(int x, int y, int width, int height) {
+        calls++;
+        stateChanges++;
+    }
+
+    @Override
+    public void clearColor(float r, float g, float b, float a) {
+        calls++;
+        stateChanges++;
+    }
+
+    @Override
+    public void clear(int mask) {
+        calls++;
+    }
+
+    @Override
+    public void enable(int capability) {
+        calls++;
+        stateChanges++;
+    }
+
+    @Override
+    public void disable(int capability) {
+        calls++;
+        stateChanges++;
+    }
+
+    @Override
+    public void polygonMode(int face, int mode) {
+        calls++;
+        stateChanges++;
+    }
+
+    @Override
+    public void primitiveRestartIndex(int index) {
+        calls++;
+        stateChanges++;
+    }
+
+    @Override
+    public int loadProgram(String name) {
+        return createProgram(source(name + ".vert"), source(name + ".frag"));
+    }
+
+    @Override
+    public int createProgram(String vertexSource, String fragmentSource) {
+        calls++;
+        int id = nextId++;
+        List<String[]> programUniforms = new ArrayList<>();
+        List<String[]> programAttributes = new ArrayList<>();
+        String[] sources = {vertexSource, fragmentSource};
+        for (int stage = 0; stage < sources.length; stage++) {
+            Matcher m = DECLARATION.matcher(sources[stage]);
+            while (m.find()) {
+                String[] declaration = {m.group(3), m.group(2)};
+                if (m.group(1).equals("uniform")) {
+                    if (programUniforms.stream().noneMatch(u -> u[0].equals(declaration[0]))) {
+                        programUniforms.add(declaration);
+                    }
+                } else if (stage == 0) {
+                    programAttributes.add(declaration);
+                }
+            }
+        }
+        uniforms.put(id, programUniforms);
+        attributes.put(id, programAttributes);
+        binaries.put(id, (vertexSource + '\0' + fragmentSource).getBytes(StandardCharsets.UTF_8));
+        return id;
+    }
+
+    @Override
+    public boolean supportsProgramBinary() {
+        return true;
+    }
+
+    /**
+     * The "binary" is the program's sources, so headless runs go through the binary cache too.
+     */
+    @Override
+    public void getProgramBinary(int program, IntBuffer format, ByteBuffer binary) {
+        calls++;
+        format.put(format.position(), BINARY_FORMAT);
+        binary.put(binary.position(), binaries.get(program));
+    }
+
+    @Override
+    public int programBinary(int format, ByteBuffer binary) {
+        calls++;
+        byte[] bytes = new byte[binary.remaining()];
+        binary.get(binary.position(), bytes);
+        String sources = new String(bytes, StandardCharsets.UTF_8);
+        int split = sources.indexOf('\0');
+        if (format != BINARY_FORMAT || split < 0) {
+            return 0;
+        }
+        return createProgram(sources.substring(0, split), sources.substring(split + 1));
+    }
+
+    private static String source(String resource) {
+        InputStream in = RecordingRenderDevice.class.getResourceAsStream(resource);
+        if (in == null) {
+            return "";
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            StringBuilder sb = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                sb.append(line).append('\n');
+            }
+            return sb.toString();
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    private static int glType(String type) {
+        return switch (type) {
+            case "mat4" -> GL_FLOAT_MAT4;
+            case "vec2" -> GL_FLOAT_VEC2;
+            case "vec3" -> GL_FLOAT_VEC3;
+            case "vec4" -> GL_FLOAT_VEC4;
+            case "sampler2D" -> GL_SAMPLER_2D;
+            case "int" -> GL_INT;
+            default -> GL_FLOAT;
+        };
+    }
+
+    @Override
+    public void useProgram(int program) {
+        calls++;
+        programBinds++;
+    }
+
+    @Override
+    public void deleteProgram(int program) {
+        calls++;
+        uniforms.remove(program);
+        attributes.remove(program);
+        binaries.remove(program);
+    }
+
+    @Override
+    public int getProgrami(int program, int name) {
+        calls++;
+        return switch (name) {
+            case GL_ACTIVE_UNIFORMS -> uniforms.getOrDefault(program, List.of()).size();
+            case GL_ACTIVE_ATTRIBUTES -> attributes.getOrDefault(program, List.of()).size();
+            case GL_PROGRAM_BINARY_LENGTH -> binaries.getOrDefault(program, new byte[0]).length;
+            default -> 1;
+        };
+    }
+
+    @Override
+    public String getActiveUniform(int program, int index, IntBuffer size, IntBuffer type) {
+        calls++;
+        return active(uniforms.get(program).get(index), size, type);
+    }
+
+    @Override
+    public String getActiveAttrib(int program, int index, IntBuffer size, IntBuffer type) {
+        calls++;
+        return active(attributes.get(program).get(index), size, type);
+    }
+
+    private static String active(String[] declaration, IntBuffer size, IntBuffer type) {
+        size.put(0, 1);
+        type.put(0, glType(declaration[1]));
+        return declaration[0];
+    }
+
+    @Override
+    public int getUniformLocation(int program, String name) {
+        calls++;
+        return indexOf(uniforms.get(program), name);
+    }
+
+    @Override
+    public int getAttribLocation(int program, String name) {
+        calls++;
+        return indexOf(attributes.get(program), name);
+    }
+
+    private static int indexOf(List<String[]> declarations, String name) {
+        if (declarations != null) {
+            for (int i = 0; i < declarations.size(); i++) {
+                if (declarations.get(i)[0].equals(name)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void uniformMatrix4fv(int location, FloatBuffer value) {
+        calls++;
+        uniformUploads++;
+    }
+
+    @Override
+    public void uniform1f(int location, float value) {
+        calls++;
+        uniformUploads++;
+    }
+
+    @Override
+    public void uniform1i(int location, int value) {
+        calls++;
+        uniformUploads++;
+    }
+
+    @Override
+    public void uniform3f(int location, float x, float y, float z) {
+        calls++;
+        uniformUploads++;
+    }
+
+    @Override
+    public int genVertexArray() {
+        calls++;
+        return nextId++;
+    }
+
+    @Override
+    public void bindVertexArray(int vao) {
+        calls++;
+        bufferBinds++;
+    }
+
+    @Override
+    public void deleteVertexArray(int vao) {
+        calls++;
+    }
+
+    @Override
+    public int genBuffer() {
+        calls++;
+        return nextId++;
+    }
+
+    @Override
+    public void bindBuffer(int target, int buffer) {
+        calls++;
+        bufferBinds++;
+    }
+
+    @Override
+    public void bufferData(int target, ByteBuffer data, int usage) {
+        calls++;
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, ByteBuffer data) {
+        calls++;
+    }
+
+    @Override
+    public void deleteBuffer(int buffer) {
+        calls++;
+    }
+
+    @Override
+    public void enableVertexAttribArray(int index) {
+        calls++;
+        stateChanges++;
+    }
+
+    @Override
+    public void vertexAttribPointer(int index, int size, int type, boolean normalized, int stride, long offset) {
+        calls++;
+        stateChanges++;
+    }
+
+    @Override
+    public void vertexAttribDivisor(int index, int divisor) {
+        calls++;
+        stateChanges++;
+    }
+
+    @Override
+    public void drawElements(int mode, int count, int type, long offset) {
+        calls++;
+        drawCalls++;
+        drawnIndices += count;
+    }
+
+    @Override
+    public void drawElementsInstanced(int mode, int count, int type, long offset, int instances) {
+        calls++;
+        drawCalls++;
+        drawnIndices += (long) count * instances;
+    }
+
+    @Override
+    public int loadTexture(String path) {
+        calls++;
+        return nextId++;
+    }
+
+    @Override
+    public int genTexture() {
+        calls++;
+        return nextId++;
+    }
+
+    @Override
+    public void textureImage(int texture, int width, int height, ByteBuffer rgba) {
+        calls++;
+        textureBinds++;
+    }
+
+    @Override
+    public void textureLevel(int texture, int level, int width, int height, ByteBuffer rgba) {
+        calls++;
+        textureBinds++;
+    }
+
+    @Override
+    public void texParameter(int target, int name, int value) {
+        calls++;
+        stateChanges++;
+    }
+
+    @Override
+    public void activeTexture(int unit) {
+        calls++;
+        stateChanges++;
+    }
+
+    @Override
+    public void bindTexture(int target, int texture) {
+        calls++;
+        textureBinds++;
+    }
+
+    @Override
+    public void deleteTexture(int texture) {
+        calls++;
+    }
+
+    public void reset() {
+        calls = drawCalls = drawnIndices = programBinds = uniformUploads = stateChanges = bufferBinds = textureBinds = 0;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getDrawCalls() {
+        return drawCalls;
+    }
+
+    public long getProgramBinds() {
+        return programBinds;
+    }
+
+    public long getUniformUploads() {
+        return uniformUploads;
+    }
+
+    public String report(long frames) {
+        double f = Math.max(frames, 1);
+        return String.format(Locale.ROOT,
+                "per frame: %.1f calls, %.1f draws (%.0f indices), %.1f programs, %.1f uniforms, %.1f state, %.1f buffer binds, %.1f texture binds",
+                calls / f, drawCalls / f, drawnIndices / f, programBinds / f, uniformUploads / f, stateChanges / f,
+                bufferBinds / f, textureBinds / f);
+    }
+}
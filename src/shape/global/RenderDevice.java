@@ -0,0 +1,142 @@
+package shape.global;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * The OpenGL calls the scenes and models need, so the per-frame CPU work can run against
+ * a real context ({@link LwjglRenderDevice}) or none at all ({@link RecordingRenderDevice}).
+ * Methods mirror their gl* counterparts.
+ */
+public interface RenderDevice {
+    boolean isHeadless();
+
+    String getString(int name);
+
+    // state
+    void viewport(int x, int y, int width, int height);
+
+    void clearColor(float r, float g, float b, float a);
+
+    void clear(int mask);
+
+    void enable(int capability);
+
+    void disable(int capability);
+
+    void polygonMode(int face, int mode);
+
+    void primitiveRestartIndex(int index);
+
+    // programs
+    int loadProgram(String name);
+
+    /**
+     * Compiles and links a program from vertex and fragment shader sources.
+     */
+    int createProgram(String vertexSource, String fragmentSource);
+
+    /**
+     * Whether linked programs can be saved with getProgramBinary and loaded with programBinary.
+     */
+    boolean supportsProgramBinary();
+
+    /**
+     * Copies the linked binary of program, GL_PROGRAM_BINARY_LENGTH bytes, into binary.
+     */
+    void getProgramBinary(int program, IntBuffer format, ByteBuffer binary);
+
+    /**
+     * A program loaded from a binary getProgramBinary returned, or 0 when the driver rejects it.
+     */
+    int programBinary(int format, ByteBuffer binary);
+
+    void useProgram(int program);
+
+    void deleteProgram(int program);
+
+    int getProgrami(int program, int name);
+
+    String getActiveUniform(int program, int index, IntBuffer size, IntBuffer type);
+
+    String getActiveAttrib(int program, int index, IntBuffer size, IntBuffer type);
+
+    int getUniformLocation(int program, String name);
+
+    int getAttribLocation(int program, String name);
+
+    void uniformMatrix4fv(int location, FloatBuffer value);
+
+    void uniform1f(int location, float value);
+
+    void uniform1i(int location, int value);
+
+    void uniform3f(int location, float x, float y, float z);
+
+    // buffers
+    int genVertexArray();
+
+    void bindVertexArray(int vao);
+
+    void deleteVertexArray(int vao);
+
+    int genBuffer();
+
+    void bindBuffer(int target, int buffer);
+
+    void bufferData(int target, ByteBuffer data, int usage);
+
+    void bufferSubData(int target, long offset, ByteBuffer data);
+
+    void deleteBuffer(int buffer);
+
+    void enableVertexAttribArray(int index);
+
+    void vertexAttribPointer(int index, int size, int type, boolean normalized, int stride, long offset);
+
+    void vertexAttribDivisor(int index, int divisor);
+
+    void drawElements(int mode, int count, int type, long offset);
+
+    void drawElementsInstanced(int mode, int count, int type, long offset, int instances);
+
+    // textures
+    int loadTexture(String path) throws IOException;
+
+    int genTexture();
+
+    /**
+     * Level 0 of texture from tightly packed RGBA8 rows, then its mipmaps.
+     * Leaves texture bound to GL_TEXTURE_2D on the active unit.
+     */
+    void textureImage(int texture, int width, int height, ByteBuffer rgba);
+
+    /**
+     * One mip level of texture from tightly packed RGBA8 rows, no mipmaps are generated.
+     * Leaves texture bound to GL_TEXTURE_2D on the active unit.
+     */
+    void textureLevel(int texture, int level, int width, int height, ByteBuffer rgba);
+
+    void texParameter(int target, int name, int value);
+
+    void activeTexture(int unit);
+
+    void bindTexture(int target, int texture);
+
+    void deleteTexture(int texture);
+
+    // frame boundary
+    /**
+     * GL state was changed behind the device's back (lwjglutils text and OBJ buffers), forget what is cached.
+     */
+    default void invalidate() {
+    }
+
+    /**
+     * Called once per frame after the buffers are swapped.
+     */
+    default void endFrame() {
+    }
+}
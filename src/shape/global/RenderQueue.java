@@ -0,0 +1,475 @@
+package shape.global;
+
+import shape.utils.FramePhase;
+import shape.utils.FrameProfiler;
+import shape.utils.Mat4f;
+import transforms.Vec3D;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
+import static shape.global.Device.gl;
+
+/**
+ * Per-frame list of draw commands. A command is a program, a drawable, topology, polygon mode,
+ * textures and uniform values; {@link #submit()} sorts the commands by a packed 64-bit key
+ * (layer, program, first texture, mesh, recording order) and executes them, so commands sharing
+ * a program or a texture run back to back. Commands live in parallel arrays that only grow,
+ * recording a frame does not allocate once they are large enough.
+ * Switch counters compare the recorded order with the sorted one for the last submitted frame.
+ * With a {@link Frustum} set, commands whose bounds (see {@link #bounds} and {@link #transform})
+ * lie outside it are dropped before sorting. Submitting a command that leaves out one of the
+ * uniforms its owner declared per command (see {@link #requirePerCommand}) fails.
+ */
+public class RenderQueue {
+    private static final AtomicInteger MESH_IDS = new AtomicInteger();
+
+    private static final int LAYER_SHIFT = 60;
+    private static final int PROGRAM_SHIFT = 48;
+    private static final int TEXTURE_SHIFT = 32;
+    private static final int MESH_SHIFT = 16;
+    private static final int MAX_COMMANDS = 1 << 16;
+    private static final int MAX_UNITS = 16;
+
+    private static final byte MAT4 = 0;
+    private static final byte VEC3 = 1;
+    private static final byte FLOAT = 2;
+    private static final byte INT = 3;
+
+    private final FrameProfiler profiler = FrameProfiler.get();
+
+    private int count;
+    private long[] keys = new long[64];
+    private int[] layers = new int[64];
+    private ShaderProgram[] programs = new ShaderProgram[64];
+    private Drawable[] meshes = new Drawable[64];
+    private int[] topologies = new int[64];
+    private int[] polygonModes = new int[64];
+    private FramePhase[] phases = new FramePhase[64];
+    private Bounds[] bounds = new Bounds[64];
+    private int[] transforms = new int[64];
+    private int[] textureStart = new int[65];
+    private int[] uniformStart = new int[65];
+
+    private int textureCount;
+    private int[] textureUnits = new int[64];
+    private int[] textureIds = new int[64];
+    private String[] samplers = new String[64];
+
+    private int uniformCount;
+    private String[] uniformNames = new String[256];
+    private byte[] uniformTypes = new byte[256];
+    private int[] uniformSlots = new int[256];
+    private int matrixCount;
+    private Mat4f[] matrices = new Mat4f[0];
+    private int valueCount;
+    private float[] values = new float[256];
+
+    private final int[] boundTextures = new int[MAX_UNITS];
+    private final Counts recorded = new Counts();
+    private final Counts sorted = new Counts();
+    private boolean sorting = true;
+    private Frustum frustum;
+    private String[] perCommand = new String[0];
+    private int visible;
+    private int culled;
+
+    /**
+     * Switch counts of one frame in one command order.
+     */
+    public static final class Counts {
+        private int programs;
+        private int textures;
+        private int meshes;
+
+        public int getPrograms() {
+            return programs;
+        }
+
+        public int getTextures() {
+            return textures;
+        }
+
+        public int getMeshes() {
+            return meshes;
+        }
+    }
+
+    public static int nextMeshId() {
+        return MESH_IDS.incrementAndGet();
+    }
+
+    /**
+     * Starts a command in layer 0 with the drawable's own topology and filled polygons;
+     * the following calls up to the next add() describe it.
+     */
+    public RenderQueue add(ShaderProgram program, Drawable mesh) {
+        return add(0, program, mesh);
+    }
+
+    /**
+     * Lower layers are submitted first regardless of program, for draws that depend on order.
+     */
+    public RenderQueue add(int layer, ShaderProgram program, Drawable mesh) {
+        if (layer < 0 || layer > 15) {
+            throw new IllegalArgumentException("Layer must be in [0, 15]");
+        }
+        if (count == MAX_COMMANDS) {
+            throw new IllegalStateException("More than " + MAX_COMMANDS + " commands in a frame");
+        }
+        if (count == programs.length) {
+            int size = count * 2;
+            keys = Arrays.copyOf(keys, size);
+            layers = Arrays.copyOf(layers, size);
+            programs = Arrays.copyOf(programs, size);
+            meshes = Arrays.copyOf(meshes, size);
+            topologies = Arrays.copyOf(topologies, size);
+            polygonModes = Arrays.copyOf(polygonModes, size);
+            phases = Arrays.copyOf(phases, size);
+            bounds = Arrays.copyOf(bounds, size);
+            transforms = Arrays.copyOf(transforms, size);
+            textureStart = Arrays.copyOf(textureStart, size + 1);
+            uniformStart = Arrays.copyOf(uniformStart, size + 1);
+        }
+        layers[count] = layer;
+        programs[count] = program;
+        meshes[count] = mesh;
+        topologies[count] = mesh.getTopology();
+        polygonModes[count] = GL_FILL;
+        phases[count] = null;
+        bounds[count] = mesh.getBounds();
+        transforms[count] = -1;
+        textureStart[count] = textureCount;
+        uniformStart[count] = uniformCount;
+        count++;
+        return this;
+    }
+
+    private int current() {
+        if (count == 0) {
+            throw new IllegalStateException("No command started");
+        }
+        return count - 1;
+    }
+
+    public RenderQueue topology(int topology) {
+        topologies[current()] = topology;
+        return this;
+    }
+
+    public RenderQueue polygonMode(int mode) {
+        polygonModes[current()] = mode;
+        return this;
+    }
+
+    /**
+     * Profiler phase the execution of this command is accounted to.
+     */
+    public RenderQueue phase(FramePhase phase) {
+        phases[current()] = phase;
+        return this;
+    }
+
+    /**
+     * Bounds to cull this command by instead of the drawable's, for shaders that move vertices.
+     */
+    public RenderQueue bounds(Bounds value) {
+        bounds[current()] = value;
+        return this;
+    }
+
+    /**
+     * Model matrix taking the bounds to world space; without one they are taken as world space.
+     */
+    public RenderQueue transform(Mat4f model) {
+        int i = current();
+        transforms[i] = matrix(model);
+        return this;
+    }
+
+    public RenderQueue texture(int unit, int texture, String sampler) {
+        current();
+        if (unit < 0 || unit >= MAX_UNITS) {
+            throw new IllegalArgumentException("Texture unit must be in [0, " + MAX_UNITS + ")");
+        }
+        if (textureCount == textureIds.length) {
+            int size = textureCount * 2;
+            textureUnits = Arrays.copyOf(textureUnits, size);
+            textureIds = Arrays.copyOf(textureIds, size);
+            samplers = Arrays.copyOf(samplers, size);
+        }
+        textureUnits[textureCount] = unit;
+        textureIds[textureCount] = texture;
+        samplers[textureCount] = sampler;
+        textureCount++;
+        return this;
+    }
+
+    private void uniform(String name, byte type, int slot) {
+        current();
+        if (uniformCount == uniformNames.length) {
+            int size = uniformCount * 2;
+            uniformNames = Arrays.copyOf(uniformNames, size);
+            uniformTypes = Arrays.copyOf(uniformTypes, size);
+            uniformSlots = Arrays.copyOf(uniformSlots, size);
+        }
+        uniformNames[uniformCount] = name;
+        uniformTypes[uniformCount] = type;
+        uniformSlots[uniformCount] = slot;
+        uniformCount++;
+    }
+
+    private int values(int n) {
+        if (valueCount + n > values.length) {
+            values = Arrays.copyOf(values, Math.max(values.length * 2, valueCount + n));
+        }
+        int slot = valueCount;
+        valueCount += n;
+        return slot;
+    }
+
+    private int matrix(Mat4f value) {
+        if (matrixCount == matrices.length) {
+            matrices = Arrays.copyOf(matrices, Math.max(16, matrixCount * 2));
+            for (int i = matrixCount; i < matrices.length; i++) {
+                matrices[i] = new Mat4f();
+            }
+        }
+        matrices[matrixCount].set(value);
+        return matrixCount++;
+    }
+
+    public RenderQueue mat4(String name, Mat4f value) {
+        int slot = matrix(value);
+        uniform(name, MAT4, slot);
+        return this;
+    }
+
+    public RenderQueue vec3(String name, double x, double y, double z) {
+        int slot = values(3);
+        values[slot] = (float) x;
+        values[slot + 1] = (float) y;
+        values[slot + 2] = (float) z;
+        uniform(name, VEC3, slot);
+        return this;
+    }
+
+    public RenderQueue vec3(String name, Vec3D value) {
+        return vec3(name, value.getX(), value.getY(), value.getZ());
+    }
+
+    public RenderQueue setFloat(String name, float value) {
+        int slot = values(1);
+        values[slot] = value;
+        uniform(name, FLOAT, slot);
+        return this;
+    }
+
+    public RenderQueue setInt(String name, int value) {
+        uniform(name, INT, value);
+        return this;
+    }
+
+    /**
+     * Sorts by default; unsorted submission keeps the recording order for comparison.
+     */
+    public void setSorting(boolean sorting) {
+        this.sorting = sorting;
+    }
+
+    public boolean isSorting() {
+        return sorting;
+    }
+
+    /**
+     * World-space view volume commands are culled against, null to draw everything.
+     * Read at submit(), so it has to stay unchanged until then.
+     */
+    public void setFrustum(Frustum frustum) {
+        this.frustum = frustum;
+    }
+
+    public Frustum getFrustum() {
+        return frustum;
+    }
+
+    /**
+     * Uniforms every command whose program has them must set itself, because a drawable changes
+     * them while drawing and no value left over from an earlier command is right for the next one.
+     */
+    public void requirePerCommand(String... uniforms) {
+        perCommand = uniforms.clone();
+    }
+
+    /**
+     * Executes and clears the recorded commands.
+     */
+    public void submit() {
+        textureStart[count] = textureCount;
+        uniformStart[count] = uniformCount;
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            checkUniforms(i);
+            if (isVisible(i)) {
+                keys[n++] = key(i);
+            }
+        }
+        visible = n;
+        culled = count - n;
+        countSwitches(recorded, n);
+        if (sorting) {
+            Arrays.sort(keys, 0, n);
+        }
+        countSwitches(sorted, n);
+
+        RenderDevice gl = gl();
+        ShaderProgram program = null;
+        int polygonMode = -1;
+        for (int k = 0; k < n; k++) {
+            int i = (int) (keys[k] & 0xFFFF);
+            FramePhase phase = phases[i];
+            if (phase != null) {
+                profiler.begin(phase);
+            }
+            if (programs[i] != program) {
+                program = programs[i];
+                program.use();
+            }
+            if (polygonModes[i] != polygonMode) {
+                polygonMode = polygonModes[i];
+                gl.polygonMode(GL_FRONT, polygonMode);
+                gl.polygonMode(GL_BACK, polygonMode);
+            }
+            for (int t = textureStart[i]; t < textureStart[i + 1]; t++) {
+                gl.activeTexture(GL_TEXTURE0 + textureUnits[t]);
+                gl.bindTexture(GL_TEXTURE_2D, textureIds[t]);
+                program.setInt(samplers[t], textureUnits[t]);
+            }
+            for (int u = uniformStart[i]; u < uniformStart[i + 1]; u++) {
+                int slot = uniformSlots[u];
+                switch (uniformTypes[u]) {
+                    case MAT4 -> program.setMat4(uniformNames[u], matrices[slot]);
+                    case VEC3 -> program.setVec3(uniformNames[u], values[slot], values[slot + 1], values[slot + 2]);
+                    case FLOAT -> program.setFloat(uniformNames[u], values[slot]);
+                    default -> program.setInt(uniformNames[u], slot);
+                }
+            }
+            meshes[i].draw(program, topologies[i]);
+            if (phase != null) {
+                profiler.end(phase);
+            }
+        }
+        if (n > 0) {
+            gl.bindVertexArray(0);
+        }
+        clear();
+    }
+
+    private void checkUniforms(int i) {
+        for (String required : perCommand) {
+            boolean set = !programs[i].hasUniform(required);
+            for (int u = uniformStart[i]; u < uniformStart[i + 1] && !set; u++) {
+                set = required.equals(uniformNames[u]);
+            }
+            if (!set) {
+                String program = programs[i].getName();
+                clear();
+                throw new IllegalStateException("Command drawing with " + program + " does not set uniform " + required);
+            }
+        }
+    }
+
+    private boolean isVisible(int i) {
+        if (frustum == null || bounds[i] == null) {
+            return true;
+        }
+        return transforms[i] < 0 ? frustum.isVisible(bounds[i]) : frustum.isVisible(bounds[i], matrices[transforms[i]]);
+    }
+
+    private long key(int i) {
+        int texture = textureStart[i + 1] > textureStart[i] ? textureIds[textureStart[i]] : 0;
+        long key = (long) layers[i] << LAYER_SHIFT
+                | (long) (programs[i].getId() & 0xFFF) << PROGRAM_SHIFT
+                | (long) (texture & 0xFFFF) << TEXTURE_SHIFT
+                | (long) (meshes[i].getMeshId() & 0xFFFF) << MESH_SHIFT
+                | i;
+        // layers 8-15 set the sign bit, flipping it makes the signed sort order keys as unsigned
+        return key ^ Long.MIN_VALUE;
+    }
+
+    private void countSwitches(Counts counts, int n) {
+        counts.programs = 0;
+        counts.textures = 0;
+        counts.meshes = 0;
+        Arrays.fill(boundTextures, 0);
+        ShaderProgram program = null;
+        Drawable mesh = null;
+        for (int k = 0; k < n; k++) {
+            int i = (int) (keys[k] & 0xFFFF);
+            if (programs[i] != program) {
+                program = programs[i];
+                counts.programs++;
+            }
+            if (meshes[i] != mesh) {
+                mesh = meshes[i];
+                counts.meshes++;
+            }
+            for (int t = textureStart[i]; t < textureStart[i + 1]; t++) {
+                if (boundTextures[textureUnits[t]] != textureIds[t]) {
+                    boundTextures[textureUnits[t]] = textureIds[t];
+                    counts.textures++;
+                }
+            }
+        }
+    }
+
+    private void clear() {
+        Arrays.fill(programs, 0, count, null);
+        Arrays.fill(meshes, 0, count, null);
+        Arrays.fill(bounds, 0, count, null);
+        Arrays.fill(samplers, 0, textureCount, null);
+        Arrays.fill(uniformNames, 0, uniformCount, null);
+        count = 0;
+        textureCount = 0;
+        uniformCount = 0;
+        matrixCount = 0;
+        valueCount = 0;
+    }
+
+    /**
+     * Switches of the last submitted frame in recording order.
+     */
+    public Counts getRecorded() {
+        return recorded;
+    }
+
+    /**
+     * Switches of the last submitted frame as executed.
+     */
+    public Counts getSorted() {
+        return sorted;
+    }
+
+    /**
+     * Commands of the last submitted frame that passed culling.
+     */
+    public int getVisible() {
+        return visible;
+    }
+
+    /**
+     * Commands of the last submitted frame dropped by culling.
+     */
+    public int getCulled() {
+        return culled;
+    }
+
+    public String report() {
+        return String.format(Locale.ROOT, "switches programs %d->%d, textures %d->%d, meshes %d->%d, culled %d of %d",
+                recorded.programs, sorted.programs, recorded.textures, sorted.textures, recorded.meshes, sorted.meshes,
+                culled, visible + culled);
+    }
+}
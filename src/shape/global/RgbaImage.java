@@ -0,0 +1,118 @@
+package shape.global;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.system.MemoryUtil.memAlloc;
+import static org.lwjgl.system.MemoryUtil.memFree;
+
+/**
+ * Tightly packed RGBA8 pixels in native memory, top row first. Whoever creates one frees it.
+ */
+public final class RgbaImage {
+    private final int width;
+    private final int height;
+    private final ByteBuffer pixels;
+
+    public RgbaImage(int width, int height, ByteBuffer pixels) {
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+    }
+
+    /**
+     * Decodes an image with ImageIO; name only goes into the error message.
+     */
+    public static RgbaImage read(InputStream in, String name) throws IOException {
+        BufferedImage image = ImageIO.read(in);
+        if (image == null) {
+            throw new IOException("No image reader for " + name);
+        }
+        int width = image.getWidth(), height = image.getHeight();
+        ByteBuffer pixels = memAlloc(Math.multiplyExact(width * height, 4));
+        toRgba(image, pixels);
+        return new RgbaImage(width, height, pixels);
+    }
+
+    /**
+     * The next mip level: half the size, rounded down but at least 1, each texel the average of the
+     * 2x2 texels it covers. An odd last row or column is skipped, a side 1 texel long is repeated.
+     */
+    public RgbaImage halve() {
+        int w = Math.max(1, width / 2), h = Math.max(1, height / 2);
+        ByteBuffer half = memAlloc(w * h * 4);
+        int stride = width * 4;
+        for (int y = 0, o = 0; y < h; y++) {
+            int y0 = Math.min(2 * y, height - 1) * stride;
+            int y1 = Math.min(2 * y + 1, height - 1) * stride;
+            for (int x = 0; x < w; x++) {
+                int x0 = Math.min(2 * x, width - 1) * 4;
+                int x1 = Math.min(2 * x + 1, width - 1) * 4;
+                for (int c = 0; c < 4; c++, o++) {
+                    int sum = (pixels.get(y0 + x0 + c) & 0xFF) + (pixels.get(y0 + x1 + c) & 0xFF)
+                            + (pixels.get(y1 + x0 + c) & 0xFF) + (pixels.get(y1 + x1 + c) & 0xFF);
+                    half.put(o, (byte) ((sum + 2) >> 2));
+                }
+            }
+        }
+        return new RgbaImage(w, h, half);
+    }
+
+    /**
+     * Number of levels down to 1x1, this one included.
+     */
+    public int levels() {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(width, height));
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public ByteBuffer getPixels() {
+        return pixels;
+    }
+
+    public void free() {
+        memFree(pixels);
+    }
+
+    private static void toRgba(BufferedImage image, ByteBuffer pixels) {
+        int width = image.getWidth(), height = image.getHeight();
+        int type = image.getType();
+        // JPEGs decode to packed BGR, read the raster directly instead of going through getRGB
+        if (type == BufferedImage.TYPE_3BYTE_BGR || type == BufferedImage.TYPE_4BYTE_ABGR) {
+            byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+            boolean alpha = type == BufferedImage.TYPE_4BYTE_ABGR;
+            int step = alpha ? 4 : 3;
+            int shift = alpha ? 1 : 0;
+            for (int i = 0, o = 0, n = width * height; i < n; i++, o += 4) {
+                int s = i * step;
+                pixels.put(o, data[s + shift + 2]);
+                pixels.put(o + 1, data[s + shift + 1]);
+                pixels.put(o + 2, data[s + shift]);
+                pixels.put(o + 3, alpha ? data[s] : (byte) 255);
+            }
+            return;
+        }
+        int[] row = new int[width];
+        for (int y = 0, o = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++, o += 4) {
+                int argb = row[x];
+                pixels.put(o, (byte) (argb >> 16));
+                pixels.put(o + 1, (byte) (argb >> 8));
+                pixels.put(o + 2, (byte) argb);
+                pixels.put(o + 3, (byte) (argb >>> 24));
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package shape.global;
+
+import java.util.Locale;
+
+import static org.lwjgl.opengl.GL11.GL_LINEAR;
+import static org.lwjgl.opengl.GL11.GL_LINEAR_MIPMAP_LINEAR;
+import static org.lwjgl.opengl.GL11.GL_NEAREST;
+import static org.lwjgl.opengl.GL11.GL_REPEAT;
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_2D;
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_MAG_FILTER;
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_MIN_FILTER;
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_WRAP_S;
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_WRAP_T;
+import static org.lwjgl.opengl.GL12.GL_CLAMP_TO_EDGE;
+
+/**
+ * Wrap mode and filters of a 2D texture; part of the key textures are shared under.
+ */
+public final class Sampling {
+    public static final Sampling TRILINEAR = new Sampling(GL_REPEAT, GL_LINEAR_MIPMAP_LINEAR, GL_LINEAR);
+    public static final Sampling CLAMPED = new Sampling(GL_CLAMP_TO_EDGE, GL_LINEAR_MIPMAP_LINEAR, GL_LINEAR);
+    public static final Sampling NEAREST = new Sampling(GL_REPEAT, GL_NEAREST, GL_NEAREST);
+
+    private final int wrap;
+    private final int minFilter;
+    private final int magFilter;
+
+    public Sampling(int wrap, int minFilter, int magFilter) {
+        this.wrap = wrap;
+        this.minFilter = minFilter;
+        this.magFilter = magFilter;
+    }
+
+    /**
+     * Sets the parameters of the texture bound to GL_TEXTURE_2D on the active unit.
+     */
+    public void apply(RenderDevice gl) {
+        gl.texParameter(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, wrap);
+        gl.texParameter(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, wrap);
+        gl.texParameter(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, minFilter);
+        gl.texParameter(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, magFilter);
+    }
+
+    public int getWrap() {
+        return wrap;
+    }
+
+    public int getMinFilter() {
+        return minFilter;
+    }
+
+    public int getMagFilter() {
+        return magFilter;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Sampling s && wrap == s.wrap && minFilter == s.minFilter && magFilter == s.magFilter;
+    }
+
+    @Override
+    public int hashCode() {
+        return (wrap * 31 + minFilter) * 31 + magFilter;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "wrap %x, min %x, mag %x", wrap, minFilter, magFilter);
+    }
+}
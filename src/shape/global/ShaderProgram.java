@@ -0,0 +1,188 @@
+package shape.global;
+
+import org.lwjgl.system.MemoryStack;
+import shape.utils.Mat4f;
+import transforms.Vec3D;
+
+import java.nio.IntBuffer;
+import java.util.HashMap;
+
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.system.MemoryStack.stackPush;
+import static shape.global.Device.gl;
+
+/**
+ * Linked program with its active uniforms and attributes enumerated once after loading.
+ * Every uniform keeps a shadow copy of the last uploaded value and setters skip the GL call
+ * when nothing changed. Uniform values are program state, so the shadow survives program switches.
+ * Setters expect the program to be in use.
+ */
+public class ShaderProgram {
+    private static long issued;
+    private static long skipped;
+
+    private final String name;
+    private final int id;
+    private final HashMap<String, Uniform> uniforms = new HashMap<>();
+    private final HashMap<String, Integer> attributes = new HashMap<>();
+
+    private static class Uniform {
+        final int location;
+        final int type;
+        final float[] values = new float[16];
+        int intValue;
+        boolean valid;
+
+        Uniform(int location, int type) {
+            this.location = location;
+            this.type = type;
+        }
+    }
+
+    public ShaderProgram(String name, int id) {
+        this.name = name;
+        this.id = id;
+        reflect();
+    }
+
+    /**
+     * Links the program from name.vert and name.frag, taken from the {@link AssetPack} when it
+     * holds both and from the classpath otherwise.
+     */
+    public static ShaderProgram load(String name) {
+        AssetPack pack = AssetPack.get();
+        String vertex = pack.shader(name + ".vert");
+        String fragment = pack.shader(name + ".frag");
+        if (vertex != null && fragment != null) {
+            return new ShaderProgram(name, gl().createProgram(vertex, fragment));
+        }
+        return new ShaderProgram(name, gl().loadProgram(name));
+    }
+
+    private void reflect() {
+        try (MemoryStack stack = stackPush()) {
+            IntBuffer size = stack.mallocInt(1);
+            IntBuffer type = stack.mallocInt(1);
+            RenderDevice gl = gl();
+            int count = gl.getProgrami(id, GL_ACTIVE_UNIFORMS);
+            for (int i = 0; i < count; i++) {
+                String uniform = stripArray(gl.getActiveUniform(id, i, size, type));
+                uniforms.put(uniform, new Uniform(gl.getUniformLocation(id, uniform), type.get(0)));
+            }
+            count = gl.getProgrami(id, GL_ACTIVE_ATTRIBUTES);
+            for (int i = 0; i < count; i++) {
+                String attribute = stripArray(gl.getActiveAttrib(id, i, size, type));
+                attributes.put(attribute, gl.getAttribLocation(id, attribute));
+            }
+        }
+    }
+
+    private static String stripArray(String name) {
+        return name.endsWith("[0]") ? name.substring(0, name.length() - 3) : name;
+    }
+
+    public void use() {
+        gl().useProgram(id);
+    }
+
+    public boolean hasUniform(String uniform) {
+        return uniforms.containsKey(uniform);
+    }
+
+    public int uniformLocation(String uniform) {
+        Uniform u = uniforms.get(uniform);
+        return u == null ? -1 : u.location;
+    }
+
+    public int attributeLocation(String attribute) {
+        Integer location = attributes.get(attribute);
+        return location == null ? -1 : location;
+    }
+
+    public void setMat4(String uniform, Mat4f value) {
+        Uniform u = uniforms.get(uniform);
+        if (u == null) {
+            return;
+        }
+        if (u.valid && value.equalTo(u.values)) {
+            skipped++;
+            return;
+        }
+        value.copyTo(u.values);
+        u.valid = true;
+        issued++;
+        Uniforms.mat4(u.location, value);
+    }
+
+    public void setVec3(String uniform, double x, double y, double z) {
+        Uniform u = uniforms.get(uniform);
+        if (u == null) {
+            return;
+        }
+        float fx = (float) x, fy = (float) y, fz = (float) z;
+        if (u.valid && u.values[0] == fx && u.values[1] == fy && u.values[2] == fz) {
+            skipped++;
+            return;
+        }
+        u.values[0] = fx;
+        u.values[1] = fy;
+        u.values[2] = fz;
+        u.valid = true;
+        issued++;
+        gl().uniform3f(u.location, fx, fy, fz);
+    }
+
+    public void setVec3(String uniform, Vec3D value) {
+        setVec3(uniform, value.getX(), value.getY(), value.getZ());
+    }
+
+    public void setFloat(String uniform, float value) {
+        Uniform u = uniforms.get(uniform);
+        if (u == null) {
+            return;
+        }
+        if (u.valid && u.values[0] == value) {
+            skipped++;
+            return;
+        }
+        u.values[0] = value;
+        u.valid = true;
+        issued++;
+        gl().uniform1f(u.location, value);
+    }
+
+    public void setInt(String uniform, int value) {
+        Uniform u = uniforms.get(uniform);
+        if (u == null) {
+            return;
+        }
+        if (u.valid && u.intValue == value) {
+            skipped++;
+            return;
+        }
+        u.intValue = value;
+        u.valid = true;
+        issued++;
+        gl().uniform1i(u.location, value);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void delete() {
+        gl().deleteProgram(id);
+    }
+
+    public static long getIssued() {
+        return issued;
+    }
+
+    public static long getSkipped() {
+        return skipped;
+    }
+}
@@ -0,0 +1,529 @@
+package shape.global;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Locale;
+
+import static org.lwjgl.opengl.GL11.GL_BACK;
+import static org.lwjgl.opengl.GL11.GL_FRONT;
+import static org.lwjgl.opengl.GL11.GL_FRONT_AND_BACK;
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_2D;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
+import static org.lwjgl.opengl.GL15.GL_ARRAY_BUFFER;
+import static org.lwjgl.opengl.GL15.GL_ELEMENT_ARRAY_BUFFER;
+
+/**
+ * Decorator that shadows the GL state set through it: program, polygon mode, enabled capabilities,
+ * viewport, clear color, restart index, active unit and 2D textures per unit, vertex array and the
+ * array/element buffers. Calls that would set what is already set are dropped.
+ * Anything not tracked goes straight through. State starts unknown and is forgotten again on
+ * {@link #invalidate()}, which whoever runs raw GL code (lwjglutils text) calls right after it;
+ * otherwise the shadow carries over from frame to frame.
+ * Per frame it counts the calls passed to the wrapped device and the ones filtered out.
+ * On by default, -Dshape.stateCache=false uses the wrapped device directly.
+ */
+public class StateCachingRenderDevice implements RenderDevice {
+    private static final int UNKNOWN = -1;
+    private static final int MAX_UNITS = 32;
+    private static final byte ENABLED = 1;
+    private static final byte DISABLED = 2;
+
+    private final RenderDevice device;
+
+    private int program;
+    private int polygonFront;
+    private int polygonBack;
+    private int restartIndex;
+    private final int[] viewport = new int[4];
+    private final float[] clearColor = new float[4];
+    private boolean viewportKnown;
+    private boolean clearColorKnown;
+    private int capabilityCount;
+    private int[] capabilities = new int[8];
+    private byte[] capabilityStates = new byte[8];
+    private int activeUnit;
+    private final int[] textures = new int[MAX_UNITS];
+    private int vertexArray;
+    private int arrayBuffer;
+    private int elementBuffer;
+
+    private long issued;
+    private long filtered;
+    private long lastIssued;
+    private long lastFiltered;
+    private long totalIssued;
+    private long totalFiltered;
+    private long frames;
+
+    public StateCachingRenderDevice(RenderDevice device) {
+        this.device = device;
+        invalidate();
+    }
+
+    public static RenderDevice wrap(RenderDevice device) {
+        return Boolean.parseBoolean(System.getProperty("shape.stateCache", "true"))
+                ? new StateCachingRenderDevice(device) : device;
+    }
+
+    public RenderDevice getDevice() {
+        return device;
+    }
+
+    @Override
+    public void invalidate() {
+        program = UNKNOWN;
+        polygonFront = UNKNOWN;
+        polygonBack = UNKNOWN;
+        restartIndex = UNKNOWN;
+        viewportKnown = false;
+        clearColorKnown = false;
+        Arrays.fill(capabilityStates, 0, capabilityCount, (byte) 0);
+        activeUnit = UNKNOWN;
+        Arrays.fill(textures, UNKNOWN);
+        vertexArray = UNKNOWN;
+        arrayBuffer = UNKNOWN;
+        elementBuffer = UNKNOWN;
+    }
+
+    @Override
+    public void endFrame() {
+        lastIssued = issued;
+        lastFiltered = filtered;
+        totalIssued += issued;
+        totalFiltered += filtered;
+        issued = 0;
+        filtered = 0;
+        frames++;
+        device.endFrame();
+    }
+
+    /**
+     * Calls passed on during the last finished frame.
+     */
+    public long getIssued() {
+        return lastIssued;
+    }
+
+    /**
+     * Calls dropped as redundant during the last finished frame.
+     */
+    public long getFiltered() {
+        return lastFiltered;
+    }
+
+    public void reset() {
+        issued = filtered = lastIssued = lastFiltered = totalIssued = totalFiltered = frames = 0;
+    }
+
+    public String report() {
+        double f = Math.max(frames, 1);
+        long total = totalIssued + totalFiltered;
+        return String.format(Locale.ROOT, "state cache per frame: %.1f issued, %.1f filtered (%.1f %%)",
+                totalIssued / f, totalFiltered / f, total == 0 ? 0 : 100.0 * totalFiltered / total);
+    }
+
+    private boolean skip(boolean redundant) {
+        if (redundant) {
+            filtered++;
+        } else {
+            issued++;
+        }
+        return redundant;
+    }
+
+    @Override
+    public boolean isHeadless() {
+        return device.isHeadless();
+    }
+
+    @Override
+    public String getString(int name) {
+        return device.getString(name);
+    }
+
+    @Override
+    public void viewport(int x, int y, int width, int height) {
+        if (skip(viewportKnown && viewport[0] == x && viewport[1] == y && viewport[2] == width && viewport[3] == height)) {
+            return;
+        }
+        viewport[0] = x;
+        viewport[1] = y;
+        viewport[2] = width;
+        viewport[3] = height;
+        viewportKnown = true;
+        device.viewport(x, y, width, height);
+    }
+
+    @Override
+    public void clearColor(float r, float g, float b, float a) {
+        if (skip(clearColorKnown && clearColor[0] == r && clearColor[1] == g && clearColor[2] == b && clearColor[3] == a)) {
+            return;
+        }
+        clearColor[0] = r;
+        clearColor[1] = g;
+        clearColor[2] = b;
+        clearColor[3] = a;
+        clearColorKnown = true;
+        device.clearColor(r, g, b, a);
+    }
+
+    @Override
+    public void clear(int mask) {
+        issued++;
+        device.clear(mask);
+    }
+
+    private int capability(int capability) {
+        for (int i = 0; i < capabilityCount; i++) {
+            if (capabilities[i] == capability) {
+                return i;
+            }
+        }
+        if (capabilityCount == capabilities.length) {
+            capabilities = Arrays.copyOf(capabilities, capabilityCount * 2);
+            capabilityStates = Arrays.copyOf(capabilityStates, capabilityCount * 2);
+        }
+        capabilities[capabilityCount] = capability;
+        capabilityStates[capabilityCount] = 0;
+        return capabilityCount++;
+    }
+
+    @Override
+    public void enable(int capability) {
+        int i = capability(capability);
+        if (skip(capabilityStates[i] == ENABLED)) {
+            return;
+        }
+        capabilityStates[i] = ENABLED;
+        device.enable(capability);
+    }
+
+    @Override
+    public void disable(int capability) {
+        int i = capability(capability);
+        if (skip(capabilityStates[i] == DISABLED)) {
+            return;
+        }
+        capabilityStates[i] = DISABLED;
+        device.disable(capability);
+    }
+
+    @Override
+    public void polygonMode(int face, int mode) {
+        boolean front = face == GL_FRONT || face == GL_FRONT_AND_BACK;
+        boolean back = face == GL_BACK || face == GL_FRONT_AND_BACK;
+        if (skip((!front || polygonFront == mode) && (!back || polygonBack == mode))) {
+            return;
+        }
+        if (front) {
+            polygonFront = mode;
+        }
+        if (back) {
+            polygonBack = mode;
+        }
+        device.polygonMode(face, mode);
+    }
+
+    @Override
+    public void primitiveRestartIndex(int index) {
+        if (skip(restartIndex == index)) {
+            return;
+        }
+        restartIndex = index;
+        device.primitiveRestartIndex(index);
+    }
+
+    @Override
+    public int loadProgram(String name) {
+        issued++;
+        // linking may leave anything bound
+        program = UNKNOWN;
+        return device.loadProgram(name);
+    }
+
+    @Override
+    public int createProgram(String vertexSource, String fragmentSource) {
+        issued++;
+        program = UNKNOWN;
+        return device.createProgram(vertexSource, fragmentSource);
+    }
+
+    @Override
+    public boolean supportsProgramBinary() {
+        return device.supportsProgramBinary();
+    }
+
+    @Override
+    public void getProgramBinary(int program, IntBuffer format, ByteBuffer binary) {
+        issued++;
+        device.getProgramBinary(program, format, binary);
+    }
+
+    @Override
+    public int programBinary(int format, ByteBuffer binary) {
+        issued++;
+        program = UNKNOWN;
+        return device.programBinary(format, binary);
+    }
+
+    @Override
+    public void useProgram(int program) {
+        if (skip(this.program == program)) {
+            return;
+        }
+        this.program = program;
+        device.useProgram(program);
+    }
+
+    @Override
+    public void deleteProgram(int program) {
+        issued++;
+        if (this.program == program) {
+            // a bound program is only flagged for deletion and stays in use
+            this.program = UNKNOWN;
+        }
+        device.deleteProgram(program);
+    }
+
+    @Override
+    public int getProgrami(int program, int name) {
+        issued++;
+        return device.getProgrami(program, name);
+    }
+
+    @Override
+    public String getActiveUniform(int program, int index, IntBuffer size, IntBuffer type) {
+        issued++;
+        return device.getActiveUniform(program, index, size, type);
+    }
+
+    @Override
+    public String getActiveAttrib(int program, int index, IntBuffer size, IntBuffer type) {
+        issued++;
+        return device.getActiveAttrib(program, index, size, type);
+    }
+
+    @Override
+    public int getUniformLocation(int program, String name) {
+        issued++;
+        return device.getUniformLocation(program, name);
+    }
+
+    @Override
+    public int getAttribLocation(int program, String name) {
+        issued++;
+        return device.getAttribLocation(program, name);
+    }
+
+    // uniform values are shadowed per program by ShaderProgram
+    @Override
+    public void uniformMatrix4fv(int location, FloatBuffer value) {
+        issued++;
+        device.uniformMatrix4fv(location, value);
+    }
+
+    @Override
+    public void uniform1f(int location, float value) {
+        issued++;
+        device.uniform1f(location, value);
+    }
+
+    @Override
+    public void uniform1i(int location, int value) {
+        issued++;
+        device.uniform1i(location, value);
+    }
+
+    @Override
+    public void uniform3f(int location, float x, float y, float z) {
+        issued++;
+        device.uniform3f(location, x, y, z);
+    }
+
+    @Override
+    public int genVertexArray() {
+        issued++;
+        return device.genVertexArray();
+    }
+
+    @Override
+    public void bindVertexArray(int vao) {
+        if (skip(vertexArray == vao)) {
+            return;
+        }
+        vertexArray = vao;
+        // the element buffer binding belongs to the vertex array
+        elementBuffer = UNKNOWN;
+        device.bindVertexArray(vao);
+    }
+
+    @Override
+    public void deleteVertexArray(int vao) {
+        issued++;
+        if (vertexArray == vao) {
+            vertexArray = 0;
+            elementBuffer = UNKNOWN;
+        }
+        device.deleteVertexArray(vao);
+    }
+
+    @Override
+    public int genBuffer() {
+        issued++;
+        return device.genBuffer();
+    }
+
+    @Override
+    public void bindBuffer(int target, int buffer) {
+        if (target == GL_ARRAY_BUFFER) {
+            if (skip(arrayBuffer == buffer)) {
+                return;
+            }
+            arrayBuffer = buffer;
+        } else if (target == GL_ELEMENT_ARRAY_BUFFER) {
+            if (skip(elementBuffer == buffer)) {
+                return;
+            }
+            elementBuffer = buffer;
+        } else {
+            issued++;
+        }
+        device.bindBuffer(target, buffer);
+    }
+
+    @Override
+    public void bufferData(int target, ByteBuffer data, int usage) {
+        issued++;
+        device.bufferData(target, data, usage);
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, ByteBuffer data) {
+        issued++;
+        device.bufferSubData(target, offset, data);
+    }
+
+    @Override
+    public void deleteBuffer(int buffer) {
+        issued++;
+        if (arrayBuffer == buffer) {
+            arrayBuffer = 0;
+        }
+        if (elementBuffer == buffer) {
+            elementBuffer = 0;
+        }
+        device.deleteBuffer(buffer);
+    }
+
+    @Override
+    public void enableVertexAttribArray(int index) {
+        issued++;
+        device.enableVertexAttribArray(index);
+    }
+
+    @Override
+    public void vertexAttribPointer(int index, int size, int type, boolean normalized, int stride, long offset) {
+        issued++;
+        device.vertexAttribPointer(index, size, type, normalized, stride, offset);
+    }
+
+    @Override
+    public void vertexAttribDivisor(int index, int divisor) {
+        issued++;
+        device.vertexAttribDivisor(index, divisor);
+    }
+
+    @Override
+    public void drawElements(int mode, int count, int type, long offset) {
+        issued++;
+        device.drawElements(mode, count, type, offset);
+    }
+
+    @Override
+    public void drawElementsInstanced(int mode, int count, int type, long offset, int instances) {
+        issued++;
+        device.drawElementsInstanced(mode, count, type, offset, instances);
+    }
+
+    @Override
+    public int loadTexture(String path) throws IOException {
+        issued++;
+        // the loader binds the new texture on whatever unit is active
+        activeUnit = UNKNOWN;
+        Arrays.fill(textures, UNKNOWN);
+        return device.loadTexture(path);
+    }
+
+    @Override
+    public int genTexture() {
+        issued++;
+        return device.genTexture();
+    }
+
+    @Override
+    public void textureImage(int texture, int width, int height, ByteBuffer rgba) {
+        issued++;
+        bound(texture);
+        device.textureImage(texture, width, height, rgba);
+    }
+
+    @Override
+    public void textureLevel(int texture, int level, int width, int height, ByteBuffer rgba) {
+        issued++;
+        bound(texture);
+        device.textureLevel(texture, level, width, height, rgba);
+    }
+
+    private void bound(int texture) {
+        int unit = activeUnit - GL_TEXTURE0;
+        if (activeUnit != UNKNOWN && unit >= 0 && unit < MAX_UNITS) {
+            textures[unit] = texture;
+        } else {
+            Arrays.fill(textures, UNKNOWN);
+        }
+    }
+
+    @Override
+    public void texParameter(int target, int name, int value) {
+        issued++;
+        device.texParameter(target, name, value);
+    }
+
+    @Override
+    public void activeTexture(int unit) {
+        if (skip(activeUnit == unit)) {
+            return;
+        }
+        activeUnit = unit;
+        device.activeTexture(unit);
+    }
+
+    @Override
+    public void bindTexture(int target, int texture) {
+        int unit = activeUnit - GL_TEXTURE0;
+        boolean tracked = activeUnit != UNKNOWN && unit >= 0 && unit < MAX_UNITS;
+        if (target == GL_TEXTURE_2D && tracked) {
+            if (skip(textures[unit] == texture)) {
+                return;
+            }
+            textures[unit] = texture;
+        } else {
+            issued++;
+        }
+        device.bindTexture(target, texture);
+    }
+
+    @Override
+    public void deleteTexture(int texture) {
+        issued++;
+        for (int i = 0; i < MAX_UNITS; i++) {
+            if (textures[i] == texture) {
+                textures[i] = 0;
+            }
+        }
+        device.deleteTexture(texture);
+    }
+}
@@ -0,0 +1,147 @@
+package shape.global;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The shader programs a scene switches between, by technique name, linked only when needed.
+ * init() links what the first frame draws with {@link #prepare}; any other technique links on its
+ * first {@link #get}, which is counted as a first-use hitch, unless {@link #warmUp} linked it first
+ * in the time a frame had left. Warm-up starts after the first frame and links at most one program
+ * per frame, when the frame so far plus the recent link time fits -Dshape.warmUpFrameMs=..., default
+ * 16.7. -Dshape.warmUp=false leaves everything to first use; -Dshape.lazyPrograms=false links every
+ * technique in prepare(), as before. Programs come from and go back to {@link ProgramRegistry}.
+ */
+public class Techniques {
+    private static final boolean LAZY = Boolean.parseBoolean(System.getProperty("shape.lazyPrograms", "true"));
+    private static final boolean WARM_UP = Boolean.parseBoolean(System.getProperty("shape.warmUp", "true"));
+    private static final long FRAME_NANOS = (long) (Double.parseDouble(
+            System.getProperty("shape.warmUpFrameMs", "16.7")) * 1_000_000);
+
+    private final LinkedHashMap<String, String> programs = new LinkedHashMap<>();
+    private final List<String> selectable = new ArrayList<>();
+    private final HashMap<String, ShaderProgram> linked = new HashMap<>();
+    private boolean firstFrame = true;
+
+    // recent link time after startup, the first links pay for class loading and driver setup
+    private long expectedNanos;
+    private int prepared;
+    private long prepareNanos;
+    private int warmed;
+    private long warmNanos;
+    private int hitches;
+    private long maxHitchNanos;
+    private String worstHitch;
+
+    /**
+     * Registers technique drawn with program; {@link #next} cycles through these in order.
+     */
+    public Techniques add(String technique, String program) {
+        programs.put(technique, program);
+        selectable.add(technique);
+        return this;
+    }
+
+    /**
+     * Registers a technique the scene picks by itself, left out of {@link #next}.
+     */
+    public Techniques addHidden(String technique, String program) {
+        programs.put(technique, program);
+        return this;
+    }
+
+    /**
+     * The selectable technique after current, wrapping around.
+     */
+    public String next(String current) {
+        return selectable.get((selectable.indexOf(current) + 1) % selectable.size());
+    }
+
+    /**
+     * Links the techniques the first frame needs, or every technique with -Dshape.lazyPrograms=false.
+     */
+    public void prepare(String... techniques) {
+        firstFrame = true;
+        long start = System.nanoTime();
+        for (String technique : LAZY ? List.of(techniques) : List.copyOf(programs.keySet())) {
+            if (!linked.containsKey(technique)) {
+                link(technique);
+                prepared++;
+            }
+        }
+        prepareNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * The program of technique, linked now if nothing did so before.
+     */
+    public ShaderProgram get(String technique) {
+        ShaderProgram program = linked.get(technique);
+        if (program != null) {
+            return program;
+        }
+        long nanos = link(technique);
+        expect(nanos);
+        hitches++;
+        if (nanos > maxHitchNanos) {
+            maxHitchNanos = nanos;
+            worstHitch = technique;
+        }
+        return linked.get(technique);
+    }
+
+    /**
+     * Called at the end of a frame that started at frameStart; links one more technique if the
+     * frame has time left for it. Returns whether anything is left to link.
+     */
+    public boolean warmUp(long frameStart) {
+        boolean shown = !firstFrame;
+        firstFrame = false;
+        if (shown && WARM_UP && linked.size() < programs.size()
+                && System.nanoTime() - frameStart + expectedNanos <= FRAME_NANOS) {
+            for (String technique : programs.keySet()) {
+                if (!linked.containsKey(technique)) {
+                    long nanos = link(technique);
+                    expect(nanos);
+                    warmNanos += nanos;
+                    warmed++;
+                    break;
+                }
+            }
+        }
+        return linked.size() < programs.size();
+    }
+
+    /**
+     * Hands every linked program back to the registry; later gets link again.
+     */
+    public void release() {
+        for (ShaderProgram program : linked.values()) {
+            ProgramRegistry.release(program);
+        }
+        linked.clear();
+    }
+
+    public String report() {
+        return String.format(Locale.ROOT, "%d of %d linked, %d up front in %.2f ms, %d warmed up in %.2f ms, %d on first use%s",
+                linked.size(), programs.size(), prepared, prepareNanos / 1e6, warmed, warmNanos / 1e6, hitches,
+                hitches > 0 ? String.format(Locale.ROOT, " (worst %.2f ms, %s)", maxHitchNanos / 1e6, worstHitch) : "");
+    }
+
+    private long link(String technique) {
+        String program = programs.get(technique);
+        if (program == null) {
+            throw new IllegalArgumentException("No technique " + technique);
+        }
+        long start = System.nanoTime();
+        linked.put(technique, ProgramRegistry.acquire(program));
+        return System.nanoTime() - start;
+    }
+
+    private void expect(long nanos) {
+        expectedNanos += (nanos - expectedNanos) / 4;
+    }
+}
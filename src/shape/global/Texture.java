@@ -0,0 +1,58 @@
+package shape.global;
+
+import java.io.IOException;
+
+/**
+ * A 2D texture loaded from a classpath image through {@link TextureStreamer}, handed out by
+ * {@link TextureCache}. Until its image is uploaded it shows the placeholder and counts a few bytes.
+ */
+public class Texture {
+    private final String path;
+    private final Sampling sampling;
+    private final int id;
+    private int width = 1;
+    private int height = 1;
+
+    Texture(String path, Sampling sampling) throws IOException {
+        this.path = path;
+        this.sampling = sampling;
+        id = TextureStreamer.get().request(path, sampling, this::uploaded);
+    }
+
+    private void uploaded(int width, int height) {
+        this.width = width;
+        this.height = height;
+        TextureCache.resized(this);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public Sampling getSampling() {
+        return sampling;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * RGBA8 level 0 plus a third for the mipmap chain.
+     */
+    public long bytes() {
+        return (long) width * height * 4 * 4 / 3;
+    }
+
+    void delete() {
+        TextureStreamer.get().delete(id);
+    }
+}
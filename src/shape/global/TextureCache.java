@@ -0,0 +1,62 @@
+package shape.global;
+
+import shape.utils.ResourceCache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Textures shared across scenes, keyed by image path and sampling. Scenes acquire textures in init()
+ * and release them in dispose(); unreferenced textures stay resident, so re-entering a scene neither
+ * decodes nor uploads again, until the byte budget forces the least recently used ones out.
+ * The budget can be set with -Dshape.textureBudgetMB=..., default is 128 MB.
+ */
+public class TextureCache {
+    private static final ResourceCache<String, Texture> CACHE = new ResourceCache<>(
+            Long.getLong("shape.textureBudgetMB", 128) << 20, Texture::bytes, Texture::delete);
+
+    private TextureCache() {
+    }
+
+    public static Texture acquire(String path) throws IOException {
+        return acquire(path, Sampling.TRILINEAR);
+    }
+
+    public static Texture acquire(String path, Sampling sampling) throws IOException {
+        try {
+            return CACHE.acquire(path + "|" + sampling, () -> {
+                try {
+                    return new Texture(path, sampling);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public static void release(Texture texture) {
+        CACHE.release(texture);
+    }
+
+    static void resized(Texture texture) {
+        CACHE.resized(texture);
+    }
+
+    public static void setBudget(long bytes) {
+        CACHE.setBudget(bytes);
+    }
+
+    public static void clear() {
+        CACHE.clear();
+    }
+
+    public static ResourceCache<String, Texture> stats() {
+        return CACHE;
+    }
+
+    public static String report() {
+        return CACHE.report();
+    }
+}
@@ -0,0 +1,255 @@
+package shape.global;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_2D;
+import static org.lwjgl.opengl.GL12.GL_TEXTURE_MAX_LEVEL;
+import static org.lwjgl.system.MemoryUtil.memAlloc;
+import static org.lwjgl.system.MemoryUtil.memFree;
+import static shape.global.Device.gl;
+
+/**
+ * Textures decoded off the GL thread. {@link #request} hands out a texture name at once, showing a
+ * 1x1 grey placeholder; the image is decoded on a small daemon pool and waits in a bounded queue until
+ * the GL thread uploads it from {@link #upload()}, called once per frame, within a time budget.
+ * The texture name never changes, so whoever holds it sees the real image from that frame on.
+ * An image that cannot be decoded is reported on System.err and its texture keeps the placeholder.
+ * Rows go to GL top row first, like lwjglutils' OGLTexture2D. Images baked into the {@link AssetPack}
+ * are uploaded with their mip chain inside request(), there is nothing to decode.
+ * -Dshape.asyncTextures=false decodes and uploads inside request() instead; the upload budget is
+ * -Dshape.textureUploadBudgetMs=..., default 2, and at least one image is uploaded per frame.
+ */
+public class TextureStreamer {
+    private static final boolean ASYNC = Boolean.parseBoolean(System.getProperty("shape.asyncTextures", "true"));
+    private static final long BUDGET_NANOS = (long) (Double.parseDouble(
+            System.getProperty("shape.textureUploadBudgetMs", "2")) * 1_000_000);
+    // decoded images waiting for the GL thread, decoders block while it is full
+    private static final int QUEUE = 4;
+    private static final int THREADS = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1));
+    private static final TextureStreamer INSTANCE = new TextureStreamer();
+
+    private final BlockingQueue<Decoded> decoded = new ArrayBlockingQueue<>(QUEUE);
+    // the request each texture still shows the placeholder for; deleting the texture drops its decode,
+    // and a name GL hands out again gets a new request, so the old image cannot land in it
+    private final Map<Integer, Request> pending = new ConcurrentHashMap<>();
+    private final ExecutorService decoders = Executors.newFixedThreadPool(THREADS, task -> {
+        Thread thread = new Thread(task, "texture decode");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong decodeNanos = new AtomicLong();
+    private long uploadNanos;
+    private long maxFrameNanos;
+    private int requested;
+    private int uploaded;
+    private int packed;
+    private int failed;
+
+    /**
+     * Told the size of a requested image once it replaced the placeholder, on the GL thread.
+     */
+    public interface Uploaded {
+        void uploaded(int width, int height);
+    }
+
+    private static final class Request {
+        final int texture;
+        final String path;
+        final Sampling sampling;
+        final Uploaded listener;
+
+        Request(int texture, String path, Sampling sampling, Uploaded listener) {
+            this.texture = texture;
+            this.path = path;
+            this.sampling = sampling;
+            this.listener = listener;
+        }
+    }
+
+    private static final class Decoded {
+        final Request request;
+        final int width;
+        final int height;
+        final ByteBuffer pixels;
+        final Exception error;
+
+        Decoded(Request request, int width, int height, ByteBuffer pixels, Exception error) {
+            this.request = request;
+            this.width = width;
+            this.height = height;
+            this.pixels = pixels;
+            this.error = error;
+        }
+    }
+
+    private TextureStreamer() {
+    }
+
+    public static TextureStreamer get() {
+        return INSTANCE;
+    }
+
+    /**
+     * A texture for the classpath image at path, filled in by a later {@link #upload()} which then
+     * tells listener (may be null) the image size. Only a missing resource fails here; an image that
+     * cannot be decoded leaves the placeholder. Textures are shared through {@link TextureCache}, not here.
+     */
+    public int request(String path, Sampling sampling, Uploaded listener) throws IOException {
+        AssetPack.Image packed = AssetPack.get().image(path);
+        if (packed != null) {
+            return store(packed, sampling, listener);
+        }
+        URL url = resource(path);
+        requested++;
+        int texture = gl().genTexture();
+        Request request = new Request(texture, path, sampling, listener);
+        if (!ASYNC) {
+            Decoded image = decode(request, url);
+            if (image.error != null) {
+                placeholder(request);
+                failed(image);
+            } else {
+                store(image);
+            }
+            return texture;
+        }
+        placeholder(request);
+        pending.put(texture, request);
+        decoders.execute(() -> {
+            Decoded image = decode(request, url);
+            try {
+                decoded.put(image);
+            } catch (InterruptedException e) {
+                free(image);
+                Thread.currentThread().interrupt();
+            }
+        });
+        return texture;
+    }
+
+    /**
+     * Uploads decoded images on the GL thread until the frame's budget is spent.
+     */
+    public void upload() {
+        long start = System.nanoTime();
+        Decoded image;
+        while ((image = decoded.poll()) != null) {
+            Request request = image.request;
+            if (!pending.remove(request.texture, request)) {
+                free(image);
+            } else if (image.error != null) {
+                failed(image);
+            } else {
+                store(image);
+            }
+            if (System.nanoTime() - start >= BUDGET_NANOS) {
+                break;
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        uploadNanos += nanos;
+        maxFrameNanos = Math.max(maxFrameNanos, nanos);
+    }
+
+    /**
+     * Deletes texture, dropping its image if it has not been uploaded yet.
+     */
+    public void delete(int texture) {
+        pending.remove(texture);
+        gl().deleteTexture(texture);
+    }
+
+    /**
+     * Textures still showing their placeholder.
+     */
+    public int pending() {
+        return pending.size();
+    }
+
+    public String report() {
+        return String.format(Locale.ROOT, "%d requested, %d uploaded (%d from pack), %d pending, %d failed, decode %.2f ms, upload %.2f ms (max %.2f ms per frame)%s",
+                requested, uploaded, packed, pending.size(), failed, decodeNanos.get() / 1e6, uploadNanos / 1e6, maxFrameNanos / 1e6,
+                ASYNC ? "" : ", synchronous");
+    }
+
+    private static void placeholder(Request request) {
+        ByteBuffer grey = memAlloc(4).put(0, (byte) 128).put(1, (byte) 128).put(2, (byte) 128).put(3, (byte) 255);
+        gl().textureImage(request.texture, 1, 1, grey);
+        request.sampling.apply(gl());
+        memFree(grey);
+    }
+
+    private void failed(Decoded image) {
+        failed++;
+        System.err.println("Cannot decode " + image.request.path + ", keeping the placeholder: " + image.error);
+    }
+
+    private void store(Decoded image) {
+        Request request = image.request;
+        gl().textureImage(request.texture, image.width, image.height, image.pixels);
+        request.sampling.apply(gl());
+        free(image);
+        uploaded++;
+        if (request.listener != null) {
+            request.listener.uploaded(image.width, image.height);
+        }
+    }
+
+    /**
+     * Uploads a baked image and its mip chain straight from the pack mapping, nothing to decode.
+     */
+    private int store(AssetPack.Image image, Sampling sampling, Uploaded listener) {
+        long start = System.nanoTime();
+        requested++;
+        int texture = gl().genTexture();
+        for (int level = 0; level < image.levels(); level++) {
+            gl().textureLevel(texture, level, image.levelWidth(level), image.levelHeight(level), image.level(level));
+        }
+        gl().texParameter(GL_TEXTURE_2D, GL_TEXTURE_MAX_LEVEL, image.levels() - 1);
+        sampling.apply(gl());
+        uploaded++;
+        packed++;
+        uploadNanos += System.nanoTime() - start;
+        if (listener != null) {
+            listener.uploaded(image.getWidth(), image.getHeight());
+        }
+        return texture;
+    }
+
+    private static void free(Decoded image) {
+        if (image.pixels != null) {
+            memFree(image.pixels);
+        }
+    }
+
+    private static URL resource(String path) throws IOException {
+        URL url = TextureStreamer.class.getResource(path.startsWith("/") ? path : "/" + path);
+        if (url == null) {
+            throw new IOException("No resource " + path);
+        }
+        return url;
+    }
+
+    private Decoded decode(Request request, URL url) {
+        long start = System.nanoTime();
+        try (InputStream in = url.openStream()) {
+            RgbaImage image = RgbaImage.read(in, request.path);
+            return new Decoded(request, image.getWidth(), image.getHeight(), image.getPixels(), null);
+        } catch (IOException | RuntimeException e) {
+            return new Decoded(request, 0, 0, null, e);
+        } finally {
+            decodeNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+}
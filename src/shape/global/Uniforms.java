@@ -0,0 +1,30 @@
+package shape.global;
+
+import shape.utils.Mat4f;
+import transforms.Vec3D;
+
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.system.MemoryUtil.memAllocFloat;
+import static shape.global.Device.gl;
+
+/**
+ * Uniform upload without heap allocation. Matrices go through one native buffer shared by all
+ * uploads, vectors are passed as scalars. Locations come from {@link ShaderProgram}.
+ * Like every GL call this runs on the render thread only.
+ */
+public class Uniforms {
+    // a MemoryStack buffer is a new FloatBuffer object, only scalar replaced when the JIT inlines all of it
+    private static final FloatBuffer MATRIX = memAllocFloat(16);
+
+    private Uniforms() {
+    }
+
+    public static void mat4(int location, Mat4f mat) {
+        gl().uniformMatrix4fv(location, mat.store(MATRIX));
+    }
+
+    public static void vec3(int location, Vec3D v) {
+        gl().uniform3f(location, (float) v.getX(), (float) v.getY(), (float) v.getZ());
+    }
+}
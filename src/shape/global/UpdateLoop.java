@@ -0,0 +1,162 @@
+package shape.global;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Runs a scene's simulation on its own thread one frame ahead of rendering.
+ * Input callbacks post commands; the update thread applies them, advances the scene and
+ * writes a frame snapshot. The render thread takes each snapshot with {@link #acquire()},
+ * which also requests the next one, so the update of frame n+1 overlaps the submission of frame n.
+ * Snapshots come from a small pool and are written only while the render thread cannot see them,
+ * so they are immutable for the renderer without being allocated every frame.
+ * On a single core the thread handoff costs more than it overlaps, so there (or with
+ * -Dshape.updateThread=false) the update runs inline in acquire() instead.
+ */
+public class UpdateLoop<F> {
+    public interface Stage<F> {
+        /**
+         * Runs on the update thread after the pending commands: advance the scene and fill the frame.
+         */
+        void update(F frame);
+    }
+
+    private static final int FRAMES = 3;
+    private static final int SPINS = 1000;
+    // spinning only pays off when both threads have a core
+    private static final boolean SPIN = Runtime.getRuntime().availableProcessors() > 1;
+    private static final boolean THREADED = Boolean.parseBoolean(System.getProperty("shape.updateThread", String.valueOf(SPIN)));
+
+    private final Object[] frames = new Object[FRAMES];
+    private final Stage<F> stage;
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private volatile Thread consumer;
+    private volatile boolean running;
+    private volatile long requested;
+    private volatile long produced;
+    private volatile Throwable failure;
+    private long consumed;
+    private long waitNanos;
+
+    public UpdateLoop(String name, Supplier<F> frameFactory, Stage<F> stage) {
+        for (int i = 0; i < FRAMES; i++) {
+            frames[i] = frameFactory.get();
+        }
+        this.stage = stage;
+        worker = new Thread(this::run, name + " update");
+        worker.setDaemon(true);
+    }
+
+    /**
+     * Queues a change of simulation state; it is applied before the next frame is updated.
+     */
+    public void post(Runnable command) {
+        commands.add(command);
+    }
+
+    public void start() {
+        running = true;
+        requested = 1;
+        if (THREADED) {
+            worker.start();
+        }
+    }
+
+    private void step() {
+        Runnable command;
+        while ((command = commands.poll()) != null) {
+            command.run();
+        }
+        stage.update(frame(produced));
+        produced++;
+    }
+
+    private void run() {
+        try {
+            int idle = 0;
+            while (running) {
+                if (produced >= requested) {
+                    // a short spin catches back-to-back frames without a park/unpark round trip
+                    if (SPIN && idle++ < SPINS) {
+                        Thread.onSpinWait();
+                    } else {
+                        LockSupport.park(this);
+                    }
+                    continue;
+                }
+                idle = 0;
+                step();
+                LockSupport.unpark(consumer);
+            }
+        } catch (Throwable t) {
+            failure = t;
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private F frame(long index) {
+        return (F) frames[(int) (index % FRAMES)];
+    }
+
+    /**
+     * Render thread: the next frame snapshot, valid until the following call.
+     */
+    public F acquire() {
+        if (!THREADED) {
+            if (!running) {
+                throw new IllegalStateException("Update loop is not running");
+            }
+            step();
+            return frame(consumed++);
+        }
+        consumer = Thread.currentThread();
+        if (produced <= consumed) {
+            long start = System.nanoTime();
+            int spins = 0;
+            while (produced <= consumed) {
+                if (failure != null) {
+                    throw new RuntimeException("Scene update failed", failure);
+                }
+                if (!running) {
+                    throw new IllegalStateException("Update loop is not running");
+                }
+                if (SPIN && spins++ < SPINS) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(this, 100_000);
+                }
+            }
+            waitNanos += System.nanoTime() - start;
+        }
+        F frame = frame(consumed);
+        consumed++;
+        requested = consumed + 1;
+        LockSupport.unpark(worker);
+        return frame;
+    }
+
+    /**
+     * Time the render thread spent waiting for snapshots, in nanoseconds.
+     */
+    public long getWaitNanos() {
+        return waitNanos;
+    }
+
+    public long getFrames() {
+        return consumed;
+    }
+
+    public void stop() {
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
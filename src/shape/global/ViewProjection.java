@@ -0,0 +1,44 @@
+package shape.global;
+
+import shape.utils.Mat4f;
+import transforms.Camera;
+import transforms.Mat4;
+import transforms.Vec3D;
+
+/**
+ * view * projection recomputed only when the (immutable) camera or projection instance changes.
+ * The camera position is read at the same time, so a frame gets it without a Vec3D.
+ */
+public class ViewProjection {
+    private final Mat4f matrix = new Mat4f();
+    private Camera camera;
+    private Mat4 projection;
+    private double x, y, z;
+
+    public Mat4f update(Camera camera, Mat4 projection) {
+        if (camera != this.camera || projection != this.projection) {
+            matrix.set(camera.getViewMatrix().mul(projection));
+            if (camera != this.camera) {
+                Vec3D position = camera.getPosition();
+                x = position.getX();
+                y = position.getY();
+                z = position.getZ();
+            }
+            this.camera = camera;
+            this.projection = projection;
+        }
+        return matrix;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getZ() {
+        return z;
+    }
+}
@@ -1,48 +1,95 @@
 package shape.model;
 
-import lwjglutils.OGLBuffers;
-import lwjglutils.ShaderUtils;
-import lwjglutils.ToFloatArray;
-import transforms.Mat4;
+import shape.global.Bounds;
+import shape.global.Drawable;
+import shape.global.ProgramRegistry;
+import shape.global.RenderQueue;
+import shape.global.ShaderProgram;
+import shape.utils.FramePhase;
+import shape.utils.Mat4f;
 
 import static org.lwjgl.opengl.GL20.*;
+import static shape.global.Device.gl;
 
 public class Axis {
-    private OGLBuffers bufferX;
-    private OGLBuffers bufferY;
-    private OGLBuffers bufferZ;
-    private int program;
+    private NativeBuffers bufferX;
+    private NativeBuffers bufferY;
+    private NativeBuffers bufferZ;
+    private ShaderProgram program;
+    private final Drawable[] lines;
 
     public Axis() {
-        program = ShaderUtils.loadProgram("/axis");
+        program = ProgramRegistry.acquire("/axis");
         float[] lineX = {0, 0, 0, 1, 0, 0, 1, 0, 0, 1, 0, 0};
         float[] lineY = {0, 0, 0, 0, 1, 0, 0, 1, 0, 0, 1, 0};
         float[] lineZ = {0, 0, 0, 0, 0, 1, 0, 0, 1, 0, 0, 1};
 
-        OGLBuffers.Attrib[] attributes = {
-                new OGLBuffers.Attrib("inPosition", 3),
-                new OGLBuffers.Attrib("inColor", 3),
+        bufferX = line(lineX);
+        bufferY = line(lineY);
+        bufferZ = line(lineZ);
+        lines = new Drawable[]{drawable(bufferX), drawable(bufferY), drawable(bufferZ)};
+    }
+
+    private static Drawable drawable(NativeBuffers buffers) {
+        return new Drawable() {
+            @Override
+            public int getMeshId() {
+                return buffers.getMeshId();
+            }
+
+            @Override
+            public int getTopology() {
+                return GL_LINES;
+            }
+
+            @Override
+            public Bounds getBounds() {
+                return buffers.getBounds();
+            }
+
+            @Override
+            public void draw(ShaderProgram program, int topology) {
+                buffers.draw(topology, program.getId());
+            }
+        };
+    }
+
+    private static NativeBuffers line(float[] vertices) {
+        MeshData.Attrib[] attributes = {
+                new MeshData.Attrib("inPosition", 3),
+                new MeshData.Attrib("inColor", 3),
         };
 
         int[] idx = {0, 1};
 
-        bufferX = new OGLBuffers(lineX, attributes, idx);
-        bufferY = new OGLBuffers(lineY, attributes, idx);
-        bufferZ = new OGLBuffers(lineZ, attributes, idx);
+        MeshData data = MeshData.of(vertices, attributes, idx, GL_LINES);
+        NativeBuffers buffers = new NativeBuffers(data);
+        data.free();
+        return buffers;
+    }
+
+    public void draw(Mat4f tr) {
+        program.use();
+        program.setMat4("mat", tr);
+        bufferX.draw(GL_LINES, program.getId());
+        bufferY.draw(GL_LINES, program.getId());
+        bufferZ.draw(GL_LINES, program.getId());
+        gl().bindVertexArray(0);
     }
 
-    public void draw(Mat4 tr) {
-        glUseProgram(program);
-        glUniformMatrix4fv(0, false, ToFloatArray.convert(tr));
-        bufferX.draw(GL_LINES, program);
-        bufferY.draw(GL_LINES, program);
-        bufferZ.draw(GL_LINES, program);
+    public void queue(RenderQueue queue, Mat4f tr) {
+        for (Drawable line : lines) {
+            queue.add(program, line).mat4("mat", tr).phase(FramePhase.Axis);
+        }
     }
 
-    public void unbind() {
-        bufferX.unbind();
-        bufferY.unbind();
-        bufferZ.unbind();
-        glDeleteProgram(program);
+    /**
+     * Deletes the line buffers and hands the program back to the {@link ProgramRegistry}.
+     */
+    public void delete() {
+        bufferX.delete();
+        bufferY.delete();
+        bufferZ.delete();
+        ProgramRegistry.release(program);
     }
 }
@@ -1,27 +1,45 @@
 package shape.model;
 
-import lwjglutils.OGLBuffers;
+import shape.global.Bounds;
+import shape.global.Drawable;
+import shape.global.ShaderProgram;
 
 import static org.lwjgl.opengl.GL11.GL_TRIANGLES;
 
-public class Cube {
+public class Cube implements GpuResource, Drawable {
 
-    private OGLBuffers buffers;
+    private NativeBuffers buffers;
     private int topology;
 
-    public Cube(OGLBuffers buffers, int topology){
+    public Cube(NativeBuffers buffers, int topology){
         this.buffers = buffers;
         this.topology = topology;
     }
 
+    private Cube(MeshData data) {
+        this(new NativeBuffers(data), data.getTopology());
+        data.free();
+    }
+
     public void draw(int program){
         buffers.draw(topology, program);
     }
+    public void draw(ShaderProgram program){
+        draw(program.getId());
+    }
+    @Override
+    public void draw(ShaderProgram program, int topology){
+        draw(program.getId(), topology);
+    }
     public void draw(int program, int topology){
         buffers.draw(topology, program);
     }
 
     public static Cube createCube() {
+        return new Cube(MeshCache.get("cube/plain", MeshCache.checksum("cube/plain", Cube.class), Cube::cubeData));
+    }
+
+    static MeshData cubeData() {
         float[] cube = {
                 // bottom (z-) face
                 1, 0, 0,	0, 0, -1,
@@ -64,15 +82,20 @@ public class Cube {
             indexBufferData[i * 6 + 4] = i * 4 + 2;
             indexBufferData[i * 6 + 5] = i * 4 + 3;
         }
-        OGLBuffers.Attrib[] attributes = {
-                new OGLBuffers.Attrib("inPosition", 3),
-                new OGLBuffers.Attrib("inNormal", 3)
+        MeshData.Attrib[] attributes = {
+                new MeshData.Attrib("inPosition", 3),
+                new MeshData.Attrib("inNormal", 3)
         };
 
-        return new Cube(new OGLBuffers(cube, attributes, indexBufferData), GL_TRIANGLES);
+        return MeshData.of(cube, attributes, indexBufferData, GL_TRIANGLES);
     }
 
     public static Cube createTextureCube() {
+        return new Cube(MeshCache.get("cube/texture", MeshCache.checksum("cube/texture", Cube.class),
+                Cube::textureCubeData));
+    }
+
+    static MeshData textureCubeData() {
         float[] cube = {
                 // bottom (z-) face
                 1, 0, 0, 0, 0, -1, 1, 0,
@@ -115,17 +138,38 @@ public class Cube {
             indexBufferData[i * 6 + 4] = i * 4 + 2;
             indexBufferData[i * 6 + 5] = i * 4 + 3;
         }
-        OGLBuffers.Attrib[] attributes = {
-                new OGLBuffers.Attrib("inPosition", 3),
-                new OGLBuffers.Attrib("inNormal", 3),
-                new OGLBuffers.Attrib("inTexture", 2)
+        MeshData.Attrib[] attributes = {
+                new MeshData.Attrib("inPosition", 3),
+                new MeshData.Attrib("inNormal", 3),
+                new MeshData.Attrib("inTexture", 2)
         };
 
-        return new Cube(new OGLBuffers(cube, attributes, indexBufferData), GL_TRIANGLES);
+        return MeshData.of(cube, attributes, indexBufferData, GL_TRIANGLES);
+    }
+
+    @Override
+    public int getMeshId() {
+        return buffers.getMeshId();
+    }
+
+    @Override
+    public Bounds getBounds() {
+        return buffers.getBounds();
+    }
+
+    @Override
+    public int getTopology() {
+        return topology;
+    }
+
+    @Override
+    public long bytes() {
+        return buffers.bytes();
     }
 
-    public void unbind() {
-        buffers.unbind();
+    @Override
+    public void delete() {
+        buffers.delete();
     }
 
 }
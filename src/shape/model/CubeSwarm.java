@@ -0,0 +1,204 @@
+package shape.model;
+
+import shape.global.Bounds;
+import shape.global.BoundingSpheres;
+import shape.global.Frustum;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * CPU side of an animated field of cubes on a lattice: each spins about its own axis and bobs in step
+ * with the spin, so one sine/cosine pair per instance covers the whole animation.
+ * The state lives in parallel arrays; {@link #pack} evaluates the animation at a time and writes
+ * the transforms and colours straight into a native buffer in the {@link InstanceBuffer} layout.
+ * Packing is split into fork-join tasks over disjoint instance ranges, so it needs no GL context
+ * and runs on as many cores as the common pool has; on a single core forking only adds overhead.
+ * Given a frustum, instances are first culled by their bounding spheres and only the visible ones packed.
+ */
+public class CubeSwarm {
+    // instances per leaf task, large enough that task overhead stays below a percent
+    private static final int GRAIN = 4096;
+    private static final float SPACING = 1.5f;
+    private static final float BOB = 0.2f;
+    // half the diagonal of the unit cube
+    private static final float CUBE_RADIUS = (float) (Math.sqrt(3) / 2);
+    private static final boolean FORK = Runtime.getRuntime().availableProcessors() > 1;
+
+    private final int count;
+    private final float[] x, y, z;
+    private final float[] axisX, axisY, axisZ;
+    private final float[] spin, phase, scale;
+    private final int[] colors;
+    private final BoundingSpheres spheres;
+    private final int[] visible;
+    private final Bounds bounds;
+
+    public CubeSwarm(int count, long seed) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Instance count must not be negative");
+        }
+        this.count = count;
+        x = new float[count];
+        y = new float[count];
+        z = new float[count];
+        axisX = new float[count];
+        axisY = new float[count];
+        axisZ = new float[count];
+        spin = new float[count];
+        phase = new float[count];
+        scale = new float[count];
+        colors = new int[count];
+
+        SplittableRandom random = new SplittableRandom(seed);
+        int side = Math.max(1, (int) Math.ceil(Math.cbrt(count)));
+        float center = (side - 1) * SPACING / 2;
+        for (int i = 0; i < count; i++) {
+            int cx = i % side, cy = i / side % side, cz = i / (side * side);
+            x[i] = cx * SPACING - center + (float) random.nextDouble(-0.3, 0.3);
+            y[i] = cy * SPACING - center + (float) random.nextDouble(-0.3, 0.3);
+            z[i] = cz * SPACING - center + (float) random.nextDouble(-0.3, 0.3);
+            double ux = random.nextDouble(-1, 1), uy = random.nextDouble(-1, 1), uz = random.nextDouble(-1, 1);
+            double length = Math.sqrt(ux * ux + uy * uy + uz * uz);
+            if (length < 1e-6) {
+                ux = 0;
+                uy = 0;
+                uz = length = 1;
+            }
+            axisX[i] = (float) (ux / length);
+            axisY[i] = (float) (uy / length);
+            axisZ[i] = (float) (uz / length);
+            spin[i] = (float) random.nextDouble(0.5, 3);
+            phase[i] = (float) random.nextDouble(0, 2 * Math.PI);
+            scale[i] = (float) random.nextDouble(0.3, 0.7);
+            int r = 64 + cx * 191 / side, g = 64 + cy * 191 / side, b = 64 + cz * 191 / side;
+            colors[i] = r | g << 8 | b << 16 | 0xFF << 24;
+        }
+
+        // the spheres sit at the rest positions and are widened by the bob, so they never change
+        float[] radius = new float[count];
+        for (int i = 0; i < count; i++) {
+            radius[i] = scale[i] * CUBE_RADIUS + BOB;
+        }
+        spheres = new BoundingSpheres(x, y, z, radius);
+        visible = new int[count];
+        float reach = 0.7f * CUBE_RADIUS + BOB + 0.3f;
+        bounds = Bounds.box(-center - reach, -center - reach, -center - reach, center + reach, center + reach, center + reach);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Box around every instance at any time.
+     */
+    public Bounds getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Capacity a buffer passed to {@link #pack} needs.
+     */
+    public int bytes() {
+        return count * InstanceBuffer.STRIDE;
+    }
+
+    /**
+     * Writes all instances at the given animation time, forked over the common pool when parallel.
+     */
+    public void pack(double time, ByteBuffer target, boolean parallel) {
+        pack(time, target, parallel, null);
+    }
+
+    /**
+     * Writes the instances inside the frustum (all of them for null) to the start of target
+     * and returns how many were written.
+     */
+    public int pack(double time, ByteBuffer target, boolean parallel, Frustum frustum) {
+        if (target.capacity() < bytes()) {
+            throw new IllegalArgumentException("Buffer holds fewer than " + count + " instances");
+        }
+        int[] order = null;
+        int n = count;
+        if (frustum != null) {
+            n = spheres.cull(frustum, visible, parallel);
+            order = visible;
+        }
+        if (parallel && FORK && n > GRAIN) {
+            ForkJoinPool.commonPool().invoke(new PackTask(time, target, order, 0, n));
+        } else {
+            pack(time, target, order, 0, n);
+        }
+        return n;
+    }
+
+    /**
+     * Writes instances [from, to) with absolute puts only, so disjoint ranges can be packed concurrently.
+     */
+    public void pack(double time, ByteBuffer target, int from, int to) {
+        pack(time, target, null, from, to);
+    }
+
+    /**
+     * Writes slots [from, to), each holding instance order[slot] (the slot itself without an order).
+     */
+    private void pack(double time, ByteBuffer target, int[] order, int from, int to) {
+        boolean swap = target.order() != ByteOrder.LITTLE_ENDIAN;
+        for (int slot = from; slot < to; slot++) {
+            int i = order == null ? slot : order[slot];
+            double angle = phase[i] + spin[i] * time;
+            float c = (float) Math.cos(angle);
+            float s = (float) Math.sin(angle);
+            float t = 1 - c;
+            float kx = axisX[i], ky = axisY[i], kz = axisZ[i];
+            float k = scale[i];
+
+            // rows of the row-vector rotation about k (the transposed Rodrigues matrix), scaled
+            float m00 = k * (c + t * kx * kx), m01 = k * (t * kx * ky + s * kz), m02 = k * (t * kx * kz - s * ky);
+            float m10 = k * (t * kx * ky - s * kz), m11 = k * (c + t * ky * ky), m12 = k * (t * ky * kz + s * kx);
+            float m20 = k * (t * kx * kz + s * ky), m21 = k * (t * ky * kz - s * kx), m22 = k * (c + t * kz * kz);
+            // the unit cube spans [0, 1], rotate it about its centre
+            float tx = x[i] - 0.5f * (m00 + m10 + m20);
+            float ty = y[i] - 0.5f * (m01 + m11 + m21);
+            float tz = z[i] - 0.5f * (m02 + m12 + m22) + BOB * s;
+
+            int o = slot * InstanceBuffer.STRIDE + InstanceBuffer.MODEL_OFFSET;
+            target.putFloat(o, m00).putFloat(o + 4, m01).putFloat(o + 8, m02).putFloat(o + 12, 0);
+            target.putFloat(o + 16, m10).putFloat(o + 20, m11).putFloat(o + 24, m12).putFloat(o + 28, 0);
+            target.putFloat(o + 32, m20).putFloat(o + 36, m21).putFloat(o + 40, m22).putFloat(o + 44, 0);
+            target.putFloat(o + 48, tx).putFloat(o + 52, ty).putFloat(o + 56, tz).putFloat(o + 60, 1);
+            int color = colors[i];
+            target.putInt(slot * InstanceBuffer.STRIDE + InstanceBuffer.COLOR_OFFSET, swap ? Integer.reverseBytes(color) : color);
+        }
+    }
+
+    private final class PackTask extends RecursiveAction {
+        private final double time;
+        private final ByteBuffer target;
+        private final int[] order;
+        private final int from;
+        private final int to;
+
+        PackTask(double time, ByteBuffer target, int[] order, int from, int to) {
+            this.time = time;
+            this.target = target;
+            this.order = order;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= GRAIN) {
+                pack(time, target, order, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new PackTask(time, target, order, from, mid), new PackTask(time, target, order, mid, to));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package shape.model;
+
+import shape.utils.ResourceCache;
+
+/**
+ * Geometry shared across scene re-entry. Scenes acquire meshes in init() and release them in dispose(),
+ * unreferenced meshes stay resident until the byte budget forces them out.
+ * The budget can be set with -Dshape.geometryBudgetMB=..., default is 256 MB.
+ */
+public class GeometryCache {
+    private static final ResourceCache<String, GpuResource> CACHE = new ResourceCache<>(
+            Long.getLong("shape.geometryBudgetMB", 256) << 20, GpuResource::bytes, GpuResource::delete);
+
+    private GeometryCache() {
+    }
+
+    public static Grid gridList(int boxesPerSide) {
+        return (Grid) CACHE.acquire("grid/list/" + boxesPerSide, () -> Grid.gridList(boxesPerSide));
+    }
+
+    public static Grid gridStrip(int boxesPerSide) {
+        return (Grid) CACHE.acquire("grid/strip/" + boxesPerSide, () -> Grid.gridStrip(boxesPerSide));
+    }
+
+    public static Grid gridRows(int boxesPerSide, int tileColumns) {
+        return (Grid) CACHE.acquire("grid/rows/" + boxesPerSide + "/" + tileColumns,
+                () -> Grid.gridRows(boxesPerSide, tileColumns));
+    }
+
+    public static Grid gridStrip(int boxesPerSide, SurfaceFunction baked) {
+        return (Grid) CACHE.acquire("grid/strip/" + boxesPerSide + "/" + baked,
+                () -> Grid.gridStrip(boxesPerSide, baked));
+    }
+
+    public static Grid gridRows(int boxesPerSide, int tileColumns, SurfaceFunction baked) {
+        return (Grid) CACHE.acquire("grid/rows/" + boxesPerSide + "/" + tileColumns + "/" + baked,
+                () -> Grid.gridRows(boxesPerSide, tileColumns, baked));
+    }
+
+    public static Terrain terrain(int patchBoxes) {
+        return (Terrain) CACHE.acquire("grid/terrain/" + patchBoxes, () -> new Terrain(patchBoxes));
+    }
+
+    public static Cube cube() {
+        return (Cube) CACHE.acquire("cube/plain", Cube::createCube);
+    }
+
+    public static Cube textureCube() {
+        return (Cube) CACHE.acquire("cube/texture", Cube::createTextureCube);
+    }
+
+    public static ObjModel obj(String path) {
+        return (ObjModel) CACHE.acquire("obj" + path, () -> new ObjModel(path));
+    }
+
+    public static void release(GpuResource resource) {
+        CACHE.release(resource);
+    }
+
+    public static void setBudget(long bytes) {
+        CACHE.setBudget(bytes);
+    }
+
+    public static void clear() {
+        CACHE.clear();
+    }
+
+    public static ResourceCache<String, GpuResource> stats() {
+        return CACHE;
+    }
+
+    public static String report() {
+        return CACHE.report();
+    }
+}
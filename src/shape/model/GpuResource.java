@@ -0,0 +1,7 @@
+package shape.model;
+
+public interface GpuResource {
+    long bytes();
+
+    void delete();
+}
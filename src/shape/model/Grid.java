@@ -1,96 +1,120 @@
 package shape.model;
 
-import lwjglutils.OGLBuffers;
+import shape.global.Bounds;
+import shape.global.Drawable;
+import shape.global.ShaderProgram;
 
-import static org.lwjgl.opengl.GL11.GL_TRIANGLES;
-import static org.lwjgl.opengl.GL11.GL_TRIANGLE_STRIP;
+public class Grid implements GpuResource, Drawable {
+    private static final GridGenerator GENERATOR = new GridGenerator();
+    // everything a baked grid's vertices come from, a change to any of them rebuilds cached meshes
+    private static final Class<?>[] BAKED_GENERATORS = {GridGenerator.class, SurfaceFunction.class,
+            SurfaceEvaluator.class, SurfaceKernel.class, ScalarSurfaceKernel.class, VectorSurfaceKernel.class,
+            SurfaceSamples.class};
 
-public class Grid {
-    private OGLBuffers buffers;
+    private NativeBuffers buffers;
     private int topology;
+    private String report;
+    private SurfaceFunction baked;
 
-    public Grid(OGLBuffers buffers, int topology){
+    public Grid(NativeBuffers buffers, int topology){
         this.buffers = buffers;
         this.topology = topology;
     }
 
+    private Grid(MeshData data) {
+        this(new NativeBuffers(data), data.getTopology());
+        report = data.report();
+        data.free();
+    }
+
     public void draw(int program){
         buffers.draw(topology, program);
     }
+    public void draw(ShaderProgram program){
+        draw(program.getId());
+    }
+    @Override
+    public void draw(ShaderProgram program, int topology){
+        draw(program.getId(), topology);
+    }
     public void draw(int program, int topology){
         buffers.draw(topology, program);
     }
 
     public static Grid gridList(int boxesPerSide) {
-        float boxSize = 1F / boxesPerSide;
-        boxesPerSide += 1;
-        float[] vertex = new float[boxesPerSide * boxesPerSide * 3];
-        for (int y = 0; y < boxesPerSide; y++) {
-            for (int x = 0; x < boxesPerSide; x++) {
-                int idx = (y * boxesPerSide + x) * 3;
-                vertex[idx] = x * boxSize;
-                vertex[idx + 1] = y * boxSize;
-                vertex[idx + 2] = 0F;
-            }
-        }
-
-        int[] index = new int[(boxesPerSide-1) * boxesPerSide * 6];
-        for (int x = 0; x < boxesPerSide - 1; x++) {
-            for (int y = 0; y < boxesPerSide - 1; y++) {
-                int i = y * (boxesPerSide) + x;
-                index[i * 6] = i;
-                index[i * 6 + 1] = (i + 1);
-                index[i * 6 + 2] = (i + boxesPerSide + 1);
-                index[i * 6 + 3] = (i);
-                index[i * 6 + 4] = (i + boxesPerSide + 1);
-                index[i * 6 + 5] = (i + boxesPerSide);
-            }
-        }
-
-        OGLBuffers.Attrib[] attributes = {
-                new OGLBuffers.Attrib("inPosition", 3)};
-
-        return new Grid(new OGLBuffers(vertex, attributes, index), GL_TRIANGLES);
+        String key = "grid/list/" + boxesPerSide;
+        return new Grid(MeshCache.get(key, MeshCache.checksum(key, GridGenerator.class),
+                () -> GENERATOR.list(boxesPerSide)));
     }
 
     public static Grid gridStrip(int boxesPerSide) {
-        float boxSize = 1F / boxesPerSide;
-        boxesPerSide += 1;
-        float[] vertex = new float[boxesPerSide * boxesPerSide * 3];
-        for (int y = 0; y < boxesPerSide; y++) {
-            for (int x = 0; x < boxesPerSide; x++) {
-                int idx = (y * boxesPerSide + x) * 3;
-                vertex[idx] = x * boxSize;
-                vertex[idx + 1] = y * boxSize;
-                vertex[idx + 2] = 0F;
-            }
-        }
-
-        int[] index = new int[2 * boxesPerSide * (boxesPerSide - 1)];
-        int r = 0;
-        for (int row = 0; row < boxesPerSide - 1; row++) {
-            if (row % 2 == 0) {
-                // Even rows
-                for (int col = 0; col < boxesPerSide; col++) {
-                    index[r++] = col + row * boxesPerSide;
-                    index[r++] = col + (row + 1) * boxesPerSide;
-                }
-            } else {
-                // Odd rows (reverse order)
-                for (int col = boxesPerSide - 1; col >= 0; col--) {
-                    index[r++] = col + (row + 1) * boxesPerSide;
-                    index[r++] = col + row * boxesPerSide;
-                }
-            }
-        }
-
-        OGLBuffers.Attrib[] attributes = {
-                new OGLBuffers.Attrib("inPosition", 3)};
-
-        return new Grid(new OGLBuffers(vertex, attributes, index), GL_TRIANGLE_STRIP);
-    }
-
-    public void unbind(){
-        buffers.unbind();
+        String key = "grid/strip/" + boxesPerSide;
+        return new Grid(MeshCache.get(key, MeshCache.checksum(key, GridGenerator.class),
+                () -> GENERATOR.strip(boxesPerSide)));
+    }
+
+    public static Grid gridRows(int boxesPerSide, int tileColumns) {
+        String key = "grid/rows/" + boxesPerSide + "/" + tileColumns;
+        return new Grid(MeshCache.get(key, MeshCache.checksum(key, GridGenerator.class),
+                () -> GENERATOR.stripRestart(boxesPerSide, tileColumns)));
+    }
+
+    /**
+     * Strip grid with the surface's positions and normals baked into inPosition and inNormal.
+     */
+    public static Grid gridStrip(int boxesPerSide, SurfaceFunction baked) {
+        String key = "grid/strip/" + boxesPerSide + "/" + baked;
+        Grid grid = new Grid(MeshCache.get(key, MeshCache.checksum(key, BAKED_GENERATORS),
+                () -> GENERATOR.strip(boxesPerSide, baked)));
+        grid.baked = baked;
+        return grid;
+    }
+
+    public static Grid gridRows(int boxesPerSide, int tileColumns, SurfaceFunction baked) {
+        String key = "grid/rows/" + boxesPerSide + "/" + tileColumns + "/" + baked;
+        Grid grid = new Grid(MeshCache.get(key, MeshCache.checksum(key, BAKED_GENERATORS),
+                () -> GENERATOR.stripRestart(boxesPerSide, tileColumns, baked)));
+        grid.baked = baked;
+        return grid;
+    }
+
+    public static String indexReport(int boxesPerSide, int tileColumns) {
+        return GENERATOR.indexReport(boxesPerSide, tileColumns);
+    }
+
+    public String report() {
+        return report;
+    }
+
+    /**
+     * The surface baked into the vertices, null for a plain grid.
+     */
+    public SurfaceFunction getBaked() {
+        return baked;
+    }
+
+    @Override
+    public int getMeshId() {
+        return buffers.getMeshId();
+    }
+
+    @Override
+    public Bounds getBounds() {
+        return buffers.getBounds();
+    }
+
+    @Override
+    public int getTopology() {
+        return topology;
+    }
+
+    @Override
+    public long bytes() {
+        return buffers.bytes();
+    }
+
+    @Override
+    public void delete(){
+        buffers.delete();
     }
 }
@@ -0,0 +1,334 @@
+package shape.model;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static org.lwjgl.opengl.GL11.GL_TRIANGLES;
+import static org.lwjgl.opengl.GL11.GL_TRIANGLE_STRIP;
+import static org.lwjgl.system.MemoryUtil.memAlloc;
+
+/**
+ * Builds regular grids over [0;1]x[0;1] directly into native buffers.
+ * Rows are split across a fork-join pool, every task writes its own disjoint range.
+ * Indices use the narrowest type the vertex count allows, see {@link IndexBuffer}.
+ */
+public class GridGenerator {
+    public static final int PATCH_VARIANTS = 16;
+    private static final int ROWS_PER_TASK = 32;
+    private static final MeshData.Attrib[] ATTRIBUTES = {new MeshData.Attrib("inPosition", 3)};
+    private static final MeshData.Attrib[] BAKED_ATTRIBUTES = {
+            new MeshData.Attrib("inPosition", 3), new MeshData.Attrib("inNormal", 3)};
+
+    private static final SurfaceEvaluator EVALUATOR = new SurfaceEvaluator();
+
+    private final ForkJoinPool pool;
+
+    public GridGenerator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public GridGenerator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public MeshData list(int boxesPerSide) {
+        return list(boxesPerSide, null);
+    }
+
+    /**
+     * With a non-null surface the vertices are baked, see {@link #vertices(int, SurfaceFunction)}.
+     */
+    public MeshData list(int boxesPerSide, SurfaceFunction baked) {
+        long start = System.nanoTime();
+        int side = boxesPerSide + 1;
+        checkSize(boxesPerSide, (long) boxesPerSide * boxesPerSide * 6, baked);
+
+        ByteBuffer vertexData = vertices(boxesPerSide, baked);
+        IndexBuffer index = IndexBuffer.allocate(boxesPerSide * boxesPerSide * 6, side * side, false);
+        pool.invoke(new RowTask(0, boxesPerSide, row -> {
+            int r = row * boxesPerSide * 6;
+            for (int col = 0; col < boxesPerSide; col++) {
+                int i = row * side + col;
+                index.put(r++, i);
+                index.put(r++, i + 1);
+                index.put(r++, i + side + 1);
+                index.put(r++, i);
+                index.put(r++, i + side + 1);
+                index.put(r++, i + side);
+            }
+        }));
+
+        MeshData data = new MeshData(vertexData, attributes(baked), side * side, index, GL_TRIANGLES);
+        data.setBuildNanos(System.nanoTime() - start);
+        return data;
+    }
+
+    public MeshData strip(int boxesPerSide) {
+        return strip(boxesPerSide, null);
+    }
+
+    public MeshData strip(int boxesPerSide, SurfaceFunction baked) {
+        long start = System.nanoTime();
+        int side = boxesPerSide + 1;
+        checkSize(boxesPerSide, 2L * side * boxesPerSide, baked);
+
+        ByteBuffer vertexData = vertices(boxesPerSide, baked);
+        IndexBuffer index = IndexBuffer.allocate(2 * side * boxesPerSide, side * side, false);
+        pool.invoke(new RowTask(0, boxesPerSide, row -> {
+            int r = row * side * 2;
+            if (row % 2 == 0) {
+                // Even rows
+                for (int col = 0; col < side; col++) {
+                    index.put(r++, col + row * side);
+                    index.put(r++, col + (row + 1) * side);
+                }
+            } else {
+                // Odd rows (reverse order)
+                for (int col = side - 1; col >= 0; col--) {
+                    index.put(r++, col + (row + 1) * side);
+                    index.put(r++, col + row * side);
+                }
+            }
+        }));
+
+        MeshData data = new MeshData(vertexData, attributes(baked), side * side, index, GL_TRIANGLE_STRIP);
+        data.setBuildNanos(System.nanoTime() - start);
+        return data;
+    }
+
+    /**
+     * Independent strips separated by primitive restart. The grid is cut into vertical bands of
+     * at most tileColumns boxes, each band emitted row by row so consecutive strips share a row of
+     * vertices still in the post-transform cache. tileColumns >= boxesPerSide gives plain row strips.
+     */
+    public MeshData stripRestart(int boxesPerSide, int tileColumns) {
+        return stripRestart(boxesPerSide, tileColumns, null);
+    }
+
+    public MeshData stripRestart(int boxesPerSide, int tileColumns, SurfaceFunction baked) {
+        long start = System.nanoTime();
+        if (tileColumns <= 0) {
+            throw new IllegalArgumentException("Tile must have at least one column.");
+        }
+        int side = boxesPerSide + 1;
+        int tile = Math.min(tileColumns, boxesPerSide);
+        int bands = (boxesPerSide + tile - 1) / tile;
+        int fullBand = boxesPerSide * (2 * (tile + 1) + 1);
+        // every strip is followed by a restart except the very last one
+        long count = (long) boxesPerSide * (2L * (boxesPerSide + bands) + bands) - 1;
+        checkSize(boxesPerSide, count, baked);
+
+        ByteBuffer vertexData = vertices(boxesPerSide, baked);
+        IndexBuffer index = IndexBuffer.allocate((int) count, side * side, true);
+        pool.invoke(new RowTask(0, bands * boxesPerSide, strip -> {
+            int band = strip / boxesPerSide;
+            int row = strip % boxesPerSide;
+            int firstCol = band * tile;
+            int width = Math.min(tile, boxesPerSide - firstCol);
+            int r = band * fullBand + row * (2 * (width + 1) + 1);
+            // starting on the upper row gives the triangles of the list layout, same diagonal and winding
+            for (int col = firstCol; col <= firstCol + width; col++) {
+                index.put(r++, col + (row + 1) * side);
+                index.put(r++, col + row * side);
+            }
+            if (r < count) {
+                index.putRestart(r);
+            }
+        }));
+
+        MeshData data = new MeshData(vertexData, attributes(baked), side * side, index, GL_TRIANGLE_STRIP);
+        data.setBuildNanos(System.nanoTime() - start);
+        return data;
+    }
+
+    /**
+     * Terrain patch: one grid of vertices with all 16 stitching variants of its triangle list
+     * stored one after another. Bit 0-3 of a variant (west, east, south, north) drops every other
+     * vertex on that edge, so it meets a neighbour of half the resolution without cracks.
+     * Triangles are fans around the centre of every 2x2 boxes, where dropping an edge midpoint
+     * just merges two triangles. variantStart receives the first index of each variant and the total.
+     */
+    public MeshData patch(int boxesPerSide, int[] variantStart) {
+        long start = System.nanoTime();
+        if (boxesPerSide < 2 || boxesPerSide % 2 != 0) {
+            throw new IllegalArgumentException("Patch must have an even number of boxes per side.");
+        }
+        if (variantStart.length < PATCH_VARIANTS + 1) {
+            throw new IllegalArgumentException("Variant array needs " + (PATCH_VARIANTS + 1) + " entries.");
+        }
+        int side = boxesPerSide + 1;
+        int blocks = boxesPerSide / 2;
+        long total = 0;
+        for (int mask = 0; mask < PATCH_VARIANTS; mask++) {
+            total += 3 * (8L * blocks * blocks - (long) Integer.bitCount(mask) * blocks);
+        }
+        checkSize(boxesPerSide, total, null);
+        int count = 0;
+        for (int mask = 0; mask < PATCH_VARIANTS; mask++) {
+            variantStart[mask] = count;
+            count += 3 * (8 * blocks * blocks - Integer.bitCount(mask) * blocks);
+        }
+        variantStart[PATCH_VARIANTS] = count;
+
+        ByteBuffer vertexData = vertices(boxesPerSide);
+        IndexBuffer index = IndexBuffer.allocate(count, side * side, false);
+        int[] ring = new int[8];
+        int r = 0;
+        for (int mask = 0; mask < PATCH_VARIANTS; mask++) {
+            for (int by = 0; by < blocks; by++) {
+                for (int bx = 0; bx < blocks; bx++) {
+                    int x = bx * 2, y = by * 2;
+                    int center = (y + 1) * side + x + 1;
+                    // counter-clockwise around the centre, corners always kept
+                    int n = 0;
+                    ring[n++] = y * side + x;
+                    if (by > 0 || (mask & 4) == 0) {
+                        ring[n++] = y * side + x + 1;
+                    }
+                    ring[n++] = y * side + x + 2;
+                    if (bx < blocks - 1 || (mask & 2) == 0) {
+                        ring[n++] = (y + 1) * side + x + 2;
+                    }
+                    ring[n++] = (y + 2) * side + x + 2;
+                    if (by < blocks - 1 || (mask & 8) == 0) {
+                        ring[n++] = (y + 2) * side + x + 1;
+                    }
+                    ring[n++] = (y + 2) * side + x;
+                    if (bx > 0 || (mask & 1) == 0) {
+                        ring[n++] = (y + 1) * side + x;
+                    }
+                    for (int k = 0; k < n; k++) {
+                        index.put(r++, center);
+                        index.put(r++, ring[k]);
+                        index.put(r++, ring[(k + 1) % n]);
+                    }
+                }
+            }
+        }
+
+        MeshData data = new MeshData(vertexData, ATTRIBUTES, side * side, index, GL_TRIANGLES);
+        data.setBuildNanos(System.nanoTime() - start);
+        return data;
+    }
+
+    /**
+     * Index memory of every grid layout for the given size, compared to 32-bit indices.
+     */
+    public String indexReport(int boxesPerSide, int tileColumns) {
+        StringBuilder sb = new StringBuilder();
+        MeshData[] meshes = {list(boxesPerSide), strip(boxesPerSide),
+                stripRestart(boxesPerSide, boxesPerSide), stripRestart(boxesPerSide, tileColumns)};
+        String[] names = {"list", "strip", "row strips", "tiles " + tileColumns};
+        for (int i = 0; i < meshes.length; i++) {
+            MeshData m = meshes[i];
+            long asInt = (long) m.getIndexCount() * Integer.BYTES;
+            sb.append(String.format(Locale.ROOT, "%d boxes %-10s %8d %-6s indices %10d B (uint %10d B, %3.0f%%)%n",
+                    boxesPerSide, names[i], m.getIndexCount(), IndexBuffer.typeName(m.getIndexType()),
+                    m.getIndexBytes(), asInt, 100.0 * m.getIndexBytes() / asInt));
+            m.free();
+        }
+        return sb.toString();
+    }
+
+    private static MeshData.Attrib[] attributes(SurfaceFunction baked) {
+        return baked == null ? ATTRIBUTES : BAKED_ATTRIBUTES;
+    }
+
+    /**
+     * Baked vertices hold the surface's displaced position and unit normal, evaluated in parallel
+     * by {@link SurfaceEvaluator}, so the shader only fetches and transforms them. Only surfaces
+     * that do not change over time can be baked.
+     */
+    private ByteBuffer vertices(int boxesPerSide, SurfaceFunction baked) {
+        if (baked == null) {
+            return vertices(boxesPerSide);
+        }
+        if (baked.dependsOnTime()) {
+            throw new IllegalArgumentException(baked + " changes over time and cannot be baked.");
+        }
+        int side = boxesPerSide + 1;
+        SurfaceSamples samples = EVALUATOR.evaluate(baked, boxesPerSide, 0, new SurfaceSamples(true), true);
+        float[] x = samples.getX(), y = samples.getY(), z = samples.getZ();
+        float[] nx = samples.getNormalX(), ny = samples.getNormalY(), nz = samples.getNormalZ();
+        ByteBuffer vertexData = memAlloc(vertexBytes(side, baked));
+        FloatBuffer vertex = vertexData.asFloatBuffer();
+        pool.invoke(new RowTask(0, side, row -> {
+            for (int i = row * side, idx = i * 6; i < (row + 1) * side; i++) {
+                vertex.put(idx++, x[i]);
+                vertex.put(idx++, y[i]);
+                vertex.put(idx++, z[i]);
+                vertex.put(idx++, nx[i]);
+                vertex.put(idx++, ny[i]);
+                vertex.put(idx++, nz[i]);
+            }
+        }));
+        return vertexData;
+    }
+
+    private ByteBuffer vertices(int boxesPerSide) {
+        float boxSize = 1F / boxesPerSide;
+        int side = boxesPerSide + 1;
+        ByteBuffer vertexData = memAlloc(vertexBytes(side, null));
+        FloatBuffer vertex = vertexData.asFloatBuffer();
+        pool.invoke(new RowTask(0, side, y -> {
+            int idx = y * side * 3;
+            for (int x = 0; x < side; x++) {
+                vertex.put(idx++, x * boxSize);
+                vertex.put(idx++, y * boxSize);
+                vertex.put(idx++, 0F);
+            }
+        }));
+        return vertexData;
+    }
+
+    private static void checkSize(int boxesPerSide, long indexCount, SurfaceFunction baked) {
+        if (boxesPerSide <= 0) {
+            throw new IllegalArgumentException("Grid must have at least one box per side.");
+        }
+        try {
+            vertexBytes(boxesPerSide + 1L, baked);
+            Math.toIntExact(Math.multiplyExact(indexCount, Integer.BYTES));
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Grid " + boxesPerSide + "x" + boxesPerSide + " does not fit into a single buffer.");
+        }
+    }
+
+    /**
+     * Size of the vertex buffer, 3 floats per vertex or 6 when baked; throws ArithmeticException past 2 GB.
+     */
+    private static int vertexBytes(long side, SurfaceFunction baked) {
+        int floats = baked == null ? 3 : 6;
+        return Math.toIntExact(Math.multiplyExact(Math.multiplyExact(side, side), (long) floats * Float.BYTES));
+    }
+
+    private interface RowWriter {
+        void write(int row);
+    }
+
+    private static class RowTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final RowWriter writer;
+
+        RowTask(int from, int to, RowWriter writer) {
+            this.from = from;
+            this.to = to;
+            this.writer = writer;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                for (int row = from; row < to; row++) {
+                    writer.write(row);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RowTask(from, mid, writer), new RowTask(mid, to, writer));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package shape.model;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_BYTE;
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_INT;
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_SHORT;
+import static org.lwjgl.system.MemoryUtil.memAlloc;
+
+/**
+ * Native index storage using the narrowest unsigned type able to address all vertices.
+ * When primitive restart is requested the largest value of the type is reserved as the restart index.
+ */
+public class IndexBuffer {
+    private final ByteBuffer data;
+    private final int type;
+    private final int count;
+    private final boolean restart;
+
+    private IndexBuffer(int count, int type, boolean restart) {
+        this.count = count;
+        this.type = type;
+        this.restart = restart;
+        this.data = memAlloc(Math.multiplyExact(count, bytesPerIndex(type)));
+    }
+
+    public static IndexBuffer allocate(int count, int vertexCount, boolean restart) {
+        return new IndexBuffer(count, typeFor(vertexCount, restart), restart);
+    }
+
+    public static int typeFor(int vertexCount, boolean restart) {
+        // the restart index takes the largest value of the type, so it cannot address a vertex
+        long largest = vertexCount - 1L + (restart ? 1 : 0);
+        if (largest <= maxValue(GL_UNSIGNED_BYTE)) {
+            return GL_UNSIGNED_BYTE;
+        }
+        if (largest <= maxValue(GL_UNSIGNED_SHORT)) {
+            return GL_UNSIGNED_SHORT;
+        }
+        return GL_UNSIGNED_INT;
+    }
+
+    public static int bytesPerIndex(int type) {
+        return switch (type) {
+            case GL_UNSIGNED_BYTE -> 1;
+            case GL_UNSIGNED_SHORT -> 2;
+            default -> 4;
+        };
+    }
+
+    private static long maxValue(int type) {
+        return switch (type) {
+            case GL_UNSIGNED_BYTE -> 0xFFL;
+            case GL_UNSIGNED_SHORT -> 0xFFFFL;
+            default -> 0xFFFFFFFFL;
+        };
+    }
+
+    public static String typeName(int type) {
+        return switch (type) {
+            case GL_UNSIGNED_BYTE -> "ubyte";
+            case GL_UNSIGNED_SHORT -> "ushort";
+            default -> "uint";
+        };
+    }
+
+    public void put(int position, int value) {
+        switch (type) {
+            case GL_UNSIGNED_BYTE -> data.put(position, (byte) value);
+            case GL_UNSIGNED_SHORT -> data.putShort(position << 1, (short) value);
+            default -> data.putInt(position << 2, value);
+        }
+    }
+
+    public void putRestart(int position) {
+        put(position, getRestartIndex());
+    }
+
+    public ByteBuffer getData() {
+        return data;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public boolean usesRestart() {
+        return restart;
+    }
+
+    public int getRestartIndex() {
+        return (int) maxValue(type);
+    }
+}
@@ -0,0 +1,82 @@
+package shape.model;
+
+import shape.global.RenderDevice;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL11.GL_FLOAT;
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_BYTE;
+import static org.lwjgl.opengl.GL15.GL_ARRAY_BUFFER;
+import static org.lwjgl.opengl.GL15.GL_STREAM_DRAW;
+import static shape.global.Device.gl;
+
+/**
+ * GPU stream of per-instance attributes, rewritten every frame: a model matrix "inModel"
+ * (four vec4 rows of the row-vector matrix, which GLSL reads as the columns of the column-vector one)
+ * followed by an RGBA8 colour "inColor". {@link CubeSwarm} packs data in this layout.
+ */
+public class InstanceBuffer {
+    public static final int MODEL_OFFSET = 0;
+    public static final int COLOR_OFFSET = 16 * Float.BYTES;
+    public static final int STRIDE = COLOR_OFFSET + 4;
+
+    private final int buffer;
+    private int count;
+    private long bytes;
+
+    public InstanceBuffer() {
+        buffer = gl().genBuffer();
+    }
+
+    /**
+     * Uploads the first count instances of data, orphaning the previous contents
+     * so the driver does not wait for draws still reading them.
+     */
+    public void upload(ByteBuffer data, int count) {
+        int size = count * STRIDE;
+        if (size > data.capacity()) {
+            throw new IllegalArgumentException("Buffer holds fewer than " + count + " instances");
+        }
+        RenderDevice gl = gl();
+        gl.bindBuffer(GL_ARRAY_BUFFER, buffer);
+        gl.bufferData(GL_ARRAY_BUFFER, data.duplicate().clear().limit(size), GL_STREAM_DRAW);
+        gl.bindBuffer(GL_ARRAY_BUFFER, 0);
+        this.count = count;
+        bytes = Math.max(bytes, size);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long bytes() {
+        return bytes;
+    }
+
+    /**
+     * Points the program's instance attributes at this buffer, advancing once per instance.
+     * Called with the owning vertex array bound.
+     */
+    void bindAttributes(RenderDevice gl, int program) {
+        gl.bindBuffer(GL_ARRAY_BUFFER, buffer);
+        int model = gl.getAttribLocation(program, "inModel");
+        if (model >= 0) {
+            for (int row = 0; row < 4; row++) {
+                gl.enableVertexAttribArray(model + row);
+                gl.vertexAttribPointer(model + row, 4, GL_FLOAT, false, STRIDE, MODEL_OFFSET + row * 4L * Float.BYTES);
+                gl.vertexAttribDivisor(model + row, 1);
+            }
+        }
+        int color = gl.getAttribLocation(program, "inColor");
+        if (color >= 0) {
+            gl.enableVertexAttribArray(color);
+            gl.vertexAttribPointer(color, 4, GL_UNSIGNED_BYTE, true, STRIDE, COLOR_OFFSET);
+            gl.vertexAttribDivisor(color, 1);
+        }
+        gl.bindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    public void delete() {
+        gl().deleteBuffer(buffer);
+    }
+}
@@ -0,0 +1,79 @@
+package shape.model;
+
+import shape.global.Bounds;
+import shape.global.Drawable;
+import shape.global.ShaderProgram;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link Cube} drawn once per instance of an {@link InstanceBuffer} in a single call.
+ * It owns its vertex array, since the instance attributes become part of it.
+ */
+public class InstancedCube implements GpuResource, Drawable {
+    private final NativeBuffers buffers;
+    private final InstanceBuffer instances;
+    private final int topology;
+    private Bounds bounds;
+
+    public InstancedCube() {
+        MeshData data = Cube.cubeData();
+        topology = data.getTopology();
+        buffers = new NativeBuffers(data);
+        data.free();
+        instances = new InstanceBuffer();
+        buffers.setInstances(instances);
+        bounds = buffers.getBounds();
+    }
+
+    /**
+     * Replaces the instances drawn from now on, see {@link InstanceBuffer#upload}.
+     */
+    public void upload(ByteBuffer data, int count) {
+        instances.upload(data, count);
+    }
+
+    public int getCount() {
+        return instances.getCount();
+    }
+
+    @Override
+    public void draw(ShaderProgram program, int topology) {
+        if (instances.getCount() > 0) {
+            buffers.drawInstanced(topology, program.getId(), instances.getCount());
+        }
+    }
+
+    @Override
+    public int getMeshId() {
+        return buffers.getMeshId();
+    }
+
+    /**
+     * Bounds of all instances together; the cube's own until set.
+     */
+    @Override
+    public Bounds getBounds() {
+        return bounds;
+    }
+
+    public void setBounds(Bounds bounds) {
+        this.bounds = bounds;
+    }
+
+    @Override
+    public int getTopology() {
+        return topology;
+    }
+
+    @Override
+    public long bytes() {
+        return buffers.bytes() + instances.bytes();
+    }
+
+    @Override
+    public void delete() {
+        buffers.delete();
+        instances.delete();
+    }
+}
@@ -0,0 +1,352 @@
+package shape.model;
+
+import shape.global.Bounds;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
+
+/**
+ * Built meshes kept on disk between runs. The first build of a key writes a binary file: a header
+ * with the vertex layout, index type and counts, bounds and a checksum of what the mesh was built
+ * from, then the vertex and index bytes as they go to the GPU. Later runs map the file and upload
+ * straight from the mapping. A file whose checksum, format version or byte order does not match is
+ * rebuilt and rewritten, so changing the source, the parameters or the generator code invalidates it.
+ * Disable with -Dshape.meshCache=false; files go to -Dshape.meshCacheDir=..., default
+ * {@code <java.io.tmpdir>/shape-mesh}.
+ */
+public class MeshCache {
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("shape.meshCache", "true"));
+    private static final Path DIRECTORY = Path.of(System.getProperty("shape.meshCacheDir",
+            Path.of(System.getProperty("java.io.tmpdir"), "shape-mesh").toString()));
+
+    private static final int MAGIC = 0x4853_454D; // "MESH" read little endian
+    private static final int VERSION = 1;
+    private static final int FLAG_LITTLE_ENDIAN = 1;
+    private static final int FLAG_RESTART = 2;
+    // payload sections start on this boundary
+    private static final int ALIGN = 16;
+
+    private static final Map<Class<?>, Integer> CLASS_CHECKSUMS = new ConcurrentHashMap<>();
+
+    private static int mapped;
+    private static long mappedNanos;
+    private static int built;
+    private static long builtNanos;
+    private static int invalidated;
+    private static int writeFailures;
+    private static long writtenBytes;
+
+    private MeshCache() {
+    }
+
+    /**
+     * The mesh stored for key if its checksum matches, otherwise a fresh build that is stored for
+     * the next run. Cache files that cannot be read or written are ignored, the build is returned.
+     */
+    public static MeshData get(String key, int checksum, Supplier<MeshData> builder) {
+        if (!ENABLED) {
+            return builder.get();
+        }
+        return get(DIRECTORY, key, checksum, builder);
+    }
+
+    /**
+     * {@link #get(String, int, Supplier)} with the cache files in directory.
+     */
+    static MeshData get(Path directory, String key, int checksum, Supplier<MeshData> builder) {
+        Path file = directory.resolve(fileName(key));
+        long start = System.nanoTime();
+        MeshData data = read(file, checksum);
+        if (data != null) {
+            long nanos = System.nanoTime() - start;
+            data.setBuildNanos(nanos);
+            recordMapped(nanos);
+            return data;
+        }
+        data = builder.get();
+        long nanos = System.nanoTime() - start;
+        recordBuilt(nanos, write(file, checksum, data));
+        return data;
+    }
+
+    /**
+     * Checksum of generator parameters and the bytecode of the generator classes.
+     */
+    public static int checksum(String parameters, Class<?>... generators) {
+        CRC32C crc = new CRC32C();
+        crc.update(parameters.getBytes(StandardCharsets.UTF_8));
+        for (Class<?> generator : generators) {
+            int code = CLASS_CHECKSUMS.computeIfAbsent(generator, MeshCache::classChecksum);
+            crc.update(code);
+            crc.update(code >>> 8);
+            crc.update(code >>> 16);
+            crc.update(code >>> 24);
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Checksum of a classpath resource's bytes (mapped when it is a file) combined with
+     * {@link #checksum(String, Class[])} of the parameters.
+     */
+    public static int resourceChecksum(String resource, String parameters, Class<?>... generators) throws IOException {
+        URL url = MeshCache.class.getResource(resource);
+        if (url == null) {
+            throw new IOException("No resource " + resource);
+        }
+        CRC32C crc = new CRC32C();
+        if (url.getProtocol().equals("file")) {
+            try (FileChannel channel = FileChannel.open(Path.of(url.toURI()), StandardOpenOption.READ)) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            } catch (URISyntaxException e) {
+                throw new IOException(e);
+            }
+        } else {
+            try (InputStream in = url.openStream()) {
+                crc.update(in.readAllBytes());
+            }
+        }
+        return (int) crc.getValue() * 31 + checksum(parameters, generators);
+    }
+
+    public static synchronized String report() {
+        if (!ENABLED) {
+            return "disabled";
+        }
+        return String.format(Locale.ROOT, "%d mapped in %.2f ms, %d built in %.2f ms (%d stale), %.2f MB written%s, %s",
+                mapped, mappedNanos / 1e6, built, builtNanos / 1e6, invalidated, writtenBytes / 1048576.0,
+                writeFailures > 0 ? ", " + writeFailures + " writes failed" : "", DIRECTORY);
+    }
+
+    public static synchronized void resetStats() {
+        mapped = 0;
+        mappedNanos = 0;
+        built = 0;
+        builtNanos = 0;
+        invalidated = 0;
+        writeFailures = 0;
+        writtenBytes = 0;
+    }
+
+    private static synchronized void recordMapped(long nanos) {
+        mapped++;
+        mappedNanos += nanos;
+    }
+
+    private static synchronized void recordBuilt(long nanos, long bytes) {
+        built++;
+        builtNanos += nanos;
+        if (bytes < 0) {
+            writeFailures++;
+        } else {
+            writtenBytes += bytes;
+        }
+    }
+
+    private static synchronized void recordInvalidated() {
+        invalidated++;
+    }
+
+    static String fileName(String key) {
+        StringBuilder name = new StringBuilder(key.length() + 5);
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            boolean plain = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '.';
+            name.append(plain ? c : '_');
+        }
+        if (name.length() > 0 && name.charAt(0) == '_') {
+            name.deleteCharAt(0);
+        }
+        return name.append(".mesh").toString();
+    }
+
+    /**
+     * CRC of the class file and the files of its nest: nested, anonymous and enum constant classes
+     * hold generator code too.
+     */
+    private static int classChecksum(Class<?> type) {
+        CRC32C crc = new CRC32C();
+        for (Class<?> member : type.getNestMembers()) {
+            String name = member.getName();
+            try (InputStream in = member.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class")) {
+                if (in != null) {
+                    crc.update(in.readAllBytes());
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return (int) crc.getValue();
+    }
+
+    private static int headerBytes(MeshData.Attrib[] attributes) {
+        // magic, version, checksum, flags, topology, vertex count, index count, index type, restart index,
+        // 6 bounds floats, attribute count, then per attribute its size, name length and name
+        int bytes = 16 * Integer.BYTES;
+        for (MeshData.Attrib a : attributes) {
+            bytes += 2 * Integer.BYTES + a.getName().length();
+        }
+        return align(bytes);
+    }
+
+    private static int align(int bytes) {
+        return (bytes + ALIGN - 1) & -ALIGN;
+    }
+
+    private static MeshData read(Path file, int checksum) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 16 * Integer.BYTES || size > Integer.MAX_VALUE) {
+                recordInvalidated();
+                return null;
+            }
+            // a stale file is never mapped, so the write that replaces it is not blocked on Windows
+            ByteBuffer header = ByteBuffer.allocate(16 * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            int read = 0;
+            while (header.hasRemaining() && read >= 0) {
+                read = channel.read(header, header.position());
+            }
+            if (header.hasRemaining() || header.getInt(8) != checksum) {
+                recordInvalidated();
+                return null;
+            }
+            MeshData data = decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            if (data == null) {
+                recordInvalidated();
+            }
+            return data;
+        } catch (IOException | RuntimeException e) {
+            // a truncated or foreign file is just a miss
+            recordInvalidated();
+            return null;
+        }
+    }
+
+    /**
+     * The mesh in a buffer holding one cache file, slicing its payload without copying, or null when
+     * the format version, byte order or size do not match. The checksum is left to the caller.
+     */
+    static MeshData decode(ByteBuffer file) {
+        ByteBuffer map = file.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int size = map.capacity();
+        if (size < 16 * Integer.BYTES) {
+            return null;
+        }
+        boolean littleEndian = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+        if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION
+                || ((map.getInt(12) & FLAG_LITTLE_ENDIAN) != 0) != littleEndian) {
+            return null;
+        }
+        boolean restart = (map.getInt(12) & FLAG_RESTART) != 0;
+        int topology = map.getInt(16);
+        int vertexCount = map.getInt(20);
+        int indexCount = map.getInt(24);
+        int indexType = map.getInt(28);
+        int restartIndex = map.getInt(32);
+        Bounds bounds = Bounds.box(map.getFloat(36), map.getFloat(40), map.getFloat(44),
+                map.getFloat(48), map.getFloat(52), map.getFloat(56));
+        MeshData.Attrib[] attributes = new MeshData.Attrib[map.getInt(60)];
+        int o = 64;
+        int floats = 0;
+        for (int i = 0; i < attributes.length; i++) {
+            int attribSize = map.getInt(o);
+            byte[] name = new byte[map.getInt(o + 4)];
+            map.get(o + 8, name);
+            attributes[i] = new MeshData.Attrib(new String(name, StandardCharsets.US_ASCII), attribSize);
+            floats += attribSize;
+            o += 8 + name.length;
+        }
+        int vertexStart = align(o);
+        int vertexBytes = Math.multiplyExact(vertexCount, floats * Float.BYTES);
+        int indexStart = align(vertexStart + vertexBytes);
+        int indexBytes = Math.multiplyExact(indexCount, IndexBuffer.bytesPerIndex(indexType));
+        if (indexStart + (long) indexBytes != size) {
+            return null;
+        }
+        ByteBuffer vertices = map.slice(vertexStart, vertexBytes).order(ByteOrder.nativeOrder());
+        ByteBuffer indices = map.slice(indexStart, indexBytes).order(ByteOrder.nativeOrder());
+        return new MeshData(vertices, indices, attributes, vertexCount, indexCount, indexType, restart,
+                restartIndex, topology, bounds);
+    }
+
+    /**
+     * The parts of a cache file for data, to be written one after another: header, vertices,
+     * padding, indices. Mesh entries of an {@link shape.global.AssetPack} use the same format.
+     */
+    public static ByteBuffer[] encode(MeshData data, int checksum) {
+        MeshData.Attrib[] attributes = data.getAttributes();
+        int headerBytes = headerBytes(attributes);
+        ByteBuffer header = ByteBuffer.allocate(headerBytes).order(ByteOrder.LITTLE_ENDIAN);
+        Bounds bounds = data.bounds();
+        int flags = (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? FLAG_LITTLE_ENDIAN : 0)
+                | (data.usesRestart() ? FLAG_RESTART : 0);
+        header.putInt(MAGIC).putInt(VERSION).putInt(checksum).putInt(flags)
+                .putInt(data.getTopology()).putInt(data.getVertexCount()).putInt(data.getIndexCount())
+                .putInt(data.getIndexType()).putInt(data.getRestartIndex())
+                .putFloat(bounds.getMinX()).putFloat(bounds.getMinY()).putFloat(bounds.getMinZ())
+                .putFloat(bounds.getMaxX()).putFloat(bounds.getMaxY()).putFloat(bounds.getMaxZ())
+                .putInt(attributes.length);
+        for (MeshData.Attrib a : attributes) {
+            byte[] name = a.getName().getBytes(StandardCharsets.US_ASCII);
+            header.putInt(a.getSize()).putInt(name.length).put(name);
+        }
+        header.position(0);
+
+        ByteBuffer vertices = data.getVertices().duplicate().clear();
+        ByteBuffer indices = data.getIndices().duplicate().clear();
+        int indexStart = align(headerBytes + vertices.remaining());
+        ByteBuffer padding = ByteBuffer.allocate(indexStart - headerBytes - vertices.remaining());
+        return new ByteBuffer[]{header, vertices, padding, indices};
+    }
+
+    /**
+     * Writes data next to its final name and moves it into place, returns the bytes written or -1.
+     */
+    private static long write(Path file, int checksum, MeshData data) {
+        ByteBuffer[] parts = encode(data, checksum);
+        Path temporary = file.resolveSibling(file.getFileName() + "." + ProcessHandle.current().pid() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                for (ByteBuffer part : parts) {
+                    while (part.hasRemaining()) {
+                        channel.write(part);
+                    }
+                }
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return Files.size(file);
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException ignored) {
+                // nothing more to do about an unwritable cache
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package shape.model;
+
+import shape.global.Bounds;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+import static org.lwjgl.system.MemoryUtil.memAlloc;
+import static org.lwjgl.system.MemoryUtil.memFree;
+
+/**
+ * Geometry living in native memory, ready to be handed to the GPU without an intermediate Java array.
+ * The buffers are owned by this object and released by {@link #free()}.
+ */
+public class MeshData {
+
+    public static class Attrib {
+        private final String name;
+        private final int size;
+
+        public Attrib(String name, int size) {
+            this.name = name;
+            this.size = size;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getSize() {
+            return size;
+        }
+    }
+
+    private ByteBuffer vertices;
+    private ByteBuffer indices;
+    private final Attrib[] attributes;
+    private final int vertexCount;
+    private final int indexCount;
+    private final int indexType;
+    private final boolean restart;
+    private final int restartIndex;
+    private final int topology;
+    private final long vertexBytes;
+    private final long indexBytes;
+    // false for buffers mapped from a MeshCache file, which are released by the GC, not memFree
+    private final boolean owned;
+    private long buildNanos;
+    private Bounds bounds;
+
+    public MeshData(ByteBuffer vertices, Attrib[] attributes, int vertexCount, IndexBuffer indices, int topology) {
+        this.vertices = vertices;
+        this.indices = indices.getData();
+        this.attributes = attributes;
+        this.vertexCount = vertexCount;
+        this.indexCount = indices.getCount();
+        this.indexType = indices.getType();
+        this.restart = indices.usesRestart();
+        this.restartIndex = indices.getRestartIndex();
+        this.topology = topology;
+        this.vertexBytes = vertices.capacity();
+        this.indexBytes = this.indices.capacity();
+        this.owned = true;
+    }
+
+    /**
+     * Wraps buffers someone else owns, {@link #free()} only drops them.
+     */
+    MeshData(ByteBuffer vertices, ByteBuffer indices, Attrib[] attributes, int vertexCount, int indexCount,
+             int indexType, boolean restart, int restartIndex, int topology, Bounds bounds) {
+        this.vertices = vertices;
+        this.indices = indices;
+        this.attributes = attributes;
+        this.vertexCount = vertexCount;
+        this.indexCount = indexCount;
+        this.indexType = indexType;
+        this.restart = restart;
+        this.restartIndex = restartIndex;
+        this.topology = topology;
+        this.vertexBytes = vertices.capacity();
+        this.indexBytes = indices.capacity();
+        this.owned = false;
+        this.bounds = bounds;
+    }
+
+    public static MeshData of(float[] vertices, Attrib[] attributes, int[] indices, int topology) {
+        int floatsPerVertex = 0;
+        for (Attrib a : attributes) {
+            floatsPerVertex += a.getSize();
+        }
+        ByteBuffer vertexData = memAlloc(vertices.length * Float.BYTES);
+        vertexData.asFloatBuffer().put(vertices);
+        int vertexCount = vertices.length / floatsPerVertex;
+        IndexBuffer indexData = IndexBuffer.allocate(indices.length, vertexCount, false);
+        for (int i = 0; i < indices.length; i++) {
+            indexData.put(i, indices[i]);
+        }
+        return new MeshData(vertexData, attributes, vertexCount, indexData, topology);
+    }
+
+    public ByteBuffer getVertices() {
+        return vertices;
+    }
+
+    public ByteBuffer getIndices() {
+        return indices;
+    }
+
+    public Attrib[] getAttributes() {
+        return attributes;
+    }
+
+    public int getStride() {
+        int floats = 0;
+        for (Attrib a : attributes) {
+            floats += a.getSize();
+        }
+        return floats * Float.BYTES;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public int getIndexCount() {
+        return indexCount;
+    }
+
+    public int getIndexType() {
+        return indexType;
+    }
+
+    public int getRestartIndex() {
+        return restartIndex;
+    }
+
+    public boolean usesRestart() {
+        return restart;
+    }
+
+    public int getTopology() {
+        return topology;
+    }
+
+    public long getVertexBytes() {
+        return vertexBytes;
+    }
+
+    public long getIndexBytes() {
+        return indexBytes;
+    }
+
+    public long bytes() {
+        return vertexBytes + indexBytes;
+    }
+
+    public long getBuildNanos() {
+        return buildNanos;
+    }
+
+    void setBuildNanos(long buildNanos) {
+        this.buildNanos = buildNanos;
+    }
+
+    /**
+     * True when the buffers were mapped from a {@link MeshCache} file rather than built.
+     */
+    public boolean isCached() {
+        return !owned;
+    }
+
+    /**
+     * Box around the "inPosition" attribute, or the first attribute when there is none.
+     */
+    public Bounds bounds() {
+        if (bounds == null) {
+            bounds = computeBounds();
+        }
+        return bounds;
+    }
+
+    private Bounds computeBounds() {
+        int offset = 0;
+        for (Attrib a : attributes) {
+            if (a.getName().equals("inPosition")) {
+                break;
+            }
+            offset += a.getSize();
+        }
+        if (offset == getStride() / Float.BYTES) {
+            offset = 0;
+        }
+        int stride = getStride();
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+        for (int v = 0, o = offset * Float.BYTES; v < vertexCount; v++, o += stride) {
+            float x = vertices.getFloat(o), y = vertices.getFloat(o + 4), z = vertices.getFloat(o + 8);
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            maxZ = Math.max(maxZ, z);
+        }
+        return vertexCount == 0 ? Bounds.box(0, 0, 0, 0, 0, 0) : Bounds.box(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    public String report() {
+        return String.format(Locale.ROOT, "%d vertices, %d %s indices%s, %.2f MB (vertex %.2f MB, index %.2f MB), %s in %.2f ms",
+                vertexCount, indexCount, IndexBuffer.typeName(indexType), usesRestart() ? " with restart" : "",
+                bytes() / 1048576.0, vertexBytes / 1048576.0, indexBytes / 1048576.0,
+                owned ? "built" : "mapped", buildNanos / 1e6);
+    }
+
+    public void free() {
+        if (!owned) {
+            vertices = null;
+            indices = null;
+            return;
+        }
+        if (vertices != null) {
+            memFree(vertices);
+            vertices = null;
+        }
+        if (indices != null) {
+            memFree(indices);
+            indices = null;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package shape.model;
+
+import shape.global.Bounds;
+import shape.global.RenderDevice;
+import shape.global.RenderQueue;
+
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL31.GL_PRIMITIVE_RESTART;
+import static shape.global.Device.gl;
+
+/**
+ * GPU side of a {@link MeshData}, uploaded straight from its native buffers.
+ * Attribute pointers are resolved by name against the program used for drawing, like OGLBuffers does.
+ * Drawing leaves the vertex array bound so consecutive draws of one mesh do not rebind it;
+ * whoever hands over to raw GL code (lwjglutils text or OBJ buffers) binds 0 first.
+ * Primitive restart is left as the last draw set it, enabled for restart meshes and disabled for
+ * the others, so the state cache only passes it on when a mesh of the other kind is drawn.
+ */
+public class NativeBuffers {
+    private final int vao;
+    private final int vertexBuffer;
+    private final int indexBuffer;
+    private final MeshData.Attrib[] attributes;
+    private final int stride;
+    private final int indexCount;
+    private final int indexType;
+    private final boolean restart;
+    private final int restartIndex;
+    private final long bytes;
+    private final Bounds bounds;
+    private final int meshId = RenderQueue.nextMeshId();
+    private InstanceBuffer instances;
+    private int boundProgram = -1;
+
+    public NativeBuffers(MeshData data) {
+        attributes = data.getAttributes();
+        stride = data.getStride();
+        indexCount = data.getIndexCount();
+        indexType = data.getIndexType();
+        restart = data.usesRestart();
+        restartIndex = data.getRestartIndex();
+        bytes = data.bytes();
+        bounds = data.bounds();
+
+        RenderDevice gl = gl();
+        vao = gl.genVertexArray();
+        gl.bindVertexArray(vao);
+        vertexBuffer = gl.genBuffer();
+        gl.bindBuffer(GL_ARRAY_BUFFER, vertexBuffer);
+        gl.bufferData(GL_ARRAY_BUFFER, data.getVertices(), GL_STATIC_DRAW);
+        indexBuffer = gl.genBuffer();
+        gl.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, indexBuffer);
+        gl.bufferData(GL_ELEMENT_ARRAY_BUFFER, data.getIndices(), GL_STATIC_DRAW);
+        gl.bindVertexArray(0);
+        gl.bindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    public void draw(int topology, int program) {
+        draw(topology, program, indexCount);
+    }
+
+    public void draw(int topology, int program, int count) {
+        draw(topology, program, 0, count);
+    }
+
+    /**
+     * Draws count indices starting at index first.
+     */
+    public void draw(int topology, int program, int first, int count) {
+        RenderDevice gl = gl();
+        gl.bindVertexArray(vao);
+        if (program != boundProgram) {
+            bindAttributes(gl, program);
+        }
+        setRestart(gl);
+        gl.drawElements(topology, count, indexType, (long) first * IndexBuffer.bytesPerIndex(indexType));
+    }
+
+    /**
+     * Adds a per-instance attribute stream to this vertex array for {@link #drawInstanced}.
+     */
+    public void setInstances(InstanceBuffer instances) {
+        this.instances = instances;
+        boundProgram = -1;
+    }
+
+    public void drawInstanced(int topology, int program, int instanceCount) {
+        RenderDevice gl = gl();
+        gl.bindVertexArray(vao);
+        if (program != boundProgram) {
+            bindAttributes(gl, program);
+        }
+        setRestart(gl);
+        gl.drawElementsInstanced(topology, indexCount, indexType, 0, instanceCount);
+    }
+
+    private void setRestart(RenderDevice gl) {
+        if (restart) {
+            gl.enable(GL_PRIMITIVE_RESTART);
+            gl.primitiveRestartIndex(restartIndex);
+        } else {
+            // a plain mesh may address the largest index value
+            gl.disable(GL_PRIMITIVE_RESTART);
+        }
+    }
+
+    private void bindAttributes(RenderDevice gl, int program) {
+        gl.bindBuffer(GL_ARRAY_BUFFER, vertexBuffer);
+        long offset = 0;
+        for (MeshData.Attrib attrib : attributes) {
+            int location = gl.getAttribLocation(program, attrib.getName());
+            if (location >= 0) {
+                gl.enableVertexAttribArray(location);
+                gl.vertexAttribPointer(location, attrib.getSize(), GL_FLOAT, false, stride, offset);
+            }
+            offset += (long) attrib.getSize() * Float.BYTES;
+        }
+        gl.bindBuffer(GL_ARRAY_BUFFER, 0);
+        if (instances != null) {
+            instances.bindAttributes(gl, program);
+        }
+        boundProgram = program;
+    }
+
+    public long bytes() {
+        return bytes;
+    }
+
+    public int getMeshId() {
+        return meshId;
+    }
+
+    public Bounds getBounds() {
+        return bounds;
+    }
+
+    public void delete() {
+        gl().deleteBuffer(vertexBuffer);
+        gl().deleteBuffer(indexBuffer);
+        gl().deleteVertexArray(vao);
+    }
+}
@@ -0,0 +1,569 @@
+package shape.model;
+
+import shape.utils.LongIntHashMap;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static org.lwjgl.opengl.GL11.GL_TRIANGLES;
+import static org.lwjgl.system.MemoryUtil.memAlloc;
+
+/**
+ * Wavefront OBJ into an indexed {@link MeshData}, without creating a String per token.
+ * The file is memory-mapped and cut into chunks at line breaks, which are parsed in parallel
+ * straight from the bytes into primitive arrays. Chunks are then joined (fixing up negative,
+ * relative indices) and every distinct v/vt/vn corner becomes one interleaved vertex, found
+ * through a {@link LongIntHashMap} keyed by the packed triple.
+ * Reads v, vt, vn and f (polygons are fanned into triangles); everything else is skipped.
+ * A vt with only u gets v = 0, a third texture coordinate is ignored.
+ * Vertices are inPosition (3), then inTexCoord (2) and inNormal (3) when the file has any.
+ */
+public class ObjLoader {
+    // bytes per parsed chunk
+    private static final int CHUNK = 1 << 20;
+    private static final boolean FORK = Runtime.getRuntime().availableProcessors() > 1;
+    private static final int MISSING = Integer.MIN_VALUE;
+
+    private ObjLoader() {
+    }
+
+    /**
+     * Loads a classpath resource; mapped when it is a plain file, read into memory from a jar.
+     */
+    public static MeshData load(String resource) throws IOException {
+        URL url = ObjLoader.class.getResource(resource);
+        if (url == null) {
+            throw new IOException("No resource " + resource);
+        }
+        if (url.getProtocol().equals("file")) {
+            try {
+                return load(Path.of(url.toURI()));
+            } catch (URISyntaxException e) {
+                throw new IOException(e);
+            }
+        }
+        try (InputStream in = url.openStream()) {
+            return parse(ByteBuffer.wrap(in.readAllBytes()), true);
+        }
+    }
+
+    public static MeshData load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + " is larger than 2 GB");
+            }
+            return parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), true);
+        }
+    }
+
+    public static MeshData parse(ByteBuffer data, boolean parallel) {
+        return parse(data, parallel, CHUNK);
+    }
+
+    /**
+     * With chunkBytes per chunk instead of the default, so small inputs can cross chunk boundaries.
+     */
+    static MeshData parse(ByteBuffer data, boolean parallel, int chunkBytes) {
+        if (chunkBytes <= 0) {
+            throw new IllegalArgumentException("Chunk must have at least one byte.");
+        }
+        long start = System.nanoTime();
+        int length = data.limit();
+        int chunks = Math.max(1, (int) ((length + (long) chunkBytes - 1) / chunkBytes));
+        Chunk[] parts = new Chunk[chunks];
+        int from = 0;
+        for (int i = 0; i < chunks; i++) {
+            int to = i == chunks - 1 ? length : lineEnd(data, Math.max(from, (i + 1) * chunkBytes), length);
+            parts[i] = new Chunk(data, from, to);
+            from = to;
+        }
+        if (parallel && FORK && chunks > 1) {
+            ForkJoinPool.commonPool().invoke(new ParseTask(parts, 0, chunks));
+        } else {
+            for (Chunk part : parts) {
+                part.parse();
+            }
+        }
+
+        // chunk-relative indices become absolute once the counts before each chunk are known
+        int positions = 0, texCoords = 0, normals = 0, corners = 0;
+        for (Chunk part : parts) {
+            part.resolve(positions, texCoords, normals);
+            positions += part.positions.size / 3;
+            texCoords += part.texCoords.size / 2;
+            normals += part.normals.size / 3;
+            corners += part.corners.size / 3;
+        }
+        float[] position = join(parts, 0, positions * 3);
+        float[] texCoord = join(parts, 1, texCoords * 2);
+        float[] normal = join(parts, 2, normals * 3);
+
+        int bitsV = bits(positions), bitsT = bits(texCoords + 1), bitsN = bits(normals + 1);
+        if (bitsV + bitsT + bitsN > 63) {
+            throw new IllegalArgumentException("OBJ has too many vertices to pack corners into 64 bits");
+        }
+        LongIntHashMap unique = new LongIntHashMap(Math.max(positions, corners / 4));
+        int[] cornerVertex = new int[corners];
+        // first corner of every unique vertex, to fill it from
+        int[] firstCorner = new int[Math.max(16, positions)];
+        int vertexCount = 0;
+        int c = 0;
+        for (Chunk part : parts) {
+            int[] triples = part.corners.data;
+            for (int i = 0; i < part.corners.size; i += 3, c++) {
+                int v = triples[i], t = triples[i + 1], n = triples[i + 2];
+                check(v, positions, "v");
+                check(t, texCoords, "vt");
+                check(n, normals, "vn");
+                // absent vt and vn pack as 0, the others shifted up by one
+                long key = (long) v << (bitsT + bitsN) | (long) (t == MISSING ? 0 : t + 1) << bitsN
+                        | (n == MISSING ? 0 : n + 1);
+                int vertex = unique.putIfAbsent(key, vertexCount);
+                if (vertex == vertexCount) {
+                    if (vertexCount == firstCorner.length) {
+                        firstCorner = Arrays.copyOf(firstCorner, vertexCount * 2);
+                    }
+                    firstCorner[vertexCount++] = c;
+                }
+                cornerVertex[c] = vertex;
+            }
+        }
+
+        boolean hasTex = texCoords > 0, hasNormal = normals > 0;
+        MeshData.Attrib[] attributes = attributes(hasTex, hasNormal);
+        int floats = 3 + (hasTex ? 2 : 0) + (hasNormal ? 3 : 0);
+        ByteBuffer vertexData = memAlloc(Math.multiplyExact(vertexCount, floats * Float.BYTES));
+        FloatBuffer vertices = vertexData.asFloatBuffer();
+        int[][] triples = new int[parts.length][];
+        int[] partStart = new int[parts.length + 1];
+        for (int i = 0; i < parts.length; i++) {
+            triples[i] = parts[i].corners.data;
+            partStart[i + 1] = partStart[i] + parts[i].corners.size / 3;
+        }
+        int part = 0;
+        for (int vertex = 0, o = 0; vertex < vertexCount; vertex++) {
+            int corner = firstCorner[vertex];
+            // unique vertices appear in corner order, so the owning chunk only moves forward
+            while (corner >= partStart[part + 1]) {
+                part++;
+            }
+            int i = (corner - partStart[part]) * 3;
+            int v = triples[part][i], t = triples[part][i + 1], n = triples[part][i + 2];
+            vertices.put(o++, position[v * 3]);
+            vertices.put(o++, position[v * 3 + 1]);
+            vertices.put(o++, position[v * 3 + 2]);
+            if (hasTex) {
+                vertices.put(o++, t == MISSING ? 0 : texCoord[t * 2]);
+                vertices.put(o++, t == MISSING ? 0 : texCoord[t * 2 + 1]);
+            }
+            if (hasNormal) {
+                vertices.put(o++, n == MISSING ? 0 : normal[n * 3]);
+                vertices.put(o++, n == MISSING ? 0 : normal[n * 3 + 1]);
+                vertices.put(o++, n == MISSING ? 0 : normal[n * 3 + 2]);
+            }
+        }
+        IndexBuffer index = IndexBuffer.allocate(corners, vertexCount, false);
+        for (int i = 0; i < corners; i++) {
+            index.put(i, cornerVertex[i]);
+        }
+
+        MeshData mesh = new MeshData(vertexData, attributes, vertexCount, index, GL_TRIANGLES);
+        mesh.setBuildNanos(System.nanoTime() - start);
+        return mesh;
+    }
+
+    private static MeshData.Attrib[] attributes(boolean hasTex, boolean hasNormal) {
+        MeshData.Attrib position = new MeshData.Attrib("inPosition", 3);
+        MeshData.Attrib texCoord = new MeshData.Attrib("inTexCoord", 2);
+        MeshData.Attrib normal = new MeshData.Attrib("inNormal", 3);
+        if (hasTex && hasNormal) {
+            return new MeshData.Attrib[]{position, texCoord, normal};
+        }
+        if (hasTex) {
+            return new MeshData.Attrib[]{position, texCoord};
+        }
+        return hasNormal ? new MeshData.Attrib[]{position, normal} : new MeshData.Attrib[]{position};
+    }
+
+    private static int bits(int count) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(count));
+    }
+
+    private static void check(int index, int count, String kind) {
+        if (index != MISSING && (index < 0 || index >= count)) {
+            throw new IllegalArgumentException("Face refers to " + kind + " " + (index + 1) + " of " + count);
+        }
+    }
+
+    private static int lineEnd(ByteBuffer data, int from, int length) {
+        int i = from;
+        while (i < length && data.get(i) != '\n') {
+            i++;
+        }
+        return Math.min(i + 1, length);
+    }
+
+    private static float[] join(Chunk[] parts, int list, int size) {
+        float[] joined = new float[size];
+        int o = 0;
+        for (Chunk part : parts) {
+            FloatList values = list == 0 ? part.positions : list == 1 ? part.texCoords : part.normals;
+            System.arraycopy(values.data, 0, joined, o, values.size);
+            o += values.size;
+        }
+        return joined;
+    }
+
+    /**
+     * One run of whole lines and what it declares; corners are (v, vt, vn) triples, three per triangle.
+     */
+    private static final class Chunk {
+        private final ByteBuffer source;
+        private final int from;
+        private final int length;
+        // the chunk copied to the heap, array reads are far cheaper than mapped buffer gets
+        private byte[] data;
+        private int to;
+        private int p;
+        final FloatList positions = new FloatList();
+        final FloatList texCoords = new FloatList();
+        final FloatList normals = new FloatList();
+        final IntList corners = new IntList();
+        // slots of corners holding indices relative to this chunk's declarations, resolved on joining
+        final IntList relative = new IntList();
+        // (v, vt, vn) of the face being read and which of them were negative
+        private int[] faceCorners = new int[12];
+        private boolean[] faceRelative = new boolean[12];
+
+        Chunk(ByteBuffer source, int from, int to) {
+            this.source = source;
+            this.from = from;
+            length = to - from;
+        }
+
+        void parse() {
+            data = new byte[length];
+            source.get(from, data);
+            to = length;
+            p = 0;
+            while (p < to) {
+                skipBlanks();
+                if (p >= to) {
+                    break;
+                }
+                byte c = data[p];
+                byte next = p + 1 < to ? data[p + 1] : (byte) '\n';
+                if (c == 'v' && isBlank(next)) {
+                    p++;
+                    positions.add(number(), number(), number());
+                } else if (c == 'v' && next == 't') {
+                    p += 2;
+                    float u = number();
+                    texCoords.add(u, hasNumber() ? number() : 0);
+                } else if (c == 'v' && next == 'n') {
+                    p += 2;
+                    normals.add(number(), number(), number());
+                } else if (c == 'f' && isBlank(next)) {
+                    p++;
+                    face();
+                }
+                skipLine();
+            }
+            data = null;
+        }
+
+        private void face() {
+            int count = 0;
+            while (true) {
+                skipBlanks();
+                if (p >= to || !isIndexStart(data[p])) {
+                    break;
+                }
+                if ((count + 1) * 3 > faceCorners.length) {
+                    faceCorners = Arrays.copyOf(faceCorners, faceCorners.length * 2);
+                    faceRelative = Arrays.copyOf(faceRelative, faceCorners.length);
+                }
+                int slot = count * 3;
+                faceCorners[slot] = index(0, slot);
+                faceCorners[slot + 1] = MISSING;
+                faceCorners[slot + 2] = MISSING;
+                faceRelative[slot + 1] = false;
+                faceRelative[slot + 2] = false;
+                if (p < to && data[p] == '/') {
+                    p++;
+                    if (p < to && data[p] != '/') {
+                        faceCorners[slot + 1] = index(1, slot + 1);
+                    }
+                    if (p < to && data[p] == '/') {
+                        p++;
+                        faceCorners[slot + 2] = index(2, slot + 2);
+                    }
+                }
+                count++;
+            }
+            if (count < 3) {
+                throw new IllegalArgumentException("Face with " + count + " corners at byte " + (from + p));
+            }
+            for (int i = 1; i < count - 1; i++) {
+                corner(0);
+                corner(i);
+                corner(i + 1);
+            }
+        }
+
+        private void corner(int i) {
+            int slot = i * 3;
+            for (int c = 0; c < 3; c++) {
+                if (faceRelative[slot + c]) {
+                    relative.add(corners.size + c);
+                }
+            }
+            corners.add(faceCorners[slot], faceCorners[slot + 1], faceCorners[slot + 2]);
+        }
+
+        private int index(int component, int slot) {
+            byte[] b = data;
+            int end = to;
+            int i = p;
+            boolean negative = b[i] == '-';
+            if (negative) {
+                i++;
+            }
+            int value = 0;
+            int digits = 0;
+            while (i < end) {
+                int d = b[i] - '0';
+                if (d < 0 || d > 9) {
+                    break;
+                }
+                value = value * 10 + d;
+                digits++;
+                i++;
+            }
+            p = i;
+            if (digits == 0 || value == 0) {
+                throw new IllegalArgumentException("Bad face index at byte " + (from + i));
+            }
+            faceRelative[slot] = negative;
+            if (!negative) {
+                return value - 1;
+            }
+            // counted back from what this chunk has declared so far, may reach into earlier chunks
+            int declared = component == 0 ? positions.size / 3 : component == 1 ? texCoords.size / 2 : normals.size / 3;
+            return declared - value;
+        }
+
+        /**
+         * Makes the relative indices absolute given how many of each list the earlier chunks declared.
+         */
+        void resolve(int positionBase, int texCoordBase, int normalBase) {
+            int[] slots = relative.data;
+            for (int i = 0; i < relative.size; i++) {
+                int slot = slots[i];
+                int component = slot % 3;
+                corners.data[slot] += component == 0 ? positionBase : component == 1 ? texCoordBase : normalBase;
+            }
+        }
+
+        private float number() {
+            // the cursor lives in locals here, this loop is most of the parsing time
+            byte[] b = data;
+            int end = to;
+            int i = p;
+            while (i < end && isBlank(b[i])) {
+                i++;
+            }
+            boolean negative = false;
+            if (i < end && (b[i] == '-' || b[i] == '+')) {
+                negative = b[i] == '-';
+                i++;
+            }
+            long mantissa = 0;
+            int exponent = 0;
+            int digits = 0;
+            while (i < end) {
+                int d = b[i] - '0';
+                if (d < 0 || d > 9) {
+                    break;
+                }
+                if (mantissa < 100_000_000_000_000_000L) {
+                    mantissa = mantissa * 10 + d;
+                } else {
+                    exponent++;
+                }
+                digits++;
+                i++;
+            }
+            if (i < end && b[i] == '.') {
+                i++;
+                while (i < end) {
+                    int d = b[i] - '0';
+                    if (d < 0 || d > 9) {
+                        break;
+                    }
+                    if (mantissa < 100_000_000_000_000_000L) {
+                        mantissa = mantissa * 10 + d;
+                        exponent--;
+                    }
+                    digits++;
+                    i++;
+                }
+            }
+            if (digits == 0) {
+                throw new IllegalArgumentException("Expected a number at byte " + (from + i));
+            }
+            if (i < end && (b[i] == 'e' || b[i] == 'E')) {
+                i++;
+                boolean negativeExponent = false;
+                if (i < end && (b[i] == '-' || b[i] == '+')) {
+                    negativeExponent = b[i] == '-';
+                    i++;
+                }
+                int e = 0;
+                while (i < end) {
+                    int d = b[i] - '0';
+                    if (d < 0 || d > 9) {
+                        break;
+                    }
+                    e = Math.min(e * 10 + d, 1000);
+                    i++;
+                }
+                exponent += negativeExponent ? -e : e;
+            }
+            p = i;
+            double value = scale(mantissa, exponent);
+            return (float) (negative ? -value : value);
+        }
+
+        /**
+         * Whether another number follows on this line.
+         */
+        private boolean hasNumber() {
+            skipBlanks();
+            if (p >= to) {
+                return false;
+            }
+            byte c = data[p];
+            return c == '-' || c == '+' || c == '.' || (c >= '0' && c <= '9');
+        }
+
+        private void skipBlanks() {
+            while (p < to && isBlank(data[p])) {
+                p++;
+            }
+        }
+
+        private void skipLine() {
+            byte[] b = data;
+            int end = to;
+            int i = p;
+            while (i < end && b[i] != '\n') {
+                i++;
+            }
+            p = i + 1;
+        }
+    }
+
+    private static final double[] POWERS = new double[23];
+
+    static {
+        POWERS[0] = 1;
+        for (int i = 1; i < POWERS.length; i++) {
+            POWERS[i] = POWERS[i - 1] * 10;
+        }
+    }
+
+    // exact for the mantissas and exponents OBJ exporters write, correctly rounded to float after the cast
+    private static double scale(long mantissa, int exponent) {
+        if (mantissa == 0) {
+            return 0;
+        }
+        if (exponent >= 0) {
+            return exponent < POWERS.length ? mantissa * POWERS[exponent] : mantissa * Math.pow(10, exponent);
+        }
+        return -exponent < POWERS.length ? mantissa / POWERS[-exponent] : mantissa / Math.pow(10, -exponent);
+    }
+
+    private static boolean isBlank(byte c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+
+    private static boolean isIndexStart(byte c) {
+        return c == '-' || (c >= '0' && c <= '9');
+    }
+
+    private static final class FloatList {
+        float[] data = new float[1024];
+        int size;
+
+        void add(float a, float b) {
+            if (size + 2 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[size++] = a;
+            data[size++] = b;
+        }
+
+        void add(float a, float b, float c) {
+            if (size + 3 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[size++] = a;
+            data[size++] = b;
+            data[size++] = c;
+        }
+    }
+
+    private static final class IntList {
+        int[] data = new int[1024];
+        int size;
+
+        void add(int value) {
+            if (size + 1 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[size++] = value;
+        }
+
+        void add(int a, int b, int c) {
+            if (size + 3 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[size++] = a;
+            data[size++] = b;
+            data[size++] = c;
+        }
+    }
+
+    private static class ParseTask extends RecursiveAction {
+        private final Chunk[] parts;
+        private final int from;
+        private final int to;
+
+        ParseTask(Chunk[] parts, int from, int to) {
+            this.parts = parts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                parts[from].parse();
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ParseTask(parts, from, mid), new ParseTask(parts, mid, to));
+        }
+    }
+}
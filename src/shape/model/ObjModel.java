@@ -0,0 +1,83 @@
+package shape.model;
+
+import shape.global.AssetPack;
+import shape.global.Bounds;
+import shape.global.Drawable;
+import shape.global.ShaderProgram;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public class ObjModel implements GpuResource, Drawable {
+    private final NativeBuffers buffers;
+    private final int topology;
+    private final String report;
+
+    public ObjModel(String path) {
+        ByteBuffer packed = AssetPack.get().mesh(path);
+        MeshData data = packed != null ? MeshCache.decode(packed) : null;
+        if (data == null) {
+            data = load(path);
+        }
+        buffers = new NativeBuffers(data);
+        topology = data.getTopology();
+        report = data.report();
+        data.free();
+    }
+
+    private static MeshData load(String path) {
+        try {
+            return MeshCache.get("obj" + path, MeshCache.resourceChecksum(path, "obj", ObjLoader.class), () -> {
+                try {
+                    return ObjLoader.load(path);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void draw(int program) {
+        buffers.draw(topology, program);
+    }
+
+    public void draw(ShaderProgram program) {
+        draw(program.getId());
+    }
+
+    @Override
+    public void draw(ShaderProgram program, int topology) {
+        buffers.draw(topology, program.getId());
+    }
+
+    public String report() {
+        return report;
+    }
+
+    @Override
+    public int getMeshId() {
+        return buffers.getMeshId();
+    }
+
+    @Override
+    public int getTopology() {
+        return topology;
+    }
+
+    @Override
+    public Bounds getBounds() {
+        return buffers.getBounds();
+    }
+
+    @Override
+    public long bytes() {
+        return buffers.bytes();
+    }
+
+    @Override
+    public void delete() {
+        buffers.delete();
+    }
+}
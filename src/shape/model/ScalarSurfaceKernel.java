@@ -0,0 +1,28 @@
+package shape.model;
+
+/**
+ * One {@link SurfaceFunction#evaluate} per vertex, the reference the vector kernel is checked against.
+ */
+class ScalarSurfaceKernel implements SurfaceKernel {
+    @Override
+    public void row(SurfaceFunction function, float u0, float step, float v, float time,
+                    SurfaceSamples out, int offset, int count) {
+        float[] evaluated = new float[SurfaceFunction.FLOATS];
+        float[] normal = new float[3];
+        float[] x = out.getX(), y = out.getY(), z = out.getZ();
+        float[] nx = out.getNormalX(), ny = out.getNormalY(), nz = out.getNormalZ();
+        for (int i = 0; i < count; i++) {
+            function.evaluate(u0 + i * step, v, time, evaluated);
+            int o = offset + i;
+            x[o] = evaluated[0];
+            y[o] = evaluated[1];
+            z[o] = evaluated[2];
+            if (nx != null) {
+                SurfaceFunction.normal(evaluated, normal, 0);
+                nx[o] = normal[0];
+                ny[o] = normal[1];
+                nz[o] = normal[2];
+            }
+        }
+    }
+}
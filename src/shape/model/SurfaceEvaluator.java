@@ -0,0 +1,126 @@
+package shape.model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Evaluates a {@link SurfaceFunction} over a whole grid into {@link SurfaceSamples}. Rows are split
+ * across the common fork-join pool and each row goes through a {@link SurfaceKernel}: the
+ * jdk.incubator.vector one when the JVM runs with --add-modules jdk.incubator.vector, the scalar
+ * one otherwise or with -Dshape.vector=false.
+ */
+public class SurfaceEvaluator {
+    // vertices per fork-join task
+    private static final int GRAIN = 16384;
+    private static final boolean FORK = Runtime.getRuntime().availableProcessors() > 1;
+    private static final SurfaceKernel VECTOR = loadVectorKernel();
+
+    private final SurfaceKernel kernel;
+
+    public SurfaceEvaluator() {
+        this(Boolean.parseBoolean(System.getProperty("shape.vector", "true")));
+    }
+
+    /**
+     * vector is ignored when the vector module is not available.
+     */
+    public SurfaceEvaluator(boolean vector) {
+        kernel = vector && VECTOR != null ? VECTOR : new ScalarSurfaceKernel();
+    }
+
+    private static SurfaceKernel loadVectorKernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return (SurfaceKernel) Class.forName("shape.model.VectorSurfaceKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    public boolean isVectorized() {
+        return VECTOR != null && kernel == VECTOR;
+    }
+
+    /**
+     * The whole [0;1] grid with boxesPerSide boxes per side.
+     */
+    public SurfaceSamples evaluate(SurfaceFunction function, int boxesPerSide, float time,
+                                   SurfaceSamples target, boolean parallel) {
+        return evaluate(function, 0, 0, 1, boxesPerSide, time, target, parallel);
+    }
+
+    /**
+     * The square [u0;u0+size]x[v0;v0+size] of the grid, like one terrain chunk.
+     */
+    public SurfaceSamples evaluate(SurfaceFunction function, float u0, float v0, float size, int boxesPerSide,
+                                   float time, SurfaceSamples target, boolean parallel) {
+        if (boxesPerSide <= 0) {
+            throw new IllegalArgumentException("Grid must have at least one box per side.");
+        }
+        int side = boxesPerSide + 1;
+        if ((long) side * side > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Grid " + boxesPerSide + "x" + boxesPerSide + " does not fit into an array.");
+        }
+        target.resize(side * side);
+        Rows rows = new Rows(function, u0, v0, size / boxesPerSide, side, time, target);
+        int rowsPerTask = Math.max(1, GRAIN / side);
+        if (!parallel || !FORK || side <= rowsPerTask) {
+            rows.run(0, side);
+        } else {
+            ForkJoinPool.commonPool().invoke(new RowTask(rows, 0, side, rowsPerTask));
+        }
+        return target;
+    }
+
+    private final class Rows {
+        final SurfaceFunction function;
+        final float u0;
+        final float v0;
+        final float step;
+        final int side;
+        final float time;
+        final SurfaceSamples target;
+
+        Rows(SurfaceFunction function, float u0, float v0, float step, int side, float time, SurfaceSamples target) {
+            this.function = function;
+            this.u0 = u0;
+            this.v0 = v0;
+            this.step = step;
+            this.side = side;
+            this.time = time;
+            this.target = target;
+        }
+
+        void run(int from, int to) {
+            for (int row = from; row < to; row++) {
+                kernel.row(function, u0, step, v0 + row * step, time, target, row * side, side);
+            }
+        }
+    }
+
+    private static class RowTask extends RecursiveAction {
+        private final Rows rows;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        RowTask(Rows rows, int from, int to, int grain) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                rows.run(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RowTask(rows, from, mid, grain), new RowTask(rows, mid, to, grain));
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package shape.model;
+
+/**
+ * The parametric surfaces of the grid shaders ({@code shaders/grid/*.vert}) evaluated on the CPU,
+ * with the same constants and the analytic partial derivatives. Grid coordinates u, v are the
+ * shader's inPosition.xy in [0;1]. Whole grids are evaluated by {@link SurfaceEvaluator}.
+ */
+public enum SurfaceFunction {
+    /**
+     * flat.vert and depth.vert, the grid as it is.
+     */
+    Flat {
+        @Override
+        public void evaluate(float u, float v, float time, float[] out) {
+            set(out, u, v, 0, 1, 0, 0, 0, 1, 0);
+        }
+    },
+    /**
+     * sea.vert, a travelling wave z = 0.1 sin(2 pi (u + v) - 2 time).
+     */
+    Sea {
+        @Override
+        public void evaluate(float u, float v, float time, float[] out) {
+            double phase = SEA_K * (u + v) - SEA_SPEED * time;
+            float slope = (float) (SEA_AMPLITUDE * SEA_K * Math.cos(phase));
+            set(out, u, v, (float) (SEA_AMPLITUDE * Math.sin(phase)), 1, 0, slope, 0, 1, slope);
+        }
+    },
+    /**
+     * torus.vert, major radius 1 and minor radius 0.5 around z.
+     */
+    Torus {
+        @Override
+        public void evaluate(float u, float v, float time, float[] out) {
+            double a = TWO_PI * u, b = TWO_PI * v;
+            double cosA = Math.cos(a), sinA = Math.sin(a), cosB = Math.cos(b), sinB = Math.sin(b);
+            double ring = TORUS_MAJOR + TORUS_MINOR * cosB;
+            set(out, (float) (cosA * ring), (float) (sinA * ring), (float) (TORUS_MINOR * sinB),
+                    (float) (-TWO_PI * sinA * ring), (float) (TWO_PI * cosA * ring), 0,
+                    (float) (-TWO_PI * TORUS_MINOR * sinB * cosA), (float) (-TWO_PI * TORUS_MINOR * sinB * sinA),
+                    (float) (TWO_PI * TORUS_MINOR * cosB));
+        }
+    },
+    /**
+     * cylinder.vert, a spiral ramp: radius 0.1 r, angle s and height 0.1 r s for (r, s) = 2 pi (u, v).
+     */
+    Cylinder {
+        @Override
+        public void evaluate(float u, float v, float time, float[] out) {
+            double r = TWO_PI * u, s = TWO_PI * v;
+            double cosS = Math.cos(s), sinS = Math.sin(s);
+            double k = TWO_PI * CYLINDER_SCALE;
+            set(out, (float) (CYLINDER_SCALE * r * cosS), (float) (CYLINDER_SCALE * r * sinS),
+                    (float) (CYLINDER_SCALE * r * s),
+                    (float) (k * cosS), (float) (k * sinS), (float) (k * s),
+                    (float) (-k * r * sinS), (float) (k * r * cosS), (float) (k * r));
+        }
+    },
+    /**
+     * cartesian.vert, z = cos(1.2 pi |p|) for p = 2 (u, v) - 1.
+     */
+    Cartesian {
+        @Override
+        public void evaluate(float u, float v, float time, float[] out) {
+            double px = 2.0 * (u - 0.5), py = 2.0 * (v - 0.5);
+            double distance = Math.sqrt(px * px + py * py);
+            double angle = CARTESIAN_K * distance;
+            // dz/dp = -k sin(k d) p / d, times 2 for dp/du; sin(k d) / d tends to k at the centre
+            double radial = distance == 0 ? CARTESIAN_K : Math.sin(angle) / distance;
+            float dzdu = (float) (-2.0 * CARTESIAN_K * radial * px);
+            float dzdv = (float) (-2.0 * CARTESIAN_K * radial * py);
+            set(out, u, v, (float) Math.cos(angle), 1, 0, dzdu, 0, 1, dzdv);
+        }
+    },
+    /**
+     * normals.vert, a fine ripple z = 0.02 sin(2 pi u / 0.05 + 2 pi v / 0.1).
+     */
+    Normal {
+        @Override
+        public void evaluate(float u, float v, float time, float[] out) {
+            double phase = RIPPLE_KU * u + RIPPLE_KV * v;
+            double cos = Math.cos(phase);
+            set(out, u, v, (float) (RIPPLE_AMPLITUDE * Math.sin(phase)),
+                    1, 0, (float) (RIPPLE_AMPLITUDE * RIPPLE_KU * cos), 0, 1, (float) (RIPPLE_AMPLITUDE * RIPPLE_KV * cos));
+        }
+    };
+
+    /**
+     * Floats written by {@link #evaluate}: position, d/du and d/dv.
+     */
+    public static final int FLOATS = 9;
+
+    static final double TWO_PI = 2 * Math.PI;
+    static final double SEA_AMPLITUDE = 0.1;
+    static final double SEA_K = TWO_PI / 1.0;
+    static final double SEA_SPEED = 2.0;
+    static final double TORUS_MAJOR = 1.0;
+    static final double TORUS_MINOR = 0.5;
+    static final double CYLINDER_SCALE = 0.1;
+    static final double CARTESIAN_K = 1.2 * Math.PI;
+    static final double RIPPLE_AMPLITUDE = 0.02;
+    static final double RIPPLE_KU = TWO_PI / 0.05;
+    static final double RIPPLE_KV = TWO_PI / 0.1;
+
+    /**
+     * Writes the position and both partial derivatives at (u, v) to out[0..8].
+     * Only Sea depends on time, in the units of the shader's time uniform.
+     */
+    public abstract void evaluate(float u, float v, float time, float[] out);
+
+    /**
+     * Only Sea moves, the others can be baked once.
+     */
+    public boolean dependsOnTime() {
+        return this == Sea;
+    }
+
+    /**
+     * Unit normal d/du x d/dv from an {@link #evaluate} result into out[offset..offset+2];
+     * +z where the surface degenerates (the centre of Cylinder).
+     */
+    public static void normal(float[] evaluated, float[] out, int offset) {
+        float nx = evaluated[4] * evaluated[8] - evaluated[5] * evaluated[7];
+        float ny = evaluated[5] * evaluated[6] - evaluated[3] * evaluated[8];
+        float nz = evaluated[3] * evaluated[7] - evaluated[4] * evaluated[6];
+        float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+        if (length == 0) {
+            out[offset] = 0;
+            out[offset + 1] = 0;
+            out[offset + 2] = 1;
+            return;
+        }
+        out[offset] = nx / length;
+        out[offset + 1] = ny / length;
+        out[offset + 2] = nz / length;
+    }
+
+    /**
+     * The surface drawn by a grid shader of GridScene, Flat for the ones that keep the grid.
+     */
+    public static SurfaceFunction forShader(String shader) {
+        return switch (shader) {
+            case "Sea" -> Sea;
+            case "Torus" -> Torus;
+            case "Cylinder" -> Cylinder;
+            case "Cartesian" -> Cartesian;
+            case "Normal" -> Normal;
+            default -> Flat;
+        };
+    }
+
+    private static void set(float[] out, float x, float y, float z,
+                            float ux, float uy, float uz, float vx, float vy, float vz) {
+        out[0] = x;
+        out[1] = y;
+        out[2] = z;
+        out[3] = ux;
+        out[4] = uy;
+        out[5] = uz;
+        out[6] = vx;
+        out[7] = vy;
+        out[8] = vz;
+    }
+}
@@ -0,0 +1,12 @@
+package shape.model;
+
+/**
+ * Evaluates one grid row of a {@link SurfaceFunction}, see {@link SurfaceEvaluator}.
+ */
+interface SurfaceKernel {
+    /**
+     * Vertices at u = u0 + i * step for i in [0;count) and the given v, written from offset on.
+     */
+    void row(SurfaceFunction function, float u0, float step, float v, float time,
+             SurfaceSamples out, int offset, int count);
+}
@@ -0,0 +1,94 @@
+package shape.model;
+
+import shape.global.Bounds;
+
+/**
+ * Positions and optional unit normals of an evaluated surface grid as parallel arrays,
+ * vertex (col, row) of a grid with side vertices per row at index row * side + col.
+ * Arrays are reused while the grid fits.
+ */
+public class SurfaceSamples {
+    private final boolean normals;
+    private float[] x = new float[0];
+    private float[] y = new float[0];
+    private float[] z = new float[0];
+    private float[] nx;
+    private float[] ny;
+    private float[] nz;
+    private int count;
+
+    public SurfaceSamples(boolean normals) {
+        this.normals = normals;
+        if (normals) {
+            nx = new float[0];
+            ny = new float[0];
+            nz = new float[0];
+        }
+    }
+
+    void resize(int count) {
+        if (x.length < count) {
+            x = new float[count];
+            y = new float[count];
+            z = new float[count];
+            if (normals) {
+                nx = new float[count];
+                ny = new float[count];
+                nz = new float[count];
+            }
+        }
+        this.count = count;
+    }
+
+    public boolean hasNormals() {
+        return normals;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public float[] getX() {
+        return x;
+    }
+
+    public float[] getY() {
+        return y;
+    }
+
+    public float[] getZ() {
+        return z;
+    }
+
+    /**
+     * Null without normals, like the other two.
+     */
+    public float[] getNormalX() {
+        return nx;
+    }
+
+    public float[] getNormalY() {
+        return ny;
+    }
+
+    public float[] getNormalZ() {
+        return nz;
+    }
+
+    /**
+     * Bounds of the sampled positions; the surface between samples may bulge slightly past them.
+     */
+    public Bounds bounds() {
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            minZ = Math.min(minZ, z[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+            maxZ = Math.max(maxZ, z[i]);
+        }
+        return count == 0 ? Bounds.box(0, 0, 0, 0, 0, 0) : Bounds.box(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+}
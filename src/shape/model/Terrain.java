@@ -0,0 +1,90 @@
+package shape.model;
+
+import shape.global.Bounds;
+import shape.global.Drawable;
+import shape.global.ShaderProgram;
+
+/**
+ * Grid drawn as quadtree chunks of one shared patch, each placed by the "chunk" uniform
+ * (offset xy, size z) of the grid shaders and stitched to coarser neighbours by choosing one of
+ * the patch's index variants. Which chunks are drawn comes from a {@link TerrainLod} selection.
+ */
+public class Terrain implements GpuResource, Drawable {
+    private static final GridGenerator GENERATOR = new GridGenerator();
+
+    private final NativeBuffers buffers;
+    private final int[] variantStart = new int[GridGenerator.PATCH_VARIANTS + 1];
+    private final int boxesPerSide;
+    private final int topology;
+    private float[] chunks = new float[0];
+    private int count;
+
+    public Terrain(int boxesPerSide) {
+        this.boxesPerSide = boxesPerSide;
+        MeshData data = GENERATOR.patch(boxesPerSide, variantStart);
+        topology = data.getTopology();
+        buffers = new NativeBuffers(data);
+        data.free();
+    }
+
+    /**
+     * Chunks to draw from now on, as written by {@link TerrainLod}. The array is read, not copied.
+     */
+    public void setChunks(float[] chunks, int count) {
+        this.chunks = chunks;
+        this.count = count;
+    }
+
+    @Override
+    public void draw(ShaderProgram program, int topology) {
+        for (int i = 0, o = 0; i < count; i++, o += TerrainLod.FLOATS_PER_CHUNK) {
+            int mask = (int) chunks[o + 3];
+            program.setVec3("chunk", chunks[o], chunks[o + 1], chunks[o + 2]);
+            buffers.draw(topology, program.getId(), variantStart[mask], variantStart[mask + 1] - variantStart[mask]);
+        }
+    }
+
+    public int getBoxesPerSide() {
+        return boxesPerSide;
+    }
+
+    /**
+     * Vertices of a full resolution grid selected down to depth.
+     */
+    public long effectiveVertices(int depth) {
+        long side = ((long) boxesPerSide << depth) + 1;
+        return side * side;
+    }
+
+    public int patchVertices() {
+        return (boxesPerSide + 1) * (boxesPerSide + 1);
+    }
+
+    @Override
+    public int getMeshId() {
+        return buffers.getMeshId();
+    }
+
+    /**
+     * The whole [0;1] square, chunks are culled during selection.
+     */
+    @Override
+    public Bounds getBounds() {
+        return buffers.getBounds();
+    }
+
+    @Override
+    public int getTopology() {
+        return topology;
+    }
+
+    @Override
+    public long bytes() {
+        return buffers.bytes();
+    }
+
+    @Override
+    public void delete() {
+        buffers.delete();
+    }
+}
@@ -0,0 +1,148 @@
+package shape.model;
+
+import shape.global.Frustum;
+
+import java.util.Arrays;
+
+/**
+ * Quadtree level-of-detail selection over the [0;1]x[0;1] grid, run on the update thread.
+ * A node is split while the camera is closer to its box than splitFactor times its size, so the
+ * resolution halves with every doubling of distance and the number of chunks stays bounded however
+ * deep the tree is. With a split factor of at least 2 neighbouring chunks differ by one level at
+ * most, which is all the stitching variants of {@link GridGenerator#patch} can close.
+ * Selected chunks are written as (x, y, size, stitch mask) quadruples, see {@link Terrain}.
+ */
+public class TerrainLod {
+    public static final int FLOATS_PER_CHUNK = 4;
+
+    private final int maxDepth;
+    private final double splitFactor;
+    private float[] chunks = new float[64 * FLOATS_PER_CHUNK];
+    private int count;
+    private int deepest;
+    // camera and height range of the current selection
+    private double cx, cy, cz;
+    private double zMin, zMax;
+    private Frustum frustum;
+
+    public TerrainLod(int maxDepth, double splitFactor) {
+        if (maxDepth < 0 || maxDepth > 20) {
+            throw new IllegalArgumentException("Depth must be within [0;20]");
+        }
+        if (splitFactor < 2) {
+            throw new IllegalArgumentException("Split factor below 2 does not keep neighbours within one level");
+        }
+        this.maxDepth = maxDepth;
+        this.splitFactor = splitFactor;
+    }
+
+    /**
+     * Selects the chunks for a camera at (x, y, z). The grid is displaced within [zMin;zMax];
+     * a non-null frustum drops chunks outside of it, which only holds for shaders that keep x and y.
+     * Returns the number of chunks, see {@link #getChunks()}.
+     */
+    public int select(double x, double y, double z, double zMin, double zMax, Frustum frustum) {
+        cx = x;
+        cy = y;
+        cz = z;
+        this.zMin = zMin;
+        this.zMax = zMax;
+        this.frustum = frustum;
+        count = 0;
+        deepest = 0;
+        select(0, 0, 1, 0);
+        this.frustum = null;
+        return count;
+    }
+
+    private void select(double x, double y, double size, int depth) {
+        if (frustum != null && !frustum.isBoxVisible((float) x, (float) y, (float) zMin,
+                (float) (x + size), (float) (y + size), (float) zMax)) {
+            return;
+        }
+        if (split(x, y, size, depth)) {
+            double half = size / 2;
+            select(x, y, half, depth + 1);
+            select(x + half, y, half, depth + 1);
+            select(x, y + half, half, depth + 1);
+            select(x + half, y + half, half, depth + 1);
+            return;
+        }
+        // an edge is stitched when the chunk across it is coarser, sampled a quarter size past the edge
+        double quarter = size / 4, mid = size / 2;
+        int mask = 0;
+        if (x > 0 && depthAt(x - quarter, y + mid) < depth) {
+            mask |= 1;
+        }
+        if (x + size < 1 && depthAt(x + size + quarter, y + mid) < depth) {
+            mask |= 2;
+        }
+        if (y > 0 && depthAt(x + mid, y - quarter) < depth) {
+            mask |= 4;
+        }
+        if (y + size < 1 && depthAt(x + mid, y + size + quarter) < depth) {
+            mask |= 8;
+        }
+        if ((count + 1) * FLOATS_PER_CHUNK > chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        }
+        int o = count++ * FLOATS_PER_CHUNK;
+        chunks[o] = (float) x;
+        chunks[o + 1] = (float) y;
+        chunks[o + 2] = (float) size;
+        chunks[o + 3] = mask;
+        deepest = Math.max(deepest, depth);
+    }
+
+    private boolean split(double x, double y, double size, int depth) {
+        if (depth >= maxDepth) {
+            return false;
+        }
+        double dx = Math.max(Math.max(x - cx, cx - x - size), 0);
+        double dy = Math.max(Math.max(y - cy, cy - y - size), 0);
+        double dz = Math.max(Math.max(zMin - cz, cz - zMax), 0);
+        double limit = splitFactor * size;
+        return dx * dx + dy * dy + dz * dz < limit * limit;
+    }
+
+    /**
+     * Depth of the chunk covering a point, culling aside.
+     */
+    private int depthAt(double px, double py) {
+        double x = 0, y = 0, size = 1;
+        int depth = 0;
+        while (split(x, y, size, depth)) {
+            size /= 2;
+            if (px >= x + size) {
+                x += size;
+            }
+            if (py >= y + size) {
+                y += size;
+            }
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * Chunks of the last selection, FLOATS_PER_CHUNK each.
+     */
+    public float[] getChunks() {
+        return chunks;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Deepest level selected last time.
+     */
+    public int getDeepest() {
+        return deepest;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+}
@@ -0,0 +1,147 @@
+package shape.model;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import static shape.model.SurfaceFunction.*;
+
+/**
+ * {@link SurfaceKernel} on jdk.incubator.vector lanes of the preferred width. Along a row only u
+ * changes, so every term of v is worked out once per row; Torus and Cylinder then need lane-wise
+ * trigonometry of u only (Cylinder none at all, its normal is constant along a row). The tail of a
+ * row shorter than one vector goes to the scalar kernel. Only loaded by {@link SurfaceEvaluator}
+ * when the module is present, which takes --add-modules jdk.incubator.vector.
+ */
+class VectorSurfaceKernel implements SurfaceKernel {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final float[] IOTA = new float[SPECIES.length()];
+
+    static {
+        for (int i = 0; i < IOTA.length; i++) {
+            IOTA[i] = i;
+        }
+    }
+
+    private final ScalarSurfaceKernel tail = new ScalarSurfaceKernel();
+
+    @Override
+    public void row(SurfaceFunction function, float u0, float step, float v, float time,
+                    SurfaceSamples out, int offset, int count) {
+        int bound = SPECIES.loopBound(count);
+        FloatVector iota = FloatVector.fromArray(SPECIES, IOTA, 0);
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            FloatVector u = iota.add(i).mul(step).add(u0);
+            switch (function) {
+                case Flat -> flat(u, v, out, offset + i);
+                case Sea -> sea(u, v, time, out, offset + i);
+                case Torus -> torus(u, v, out, offset + i);
+                case Cylinder -> cylinder(u, v, out, offset + i);
+                case Cartesian -> cartesian(u, v, out, offset + i);
+                case Normal -> ripple(u, v, out, offset + i);
+            }
+        }
+        if (bound < count) {
+            tail.row(function, u0 + bound * step, step, v, time, out, offset + bound, count - bound);
+        }
+    }
+
+    private static void flat(FloatVector u, float v, SurfaceSamples out, int o) {
+        u.intoArray(out.getX(), o);
+        FloatVector.broadcast(SPECIES, v).intoArray(out.getY(), o);
+        FloatVector.zero(SPECIES).intoArray(out.getZ(), o);
+        if (out.hasNormals()) {
+            FloatVector.zero(SPECIES).intoArray(out.getNormalX(), o);
+            FloatVector.zero(SPECIES).intoArray(out.getNormalY(), o);
+            FloatVector.broadcast(SPECIES, 1f).intoArray(out.getNormalZ(), o);
+        }
+    }
+
+    private static void sea(FloatVector u, float v, float time, SurfaceSamples out, int o) {
+        FloatVector phase = u.add(v).mul((float) SEA_K).sub((float) (SEA_SPEED * time));
+        u.intoArray(out.getX(), o);
+        FloatVector.broadcast(SPECIES, v).intoArray(out.getY(), o);
+        phase.lanewise(VectorOperators.SIN).mul((float) SEA_AMPLITUDE).intoArray(out.getZ(), o);
+        if (out.hasNormals()) {
+            FloatVector slope = phase.lanewise(VectorOperators.COS).mul((float) (SEA_AMPLITUDE * SEA_K));
+            heightNormal(slope, slope, out, o);
+        }
+    }
+
+    private static void ripple(FloatVector u, float v, SurfaceSamples out, int o) {
+        FloatVector phase = u.mul((float) RIPPLE_KU).add((float) (RIPPLE_KV * v));
+        u.intoArray(out.getX(), o);
+        FloatVector.broadcast(SPECIES, v).intoArray(out.getY(), o);
+        phase.lanewise(VectorOperators.SIN).mul((float) RIPPLE_AMPLITUDE).intoArray(out.getZ(), o);
+        if (out.hasNormals()) {
+            FloatVector cos = phase.lanewise(VectorOperators.COS);
+            heightNormal(cos.mul((float) (RIPPLE_AMPLITUDE * RIPPLE_KU)), cos.mul((float) (RIPPLE_AMPLITUDE * RIPPLE_KV)), out, o);
+        }
+    }
+
+    private static void cartesian(FloatVector u, float v, SurfaceSamples out, int o) {
+        FloatVector px = u.sub(0.5f).mul(2f);
+        float py = 2f * (v - 0.5f);
+        FloatVector distance = px.mul(px).add(py * py).lanewise(VectorOperators.SQRT);
+        FloatVector angle = distance.mul((float) CARTESIAN_K);
+        u.intoArray(out.getX(), o);
+        FloatVector.broadcast(SPECIES, v).intoArray(out.getY(), o);
+        angle.lanewise(VectorOperators.COS).intoArray(out.getZ(), o);
+        if (out.hasNormals()) {
+            VectorMask<Float> centre = distance.compare(VectorOperators.EQ, 0f);
+            FloatVector radial = angle.lanewise(VectorOperators.SIN).div(distance)
+                    .blend((float) CARTESIAN_K, centre);
+            FloatVector scale = radial.mul((float) (-2 * CARTESIAN_K));
+            heightNormal(scale.mul(px), scale.mul(py), out, o);
+        }
+    }
+
+    private static void torus(FloatVector u, float v, SurfaceSamples out, int o) {
+        FloatVector a = u.mul((float) TWO_PI);
+        double b = TWO_PI * v;
+        float cosB = (float) Math.cos(b), sinB = (float) Math.sin(b);
+        float ring = (float) (TORUS_MAJOR + TORUS_MINOR * Math.cos(b));
+        FloatVector cosA = a.lanewise(VectorOperators.COS);
+        FloatVector sinA = a.lanewise(VectorOperators.SIN);
+        cosA.mul(ring).intoArray(out.getX(), o);
+        sinA.mul(ring).intoArray(out.getY(), o);
+        FloatVector.broadcast(SPECIES, (float) (TORUS_MINOR * sinB)).intoArray(out.getZ(), o);
+        if (out.hasNormals()) {
+            // d/du x d/dv of the torus is already unit length after dividing out the radii
+            cosA.mul(cosB).intoArray(out.getNormalX(), o);
+            sinA.mul(cosB).intoArray(out.getNormalY(), o);
+            FloatVector.broadcast(SPECIES, sinB).intoArray(out.getNormalZ(), o);
+        }
+    }
+
+    private static void cylinder(FloatVector u, float v, SurfaceSamples out, int o) {
+        FloatVector r = u.mul((float) TWO_PI);
+        double s = TWO_PI * v;
+        float cosS = (float) Math.cos(s), sinS = (float) Math.sin(s);
+        FloatVector scaled = r.mul((float) CYLINDER_SCALE);
+        scaled.mul(cosS).intoArray(out.getX(), o);
+        scaled.mul(sinS).intoArray(out.getY(), o);
+        scaled.mul((float) s).intoArray(out.getZ(), o);
+        if (out.hasNormals()) {
+            // the normal only depends on s, except where r = 0 and the surface degenerates
+            float nx = (float) (sinS - s * cosS), ny = (float) (-s * sinS - cosS);
+            float length = (float) Math.sqrt(nx * nx + ny * ny + 1);
+            VectorMask<Float> axis = r.compare(VectorOperators.EQ, 0f);
+            FloatVector.broadcast(SPECIES, nx / length).blend(0f, axis).intoArray(out.getNormalX(), o);
+            FloatVector.broadcast(SPECIES, ny / length).blend(0f, axis).intoArray(out.getNormalY(), o);
+            FloatVector.broadcast(SPECIES, 1 / length).blend(1f, axis).intoArray(out.getNormalZ(), o);
+        }
+    }
+
+    /**
+     * Unit normal (-dz/du, -dz/dv, 1) of a height field z(u, v).
+     */
+    private static void heightNormal(FloatVector dzdu, FloatVector dzdv, SurfaceSamples out, int o) {
+        FloatVector inverse = FloatVector.broadcast(SPECIES, 1f)
+                .div(dzdu.mul(dzdu).add(dzdv.mul(dzdv)).add(1f).lanewise(VectorOperators.SQRT));
+        dzdu.neg().mul(inverse).intoArray(out.getNormalX(), o);
+        dzdv.neg().mul(inverse).intoArray(out.getNormalY(), o);
+        inverse.intoArray(out.getNormalZ(), o);
+    }
+}
@@ -0,0 +1,24 @@
+package shape.utils;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Heap bytes allocated by the calling thread between two {@link #sample()} calls.
+ */
+public class AllocationCounter {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private long last;
+
+    public AllocationCounter() {
+        last = THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    public long sample() {
+        long now = THREADS.getCurrentThreadAllocatedBytes();
+        long delta = now - last;
+        last = now;
+        return delta;
+    }
+}
@@ -0,0 +1,36 @@
+package shape.utils;
+
+/**
+ * Ring buffer of the last {@code capacity} double samples with O(1) statistics.
+ */
+public class DoubleRingBuffer extends RingBuffer {
+    private final double[] values;
+
+    public DoubleRingBuffer(int capacity) {
+        this(capacity, null);
+    }
+
+    public DoubleRingBuffer(int capacity, Histogram histogram) {
+        super(capacity, histogram);
+        values = new double[capacity];
+    }
+
+    public void add(double value) {
+        int slot = nextSlot();
+        double evicted = values[slot];
+        values[slot] = value;
+        pushed(value, evicted);
+    }
+
+    /**
+     * The i-th oldest sample in the window.
+     */
+    public double get(int index) {
+        return values[slot(index)];
+    }
+
+    @Override
+    protected double valueAt(int slot) {
+        return values[slot];
+    }
+}
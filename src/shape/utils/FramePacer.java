@@ -0,0 +1,141 @@
+package shape.utils;
+
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Frame pacing on System.nanoTime. Without a target it only measures.
+ * With a target, it parks until shortly before the deadline and spins the rest,
+ * which holds the frame period far tighter than Thread.sleep. Deadlines advance by
+ * whole periods, so a late frame is made up by the following ones instead of
+ * shifting the schedule. Frames that fall too far behind resync to now.
+ */
+public class FramePacer {
+    private static final int WINDOW = 240;
+    // 0.05 ms bins up to 50 ms
+    private static final double HISTOGRAM_MAX = 50e6;
+    private static final int HISTOGRAM_BINS = 1000;
+    private static final int MAX_LAG_FRAMES = 3;
+    private static final long MIN_SPIN = 200_000;
+    private static final long MAX_SPIN = 2_000_000;
+
+    private boolean limit;
+    private long period;
+    private long deadline;
+    private long last;
+    private long delta = 1;
+    private long missed;
+    private long frames;
+    // park overshoot estimate, the spin phase covers twice of it
+    private long parkSlack = MIN_SPIN;
+
+    private final LongRingBuffer frameTimes = new LongRingBuffer(WINDOW, new Histogram(0, HISTOGRAM_MAX, HISTOGRAM_BINS));
+
+    public FramePacer(int fps) {
+        setFps(fps);
+        limit = true;
+        last = System.nanoTime();
+        deadline = last + period;
+    }
+
+    public FramePacer() {
+        limit = false;
+        last = System.nanoTime();
+    }
+
+    /**
+     * Called once at the end of each frame.
+     */
+    public void pace() {
+        long now = System.nanoTime();
+        if (limit) {
+            if (now > deadline) {
+                missed++;
+                if (now - deadline > period * MAX_LAG_FRAMES) {
+                    deadline = now;
+                }
+            } else {
+                waitUntil(deadline);
+                now = System.nanoTime();
+            }
+            deadline += period;
+        }
+        delta = Math.max(1, now - last);
+        last = now;
+        frameTimes.add(delta);
+        frames++;
+    }
+
+    private void waitUntil(long target) {
+        long spin = Math.min(MAX_SPIN, Math.max(MIN_SPIN, 2 * parkSlack));
+        long remaining = target - System.nanoTime();
+        while (remaining > spin) {
+            long park = remaining - spin;
+            long start = System.nanoTime();
+            LockSupport.parkNanos(park);
+            long overshoot = System.nanoTime() - start - park;
+            parkSlack += (Math.max(0, overshoot) - parkSlack) / 8;
+            remaining = target - System.nanoTime();
+        }
+        while (target - System.nanoTime() > 0) {
+            Thread.onSpinWait();
+        }
+    }
+
+    public void setFps(int fps) {
+        if (fps <= 0) {
+            throw new IllegalArgumentException("FPS limit must be greater than 0");
+        }
+        period = Math.round(1_000_000_000.0 / fps);
+        deadline = System.nanoTime() + period;
+    }
+
+    public void useLimit(boolean enabled) {
+        if (enabled && period == 0) {
+            throw new IllegalStateException("No FPS limit set");
+        }
+        if (enabled && !limit) {
+            deadline = System.nanoTime() + period;
+        }
+        limit = enabled;
+    }
+
+    /**
+     * Last frame time in nanoseconds.
+     */
+    public long getDelta() {
+        return delta;
+    }
+
+    public int getCurrentFps() {
+        return frameTimes.isEmpty() ? 0 : (int) Math.round(1e9 * frameTimes.size() / frameTimes.getSum());
+    }
+
+    /**
+     * Frame time percentile in milliseconds over the last {@value #WINDOW} frames, within 0.05 ms.
+     */
+    public double getPercentile(double p) {
+        return frameTimes.getPercentile(p) / 1e6;
+    }
+
+    /**
+     * Frame time statistics in nanoseconds over the last {@value #WINDOW} frames.
+     */
+    public LongRingBuffer getFrameTimes() {
+        return frameTimes;
+    }
+
+    public long getMissed() {
+        return missed;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    public String report() {
+        return String.format(Locale.ROOT, "%d frames, %d FPS, p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, max %.2f ms, stddev %.3f ms, %d missed deadlines",
+                frames, getCurrentFps(), getPercentile(0.5), getPercentile(0.95), getPercentile(0.99),
+                frameTimes.getMax() / 1e6, frameTimes.getStandardDeviation() / 1e6, missed);
+    }
+}
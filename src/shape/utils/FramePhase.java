@@ -0,0 +1,5 @@
+package shape.utils;
+
+public enum FramePhase {
+    Upload, Clear, Grid, Obj, Axis, Text, Swap, Poll
+}
@@ -0,0 +1,293 @@
+package shape.utils;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Per-phase frame timing. The render thread brackets each phase with begin/end and calls
+ * endFrame once per frame; phase times are summed within a frame, kept in ring buffers
+ * with histograms and optionally streamed to a rolling CSV (-Dshape.profileCsv=file).
+ * Other threads, JMX included, only read a summary republished every {@value #SNAPSHOT_FRAMES} frames.
+ * Registered as shape:type=FrameProfiler, disabled with -Dshape.profile=false.
+ */
+public class FrameProfiler implements FrameProfilerMXBean {
+    private static final FramePhase[] PHASES = FramePhase.values();
+    private static final int WINDOW = 600;
+    private static final int SNAPSHOT_FRAMES = 120;
+    private static final long CSV_MAX_BYTES = 16L << 20;
+    private static final int CSV_KEEP = 3;
+    // 0.01 ms bins up to 20 ms for phases, 0.05 ms up to 100 ms for whole frames
+    private static final double PHASE_MAX = 20e6;
+    private static final double FRAME_MAX = 100e6;
+    private static final int BINS = 2000;
+
+    private static final FrameProfiler INSTANCE = new FrameProfiler();
+
+    private final long[] started = new long[PHASES.length];
+    private final long[] current = new long[PHASES.length];
+    private final int[] timed = new int[PHASES.length];
+    private final LongRingBuffer[] phaseTimes = new LongRingBuffer[PHASES.length];
+    private final LongRingBuffer frameTimes = new LongRingBuffer(WINDOW, new Histogram(0, FRAME_MAX, BINS));
+    private final long[] row = new long[PHASES.length + 2];
+    private final long timerCost;
+    private int timersPerFrame;
+    // smoothed cost of endFrame itself in ns
+    private double bookkeeping;
+    private long frames;
+    private long lastFrame;
+
+    private volatile boolean enabled = !"false".equals(System.getProperty("shape.profile"));
+    private volatile boolean resetRequested;
+    private volatile RollingCsvWriter csv;
+    private volatile Snapshot snapshot = new Snapshot(0, new double[5][PHASES.length], 0, 0, 0);
+
+    private FrameProfiler() {
+        for (int i = 0; i < PHASES.length; i++) {
+            phaseTimes[i] = new LongRingBuffer(WINDOW, new Histogram(0, PHASE_MAX, BINS));
+        }
+        timerCost = measureTimerCost();
+        String file = System.getProperty("shape.profileCsv");
+        if (file != null) {
+            startCsv(file);
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("shape:type=FrameProfiler"));
+        } catch (Exception e) {
+            System.err.println("Frame profiler not registered with JMX: " + e);
+        }
+    }
+
+    public static FrameProfiler get() {
+        return INSTANCE;
+    }
+
+    private static long measureTimerCost() {
+        int calls = 10_000;
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            sink += System.nanoTime();
+        }
+        long cost = (System.nanoTime() - start) / calls;
+        return sink == 0 ? cost + 1 : cost;
+    }
+
+    public void begin(FramePhase phase) {
+        if (enabled) {
+            started[phase.ordinal()] = System.nanoTime();
+        }
+    }
+
+    public void end(FramePhase phase) {
+        if (enabled) {
+            int i = phase.ordinal();
+            current[i] += System.nanoTime() - started[i];
+            timed[i]++;
+        }
+    }
+
+    /**
+     * Closes the frame: records the phase sums and the time since the previous call.
+     */
+    public void endFrame() {
+        long now = System.nanoTime();
+        if (resetRequested) {
+            resetRequested = false;
+            clear();
+        }
+        if (!enabled) {
+            lastFrame = 0;
+            return;
+        }
+        if (lastFrame != 0) {
+            long frameTime = now - lastFrame;
+            frameTimes.add(frameTime);
+            int timers = 0;
+            for (int i = 0; i < PHASES.length; i++) {
+                phaseTimes[i].add(current[i]);
+                row[i + 2] = current[i];
+                timers += timed[i];
+            }
+            timersPerFrame = timers;
+            frames++;
+            row[0] = frames;
+            row[1] = frameTime;
+            writeCsv();
+            if (frames % SNAPSHOT_FRAMES == 0) {
+                publish();
+            }
+            bookkeeping += (System.nanoTime() - now - bookkeeping) / 64;
+        }
+        for (int i = 0; i < PHASES.length; i++) {
+            current[i] = 0;
+            timed[i] = 0;
+        }
+        lastFrame = now;
+    }
+
+    private void writeCsv() {
+        RollingCsvWriter writer = csv;
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.row(row, row.length);
+        } catch (IOException e) {
+            System.err.println("Frame profiler CSV stopped: " + e);
+            stopCsv();
+        }
+    }
+
+    private void clear() {
+        for (LongRingBuffer times : phaseTimes) {
+            times.clear();
+        }
+        frameTimes.clear();
+        frames = 0;
+        publish();
+    }
+
+    private void publish() {
+        double[][] stats = new double[5][PHASES.length];
+        for (int i = 0; i < PHASES.length; i++) {
+            LongRingBuffer times = phaseTimes[i];
+            if (times.isEmpty()) {
+                continue;
+            }
+            stats[0][i] = times.getMean() / 1e6;
+            stats[1][i] = times.getPercentile(0.5) / 1e6;
+            stats[2][i] = times.getPercentile(0.95) / 1e6;
+            stats[3][i] = times.getPercentile(0.99) / 1e6;
+            stats[4][i] = times.getMax() / 1e6;
+        }
+        boolean empty = frameTimes.isEmpty();
+        double frameMean = empty ? 0 : frameTimes.getMean() / 1e6;
+        double frameP99 = empty ? 0 : frameTimes.getPercentile(0.99) / 1e6;
+        // two nanoTime calls per timer plus recording the frame
+        double overhead = frameMean == 0 ? 0 : 100.0 * (timerCost * 2 * timersPerFrame + bookkeeping) / 1e6 / frameMean;
+        snapshot = new Snapshot(frames, stats, frameMean, frameP99, overhead);
+    }
+
+    private Map<String, Double> byPhase(int stat) {
+        double[] values = snapshot.stats[stat];
+        Map<String, Double> map = new LinkedHashMap<>();
+        for (int i = 0; i < PHASES.length; i++) {
+            map.put(PHASES[i].toString(), values[i]);
+        }
+        return map;
+    }
+
+    @Override
+    public long getFrames() {
+        return snapshot.frames;
+    }
+
+    @Override
+    public double getFrameMeanMillis() {
+        return snapshot.frameMean;
+    }
+
+    @Override
+    public double getFrameP99Millis() {
+        return snapshot.frameP99;
+    }
+
+    @Override
+    public Map<String, Double> getMeanMillis() {
+        return byPhase(0);
+    }
+
+    @Override
+    public Map<String, Double> getP50Millis() {
+        return byPhase(1);
+    }
+
+    @Override
+    public Map<String, Double> getP95Millis() {
+        return byPhase(2);
+    }
+
+    @Override
+    public Map<String, Double> getP99Millis() {
+        return byPhase(3);
+    }
+
+    @Override
+    public Map<String, Double> getMaxMillis() {
+        return byPhase(4);
+    }
+
+    @Override
+    public double getOverheadPercent() {
+        return snapshot.overhead;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public String getCsvFile() {
+        RollingCsvWriter writer = csv;
+        return writer == null ? "" : writer.getPath().toAbsolutePath().toString();
+    }
+
+    @Override
+    public synchronized void startCsv(String file) {
+        stopCsv();
+        StringBuilder header = new StringBuilder("frame,frame_ns");
+        for (FramePhase phase : PHASES) {
+            header.append(',').append(phase.toString().toLowerCase(Locale.ROOT)).append("_ns");
+        }
+        try {
+            csv = new RollingCsvWriter(Path.of(file), header.toString(), CSV_MAX_BYTES, CSV_KEEP);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot open frame profile " + file, e);
+        }
+    }
+
+    @Override
+    public synchronized void stopCsv() {
+        RollingCsvWriter writer = csv;
+        csv = null;
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        resetRequested = true;
+    }
+
+    public String report() {
+        publish();
+        Snapshot s = snapshot;
+        StringBuilder sb = new StringBuilder(String.format(Locale.ROOT,
+                "%d frames, frame mean %.3f ms, p99 %.3f ms, profiler overhead %.3f %%",
+                s.frames, s.frameMean, s.frameP99, s.overhead));
+        for (int i = 0; i < PHASES.length; i++) {
+            sb.append(String.format(Locale.ROOT, "%n  %-6s mean %.3f  p50 %.3f  p95 %.3f  p99 %.3f  max %.3f ms",
+                    PHASES[i], s.stats[0][i], s.stats[1][i], s.stats[2][i], s.stats[3][i], s.stats[4][i]));
+        }
+        return sb.toString();
+    }
+
+    private record Snapshot(long frames, double[][] stats, double frameMean, double frameP99, double overhead) {
+    }
+}
@@ -0,0 +1,41 @@
+package shape.utils;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link FrameProfiler}, times in milliseconds over the profiler window.
+ */
+public interface FrameProfilerMXBean {
+    long getFrames();
+
+    double getFrameMeanMillis();
+
+    double getFrameP99Millis();
+
+    Map<String, Double> getMeanMillis();
+
+    Map<String, Double> getP50Millis();
+
+    Map<String, Double> getP95Millis();
+
+    Map<String, Double> getP99Millis();
+
+    Map<String, Double> getMaxMillis();
+
+    /**
+     * Estimated cost of the timers themselves as a share of the mean frame time.
+     */
+    double getOverheadPercent();
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    String getCsvFile();
+
+    void startCsv(String file);
+
+    void stopCsv();
+
+    void reset();
+}
@@ -0,0 +1,13 @@
+package shape.utils;
+
+import java.util.Arrays;
+
+public enum GridType {
+    List, Strip, Rows, Terrain;
+
+    public GridType next() {
+        GridType[] array = GridType.values();
+        int i = Arrays.asList(array).indexOf(this);
+        return array[(i + 1) % array.length];
+    }
+}
@@ -0,0 +1,85 @@
+package shape.utils;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size linear histogram for approximate percentiles. Values outside the range
+ * are counted in the first or last bin. Adding and removing a sample is O(1) and
+ * allocation-free, a percentile query walks the bins.
+ */
+public class Histogram {
+    private final double min;
+    private final double max;
+    private final double binWidth;
+    private final int[] bins;
+    private long count;
+
+    public Histogram(double min, double max, int binCount) {
+        if (!(max > min)) {
+            throw new IllegalArgumentException("Histogram max must be greater than min");
+        }
+        if (binCount <= 0) {
+            throw new IllegalArgumentException("Bin count must be greater than zero.");
+        }
+        this.min = min;
+        this.max = max;
+        this.binWidth = (max - min) / binCount;
+        this.bins = new int[binCount];
+    }
+
+    private int bin(double value) {
+        if (!(value > min)) {
+            return 0;
+        }
+        return (int) Math.min(bins.length - 1, (value - min) / binWidth);
+    }
+
+    public void add(double value) {
+        bins[bin(value)]++;
+        count++;
+    }
+
+    public void remove(double value) {
+        int bin = bin(value);
+        if (bins[bin] == 0) {
+            throw new IllegalStateException("Removing a value that was not added: " + value);
+        }
+        bins[bin]--;
+        count--;
+    }
+
+    /**
+     * Value below which the fraction p of the samples lies, interpolated inside the bin,
+     * so the error is at most one bin width for values inside the range.
+     */
+    public double getPercentile(double p) {
+        if (p < 0 || p > 1) {
+            throw new IllegalArgumentException("Percentile must be in [0, 1]");
+        }
+        if (count == 0) {
+            return 0.0;
+        }
+        double rank = p * count;
+        long seen = 0;
+        for (int i = 0; i < bins.length; i++) {
+            if (bins[i] > 0 && seen + bins[i] >= rank) {
+                return min + binWidth * (i + (rank - seen) / bins[i]);
+            }
+            seen += bins[i];
+        }
+        return max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getBinWidth() {
+        return binWidth;
+    }
+
+    public void clear() {
+        Arrays.fill(bins, 0);
+        count = 0;
+    }
+}
@@ -0,0 +1,49 @@
+package shape.utils;
+
+/**
+ * Ring buffer of the last {@code capacity} long samples, e.g. nanosecond timings,
+ * with O(1) statistics and an exact sum.
+ */
+public class LongRingBuffer extends RingBuffer {
+    private final long[] values;
+    private long sum;
+
+    public LongRingBuffer(int capacity) {
+        this(capacity, null);
+    }
+
+    public LongRingBuffer(int capacity, Histogram histogram) {
+        super(capacity, histogram);
+        values = new long[capacity];
+    }
+
+    public void add(long value) {
+        int slot = nextSlot();
+        long evicted = isFull() ? values[slot] : 0;
+        values[slot] = value;
+        sum += value - evicted;
+        pushed(value, evicted);
+    }
+
+    /**
+     * The i-th oldest sample in the window.
+     */
+    public long get(int index) {
+        return values[slot(index)];
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    @Override
+    protected double valueAt(int slot) {
+        return values[slot];
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        sum = 0;
+    }
+}
@@ -0,0 +1,104 @@
+package shape.utils;
+
+import transforms.Mat4;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Mutable single precision 4x4 matrix for per-frame math without garbage.
+ * Same layout and row-vector convention as transforms.Mat4 (translation in the last row),
+ * so the elements go to glUniformMatrix4fv untransposed, exactly like ToFloatArray.convert.
+ */
+public class Mat4f {
+    private final float[] m = new float[16];
+    private final float[] tmp = new float[16];
+
+    public Mat4f() {
+        identity();
+    }
+
+    public Mat4f identity() {
+        for (int i = 0; i < 16; i++) {
+            m[i] = (i % 5 == 0) ? 1F : 0F;
+        }
+        return this;
+    }
+
+    public Mat4f set(Mat4 mat) {
+        for (int r = 0; r < 4; r++) {
+            for (int c = 0; c < 4; c++) {
+                m[r * 4 + c] = (float) mat.get(r, c);
+            }
+        }
+        return this;
+    }
+
+    public Mat4f set(Mat4f mat) {
+        System.arraycopy(mat.m, 0, m, 0, 16);
+        return this;
+    }
+
+    public Mat4f scaling(double s) {
+        identity();
+        m[0] = m[5] = m[10] = (float) s;
+        return this;
+    }
+
+    public Mat4f translation(double x, double y, double z) {
+        identity();
+        m[12] = (float) x;
+        m[13] = (float) y;
+        m[14] = (float) z;
+        return this;
+    }
+
+    /**
+     * this = this * translation(x, y, z)
+     */
+    public Mat4f translate(double x, double y, double z) {
+        for (int r = 0; r < 4; r++) {
+            float w = m[r * 4 + 3];
+            m[r * 4] += w * (float) x;
+            m[r * 4 + 1] += w * (float) y;
+            m[r * 4 + 2] += w * (float) z;
+        }
+        return this;
+    }
+
+    /**
+     * this = this * other
+     */
+    public Mat4f mul(Mat4f other) {
+        float[] o = other.m;
+        for (int r = 0; r < 4; r++) {
+            for (int c = 0; c < 4; c++) {
+                tmp[r * 4 + c] = m[r * 4] * o[c] + m[r * 4 + 1] * o[4 + c]
+                        + m[r * 4 + 2] * o[8 + c] + m[r * 4 + 3] * o[12 + c];
+            }
+        }
+        System.arraycopy(tmp, 0, m, 0, 16);
+        return this;
+    }
+
+    public float get(int row, int column) {
+        return m[row * 4 + column];
+    }
+
+    public void copyTo(float[] target) {
+        System.arraycopy(m, 0, target, 0, 16);
+    }
+
+    public boolean equalTo(float[] other) {
+        for (int i = 0; i < 16; i++) {
+            if (m[i] != other[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public FloatBuffer store(FloatBuffer buffer) {
+        buffer.put(0, m);
+        return buffer;
+    }
+}
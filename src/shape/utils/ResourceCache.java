@@ -0,0 +1,151 @@
+package shape.utils;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Reference counted cache of GPU resources with LRU eviction bounded by a byte budget.
+ * Only entries nobody holds are evicted, so resident bytes may exceed the budget while everything is in use.
+ */
+public class ResourceCache<K, V> {
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final IdentityHashMap<V, K> keys = new IdentityHashMap<>();
+    private final ToLongFunction<V> sizer;
+    private final Consumer<V> disposer;
+    private long budget;
+    private long residentBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private static class Entry<V> {
+        final V value;
+        long bytes;
+        int references;
+
+        Entry(V value, long bytes) {
+            this.value = value;
+            this.bytes = bytes;
+        }
+    }
+
+    public ResourceCache(long budget, ToLongFunction<V> sizer, Consumer<V> disposer) {
+        setBudget(budget);
+        this.sizer = sizer;
+        this.disposer = disposer;
+    }
+
+    public V acquire(K key, Supplier<V> loader) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            hits++;
+        } else {
+            misses++;
+            V value = loader.get();
+            entry = new Entry<>(value, sizer.applyAsLong(value));
+            entries.put(key, entry);
+            keys.put(value, key);
+            residentBytes += entry.bytes;
+        }
+        entry.references++;
+        evict();
+        return entry.value;
+    }
+
+    public void release(V value) {
+        K key = keys.get(value);
+        if (key == null) {
+            return;
+        }
+        Entry<V> entry = entries.get(key);
+        if (entry.references > 0) {
+            entry.references--;
+        }
+        evict();
+    }
+
+    /**
+     * Measures value again after its size changed (a texture whose image arrived), evicting if needed.
+     */
+    public void resized(V value) {
+        K key = keys.get(value);
+        if (key == null) {
+            return;
+        }
+        Entry<V> entry = entries.get(key);
+        long bytes = sizer.applyAsLong(value);
+        residentBytes += bytes - entry.bytes;
+        entry.bytes = bytes;
+        evict();
+    }
+
+    public boolean contains(K key) {
+        return entries.containsKey(key);
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+        while (residentBytes > budget && it.hasNext()) {
+            Entry<V> entry = it.next().getValue();
+            if (entry.references == 0) {
+                it.remove();
+                keys.remove(entry.value);
+                residentBytes -= entry.bytes;
+                evictions++;
+                disposer.accept(entry.value);
+            }
+        }
+    }
+
+    public void clear() {
+        for (Entry<V> entry : entries.values()) {
+            disposer.accept(entry.value);
+        }
+        entries.clear();
+        keys.clear();
+        residentBytes = 0;
+    }
+
+    public void setBudget(long budget) {
+        if (budget < 0) {
+            throw new IllegalArgumentException("Budget must not be negative.");
+        }
+        this.budget = budget;
+        evict();
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    public long getResidentBytes() {
+        return residentBytes;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public String report() {
+        return String.format(Locale.ROOT, "%d resident (%.2f / %.2f MB), hits %d, misses %d, evictions %d",
+                entries.size(), residentBytes / 1048576.0, budget / 1048576.0, hits, misses, evictions);
+    }
+}
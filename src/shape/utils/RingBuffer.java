@@ -0,0 +1,187 @@
+package shape.utils;
+
+/**
+ * Statistics over the last {@code capacity} samples of a primitive ring buffer.
+ * Mean and variance are updated with a sliding Welford step and recomputed exactly
+ * once per wrap, so rounding error cannot accumulate. Min and max come from monotonic
+ * deques of sample sequence numbers. Percentiles need a histogram given to the constructor.
+ * Nothing allocates per sample.
+ */
+public abstract class RingBuffer {
+    protected final int capacity;
+    private final Histogram histogram;
+
+    private long added;
+    private int size;
+    private double mean;
+    private double m2;
+
+    private final long[] minQueue;
+    private final long[] maxQueue;
+    private int minHead, minSize;
+    private int maxHead, maxSize;
+
+    protected RingBuffer(int capacity, Histogram histogram) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be greater than zero.");
+        }
+        this.capacity = capacity;
+        this.histogram = histogram;
+        minQueue = new long[capacity];
+        maxQueue = new long[capacity];
+    }
+
+    /**
+     * Sample stored in the given slot as a double.
+     */
+    protected abstract double valueAt(int slot);
+
+    /**
+     * Slot the next sample is written to.
+     */
+    protected int nextSlot() {
+        return (int) (added % capacity);
+    }
+
+    /**
+     * Updates the statistics after the subclass stored {@code value} in {@link #nextSlot()};
+     * {@code evicted} is the sample it overwrote when the buffer was full.
+     */
+    protected void pushed(double value, double evicted) {
+        boolean full = size == capacity;
+        if (full) {
+            double newMean = mean + (value - evicted) / size;
+            m2 += (value - evicted) * (value - newMean + evicted - mean);
+            mean = newMean;
+            if (histogram != null) {
+                histogram.remove(evicted);
+            }
+        } else {
+            size++;
+            double delta = value - mean;
+            mean += delta / size;
+            m2 += delta * (value - mean);
+        }
+        if (histogram != null) {
+            histogram.add(value);
+        }
+
+        long seq = added;
+        long expired = seq - capacity;
+        if (minSize > 0 && minQueue[minHead] == expired) {
+            minHead = (minHead + 1) % capacity;
+            minSize--;
+        }
+        if (maxSize > 0 && maxQueue[maxHead] == expired) {
+            maxHead = (maxHead + 1) % capacity;
+            maxSize--;
+        }
+        while (minSize > 0 && valueOf(minQueue[(minHead + minSize - 1) % capacity]) >= value) {
+            minSize--;
+        }
+        minQueue[(minHead + minSize++) % capacity] = seq;
+        while (maxSize > 0 && valueOf(maxQueue[(maxHead + maxSize - 1) % capacity]) <= value) {
+            maxSize--;
+        }
+        maxQueue[(maxHead + maxSize++) % capacity] = seq;
+
+        added++;
+        if (added % capacity == 0) {
+            resync();
+        }
+    }
+
+    private double valueOf(long seq) {
+        return valueAt((int) (seq % capacity));
+    }
+
+    private void resync() {
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += valueAt(i);
+        }
+        mean = sum / size;
+        double squares = 0;
+        for (int i = 0; i < size; i++) {
+            double d = valueAt(i) - mean;
+            squares += d * d;
+        }
+        m2 = squares;
+    }
+
+    /**
+     * Slot of the i-th oldest sample.
+     */
+    protected int slot(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return (int) ((added - size + index) % capacity);
+    }
+
+    public double getMean() {
+        return size == 0 ? 0.0 : mean;
+    }
+
+    public double getMin() {
+        return minSize == 0 ? 0.0 : valueOf(minQueue[minHead]);
+    }
+
+    public double getMax() {
+        return maxSize == 0 ? 0.0 : valueOf(maxQueue[maxHead]);
+    }
+
+    /**
+     * Sample variance of the window.
+     */
+    public double getVariance() {
+        return size < 2 ? 0.0 : Math.max(0.0, m2 / (size - 1));
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    public double getPercentile(double p) {
+        if (histogram == null) {
+            throw new IllegalStateException("Percentiles need a histogram");
+        }
+        // the histogram only knows bins, the window knows its exact extremes
+        return Math.min(getMax(), Math.max(getMin(), histogram.getPercentile(p)));
+    }
+
+    /**
+     * Number of samples added since creation or the last clear, including evicted ones.
+     */
+    public long getAdded() {
+        return added;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    public void clear() {
+        added = 0;
+        size = 0;
+        mean = 0;
+        m2 = 0;
+        minHead = minSize = 0;
+        maxHead = maxSize = 0;
+        if (histogram != null) {
+            histogram.clear();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package shape.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * CSV of long rows written without allocation. When the file reaches maxBytes it is
+ * renamed to file.1 (older ones shift up to file.keep) and a new one starts with the header.
+ */
+public class RollingCsvWriter implements AutoCloseable {
+    private final Path path;
+    private final String header;
+    private final long maxBytes;
+    private final int keep;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+    private final byte[] digits = new byte[20];
+    private FileChannel channel;
+    private long written;
+
+    public RollingCsvWriter(Path path, String header, long maxBytes, int keep) throws IOException {
+        if (maxBytes <= 0 || keep < 0) {
+            throw new IllegalArgumentException("maxBytes must be positive and keep non-negative");
+        }
+        this.path = path;
+        this.header = header;
+        this.maxBytes = maxBytes;
+        this.keep = keep;
+        open();
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        written = channel.write(ByteBuffer.wrap((header + "\n").getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    public synchronized void row(long[] values, int count) throws IOException {
+        if (channel == null) {
+            return;
+        }
+        if (buffer.remaining() < count * 21) {
+            flush();
+        }
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                buffer.put((byte) ',');
+            }
+            putLong(values[i]);
+        }
+        buffer.put((byte) '\n');
+    }
+
+    private void putLong(long value) {
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int n = 0;
+        do {
+            digits[n++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        while (n > 0) {
+            buffer.put(digits[--n]);
+        }
+    }
+
+    public synchronized void flush() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        if (written >= maxBytes) {
+            roll();
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void roll() throws IOException {
+        channel.close();
+        if (keep == 0) {
+            Files.deleteIfExists(path);
+        } else {
+            Files.deleteIfExists(rolled(keep));
+            for (int i = keep - 1; i >= 1; i--) {
+                if (Files.exists(rolled(i))) {
+                    Files.move(rolled(i), rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(path, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        open();
+    }
+
+    private Path rolled(int index) {
+        return path.resolveSibling(path.getFileName() + "." + index);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        flush();
+        channel.close();
+        channel = null;
+    }
+}
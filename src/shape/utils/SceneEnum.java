@@ -4,7 +4,8 @@ import java.util.Arrays;
 
 public enum SceneEnum {
     Grid,
-    Lights;
+    Lights,
+    Instances;
 
     public SceneEnum next() {
         SceneEnum[] array = SceneEnum.values();
@@ -0,0 +1,71 @@
+package shape.app;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import shape.global.AbstractRenderer;
+import shape.global.DeviceTest;
+import shape.global.ProgramRegistry;
+import shape.global.TextureCache;
+import shape.global.TextureStreamer;
+import shape.model.GeometryCache;
+import shape.utils.AllocationCounter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.lwjgl.glfw.GLFW.GLFW_KEY_R;
+import static org.lwjgl.glfw.GLFW.GLFW_PRESS;
+
+/**
+ * A scene's display() including its update, headless like {@link shape.Headless}. The build runs
+ * updates inline (-Dshape.updateThread=false), so the test thread counts their allocation too.
+ */
+class SceneAllocationTest extends DeviceTest {
+    private static final int SHADERS = 8;
+    private static final int WARM_UP_FRAMES = 5_000;
+    private static final int SETTLE_FRAMES = 10;
+    private static final int FRAMES = 2_000;
+
+    private AbstractRenderer scene;
+
+    @AfterEach
+    void disposeScene() {
+        if (scene != null) {
+            scene.dispose();
+        }
+        GeometryCache.clear();
+        TextureCache.clear();
+        ProgramRegistry.clear();
+    }
+
+    @Test
+    void lightsFrameAllocatesNothing() {
+        scene = new LightsScene(1280, 720, true);
+        scene.init();
+        for (int shader = 0; shader < SHADERS; shader++) {
+            frames(WARM_UP_FRAMES);
+            nextShader();
+        }
+
+        // switching the shader rebuilds the info text, only the frames after it are steady
+        for (int shader = 0; shader < SHADERS; shader++) {
+            frames(SETTLE_FRAMES);
+            AllocationCounter allocation = new AllocationCounter();
+            frames(FRAMES);
+            long allocated = allocation.sample();
+            assertEquals(0, allocated / FRAMES,
+                    "heap bytes per frame of shader " + shader + ", " + allocated + " B in " + FRAMES + " frames");
+            nextShader();
+        }
+    }
+
+    private void frames(int count) {
+        for (int i = 0; i < count; i++) {
+            TextureStreamer.get().upload();
+            scene.display();
+            gl.endFrame();
+        }
+    }
+
+    private void nextShader() {
+        scene.getGlfwKeyCallback().invoke(0, GLFW_KEY_R, 0, GLFW_PRESS, 0);
+    }
+}
@@ -0,0 +1,34 @@
+package shape.global;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+
+/**
+ * Base of the headless tests: every test gets a fresh {@link RecordingRenderDevice} behind the
+ * state cache as {@link Device#gl()}, the device installed before is put back afterwards.
+ */
+public abstract class DeviceTest {
+    protected RecordingRenderDevice device;
+    protected RenderDevice gl;
+    private RenderDevice previous;
+
+    @BeforeEach
+    void installDevice() {
+        previous = Device.gl();
+        device = new RecordingRenderDevice();
+        gl = StateCachingRenderDevice.wrap(device);
+        Device.use(gl);
+    }
+
+    @AfterEach
+    void restoreDevice() {
+        Device.use(previous);
+    }
+
+    /**
+     * A program linked from inline sources, so a test does not depend on the shader directory.
+     */
+    protected ShaderProgram program(String name, String vertex, String fragment) {
+        return new ShaderProgram(name, gl.createProgram(vertex, fragment));
+    }
+}
@@ -0,0 +1,164 @@
+package shape.global;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.lwjgl.opengl.GL41.GL_PROGRAM_BINARY_LENGTH;
+
+class ProgramBinaryCacheTest extends DeviceTest {
+    private static final String VERTEX = """
+            #version 330
+            in vec3 inPosition;
+            uniform mat4 mat;
+            void main() {
+                gl_Position = mat * vec4(inPosition, 1.0);
+            }
+            """;
+    private static final String FRAGMENT = """
+            #version 330
+            out vec4 outColor;
+            void main() {
+                outColor = vec4(1.0);
+            }
+            """;
+    private static final String HASH = ProgramBinaryCache.sourceHash(VERTEX, FRAGMENT);
+
+    @TempDir
+    Path directory;
+    private ProgramBinaryCache cache;
+
+    @BeforeEach
+    void createCache() {
+        cache = new ProgramBinaryCache(directory, "vendor | renderer | 4.6");
+    }
+
+    @Test
+    void binaryOfTheDeviceRoundTrips() {
+        int format = store(cache, HASH);
+
+        ProgramBinaryCache.Binary binary = cache.read(HASH);
+        assertNotNull(binary);
+        assertEquals(format, binary.getFormat());
+        int program = gl.programBinary(binary.getFormat(), binary.getData());
+        binary.free();
+        assertNotEquals(0, program);
+        assertTrue(new ShaderProgram("cached", program).hasUniform("mat"));
+    }
+
+    @Test
+    void otherSourcesMiss() {
+        store(cache, HASH);
+
+        String other = ProgramBinaryCache.sourceHash(VERTEX.replace("1.0", "2.0"), FRAGMENT);
+        assertNotEquals(HASH, other);
+        assertNull(cache.read(other));
+        assertTrue(Files.exists(cache.file(HASH)));
+    }
+
+    @Test
+    void binaryOfAnotherDriverIsStale() throws IOException {
+        ProgramBinaryCache other = new ProgramBinaryCache(directory, "vendor | renderer | 4.5");
+        assertNotEquals(cache.file(HASH), other.file(HASH));
+        store(other, HASH);
+        // as if the two drivers' strings hashed to the same file name
+        Files.copy(other.file(HASH), cache.file(HASH), StandardCopyOption.REPLACE_EXISTING);
+
+        assertNull(cache.read(HASH));
+        assertFalse(Files.exists(cache.file(HASH)));
+        assertTrue(cache.report().startsWith("0 hits, 1 misses (1 stale)"), cache.report());
+    }
+
+    @Test
+    void corruptFilesAreDropped() throws IOException {
+        store(cache, HASH);
+        Path file = cache.file(HASH);
+        byte[] bytes = Files.readAllBytes(file);
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        assertNull(cache.read(HASH));
+        assertFalse(Files.exists(file));
+
+        Files.write(file, new byte[]{1, 2, 3});
+        assertNull(cache.read(HASH));
+        assertFalse(Files.exists(file));
+
+        bytes[0] ^= 0xFF;
+        Files.write(file, bytes);
+        assertNull(cache.read(HASH));
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void rejectedBinaryFallsBackToSource() throws IOException {
+        String vertex = source("/axis.vert");
+        String fragment = source("/axis.frag");
+        String hash = ProgramBinaryCache.sourceHash(vertex, fragment);
+        // the file the registry reads for this device
+        ProgramBinaryCache registryCache = new ProgramBinaryCache(
+                Path.of(System.getProperty("shape.programCacheDir")),
+                "RecordingRenderDevice | RecordingRenderDevice | RecordingRenderDevice");
+        byte[] garbage = {1, 2, 3, 4};
+        assertTrue(registryCache.write(hash, 0x1234, ByteBuffer.wrap(garbage)));
+
+        ProgramRegistry.clear();
+        ShaderProgram program = ProgramRegistry.acquire("/axis");
+        try {
+            assertTrue(program.hasUniform("mat"));
+            assertTrue(ProgramRegistry.report().contains(", 1 rejected"), ProgramRegistry.report());
+            // linking from source wrote a binary the device accepts in place of the rejected one
+            ProgramBinaryCache.Binary binary = registryCache.read(hash);
+            assertNotNull(binary);
+            assertNotEquals(0x1234, binary.getFormat());
+            byte[] data = new byte[binary.getData().remaining()];
+            binary.getData().get(data);
+            binary.free();
+            assertFalse(Arrays.equals(garbage, data));
+        } finally {
+            ProgramRegistry.release(program);
+            ProgramRegistry.clear();
+        }
+    }
+
+    /**
+     * Links the test program on the recording device and stores its binary under hash.
+     */
+    private int store(ProgramBinaryCache target, String hash) {
+        int program = gl.createProgram(VERTEX, FRAGMENT);
+        ByteBuffer binary = ByteBuffer.allocateDirect(gl.getProgrami(program, GL_PROGRAM_BINARY_LENGTH));
+        IntBuffer format = ByteBuffer.allocateDirect(Integer.BYTES).asIntBuffer();
+        gl.getProgramBinary(program, format, binary);
+        assertTrue(target.write(hash, format.get(0), binary));
+        return format.get(0);
+    }
+
+    /**
+     * The stage source as the registry reads it, from the asset pack when there is one.
+     */
+    private static String source(String name) throws IOException {
+        String packed = AssetPack.get().shader(name);
+        if (packed != null) {
+            return packed;
+        }
+        try (InputStream in = ProgramBinaryCacheTest.class.getResourceAsStream(name)) {
+            assertNotNull(in, name);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
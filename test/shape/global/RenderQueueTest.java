@@ -0,0 +1,108 @@
+package shape.global;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.lwjgl.opengl.GL11.GL_TRIANGLES;
+
+class RenderQueueTest extends DeviceTest {
+    private static final String VERTEX = """
+            #version 330
+            in vec3 inPosition;
+            void main() {
+                gl_Position = vec4(inPosition, 1.0);
+            }
+            """;
+    private static final String FRAGMENT = """
+            #version 330
+            out vec4 outColor;
+            void main() {
+                outColor = vec4(1.0);
+            }
+            """;
+
+    private static final String CHUNK_VERTEX = """
+            #version 330
+            in vec3 inPosition;
+            uniform mat4 mat;
+            uniform vec3 chunk;
+            void main() {
+                gl_Position = mat * vec4(chunk.xy + inPosition.xy * chunk.z, inPosition.z, 1.0);
+            }
+            """;
+
+    private final List<String> drawn = new ArrayList<>();
+
+    @Test
+    void layersAboveSevenSortAfterLowerOnes() {
+        ShaderProgram program = program("layers", VERTEX, FRAGMENT);
+        RenderQueue queue = new RenderQueue();
+        queue.add(15, program, mesh("15"));
+        queue.add(8, program, mesh("8"));
+        queue.add(7, program, mesh("7"));
+        queue.add(program, mesh("0"));
+        queue.submit();
+
+        assertEquals(List.of("0", "7", "8", "15"), drawn);
+    }
+
+    @Test
+    void commandWithoutChunkFails() {
+        ShaderProgram program = program("chunked", CHUNK_VERTEX, FRAGMENT);
+        RenderQueue queue = new RenderQueue();
+        queue.requirePerCommand("chunk");
+        queue.add(program, mesh("grid")).vec3("chunk", 0, 0, 1);
+        queue.add(program, mesh("cube"));
+
+        assertThrows(IllegalStateException.class, queue::submit);
+        assertEquals(List.of(), drawn);
+
+        queue.add(program, mesh("cube")).vec3("chunk", 0, 0, 1);
+        queue.submit();
+        assertEquals(List.of("cube"), drawn);
+    }
+
+    @Test
+    void onlyProgramsWithTheUniformMustSetIt() {
+        ShaderProgram chunked = program("chunked", CHUNK_VERTEX, FRAGMENT);
+        ShaderProgram plain = program("plain", VERTEX, FRAGMENT);
+        RenderQueue queue = new RenderQueue();
+        queue.add(chunked, mesh("grid"));
+        queue.submit();
+        assertEquals(List.of("grid"), drawn);
+
+        queue.requirePerCommand("chunk");
+        queue.add(plain, mesh("cube"));
+        queue.submit();
+        assertEquals(List.of("grid", "cube"), drawn);
+    }
+
+    private Drawable mesh(String name) {
+        int meshId = RenderQueue.nextMeshId();
+        return new Drawable() {
+            @Override
+            public int getMeshId() {
+                return meshId;
+            }
+
+            @Override
+            public int getTopology() {
+                return GL_TRIANGLES;
+            }
+
+            @Override
+            public Bounds getBounds() {
+                return null;
+            }
+
+            @Override
+            public void draw(ShaderProgram program, int topology) {
+                drawn.add(name);
+            }
+        };
+    }
+}
@@ -0,0 +1,68 @@
+package shape.global;
+
+import org.junit.jupiter.api.Test;
+import shape.utils.AllocationCounter;
+import shape.utils.Mat4f;
+import transforms.Vec3D;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UniformUploadTest extends DeviceTest {
+    private static final String VERTEX = """
+            #version 330
+            in vec3 inPosition;
+            uniform mat4 mat;
+            uniform mat4 model;
+            uniform vec3 viewPos;
+            void main() {
+                gl_Position = mat * model * vec4(inPosition + viewPos, 1.0);
+            }
+            """;
+    private static final String FRAGMENT = """
+            #version 330
+            out vec4 outColor;
+            void main() {
+                outColor = vec4(1.0);
+            }
+            """;
+    private static final int WARM_UP_FRAMES = 50_000;
+    private static final int FRAMES = 10_000;
+
+    private final Mat4f viewProjection = new Mat4f();
+    private final Mat4f model = new Mat4f();
+    private final Mat4f scale = new Mat4f();
+    private final Vec3D eye = new Vec3D(1, 2, 3);
+
+    @Test
+    void steadyStateFrameAllocatesNothing() {
+        ShaderProgram program = program("upload", VERTEX, FRAGMENT);
+        int location = program.uniformLocation("mat");
+        assertTrue(location >= 0);
+
+        frames(program, location, WARM_UP_FRAMES);
+        device.reset();
+        AllocationCounter allocation = new AllocationCounter();
+        frames(program, location, FRAMES);
+        long allocated = allocation.sample();
+
+        assertEquals(3L * FRAMES, device.getUniformUploads());
+        assertEquals(0, allocated / FRAMES, "heap bytes per frame, " + allocated + " B in " + FRAMES + " frames");
+    }
+
+    /**
+     * What a scene uploads per draw: a view-projection straight through {@link Uniforms}, a model
+     * matrix composed in place and a vector through the program's shadowed setters. All of them
+     * change every frame so no upload is skipped.
+     */
+    private void frames(ShaderProgram program, int location, int count) {
+        program.use();
+        for (int frame = 0; frame < count; frame++) {
+            viewProjection.translation(frame, 0, 0);
+            Uniforms.mat4(location, viewProjection);
+            model.scaling(0.05).mul(scale.translation(0, frame, 0));
+            program.setMat4("model", model);
+            program.setVec3("viewPos", eye.getX(), eye.getY(), frame);
+        }
+    }
+}
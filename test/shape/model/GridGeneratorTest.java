@@ -0,0 +1,197 @@
+package shape.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.lwjgl.opengl.GL11.GL_TRIANGLES;
+import static org.lwjgl.opengl.GL11.GL_TRIANGLE_STRIP;
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_BYTE;
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_INT;
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_SHORT;
+
+class GridGeneratorTest {
+    // around 256 and 65536 vertices, where the index type widens one size earlier with restart
+    private static final int[] BOXES = {14, 15, 16, 254, 255, 256};
+    private static final int[] PLAIN_TYPES = {GL_UNSIGNED_BYTE, GL_UNSIGNED_BYTE, GL_UNSIGNED_SHORT,
+            GL_UNSIGNED_SHORT, GL_UNSIGNED_SHORT, GL_UNSIGNED_INT};
+    private static final int[] RESTART_TYPES = {GL_UNSIGNED_BYTE, GL_UNSIGNED_SHORT, GL_UNSIGNED_SHORT,
+            GL_UNSIGNED_SHORT, GL_UNSIGNED_INT, GL_UNSIGNED_INT};
+    private static final int TILE = 6;
+
+    private final GridGenerator generator = new GridGenerator();
+
+    @Test
+    void indexTypeFitsTheVertexCount() {
+        for (int i = 0; i < BOXES.length; i++) {
+            int boxes = BOXES[i];
+            MeshData[] plain = {generator.list(boxes), generator.strip(boxes)};
+            for (MeshData mesh : plain) {
+                assertEquals(PLAIN_TYPES[i], mesh.getIndexType(), boxes + " boxes");
+                assertFalse(mesh.usesRestart());
+                for (int k = 0; k < mesh.getIndexCount(); k++) {
+                    assertTrue(index(mesh, k) < mesh.getVertexCount(), boxes + " boxes, index " + k);
+                }
+                mesh.free();
+            }
+            MeshData[] restart = {generator.stripRestart(boxes, boxes), generator.stripRestart(boxes, TILE)};
+            for (MeshData mesh : restart) {
+                assertEquals(RESTART_TYPES[i], mesh.getIndexType(), boxes + " boxes");
+                assertTrue(mesh.usesRestart());
+                assertTrue(Integer.toUnsignedLong(mesh.getRestartIndex()) >= mesh.getVertexCount(), "restart addresses a vertex");
+                mesh.free();
+            }
+        }
+    }
+
+    @Test
+    void restartStripsCoverTheListTriangles() {
+        for (int boxes : BOXES) {
+            MeshData list = generator.list(boxes);
+            assertEquals(GL_TRIANGLES, list.getTopology());
+            long[] expected = listTriangles(list);
+            list.free();
+
+            for (int tile : new int[]{boxes, TILE, 1}) {
+                MeshData strips = generator.stripRestart(boxes, tile);
+                assertEquals(GL_TRIANGLE_STRIP, strips.getTopology());
+                int bands = (boxes + Math.min(tile, boxes) - 1) / Math.min(tile, boxes);
+                List<int[]> split = strips(strips);
+                assertEquals(bands * boxes, split.size(), boxes + " boxes, tile " + tile);
+                assertArrayEquals(expected, stripTriangles(split), boxes + " boxes, tile " + tile);
+                strips.free();
+            }
+        }
+    }
+
+    @Test
+    void patchVariantsCoverThePatchCounterClockwise() {
+        for (int boxes : new int[]{2, 4, 8, 16}) {
+            int side = boxes + 1;
+            int[] variantStart = new int[GridGenerator.PATCH_VARIANTS + 1];
+            MeshData patch = generator.patch(boxes, variantStart);
+            assertEquals(GL_TRIANGLES, patch.getTopology());
+            assertEquals(0, variantStart[0]);
+            assertEquals(patch.getIndexCount(), variantStart[GridGenerator.PATCH_VARIANTS]);
+
+            for (int mask = 0; mask < GridGenerator.PATCH_VARIANTS; mask++) {
+                String variant = boxes + " boxes, variant " + mask;
+                int count = variantStart[mask + 1] - variantStart[mask];
+                assertEquals(0, count % 3, variant);
+                // every 2x2 block is a fan of 8 triangles, a stitched edge merges one pair per block
+                int blocks = boxes / 2;
+                assertEquals(8 * blocks * blocks - Integer.bitCount(mask) * blocks, count / 3, variant);
+
+                double area = 0;
+                boolean[] used = new boolean[side * side];
+                for (int k = variantStart[mask]; k < variantStart[mask + 1]; k += 3) {
+                    int a = index(patch, k), b = index(patch, k + 1), c = index(patch, k + 2);
+                    double doubled = (x(patch, b, boxes) - x(patch, a, boxes)) * (y(patch, c, boxes) - y(patch, a, boxes))
+                            - (y(patch, b, boxes) - y(patch, a, boxes)) * (x(patch, c, boxes) - x(patch, a, boxes));
+                    assertTrue(doubled > 0, variant + ", triangle " + (k - variantStart[mask]) / 3 + " is not counter-clockwise");
+                    area += doubled / 2;
+                    used[a] = used[b] = used[c] = true;
+                }
+                // counter-clockwise triangles adding up to the square leave no gap and no overlap
+                assertEquals(boxes * boxes, area, 1e-6, variant);
+
+                for (int t = 1; t < boxes; t += 2) {
+                    // the odd vertices of a stitched edge are dropped, the coarser neighbour has none there
+                    assertEquals((mask & 1) == 0, used[t * side], variant + ", west " + t);
+                    assertEquals((mask & 2) == 0, used[t * side + boxes], variant + ", east " + t);
+                    assertEquals((mask & 4) == 0, used[t], variant + ", south " + t);
+                    assertEquals((mask & 8) == 0, used[boxes * side + t], variant + ", north " + t);
+                }
+            }
+            patch.free();
+        }
+    }
+
+    private static double x(MeshData mesh, int vertex, int boxes) {
+        return Math.round(mesh.getVertices().getFloat(vertex * 3 * Float.BYTES) * boxes);
+    }
+
+    private static double y(MeshData mesh, int vertex, int boxes) {
+        return Math.round(mesh.getVertices().getFloat((vertex * 3 + 1) * Float.BYTES) * boxes);
+    }
+
+    private static long[] listTriangles(MeshData mesh) {
+        long[] triangles = new long[mesh.getIndexCount() / 3];
+        for (int t = 0; t < triangles.length; t++) {
+            triangles[t] = triangle(index(mesh, 3 * t), index(mesh, 3 * t + 1), index(mesh, 3 * t + 2));
+        }
+        Arrays.sort(triangles);
+        return triangles;
+    }
+
+    /**
+     * Cuts the index stream at every restart, all the other indices must address a vertex.
+     */
+    private static List<int[]> strips(MeshData mesh) {
+        List<int[]> strips = new ArrayList<>();
+        int[] current = new int[mesh.getIndexCount()];
+        int n = 0;
+        for (int k = 0; k < mesh.getIndexCount(); k++) {
+            int i = index(mesh, k);
+            if (i == mesh.getRestartIndex()) {
+                strips.add(Arrays.copyOf(current, n));
+                n = 0;
+                continue;
+            }
+            assertTrue(i < mesh.getVertexCount(), "index " + k + " is " + i);
+            current[n++] = i;
+        }
+        strips.add(Arrays.copyOf(current, n));
+        return strips;
+    }
+
+    /**
+     * Triangles as GL assembles a strip, every odd one with its first two vertices swapped.
+     */
+    private static long[] stripTriangles(List<int[]> strips) {
+        int count = 0;
+        for (int[] strip : strips) {
+            count += strip.length - 2;
+        }
+        long[] triangles = new long[count];
+        int t = 0;
+        for (int[] strip : strips) {
+            for (int k = 0; k + 2 < strip.length; k++) {
+                triangles[t++] = k % 2 == 0
+                        ? triangle(strip[k], strip[k + 1], strip[k + 2])
+                        : triangle(strip[k + 1], strip[k], strip[k + 2]);
+            }
+        }
+        Arrays.sort(triangles);
+        return triangles;
+    }
+
+    /**
+     * Packs a triangle rotated to start at its smallest index, which keeps the winding.
+     */
+    private static long triangle(int a, int b, int c) {
+        if (b < a && b < c) {
+            return triangle(b, c, a);
+        }
+        if (c < a && c < b) {
+            return triangle(c, a, b);
+        }
+        return (long) a << 42 | (long) b << 21 | c;
+    }
+
+    private static int index(MeshData mesh, int k) {
+        ByteBuffer indices = mesh.getIndices();
+        return switch (mesh.getIndexType()) {
+            case GL_UNSIGNED_BYTE -> Byte.toUnsignedInt(indices.get(k));
+            case GL_UNSIGNED_SHORT -> Short.toUnsignedInt(indices.getShort(k << 1));
+            default -> indices.getInt(k << 2);
+        };
+    }
+}
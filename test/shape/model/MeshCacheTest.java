@@ -0,0 +1,155 @@
+package shape.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MeshCacheTest {
+    private static final String KEY = "test/strip";
+    private static final int BOXES = 16;
+    private static final int TILE = 6;
+
+    @TempDir
+    Path directory;
+
+    private int builds;
+
+    @Test
+    void secondGetMapsTheFile() {
+        int checksum = MeshCache.checksum(KEY, GridGenerator.class);
+        MeshData built = get(checksum);
+        assertEquals(1, builds);
+        assertFalse(built.isCached());
+        assertTrue(Files.isRegularFile(file()));
+
+        MeshData mapped = get(checksum);
+        assertEquals(1, builds, "second get builds");
+        assertTrue(mapped.isCached());
+        assertSame(built, mapped);
+        built.free();
+        mapped.free();
+    }
+
+    @Test
+    void flippedChecksumIsRebuilt() throws IOException {
+        checkRebuilt(file -> patchInt(file, 8, ~readInt(file, 8)));
+    }
+
+    @Test
+    void truncatedFileIsRebuilt() throws IOException {
+        checkRebuilt(file -> truncate(file, Files.size(file) / 2));
+        // shorter than the header, read without mapping
+        checkRebuilt(file -> truncate(file, 10));
+        checkRebuilt(file -> truncate(file, 0));
+    }
+
+    @Test
+    void otherByteOrderIsRebuilt() throws IOException {
+        // flags at 12, bit 0 is little endian
+        checkRebuilt(file -> patchInt(file, 12, readInt(file, 12) ^ 1));
+    }
+
+    @Test
+    void generatorChangeIsRebuilt() {
+        int checksum = MeshCache.checksum(KEY, GridGenerator.class);
+        int changed = MeshCache.checksum(KEY, GridGenerator.class, ObjLoader.class);
+        assertNotEquals(checksum, changed);
+        get(checksum).free();
+        get(changed).free();
+        assertEquals(2, builds);
+        MeshData mapped = get(changed);
+        assertTrue(mapped.isCached());
+        assertEquals(2, builds);
+        mapped.free();
+    }
+
+    /**
+     * Stores the mesh, damages the file and expects the next get to build and rewrite it, and the
+     * one after that to map the rewritten file.
+     */
+    private void checkRebuilt(Damage damage) throws IOException {
+        int checksum = MeshCache.checksum(KEY, GridGenerator.class);
+        Files.deleteIfExists(file());
+        builds = 0;
+        MeshData built = get(checksum);
+        damage.apply(file());
+
+        MeshData rebuilt = get(checksum);
+        assertEquals(2, builds, "damaged file is built again");
+        assertFalse(rebuilt.isCached());
+        MeshData mapped = get(checksum);
+        assertEquals(2, builds, "rewritten file is mapped");
+        assertTrue(mapped.isCached());
+        assertSame(built, mapped);
+        built.free();
+        rebuilt.free();
+        mapped.free();
+    }
+
+    private MeshData get(int checksum) {
+        Supplier<MeshData> builder = () -> {
+            builds++;
+            return new GridGenerator().stripRestart(BOXES, TILE);
+        };
+        return MeshCache.get(directory, KEY, checksum, builder);
+    }
+
+    private Path file() {
+        return directory.resolve(MeshCache.fileName(KEY));
+    }
+
+    private static void assertSame(MeshData expected, MeshData actual) {
+        assertEquals(expected.getVertexCount(), actual.getVertexCount());
+        assertEquals(expected.getIndexCount(), actual.getIndexCount());
+        assertEquals(expected.getIndexType(), actual.getIndexType());
+        assertEquals(expected.usesRestart(), actual.usesRestart());
+        assertEquals(expected.getRestartIndex(), actual.getRestartIndex());
+        assertEquals(expected.getTopology(), actual.getTopology());
+        assertEquals(expected.getAttributes().length, actual.getAttributes().length);
+        for (int i = 0; i < expected.getAttributes().length; i++) {
+            assertEquals(expected.getAttributes()[i].getName(), actual.getAttributes()[i].getName());
+            assertEquals(expected.getAttributes()[i].getSize(), actual.getAttributes()[i].getSize());
+        }
+        assertEquals(expected.bounds().toString(), actual.bounds().toString());
+        assertEquals(expected.getVertices().duplicate().clear(), actual.getVertices().duplicate().clear());
+        assertEquals(expected.getIndices().duplicate().clear(), actual.getIndices().duplicate().clear());
+    }
+
+    private static int readInt(Path file, int offset) throws IOException {
+        ByteBuffer value = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.read(value, offset);
+        }
+        return value.getInt(0);
+    }
+
+    private static void patchInt(Path file, int offset, int value) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).putInt(0, value);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(bytes, offset);
+        }
+    }
+
+    private static void truncate(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+    private interface Damage {
+        void apply(Path file) throws IOException;
+    }
+}
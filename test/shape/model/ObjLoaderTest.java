@@ -0,0 +1,153 @@
+package shape.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_BYTE;
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_SHORT;
+
+class ObjLoaderTest {
+    private static final String QUAD = """
+            v 0 0 0
+            v 1 0 0
+            v 1 1 0
+            v 0 1 0
+            """;
+
+    @Test
+    void polygonsAreFanned() {
+        MeshData mesh = parse(QUAD + "f 1 2 3 4 \n f 1 3 4 2 1\n");
+        assertEquals(1, mesh.getAttributes().length);
+        assertEquals(4, mesh.getVertexCount());
+        assertArrayEquals(new int[]{0, 1, 2, 0, 2, 3, 0, 2, 3, 0, 3, 1, 0, 1, 0}, indices(mesh));
+        assertArrayEquals(new float[]{0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, 0}, vertices(mesh));
+        mesh.free();
+    }
+
+    @Test
+    void normalsWithoutTexCoords() {
+        MeshData mesh = parse(QUAD + "vn 0 0 1\nvn 0 0 -1\nf 1//1 2//1 3//2\nf 3//2 4//1 1//1\n");
+        assertEquals("inNormal", mesh.getAttributes()[1].getName());
+        assertEquals(2, mesh.getAttributes().length);
+        // repeated v//vn pairs share their vertex
+        assertEquals(4, mesh.getVertexCount());
+        assertArrayEquals(new int[]{0, 1, 2, 2, 3, 0}, indices(mesh));
+        assertArrayEquals(new float[]{
+                0, 0, 0, 0, 0, 1,
+                1, 0, 0, 0, 0, 1,
+                1, 1, 0, 0, 0, -1,
+                0, 1, 0, 0, 0, 1}, vertices(mesh));
+        mesh.free();
+    }
+
+    @Test
+    void texCoordsWithoutNormals() {
+        // a one component vt takes v = 0, a third one is ignored
+        MeshData mesh = parse(QUAD + "vt 0.25\nvt 0.5 0.75\nvt 1 1 1\nf 1/1 2/2 3/3\nf 1/2 3/3 4/1\n");
+        assertEquals("inTexCoord", mesh.getAttributes()[1].getName());
+        assertEquals(5, mesh.getVertexCount());
+        assertArrayEquals(new int[]{0, 1, 2, 3, 2, 4}, indices(mesh));
+        assertArrayEquals(new float[]{
+                0, 0, 0, 0.25F, 0,
+                1, 0, 0, 0.5F, 0.75F,
+                1, 1, 0, 1, 1,
+                0, 0, 0, 0.5F, 0.75F,
+                0, 1, 0, 0.25F, 0}, vertices(mesh));
+        mesh.free();
+    }
+
+    @Test
+    void negativeIndicesCountBackFromTheLastDeclared() {
+        String text = QUAD + "vt 0 0\nvt 1 0\nvt 1 1\nvn 0 0 1\n";
+        MeshData absolute = parse(text + "f 1/1/1 2/2/1 3/3/1\nv 2 2 0\nf 5/3/1 4/2/1 3/1/1\n");
+        MeshData relative = parse(text + "f -4/-3/-1 -3/-2/-1 -2/-1/-1\nv 2 2 0\nf -1/-1/-1 -2/-2/-1 -3/-3/-1\n");
+        assertArrayEquals(indices(absolute), indices(relative));
+        assertArrayEquals(vertices(absolute), vertices(relative));
+        absolute.free();
+        relative.free();
+
+        assertThrows(IllegalArgumentException.class, () -> parse(QUAD + "f -5 1 2\n"));
+        assertThrows(IllegalArgumentException.class, () -> parse(QUAD + "f 1 2\n"));
+    }
+
+    /**
+     * A grid of quads with every face kind and negative indices reaching back over many lines,
+     * parsed in one chunk and cut into chunks of a few lines, which have to give the same mesh.
+     */
+    @Test
+    void chunksJoinIntoTheSameMesh() {
+        int side = 24;
+        StringBuilder obj = new StringBuilder("# grid\n");
+        for (int y = 0; y <= side; y++) {
+            for (int x = 0; x <= side; x++) {
+                obj.append(String.format(Locale.ROOT, "v %d %d %.3f\r\nvt %.4f %.4f\n",
+                        x, y, Math.sin(x * y) * 0.5, (double) x / side, (double) y / side));
+            }
+            obj.append("vn 0 0 1\n");
+        }
+        int vertices = (side + 1) * (side + 1);
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) {
+                int i = y * (side + 1) + x + 1;
+                int n = y + 1;
+                switch ((x + y) % 3) {
+                    case 0 -> obj.append(String.format(Locale.ROOT, "f %d/%d/%d %d/%d/%d %d/%d/%d %d/%d/%d\n",
+                            i, i, n, i + 1, i + 1, n, i + side + 2, i + side + 2, n, i + side + 1, i + side + 1, n));
+                    case 1 -> obj.append(String.format(Locale.ROOT, "f %d//%d %d//%d %d//%d\nf %d %d %d\n",
+                            i, n, i + 1, n, i + side + 2, n, i, i + side + 2, i + side + 1));
+                    default -> obj.append(String.format(Locale.ROOT, "f %d/%d %d/%d %d/%d %d/%d\n",
+                            i - vertices - 1, i - vertices - 1, i - vertices, i - vertices,
+                            i + side + 1 - vertices, i + side + 1 - vertices, i + side - vertices, i + side - vertices));
+                }
+            }
+        }
+        String text = obj.toString();
+
+        MeshData whole = ObjLoader.parse(bytes(text), false, Integer.MAX_VALUE);
+        assertEquals(GL_UNSIGNED_SHORT, whole.getIndexType());
+        int[] expectedIndices = indices(whole);
+        float[] expectedVertices = vertices(whole);
+        whole.free();
+        for (int chunkBytes : new int[]{37, 500, 4096}) {
+            for (boolean parallel : new boolean[]{false, true}) {
+                MeshData chunked = ObjLoader.parse(bytes(text), parallel, chunkBytes);
+                assertArrayEquals(expectedIndices, indices(chunked), chunkBytes + " byte chunks");
+                assertArrayEquals(expectedVertices, vertices(chunked), chunkBytes + " byte chunks");
+                chunked.free();
+            }
+        }
+    }
+
+    private static MeshData parse(String text) {
+        return ObjLoader.parse(bytes(text), false);
+    }
+
+    private static ByteBuffer bytes(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static int[] indices(MeshData mesh) {
+        ByteBuffer data = mesh.getIndices();
+        int[] indices = new int[mesh.getIndexCount()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = switch (mesh.getIndexType()) {
+                case GL_UNSIGNED_BYTE -> Byte.toUnsignedInt(data.get(i));
+                case GL_UNSIGNED_SHORT -> Short.toUnsignedInt(data.getShort(i << 1));
+                default -> data.getInt(i << 2);
+            };
+        }
+        return indices;
+    }
+
+    private static float[] vertices(MeshData mesh) {
+        float[] vertices = new float[(int) (mesh.getVertexBytes() / Float.BYTES)];
+        mesh.getVertices().asFloatBuffer().get(0, vertices);
+        return vertices;
+    }
+}
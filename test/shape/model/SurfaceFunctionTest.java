@@ -0,0 +1,124 @@
+package shape.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class SurfaceFunctionTest {
+    private static final int POINTS = 2000;
+    private static final float TIME = 1.7F;
+    private static final double H = 1e-5;
+
+    /**
+     * The formulas of shaders/grid/*.vert as written there, constants included, in double.
+     */
+    private static double[] glsl(SurfaceFunction function, double u, double v, double time) {
+        double pi = 3.1415926535897932384626433832795;
+        return switch (function) {
+            case Flat -> new double[]{u, v, 0};
+            case Sea -> {
+                double k = 2 * pi / 1.0;
+                yield new double[]{u, v, 0.1 * Math.sin(k * u + k * v - 2.0 * time)};
+            }
+            case Torus -> {
+                double x = u * 2.0 * pi, y = v * 2.0 * pi;
+                yield new double[]{Math.cos(x) * (1.0 + 0.5 * Math.cos(y)), Math.sin(x) * (1.0 + 0.5 * Math.cos(y)),
+                        0.5 * Math.sin(y)};
+            }
+            case Cylinder -> {
+                double r = u * 2.0 * pi, s = v * 2.0 * pi;
+                yield new double[]{r * Math.cos(s) * 0.1, r * Math.sin(s) * 0.1, r * s * 0.1};
+            }
+            case Cartesian -> {
+                double x = 2.0 * (u - 0.5), y = 2.0 * (v - 0.5);
+                yield new double[]{u, v, Math.cos(pi * 1.2 * Math.sqrt(x * x + y * y))};
+            }
+            case Normal -> new double[]{u, v, 0.02 * Math.sin(2 * pi / 0.05 * u + 2 * pi / 0.1 * v)};
+        };
+    }
+
+    @Test
+    void positionsMatchTheShaders() {
+        Random random = new Random(4);
+        float[] out = new float[SurfaceFunction.FLOATS];
+        for (SurfaceFunction function : SurfaceFunction.values()) {
+            for (int i = 0; i < POINTS; i++) {
+                float u = random.nextFloat(), v = random.nextFloat();
+                function.evaluate(u, v, TIME, out);
+                double[] expected = glsl(function, u, v, TIME);
+                for (int c = 0; c < 3; c++) {
+                    assertEquals(expected[c], out[c], 1e-6 * Math.max(1, Math.abs(expected[c])),
+                            function + " at " + u + ", " + v + ", component " + c);
+                }
+            }
+        }
+    }
+
+    @Test
+    void derivativesMatchCentralDifferences() {
+        Random random = new Random(5);
+        float[] out = new float[SurfaceFunction.FLOATS];
+        for (SurfaceFunction function : SurfaceFunction.values()) {
+            for (int i = 0; i < POINTS; i++) {
+                float u = random.nextFloat(), v = random.nextFloat();
+                function.evaluate(u, v, TIME, out);
+                double[] du = difference(glsl(function, u + H, v, TIME), glsl(function, u - H, v, TIME));
+                double[] dv = difference(glsl(function, u, v + H, TIME), glsl(function, u, v - H, TIME));
+                for (int c = 0; c < 3; c++) {
+                    String at = function + " at " + u + ", " + v + ", component " + c;
+                    assertEquals(du[c], out[3 + c], 1e-4 * Math.max(1, Math.abs(du[c])), "d/du of " + at);
+                    assertEquals(dv[c], out[6 + c], 1e-4 * Math.max(1, Math.abs(dv[c])), "d/dv of " + at);
+                }
+            }
+        }
+    }
+
+    @Test
+    void cartesianCentreIsFlat() {
+        float[] out = new float[SurfaceFunction.FLOATS];
+        SurfaceFunction.Cartesian.evaluate(0.5F, 0.5F, 0, out);
+        assertEquals(1, out[2]);
+        assertEquals(0, out[5], 1e-12);
+        assertEquals(0, out[8], 1e-12);
+    }
+
+    @Test
+    void vectorKernelMatchesScalarKernel() {
+        SurfaceEvaluator vector = new SurfaceEvaluator(true);
+        assumeTrue(vector.isVectorized(), "needs --add-modules jdk.incubator.vector");
+        SurfaceEvaluator scalar = new SurfaceEvaluator(false);
+        // odd sizes leave a tail shorter than a vector on every row
+        for (int boxes : new int[]{1, 6, 100, 257}) {
+            for (SurfaceFunction function : SurfaceFunction.values()) {
+                SurfaceSamples expected = scalar.evaluate(function, 0.1F, 0.2F, 0.7F, boxes, TIME,
+                        new SurfaceSamples(true), false);
+                SurfaceSamples actual = vector.evaluate(function, 0.1F, 0.2F, 0.7F, boxes, TIME,
+                        new SurfaceSamples(true), false);
+                String at = function + ", " + boxes + " boxes";
+                compare(expected.getX(), actual.getX(), expected.getCount(), "x of " + at);
+                compare(expected.getY(), actual.getY(), expected.getCount(), "y of " + at);
+                compare(expected.getZ(), actual.getZ(), expected.getCount(), "z of " + at);
+                compare(expected.getNormalX(), actual.getNormalX(), expected.getCount(), "normal x of " + at);
+                compare(expected.getNormalY(), actual.getNormalY(), expected.getCount(), "normal y of " + at);
+                compare(expected.getNormalZ(), actual.getNormalZ(), expected.getCount(), "normal z of " + at);
+            }
+        }
+    }
+
+    private static double[] difference(double[] plus, double[] minus) {
+        double[] d = new double[3];
+        for (int c = 0; c < 3; c++) {
+            d[c] = (plus[c] - minus[c]) / (2 * H);
+        }
+        return d;
+    }
+
+    private static void compare(float[] expected, float[] actual, int count, String what) {
+        for (int i = 0; i < count; i++) {
+            assertEquals(expected[i], actual[i], 4e-5, what + ", vertex " + i);
+        }
+    }
+}
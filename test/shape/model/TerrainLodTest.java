@@ -0,0 +1,93 @@
+package shape.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TerrainLodTest {
+    private static final int CAMERAS = 300;
+
+    @Test
+    void neighboursDifferByOneLevelAtMost() {
+        Random random = new Random(3);
+        for (double splitFactor : new double[]{2, 2.5, 4}) {
+            TerrainLod lod = new TerrainLod(8, splitFactor);
+            for (int camera = 0; camera < CAMERAS; camera++) {
+                double x = random.nextDouble() * 2 - 0.5;
+                double y = random.nextDouble() * 2 - 0.5;
+                double z = random.nextDouble() * 0.5 - 0.1;
+                int count = lod.select(x, y, z, -0.1, 0.1, null);
+                check(lod.getChunks(), count, "camera " + x + ", " + y + ", " + z + ", split " + splitFactor);
+            }
+        }
+    }
+
+    @Test
+    void cameraOnTheGridReachesMaxDepth() {
+        TerrainLod lod = new TerrainLod(6, 2);
+        int count = lod.select(0.3, 0.6, 0, 0, 0, null);
+        assertEquals(6, lod.getDeepest());
+        check(lod.getChunks(), count, "camera on the grid");
+    }
+
+    /**
+     * The chunks tile the square, chunks sharing an edge differ by one level at most and an edge
+     * is stitched exactly when the chunk across it is the coarser one.
+     */
+    private static void check(float[] chunks, int count, String camera) {
+        double area = 0;
+        for (int i = 0; i < count; i++) {
+            float size = chunks[i * TerrainLod.FLOATS_PER_CHUNK + 2];
+            area += (double) size * size;
+        }
+        assertEquals(1, area, 1e-12, camera);
+
+        for (int i = 0; i < count; i++) {
+            int o = i * TerrainLod.FLOATS_PER_CHUNK;
+            float x = chunks[o], y = chunks[o + 1], size = chunks[o + 2];
+            int mask = (int) chunks[o + 3];
+            boolean[] coarser = new boolean[4];
+            for (int j = 0; j < count; j++) {
+                int p = j * TerrainLod.FLOATS_PER_CHUNK;
+                float nx = chunks[p], ny = chunks[p + 1], nsize = chunks[p + 2];
+                int side = side(x, y, size, nx, ny, nsize);
+                if (side < 0) {
+                    continue;
+                }
+                double ratio = Math.max(size, nsize) / Math.min(size, nsize);
+                assertTrue(ratio <= 2, camera + ": chunk " + x + ", " + y + " size " + size
+                        + " next to " + nx + ", " + ny + " size " + nsize);
+                coarser[side] |= nsize > size;
+            }
+            for (int side = 0; side < 4; side++) {
+                assertEquals(coarser[side], (mask & 1 << side) != 0,
+                        camera + ": chunk " + x + ", " + y + " size " + size + " edge " + side);
+            }
+        }
+    }
+
+    /**
+     * Which edge of the first chunk the second one lies across (west, east, south, north as in the
+     * stitch mask), or -1 when they share no piece of an edge.
+     */
+    private static int side(float x, float y, float size, float nx, float ny, float nsize) {
+        boolean rows = ny < y + size && y < ny + nsize;
+        boolean columns = nx < x + size && x < nx + nsize;
+        if (rows && nx + nsize == x) {
+            return 0;
+        }
+        if (rows && nx == x + size) {
+            return 1;
+        }
+        if (columns && ny + nsize == y) {
+            return 2;
+        }
+        if (columns && ny == y + size) {
+            return 3;
+        }
+        return -1;
+    }
+}
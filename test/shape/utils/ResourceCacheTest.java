@@ -0,0 +1,148 @@
+package shape.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResourceCacheTest {
+    private static final long SIZE = 10;
+
+    /**
+     * Stands in for a GPU resource, its size can change like a texture's when its image arrives.
+     */
+    private static class Resource {
+        final String name;
+        long bytes;
+
+        Resource(String name, long bytes) {
+            this.name = name;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private final List<String> disposed = new ArrayList<>();
+    private int loads;
+    private ResourceCache<String, Resource> cache;
+
+    @BeforeEach
+    void createCache() {
+        cache = new ResourceCache<>(3 * SIZE, resource -> resource.bytes, resource -> disposed.add(resource.name));
+    }
+
+    @Test
+    void referencesKeepAnEntry() {
+        cache.setBudget(0);
+        Resource a = acquire("a");
+        assertSame(a, acquire("a"));
+        assertEquals(1, loads);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        cache.release(a);
+        assertTrue(cache.contains("a"), "one reference left");
+        cache.release(a);
+        assertFalse(cache.contains("a"));
+        assertEquals(List.of("a"), disposed);
+        assertEquals(0, cache.getResidentBytes());
+
+        // a value the cache no longer knows is ignored
+        cache.release(a);
+        cache.release(new Resource("z", SIZE));
+        assertEquals(List.of("a"), disposed);
+    }
+
+    @Test
+    void leastRecentlyUsedIsEvictedFirst() {
+        for (String name : new String[]{"a", "b", "c"}) {
+            cache.release(acquire(name));
+        }
+        assertEquals(3 * SIZE, cache.getResidentBytes());
+        assertTrue(disposed.isEmpty());
+
+        // using a makes b the oldest
+        cache.release(acquire("a"));
+        cache.release(acquire("d"));
+        assertEquals(List.of("b"), disposed);
+        cache.release(acquire("e"));
+        assertEquals(List.of("b", "c"), disposed);
+        assertTrue(cache.contains("a"));
+        assertTrue(cache.contains("d"));
+        assertTrue(cache.contains("e"));
+        assertEquals(3 * SIZE, cache.getResidentBytes());
+        assertEquals(2, cache.getEvictions());
+
+        cache.setBudget(SIZE);
+        assertEquals(List.of("b", "c", "a", "d"), disposed);
+        assertEquals(SIZE, cache.getResidentBytes());
+    }
+
+    @Test
+    void resizedChargesTheNewSize() {
+        cache.release(acquire("a"));
+        Resource b = acquire("b");
+        assertEquals(2 * SIZE, cache.getResidentBytes());
+
+        b.bytes = 25;
+        cache.resized(b);
+        assertEquals(List.of("a"), disposed, "growing b pushes the idle entry out");
+        assertEquals(25, cache.getResidentBytes());
+
+        b.bytes = 5;
+        cache.resized(b);
+        assertEquals(5, cache.getResidentBytes());
+        cache.release(b);
+        assertEquals(5, cache.getResidentBytes());
+
+        cache.resized(new Resource("z", 100));
+        assertEquals(5, cache.getResidentBytes());
+    }
+
+    @Test
+    void heldEntriesAreNeverEvicted() {
+        Resource[] held = new Resource[5];
+        for (int i = 0; i < held.length; i++) {
+            held[i] = acquire("held" + i);
+        }
+        cache.setBudget(0);
+        assertEquals(held.length * SIZE, cache.getResidentBytes(), "over budget while everything is in use");
+        assertTrue(disposed.isEmpty());
+
+        held[2].bytes = 1000;
+        cache.resized(held[2]);
+        assertTrue(disposed.isEmpty());
+
+        cache.release(held[3]);
+        assertEquals(List.of("held3"), disposed);
+        assertEquals(held.length - 1, cache.size());
+
+        cache.clear();
+        assertEquals(held.length, disposed.size());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getResidentBytes());
+    }
+
+    @Test
+    void budgetMustNotBeNegative() {
+        assertThrows(IllegalArgumentException.class, () -> cache.setBudget(-1));
+    }
+
+    private Resource acquire(String name) {
+        return cache.acquire(name, () -> {
+            loads++;
+            return new Resource(name, SIZE);
+        });
+    }
+}
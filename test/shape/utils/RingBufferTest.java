@@ -0,0 +1,121 @@
+package shape.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Every statistic of the window against a brute force pass over the same samples,
+ * after each sample of streams several windows long.
+ */
+class RingBufferTest {
+    private static final int CAPACITY = 97;
+    private static final int SAMPLES = 10 * CAPACITY + 13;
+    private static final double[] PERCENTILES = {0, 0.01, 0.5, 0.9, 0.99, 1};
+    private static final double RANGE = 50;
+    private static final int BINS = 200;
+
+    @Test
+    void doubleWindowMatchesBruteForce() {
+        Random random = new Random(1);
+        Histogram histogram = new Histogram(0, RANGE, BINS);
+        DoubleRingBuffer buffer = new DoubleRingBuffer(CAPACITY, histogram);
+        double[] stream = new double[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            // a drifting mean and bursts, so the extremes and the spread keep changing
+            double value = 20 + 10 * Math.sin(i / 50.0) + random.nextGaussian() * (i % 300 < 50 ? 8 : 1);
+            stream[i] = Math.max(0, Math.min(RANGE - 1e-9, value));
+            buffer.add(stream[i]);
+            double[] window = window(stream, i);
+            check(window, buffer, histogram.getBinWidth());
+            for (int k = 0; k < window.length; k++) {
+                assertEquals(window[k], buffer.get(k));
+            }
+        }
+    }
+
+    @Test
+    void longWindowMatchesBruteForce() {
+        Random random = new Random(2);
+        Histogram histogram = new Histogram(0, 50_000_000, 500);
+        LongRingBuffer buffer = new LongRingBuffer(CAPACITY, histogram);
+        long[] stream = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            // frame times in nanoseconds with occasional spikes
+            stream[i] = 16_000_000 + random.nextInt(2_000_000) + (random.nextInt(40) == 0 ? 20_000_000 : 0);
+            buffer.add(stream[i]);
+            double[] window = window(Arrays.stream(stream).asDoubleStream().toArray(), i);
+            check(window, buffer, histogram.getBinWidth());
+            long sum = 0;
+            for (int k = 0; k < window.length; k++) {
+                assertEquals((long) window[k], buffer.get(k));
+                sum += (long) window[k];
+            }
+            assertEquals(sum, buffer.getSum());
+        }
+    }
+
+    @Test
+    void clearStartsAnEmptyWindow() {
+        DoubleRingBuffer buffer = new DoubleRingBuffer(CAPACITY, new Histogram(0, RANGE, BINS));
+        for (int i = 0; i < 3 * CAPACITY; i++) {
+            buffer.add(i % RANGE);
+        }
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        assertEquals(0.0, buffer.getMean());
+        assertEquals(0.0, buffer.getMax());
+        buffer.add(7);
+        buffer.add(3);
+        assertEquals(2, buffer.size());
+        assertEquals(5.0, buffer.getMean());
+        assertEquals(3.0, buffer.getMin());
+        assertEquals(7.0, buffer.getMax());
+        assertEquals(8.0, buffer.getVariance());
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.get(2));
+    }
+
+    @Test
+    void percentilesNeedAHistogram() {
+        LongRingBuffer buffer = new LongRingBuffer(CAPACITY);
+        buffer.add(1);
+        assertThrows(IllegalStateException.class, () -> buffer.getPercentile(0.5));
+    }
+
+    private static double[] window(double[] stream, int last) {
+        return Arrays.copyOfRange(stream, Math.max(0, last + 1 - CAPACITY), last + 1);
+    }
+
+    private static void check(double[] window, RingBuffer buffer, double binWidth) {
+        int n = window.length;
+        String at = "after " + buffer.getAdded() + " samples";
+        assertEquals(n, buffer.size(), at);
+
+        double mean = 0;
+        for (double v : window) {
+            mean += v;
+        }
+        mean /= n;
+        double squares = 0;
+        for (double v : window) {
+            squares += (v - mean) * (v - mean);
+        }
+        double variance = n < 2 ? 0 : squares / (n - 1);
+        assertEquals(mean, buffer.getMean(), Math.abs(mean) * 1e-12, at);
+        assertEquals(variance, buffer.getVariance(), variance * 1e-8 + 1e-12, at);
+
+        double[] sorted = window.clone();
+        Arrays.sort(sorted);
+        assertEquals(sorted[0], buffer.getMin(), at);
+        assertEquals(sorted[n - 1], buffer.getMax(), at);
+        // the histogram interpolates inside the bin holding the sample of that rank
+        for (double p : PERCENTILES) {
+            double expected = sorted[Math.max(0, (int) Math.ceil(p * n) - 1)];
+            assertEquals(expected, buffer.getPercentile(p), binWidth, at + ", p" + p);
+        }
+    }
+}